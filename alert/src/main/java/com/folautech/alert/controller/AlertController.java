@@ -13,6 +13,7 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
@@ -55,6 +56,26 @@ public class AlertController {
             });
     }
     
+    @PostMapping(value = "/evaluate", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Evaluate vital readings, streaming alerts", 
+               description = "Same evaluation as POST /evaluate, selected with Accept: application/x-ndjson. Each alert is written as one NDJSON line as soon as its insert chunk is saved, in reading order; with ordered=true the alerts are held back until the whole batch is saved and sorted by alertId.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stream of created alerts",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, 
+                                       schema = @Schema(implementation = Alert.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid reading data")
+    })
+    public Flux<Alert> streamEvaluation(
+            @RequestBody List<VitalReading> readings,
+            @Parameter(description = "Sort alerts by alertId before sending them")
+            @RequestParam(defaultValue = "false") boolean ordered) {
+        logger.info("Received {} readings for streaming evaluation (ordered={})", readings.size(), ordered);
+        
+        return alertService.evaluateReadings(readings, ordered)
+            .doOnComplete(() -> logger.info("Completed streaming evaluation of {} readings", readings.size()))
+            .doOnError(error -> logger.error("Error streaming evaluation: {}", error.getMessage()));
+    }
+    
     @GetMapping("/alerts")
     @Operation(summary = "Get alerts for patient", 
                description = "Retrieves all alerts for a specific patient, ordered by most recent first")
@@ -0,0 +1,42 @@
+package com.folautech.alert.controller;
+
+import com.folautech.alert.model.PatientScore;
+import com.folautech.alert.service.PatientScoreService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+
+@RestController
+@Tag(name = "Patient Score", description = "API for reading per-patient early-warning scores")
+public class PatientScoreController {
+
+    private final PatientScoreService patientScoreService;
+
+    public PatientScoreController(PatientScoreService patientScoreService) {
+        this.patientScoreService = patientScoreService;
+    }
+
+    @GetMapping("/patients/{patientId}/score")
+    @Operation(summary = "Get patient early-warning score",
+               description = "Returns the NEWS2-style score of the patient's latest BP, HR and SpO2 readings, kept up to date in memory as readings are evaluated")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Current score",
+                    content = @Content(schema = @Schema(implementation = PatientScore.class))),
+        @ApiResponse(responseCode = "404", description = "No readings of the patient have been scored")
+    })
+    public Mono<ResponseEntity<PatientScore>> getScore(
+            @Parameter(description = "Patient ID", required = true) @PathVariable String patientId) {
+        return patientScoreService.getScore(patientId)
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+}
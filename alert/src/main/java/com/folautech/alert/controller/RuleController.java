@@ -0,0 +1,73 @@
+package com.folautech.alert.controller;
+
+import com.folautech.alert.rules.RuleEngine;
+import com.folautech.alert.rules.RuleSetDefinition;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.io.UncheckedIOException;
+import java.util.function.Supplier;
+
+@RestController
+@RequestMapping("/rules")
+@Tag(name = "Alert Rules", description = "API for inspecting and replacing the threshold rule set")
+public class RuleController {
+
+    private static final Logger logger = LoggerFactory.getLogger(RuleController.class);
+
+    private final RuleEngine ruleEngine;
+
+    public RuleController(RuleEngine ruleEngine) {
+        this.ruleEngine = ruleEngine;
+    }
+
+    @GetMapping
+    @Operation(summary = "Get active rule set", description = "Returns the rule set readings are currently evaluated against")
+    @ApiResponse(responseCode = "200", description = "Active rule set",
+                 content = @Content(schema = @Schema(implementation = RuleSetDefinition.class)))
+    public Mono<RuleSetDefinition> getRules() {
+        return Mono.fromSupplier(ruleEngine::currentDefinition);
+    }
+
+    @PutMapping
+    @Operation(summary = "Replace rule set",
+               description = "Validates and compiles the given rule set, then swaps it in atomically")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rule set applied, returning its version"),
+        @ApiResponse(responseCode = "400", description = "Invalid rule set; the previous rule set stays active")
+    })
+    public Mono<ResponseEntity<String>> replaceRules(@RequestBody RuleSetDefinition definition) {
+        logger.info("Received rule set {}", definition.getVersion());
+        return swap(() -> ruleEngine.apply(definition));
+    }
+
+    @PostMapping("/reload")
+    @Operation(summary = "Reload rule set",
+               description = "Re-reads the configured rule file and swaps it in atomically")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Rule set reloaded, returning its version"),
+        @ApiResponse(responseCode = "400", description = "Rule file missing or invalid; the previous rule set stays active")
+    })
+    public Mono<ResponseEntity<String>> reloadRules() {
+        logger.info("Reloading rule set");
+        return swap(ruleEngine::reload);
+    }
+
+    private Mono<ResponseEntity<String>> swap(Supplier<String> action) {
+        return Mono.fromSupplier(action)
+            .map(ResponseEntity::ok)
+            .onErrorResume(error -> error instanceof IllegalArgumentException || error instanceof UncheckedIOException, error -> {
+                logger.error("Rejected rule set: {}", error.getMessage());
+                return Mono.just(ResponseEntity.badRequest().body(error.getMessage()));
+            });
+    }
+}
@@ -0,0 +1,73 @@
+package com.folautech.alert.controller;
+
+import com.folautech.alert.service.ThresholdOverrideService;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
+import io.swagger.v3.oas.annotations.responses.ApiResponse;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+@RestController
+@RequestMapping("/patients/{patientId}/thresholds")
+@Tag(name = "Patient Thresholds", description = "API for managing per-patient threshold overrides")
+public class ThresholdOverrideController {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThresholdOverrideController.class);
+
+    private final ThresholdOverrideService thresholdOverrideService;
+
+    public ThresholdOverrideController(ThresholdOverrideService thresholdOverrideService) {
+        this.thresholdOverrideService = thresholdOverrideService;
+    }
+
+    @GetMapping
+    @Operation(summary = "Get patient thresholds",
+               description = "Returns the patient's overrides by rule set param name; params not listed use the global thresholds")
+    @ApiResponse(responseCode = "200", description = "Overrides retrieved successfully")
+    public Mono<Map<String, Integer>> getOverrides(
+            @Parameter(description = "Patient ID", required = true) @PathVariable String patientId) {
+        return thresholdOverrideService.getOverrides(patientId);
+    }
+
+    @PutMapping
+    @Operation(summary = "Set patient thresholds",
+               description = "Replaces the patient's overrides, e.g. {\"spo2.low\": 88} for a COPD patient")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Overrides applied"),
+        @ApiResponse(responseCode = "400", description = "Unknown param or missing value"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<Map<String, Integer>>> replaceOverrides(
+            @Parameter(description = "Patient ID", required = true) @PathVariable String patientId,
+            @RequestBody Map<String, Integer> overrides) {
+        logger.info("Setting threshold overrides for patient {}: {}", patientId, overrides);
+        return thresholdOverrideService.replaceOverrides(patientId, overrides)
+            .map(ResponseEntity::ok)
+            .onErrorResume(IllegalArgumentException.class, error -> {
+                logger.warn("Rejected threshold overrides for patient {}: {}", patientId, error.getMessage());
+                return Mono.just(ResponseEntity.badRequest().build());
+            })
+            .onErrorResume(error -> {
+                logger.error("Error setting threshold overrides for patient {}: {}", patientId, error.getMessage());
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            });
+    }
+
+    @DeleteMapping
+    @Operation(summary = "Clear patient thresholds", description = "Returns the patient to the global thresholds")
+    @ApiResponse(responseCode = "204", description = "Overrides cleared")
+    public Mono<ResponseEntity<Void>> clearOverrides(
+            @Parameter(description = "Patient ID", required = true) @PathVariable String patientId) {
+        logger.info("Clearing threshold overrides for patient {}", patientId);
+        return thresholdOverrideService.clearOverrides(patientId)
+            .then(Mono.just(ResponseEntity.noContent().<Void>build()));
+    }
+}
@@ -26,6 +26,13 @@ public class Alert {
     @Column("reading_id")
     private String readingId;
     
+    @Column("rule_id")
+    private String ruleId;
+    
+    // Rules of one family share an open alert, see RuleMatch
+    @Column("rule_family")
+    private String ruleFamily;
+    
     @Column("reading_type")
     private String readingType;
     
@@ -43,6 +50,23 @@ public class Alert {
     
     @Column("created_at")
     private LocalDateTime createdAt;
+    
+    // Repeat violations of the rule folded into this alert within the suppression window, including the first
+    @Column("occurrences")
+    private Integer occurrences;
+    
+    @Column("last_reading_id")
+    private String lastReadingId;
+    
+    @Column("last_value")
+    private String lastValue;
+    
+    @Column("last_seen_at")
+    private LocalDateTime lastSeenAt;
+    
+    // Raised by a reading captured before one already evaluated for the patient, judged on its own
+    @Column("late")
+    private Boolean late;
 
     public Alert(String alertId, String patientId, String readingId, String readingType, 
                 AlertType alertType, String thresholdViolated, String readingValue, LocalDateTime triggeredAt) {
@@ -55,5 +79,10 @@ public class Alert {
         this.readingValue = readingValue;
         this.triggeredAt = triggeredAt;
         this.createdAt = LocalDateTime.now();
+        this.occurrences = 1;
+        this.lastReadingId = readingId;
+        this.lastValue = readingValue;
+        this.lastSeenAt = triggeredAt;
+        this.late = false;
     }
 }
\ No newline at end of file
@@ -0,0 +1,35 @@
+package com.folautech.alert.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Repeat violations of an open alert's rule family, folded into that alert instead of raising new ones.
+ * alertType and thresholdViolated are set when a repeat is more severe than the alert, which then takes them on.
+ * readingIds and ruleIds list each folded reading and the rule it violated, in the same order; only those not
+ * already recorded against an alert are counted.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AlertRepeat {
+    private String alertId;
+    private List<String> readingIds;
+    private List<String> ruleIds;
+    private String lastReadingId;
+    private String lastValue;
+    private LocalDateTime lastSeenAt;
+    private String alertType;
+    private String thresholdViolated;
+
+    /**
+     * Readings folded in, including any already recorded by an earlier delivery.
+     */
+    public int getRepeats() {
+        return readingIds.size();
+    }
+}
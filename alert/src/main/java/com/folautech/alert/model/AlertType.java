@@ -3,5 +3,20 @@ package com.folautech.alert.model;
 public enum AlertType {
     HIGH,
     LOW,
-    CRITICAL
-}
\ No newline at end of file
+    CRITICAL;
+
+    /**
+     * Declaration order is not severity order: LOW ranks below HIGH, which ranks below CRITICAL.
+     */
+    public boolean outranks(AlertType other) {
+        return rank() > other.rank();
+    }
+
+    private int rank() {
+        return switch (this) {
+            case LOW -> 0;
+            case HIGH -> 1;
+            case CRITICAL -> 2;
+        };
+    }
+}
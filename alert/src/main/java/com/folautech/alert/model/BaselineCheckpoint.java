@@ -0,0 +1,24 @@
+package com.folautech.alert.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * Saved state of one field of a patient's adaptive baseline, so a restart does not reset it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class BaselineCheckpoint {
+    private String patientId;
+    private String readingType;
+    private String field;
+    private double mean;
+    private double variance;
+    private int samples;
+    // Capture time of the newest reading included, so history replayed after a restart is not counted twice
+    private LocalDateTime lastCapturedAt;
+}
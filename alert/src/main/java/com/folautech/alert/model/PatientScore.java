@@ -0,0 +1,24 @@
+package com.folautech.alert.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+/**
+ * A patient's current early-warning score with the sub-score of each vital type; a sub-score is null
+ * while no reading of that type has been received.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class PatientScore {
+    private String patientId;
+    private int score;
+    private String band;
+    private Integer bp;
+    private Integer hr;
+    private Integer spo2;
+    private LocalDateTime updatedAt;
+}
@@ -0,0 +1,17 @@
+package com.folautech.alert.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One patient-specific value for a rule set parameter, replacing the global default for that patient.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ThresholdOverride {
+    private String patientId;
+    private String paramName;
+    private Integer threshold;
+}
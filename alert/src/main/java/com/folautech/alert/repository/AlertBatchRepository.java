@@ -0,0 +1,181 @@
+package com.folautech.alert.repository;
+
+import com.folautech.alert.model.Alert;
+import com.folautech.alert.model.AlertRepeat;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Set-based writes against alerts that Spring Data's per-entity save cannot express.
+ */
+@Repository
+public class AlertBatchRepository {
+
+    private static final String INSERT_PREFIX =
+        "INSERT INTO alerts (alert_id, patient_id, reading_id, rule_id, rule_family, reading_type, alert_type, threshold_violated, "
+            + "reading_value, triggered_at, created_at, occurrences, last_reading_id, last_value, last_seen_at, late) VALUES ";
+
+    // Severity order of AlertType; a null u.alert_type never escalates
+    private static final String ESCALATES =
+        "array_position(ARRAY['LOW', 'HIGH', 'CRITICAL'], u.alert_type) > array_position(ARRAY['LOW', 'HIGH', 'CRITICAL'], a.alert_type)";
+
+    // Records each folded reading once per rule, and counts only the readings recorded by this statement, so a
+    // retried or concurrently evaluated reading is not counted again. Only moves last_* forward, so repeats that
+    // arrive out of order keep the newest. A more severe repeat escalates alert_type and threshold_violated;
+    // rule_id stays the rule that opened the alert, as it is what keeps the opening reading's alert unique.
+    // Alerts with no newly recorded reading are left as they are, but still returned.
+    private static final String RECORD_REPEATS =
+        "WITH recorded AS (INSERT INTO alert_repeats (reading_id, rule_id, alert_id) "
+            + "SELECT * FROM unnest(CAST(:readingIds AS VARCHAR[]), CAST(:ruleIds AS VARCHAR[]), CAST(:readingAlertIds AS VARCHAR[])) "
+            + "ON CONFLICT (reading_id, rule_id) DO NOTHING RETURNING alert_id), "
+            + "counted AS (SELECT alert_id, CAST(count(*) AS INTEGER) AS repeats FROM recorded GROUP BY alert_id) "
+            + "UPDATE alerts a SET occurrences = a.occurrences + COALESCE(c.repeats, 0), "
+            + "last_reading_id = CASE WHEN c.repeats > 0 AND u.last_seen_at >= a.last_seen_at THEN u.last_reading_id ELSE a.last_reading_id END, "
+            + "last_value = CASE WHEN c.repeats > 0 AND u.last_seen_at >= a.last_seen_at THEN u.last_value ELSE a.last_value END, "
+            + "last_seen_at = CASE WHEN c.repeats > 0 THEN GREATEST(a.last_seen_at, u.last_seen_at) ELSE a.last_seen_at END, "
+            + "alert_type = CASE WHEN c.repeats > 0 AND " + ESCALATES + " THEN u.alert_type ELSE a.alert_type END, "
+            + "threshold_violated = CASE WHEN c.repeats > 0 AND " + ESCALATES + " THEN u.threshold_violated ELSE a.threshold_violated END "
+            + "FROM unnest(CAST(:alertIds AS VARCHAR[]), CAST(:lastReadingIds AS VARCHAR[]), "
+            + "CAST(:lastValues AS VARCHAR[]), CAST(:lastSeenAts AS TIMESTAMP[]), CAST(:alertTypes AS VARCHAR[]), "
+            + "CAST(:thresholdsViolated AS VARCHAR[])) "
+            + "AS u(alert_id, last_reading_id, last_value, last_seen_at, alert_type, threshold_violated) "
+            + "LEFT JOIN counted c ON c.alert_id = u.alert_id "
+            + "WHERE a.alert_id = u.alert_id RETURNING a.*";
+
+    private final DatabaseClient databaseClient;
+
+    public AlertBatchRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Insert all alerts with a single multi-row INSERT ... ON CONFLICT DO NOTHING statement.
+     * An alert whose (reading_id, rule_id) is already stored is skipped atomically, so replicas or
+     * retries evaluating the same reading concurrently cannot both raise it. Rows are written in
+     * list order; any other constraint violation fails the whole statement and no row is written.
+     * @param alerts alerts to insert, callers are expected to chunk large batches
+     * @return Flux<Alert> the alerts that were newly inserted, with their generated ids, in list order
+     */
+    public Flux<Alert> insertIgnoringDuplicates(List<Alert> alerts) {
+        if (alerts.isEmpty()) {
+            return Flux.empty();
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < alerts.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:alertId").append(i)
+                .append(", :patientId").append(i)
+                .append(", :readingId").append(i)
+                .append(", :ruleId").append(i)
+                .append(", :ruleFamily").append(i)
+                .append(", :readingType").append(i)
+                .append(", :alertType").append(i)
+                .append(", :thresholdViolated").append(i)
+                .append(", :readingValue").append(i)
+                .append(", :triggeredAt").append(i)
+                .append(", :createdAt").append(i)
+                .append(", :occurrences").append(i)
+                .append(", :lastReadingId").append(i)
+                .append(", :lastValue").append(i)
+                .append(", :lastSeenAt").append(i)
+                .append(", :late").append(i)
+                .append(")");
+        }
+        sql.append(" ON CONFLICT (reading_id, rule_id) DO NOTHING RETURNING id, alert_id");
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < alerts.size(); i++) {
+            Alert alert = alerts.get(i);
+            spec = spec.bind("alertId" + i, alert.getAlertId())
+                .bind("patientId" + i, alert.getPatientId())
+                .bind("readingId" + i, alert.getReadingId())
+                .bind("ruleId" + i, alert.getRuleId())
+                .bind("ruleFamily" + i, alert.getRuleFamily())
+                .bind("readingType" + i, alert.getReadingType())
+                .bind("alertType" + i, alert.getAlertType())
+                .bind("thresholdViolated" + i, alert.getThresholdViolated())
+                .bind("readingValue" + i, alert.getReadingValue())
+                .bind("triggeredAt" + i, alert.getTriggeredAt())
+                .bind("createdAt" + i, alert.getCreatedAt())
+                .bind("occurrences" + i, alert.getOccurrences())
+                .bind("lastReadingId" + i, alert.getLastReadingId())
+                .bind("lastValue" + i, alert.getLastValue())
+                .bind("lastSeenAt" + i, alert.getLastSeenAt())
+                .bind("late" + i, Boolean.TRUE.equals(alert.getLate()));
+        }
+
+        return spec.map(row -> Map.entry(row.get("alert_id", String.class), row.get("id", Long.class)))
+            .all()
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+            .flatMapMany(ids -> Flux.fromIterable(alerts)
+                .filter(alert -> ids.containsKey(alert.getAlertId()))
+                .doOnNext(alert -> alert.setId(ids.get(alert.getAlertId()))));
+    }
+
+    /**
+     * Fold repeat violations into their open alerts, escalating those a repeat is more severe than, with one
+     * statement that records the folded readings in alert_repeats and updates the alerts from unnest.
+     * A reading already recorded for the same rule is neither counted nor escalates the alert again.
+     * @param repeats at most one entry per alert; callers are expected to chunk large batches
+     * @return Flux<Alert> the alerts as stored afterwards, including those no new reading was folded into;
+     *         alerts no longer stored are missing
+     */
+    public Flux<Alert> recordRepeats(List<AlertRepeat> repeats) {
+        if (repeats.isEmpty()) {
+            return Flux.empty();
+        }
+        return databaseClient.sql(RECORD_REPEATS)
+            .bind("readingIds", repeats.stream().flatMap(repeat -> repeat.getReadingIds().stream()).toArray(String[]::new))
+            .bind("ruleIds", repeats.stream().flatMap(repeat -> repeat.getRuleIds().stream()).toArray(String[]::new))
+            .bind("readingAlertIds", repeats.stream()
+                .flatMap(repeat -> Collections.nCopies(repeat.getRepeats(), repeat.getAlertId()).stream())
+                .toArray(String[]::new))
+            .bind("alertIds", repeats.stream().map(AlertRepeat::getAlertId).toArray(String[]::new))
+            .bind("lastReadingIds", repeats.stream().map(AlertRepeat::getLastReadingId).toArray(String[]::new))
+            .bind("lastValues", repeats.stream().map(AlertRepeat::getLastValue).toArray(String[]::new))
+            .bind("lastSeenAts", repeats.stream().map(AlertRepeat::getLastSeenAt).toArray(LocalDateTime[]::new))
+            .bind("alertTypes", repeats.stream().map(AlertRepeat::getAlertType).toArray(String[]::new))
+            .bind("thresholdsViolated", repeats.stream().map(AlertRepeat::getThresholdViolated).toArray(String[]::new))
+            .map(AlertBatchRepository::toAlert)
+            .all();
+    }
+
+    /**
+     * Forget every recorded repeat, for when all alerts are cleared.
+     */
+    public Mono<Void> deleteAllRepeats() {
+        return databaseClient.sql("DELETE FROM alert_repeats").then();
+    }
+
+    private static Alert toAlert(Readable row) {
+        return new Alert(
+            row.get("id", Long.class),
+            row.get("alert_id", String.class),
+            row.get("patient_id", String.class),
+            row.get("reading_id", String.class),
+            row.get("rule_id", String.class),
+            row.get("rule_family", String.class),
+            row.get("reading_type", String.class),
+            row.get("alert_type", String.class),
+            row.get("threshold_violated", String.class),
+            row.get("reading_value", String.class),
+            row.get("triggered_at", LocalDateTime.class),
+            row.get("created_at", LocalDateTime.class),
+            row.get("occurrences", Integer.class),
+            row.get("last_reading_id", String.class),
+            row.get("last_value", String.class),
+            row.get("last_seen_at", LocalDateTime.class),
+            row.get("late", Boolean.class));
+    }
+}
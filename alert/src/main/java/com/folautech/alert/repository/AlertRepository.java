@@ -14,8 +14,20 @@ public interface AlertRepository extends ReactiveCrudRepository<Alert, Long> {
     
     Flux<Alert> findByPatientIdOrderByAlertId(String patientId);
     
+    // A reading folded into an open alert as a repeat has been evaluated as much as one that raised an alert
+    @Query("SELECT EXISTS (SELECT 1 FROM alerts WHERE reading_id = :readingId) "
+        + "OR EXISTS (SELECT 1 FROM alert_repeats WHERE reading_id = :readingId)")
     Mono<Boolean> existsByReadingId(String readingId);
     
+    @Query("SELECT reading_id FROM alerts WHERE reading_id = ANY(:readingIds) "
+        + "UNION SELECT reading_id FROM alert_repeats WHERE reading_id = ANY(:readingIds)")
+    Flux<String> findExistingReadingIds(String[] readingIds);
+    
+    // Newest alert of each patient and rule family seen since :since, to warm the open-alert cache
+    @Query("SELECT DISTINCT ON (patient_id, rule_family) * FROM alerts WHERE last_seen_at >= :since "
+        + "ORDER BY patient_id, rule_family, last_seen_at DESC LIMIT :limit")
+    Flux<Alert> findLatestPerFamilySeenSince(java.time.LocalDateTime since, int limit);
+    
     @Query("SELECT * FROM alerts WHERE patient_id = :patientId AND triggered_at >= :startTime ORDER BY triggered_at DESC")
     Flux<Alert> findByPatientIdAndTriggeredAtAfter(String patientId, java.time.LocalDateTime startTime);
 }
\ No newline at end of file
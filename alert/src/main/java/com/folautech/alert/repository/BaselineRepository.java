@@ -0,0 +1,63 @@
+package com.folautech.alert.repository;
+
+import com.folautech.alert.model.BaselineCheckpoint;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Access to patient_baselines, the checkpoints of the in-memory adaptive baselines.
+ */
+@Repository
+public class BaselineRepository {
+
+    // One statement per chunk; a checkpoint never replaces one that already includes newer readings,
+    // e.g. written by another instance that saw the patient more recently
+    private static final String UPSERT =
+        "INSERT INTO patient_baselines (patient_id, reading_type, field, mean, variance, samples, last_captured_at) "
+            + "SELECT * FROM unnest(CAST(:patientIds AS VARCHAR[]), CAST(:readingTypes AS VARCHAR[]), "
+            + "CAST(:fields AS VARCHAR[]), CAST(:means AS DOUBLE PRECISION[]), CAST(:variances AS DOUBLE PRECISION[]), "
+            + "CAST(:samples AS INTEGER[]), CAST(:lastCapturedAts AS TIMESTAMP[])) "
+            + "ON CONFLICT (patient_id, field) DO UPDATE SET mean = EXCLUDED.mean, variance = EXCLUDED.variance, "
+            + "samples = EXCLUDED.samples, last_captured_at = EXCLUDED.last_captured_at, checkpointed_at = LOCALTIMESTAMP "
+            + "WHERE patient_baselines.last_captured_at <= EXCLUDED.last_captured_at";
+
+    private final DatabaseClient databaseClient;
+
+    public BaselineRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    public Flux<BaselineCheckpoint> findByPatientId(String patientId) {
+        return databaseClient.sql("SELECT patient_id, reading_type, field, mean, variance, samples, last_captured_at "
+                + "FROM patient_baselines WHERE patient_id = :patientId")
+            .bind("patientId", patientId)
+            .map(row -> new BaselineCheckpoint(row.get("patient_id", String.class), row.get("reading_type", String.class),
+                row.get("field", String.class), row.get("mean", Double.class), row.get("variance", Double.class),
+                row.get("samples", Integer.class), row.get("last_captured_at", LocalDateTime.class)))
+            .all();
+    }
+
+    /**
+     * Insert or advance checkpoints with one multi-row upsert; callers are expected to chunk large batches.
+     */
+    public Mono<Long> upsertAll(List<BaselineCheckpoint> checkpoints) {
+        if (checkpoints.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return databaseClient.sql(UPSERT)
+            .bind("patientIds", checkpoints.stream().map(BaselineCheckpoint::getPatientId).toArray(String[]::new))
+            .bind("readingTypes", checkpoints.stream().map(BaselineCheckpoint::getReadingType).toArray(String[]::new))
+            .bind("fields", checkpoints.stream().map(BaselineCheckpoint::getField).toArray(String[]::new))
+            .bind("means", checkpoints.stream().map(BaselineCheckpoint::getMean).toArray(Double[]::new))
+            .bind("variances", checkpoints.stream().map(BaselineCheckpoint::getVariance).toArray(Double[]::new))
+            .bind("samples", checkpoints.stream().map(BaselineCheckpoint::getSamples).toArray(Integer[]::new))
+            .bind("lastCapturedAts", checkpoints.stream().map(BaselineCheckpoint::getLastCapturedAt).toArray(LocalDateTime[]::new))
+            .fetch()
+            .rowsUpdated();
+    }
+}
@@ -0,0 +1,63 @@
+package com.folautech.alert.repository;
+
+import com.folautech.alert.model.ThresholdOverride;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Access to patient_threshold_overrides, the per-patient values for rule set parameters.
+ */
+@Repository
+public class ThresholdOverrideRepository {
+
+    // Upsert the new values and drop the patient's other params in one statement; the two parts
+    // touch disjoint rows, so the set is replaced atomically
+    private static final String REPLACE =
+        "WITH upserted AS (INSERT INTO patient_threshold_overrides (patient_id, param_name, threshold) "
+            + "SELECT :patientId, unnest(CAST(:paramNames AS VARCHAR[])), unnest(CAST(:thresholds AS INTEGER[])) "
+            + "ON CONFLICT (patient_id, param_name) DO UPDATE SET threshold = EXCLUDED.threshold, updated_at = LOCALTIMESTAMP) "
+            + "DELETE FROM patient_threshold_overrides WHERE patient_id = :patientId AND NOT (param_name = ANY(:paramNames))";
+
+    private final DatabaseClient databaseClient;
+
+    public ThresholdOverrideRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * @return Mono<Map<String, Integer>> the patient's overrides by param name, empty map if there are none
+     */
+    public Mono<Map<String, Integer>> findByPatientId(String patientId) {
+        return databaseClient.sql("SELECT param_name, threshold FROM patient_threshold_overrides WHERE patient_id = :patientId")
+            .bind("patientId", patientId)
+            .map(row -> Map.entry(row.get("param_name", String.class), row.get("threshold", Integer.class)))
+            .all()
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+
+    /**
+     * Overrides of every patient, used to warm the cache at startup.
+     */
+    public Flux<ThresholdOverride> findAll() {
+        return databaseClient.sql("SELECT patient_id, param_name, threshold FROM patient_threshold_overrides")
+            .map(row -> new ThresholdOverride(row.get("patient_id", String.class), row.get("param_name", String.class),
+                row.get("threshold", Integer.class)))
+            .all();
+    }
+
+    /**
+     * Replace all of a patient's overrides with {@code overrides}; an empty map clears them.
+     */
+    public Mono<Long> replace(String patientId, Map<String, Integer> overrides) {
+        return databaseClient.sql(REPLACE)
+            .bind("patientId", patientId)
+            .bind("paramNames", overrides.keySet().toArray(String[]::new))
+            .bind("thresholds", overrides.values().toArray(Integer[]::new))
+            .fetch()
+            .rowsUpdated();
+    }
+}
@@ -0,0 +1,24 @@
+package com.folautech.alert.rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One anomaly rule against a patient's own adaptive baseline rather than a fixed threshold, e.g. hr at least
+ * anomaly.z standard deviations away from that patient's usual heart rate. {@code direction} is ABOVE, BELOW
+ * or EITHER. The rule stays quiet until the baseline has seen {@code minSamples} earlier readings.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class AnomalyDefinition {
+    private String id;
+    private String readingType;
+    private String field;
+    private String direction;
+    private String param;
+    private int minSamples;
+    private String severity;
+    private String label;
+}
@@ -0,0 +1,805 @@
+package com.folautech.alert.rules;
+
+import com.folautech.alert.model.AlertType;
+import com.folautech.alert.model.BPReading;
+import com.folautech.alert.model.HRReading;
+import com.folautech.alert.model.SPO2Reading;
+import com.folautech.alert.model.VitalReading;
+import com.folautech.alert.state.PatientState;
+import com.folautech.alert.state.ThresholdLatch;
+import com.folautech.alert.state.VitalBaseline;
+import com.folautech.alert.state.VitalWindow;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Immutable, evaluation-ready form of a {@link RuleSetDefinition}.
+ * Every rule is flattened into parallel primitive arrays (field slot, operator, threshold) per reading
+ * type, so evaluating a reading is a short loop of int comparisons with no maps, strings or boxing; rules
+ * with exit thresholds also carry them in a parallel array and latch per patient in a {@link ThresholdLatch}.
+ * Trend rules are flattened the same way and read a patient's {@link VitalWindow} in O(1) per rule;
+ * composite rules scan the windows of their other reading types, at most {@link VitalWindow#CAPACITY} readings each.
+ * Anomaly rules compare the z-score a patient's {@link VitalBaseline} recorded for the reading, O(1) per rule.
+ * Missing-reading rules are precompiled into one {@link SilenceRule} list per reading type.
+ */
+final class CompiledRuleSet {
+
+    private static final byte LT = 0;
+    private static final byte LE = 1;
+    private static final byte GT = 2;
+    private static final byte GE = 3;
+
+    private static final byte ABOVE = 0;
+    private static final byte BELOW = 1;
+    private static final byte EITHER = 2;
+
+    private static final Pattern PARAM_REFERENCE = Pattern.compile("\\{([^}]+)}");
+
+    // Field slots per reading type; a reading is only evaluated when all of its fields are present
+    private static final String[] BP_FIELDS = {"systolic", "diastolic"};
+    private static final String[] HR_FIELDS = {"hr"};
+    private static final String[] SPO2_FIELDS = {"spo2"};
+    private static final String[] READING_TYPES = {"BP", "HR", "SPO2"};
+
+    private final String version;
+    private final TypeRules bp;
+    private final TypeRules hr;
+    private final TypeRules spo2;
+    private final TypeTrends bpTrends;
+    private final TypeTrends hrTrends;
+    private final TypeTrends spo2Trends;
+    private final CompositeRules composites;
+    private final TypeAnomalies bpAnomalies;
+    private final TypeAnomalies hrAnomalies;
+    private final TypeAnomalies spo2Anomalies;
+    private final List<List<SilenceRule>> silences;
+
+    private CompiledRuleSet(String version, TypeRules bp, TypeRules hr, TypeRules spo2,
+                            TypeTrends bpTrends, TypeTrends hrTrends, TypeTrends spo2Trends, CompositeRules composites,
+                            TypeAnomalies bpAnomalies, TypeAnomalies hrAnomalies, TypeAnomalies spo2Anomalies,
+                            List<List<SilenceRule>> silences) {
+        this.version = version;
+        this.bp = bp;
+        this.hr = hr;
+        this.spo2 = spo2;
+        this.bpTrends = bpTrends;
+        this.hrTrends = hrTrends;
+        this.spo2Trends = spo2Trends;
+        this.composites = composites;
+        this.bpAnomalies = bpAnomalies;
+        this.hrAnomalies = hrAnomalies;
+        this.spo2Anomalies = spo2Anomalies;
+        this.silences = silences;
+    }
+
+    String version() {
+        return version;
+    }
+
+    /**
+     * @return the first rule the reading triggers, or null if it is within every threshold
+     */
+    RuleMatch evaluate(VitalReading reading) {
+        int[] values = values(reading);
+        return values == null ? null : rules(typeOf(reading)).firstMatch(values);
+    }
+
+    /**
+     * Evaluate with hysteresis: a rule the patient is latched in keeps holding until the reading crosses
+     * its exit thresholds, and raises nothing while it does.
+     * @param latch the patient's latch, moved to the rule the reading leaves the type in
+     * @param generation generation of the rule set this one was compiled from
+     * @return the rule the reading enters, or null if it is within every threshold or stays in the latched rule
+     */
+    RuleMatch evaluate(VitalReading reading, ThresholdLatch latch, int generation) {
+        int[] values = values(reading);
+        if (values == null) {
+            return null;
+        }
+        int type = typeOf(reading);
+        return rules(type).evaluate(values, type, latch, generation);
+    }
+
+    private TypeRules rules(int type) {
+        return switch (type) {
+            case 0 -> bp;
+            case 1 -> hr;
+            default -> spo2;
+        };
+    }
+
+    /**
+     * @return index of the reading's type in READING_TYPES, by class, or -1
+     */
+    private static int typeOf(VitalReading reading) {
+        if (reading instanceof BPReading) {
+            return 0;
+        }
+        if (reading instanceof HRReading) {
+            return 1;
+        }
+        return reading instanceof SPO2Reading ? 2 : -1;
+    }
+
+    /**
+     * @return the reading's field values in slot order, or null if any is missing or the type is unknown
+     */
+    private static int[] values(VitalReading reading) {
+        if (reading instanceof BPReading bpReading) {
+            Integer systolic = bpReading.getSystolic();
+            Integer diastolic = bpReading.getDiastolic();
+            return systolic == null || diastolic == null ? null : new int[] {systolic, diastolic};
+        }
+        if (reading instanceof HRReading hrReading) {
+            Integer value = hrReading.getHr();
+            return value == null ? null : new int[] {value};
+        }
+        if (reading instanceof SPO2Reading spo2Reading) {
+            Integer value = spo2Reading.getSpo2();
+            return value == null ? null : new int[] {value};
+        }
+        return null;
+    }
+
+    /**
+     * @param window the patient's window for the reading's type, with the reading already appended
+     * @return every trend rule that holds for the window, in definition order
+     */
+    List<RuleMatch> evaluateTrends(String readingType, VitalWindow window) {
+        if (readingType == null) {
+            return List.of();
+        }
+        return switch (readingType) {
+            case "BP" -> bpTrends.matches(window);
+            case "HR" -> hrTrends.matches(window);
+            case "SPO2" -> spo2Trends.matches(window);
+            default -> List.of();
+        };
+    }
+
+    /**
+     * @param state the patient's state, with the reading already appended to its window
+     * @return every composite rule with a leg on the reading's type that now holds, in definition order
+     */
+    List<RuleMatch> evaluateComposites(String readingType, PatientState state) {
+        int type = typeIndex(readingType);
+        return type < 0 ? List.of() : composites.matches(type, state);
+    }
+
+    /**
+     * @param baseline the patient's baseline for the reading's type, with the reading already folded in
+     * @return every anomaly rule the reading's z-scores trigger, in definition order
+     */
+    List<RuleMatch> evaluateAnomalies(String readingType, VitalBaseline baseline) {
+        if (readingType == null) {
+            return List.of();
+        }
+        return switch (readingType) {
+            case "BP" -> bpAnomalies.matches(baseline);
+            case "HR" -> hrAnomalies.matches(baseline);
+            case "SPO2" -> spo2Anomalies.matches(baseline);
+            default -> List.of();
+        };
+    }
+
+    /**
+     * @return the missing-reading rules whose deadline a reading of this type resets, in definition order
+     */
+    List<SilenceRule> silences(String readingType) {
+        int type = typeIndex(readingType);
+        return type < 0 ? List.of() : silences.get(type);
+    }
+
+    /**
+     * Validate and compile a rule set.
+     * @throws IllegalArgumentException if a rule references an unknown reading type, field, operator,
+     *         severity or parameter
+     */
+    static CompiledRuleSet compile(RuleSetDefinition definition) {
+        return compile(definition, Map.of());
+    }
+
+    /**
+     * Compile a rule set with some of its params replaced, e.g. by a patient's own thresholds.
+     * Overrides for params the rule set does not define are ignored.
+     */
+    static CompiledRuleSet compile(RuleSetDefinition definition, Map<String, Integer> overrides) {
+        Map<String, Integer> params = new HashMap<>(definition.getParams() != null ? definition.getParams() : Map.of());
+        overrides.forEach((name, value) -> params.replace(name, value));
+        List<RuleDefinition> rules = definition.getRules() != null ? definition.getRules() : List.of();
+        List<TrendDefinition> trends = definition.getTrends() != null ? definition.getTrends() : List.of();
+        for (RuleDefinition rule : rules) {
+            validateReadingType(rule.getId(), rule.getReadingType());
+        }
+        for (TrendDefinition trend : trends) {
+            validateReadingType(trend.getId(), trend.getReadingType());
+        }
+        List<AnomalyDefinition> anomalies = definition.getAnomalies() != null ? definition.getAnomalies() : List.of();
+        for (AnomalyDefinition anomaly : anomalies) {
+            validateReadingType(anomaly.getId(), anomaly.getReadingType());
+        }
+        List<SilenceDefinition> silences = definition.getSilences() != null ? definition.getSilences() : List.of();
+        for (SilenceDefinition silence : silences) {
+            validateReadingType(silence.getId(), silence.getReadingType());
+        }
+        List<CompositeDefinition> composites = definition.getComposites() != null ? definition.getComposites() : List.of();
+        return new CompiledRuleSet(definition.getVersion(),
+            TypeRules.compile("BP", BP_FIELDS, rules, params),
+            TypeRules.compile("HR", HR_FIELDS, rules, params),
+            TypeRules.compile("SPO2", SPO2_FIELDS, rules, params),
+            TypeTrends.compile("BP", BP_FIELDS, trends, params),
+            TypeTrends.compile("HR", HR_FIELDS, trends, params),
+            TypeTrends.compile("SPO2", SPO2_FIELDS, trends, params),
+            CompositeRules.compile(composites, params),
+            TypeAnomalies.compile("BP", BP_FIELDS, anomalies, params),
+            TypeAnomalies.compile("HR", HR_FIELDS, anomalies, params),
+            TypeAnomalies.compile("SPO2", SPO2_FIELDS, anomalies, params),
+            compileSilences(silences, params));
+    }
+
+    private static List<List<SilenceRule>> compileSilences(List<SilenceDefinition> silences, Map<String, Integer> params) {
+        List<List<SilenceRule>> byType = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+        for (SilenceDefinition silence : silences) {
+            String id = silence.getId();
+            int minutes = param(id, params, silence.getParam());
+            if (minutes <= 0) {
+                throw new IllegalArgumentException("Silence " + id + " needs a positive number of minutes");
+            }
+            byType.get(typeIndex(silence.getReadingType())).add(new SilenceRule(
+                new RuleMatch(id, severity(id, silence.getSeverity()), renderLabel(id, silence.getLabel(), params)),
+                minutes * 60_000L));
+        }
+        return byType.stream().map(List::copyOf).toList();
+    }
+
+    private static int typeIndex(String readingType) {
+        for (int i = 0; i < READING_TYPES.length; i++) {
+            if (READING_TYPES[i].equals(readingType)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static String[] fields(int type) {
+        return switch (type) {
+            case 0 -> BP_FIELDS;
+            case 1 -> HR_FIELDS;
+            default -> SPO2_FIELDS;
+        };
+    }
+
+    private static void validateReadingType(String ruleId, String type) {
+        if (!"BP".equals(type) && !"HR".equals(type) && !"SPO2".equals(type)) {
+            throw new IllegalArgumentException("Rule " + ruleId + " has unknown reading type: " + type);
+        }
+    }
+
+    private static String renderLabel(String ruleId, String template, Map<String, Integer> params) {
+        if (template == null) {
+            throw new IllegalArgumentException("Rule " + ruleId + " has no label");
+        }
+        Matcher matcher = PARAM_REFERENCE.matcher(template);
+        StringBuilder label = new StringBuilder();
+        while (matcher.find()) {
+            matcher.appendReplacement(label, String.valueOf(param(ruleId, params, matcher.group(1))));
+        }
+        matcher.appendTail(label);
+        return label.toString();
+    }
+
+    private static int param(String ruleId, Map<String, Integer> params, String name) {
+        Integer value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Rule " + ruleId + " references unknown param: " + name);
+        }
+        return value;
+    }
+
+    private static byte operator(String ruleId, String op) {
+        if (op == null) {
+            throw new IllegalArgumentException("Rule " + ruleId + " has a condition without an operator");
+        }
+        return switch (op) {
+            case "<" -> LT;
+            case "<=" -> LE;
+            case ">" -> GT;
+            case ">=" -> GE;
+            default -> throw new IllegalArgumentException("Rule " + ruleId + " has unknown operator: " + op);
+        };
+    }
+
+    private static AlertType severity(String ruleId, String severity) {
+        try {
+            return AlertType.valueOf(severity);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException("Rule " + ruleId + " has unknown severity: " + severity);
+        }
+    }
+
+    private static int slot(String ruleId, String readingType, String[] fields, String field) {
+        for (int i = 0; i < fields.length; i++) {
+            if (fields[i].equals(field)) {
+                return i;
+            }
+        }
+        throw new IllegalArgumentException("Rule " + ruleId + " references unknown field for " + readingType + ": " + field);
+    }
+
+    private static boolean holds(byte op, int value, int threshold) {
+        return switch (op) {
+            case LT -> value < threshold;
+            case LE -> value <= threshold;
+            case GT -> value > threshold;
+            default -> value >= threshold;
+        };
+    }
+
+    /**
+     * Rules of one reading type. Conditions of rule r occupy [ruleEnds[r - 1], ruleEnds[r]) in the
+     * slots, ops, thresholds and exitThresholds arrays. A rule latches if any of its conditions has an exit
+     * threshold; the others have an exit threshold equal to their threshold.
+     */
+    private static final class TypeRules {
+        private final int[] ruleEnds;
+        private final int[] slots;
+        private final byte[] ops;
+        private final int[] thresholds;
+        private final int[] exitThresholds;
+        private final boolean[] latching;
+        private final RuleMatch[] matches;
+
+        private TypeRules(int[] ruleEnds, int[] slots, byte[] ops, int[] thresholds, int[] exitThresholds,
+                          boolean[] latching, RuleMatch[] matches) {
+            this.ruleEnds = ruleEnds;
+            this.slots = slots;
+            this.ops = ops;
+            this.thresholds = thresholds;
+            this.exitThresholds = exitThresholds;
+            this.latching = latching;
+            this.matches = matches;
+        }
+
+        static TypeRules compile(String readingType, String[] fields, List<RuleDefinition> rules,
+                                 Map<String, Integer> params) {
+            List<RuleDefinition> typeRules = rules.stream()
+                .filter(rule -> readingType.equals(rule.getReadingType()))
+                .toList();
+
+            int conditionCount = 0;
+            for (RuleDefinition rule : typeRules) {
+                if (rule.getConditions() == null || rule.getConditions().isEmpty()) {
+                    throw new IllegalArgumentException("Rule " + rule.getId() + " has no conditions");
+                }
+                conditionCount += rule.getConditions().size();
+            }
+
+            int[] ruleEnds = new int[typeRules.size()];
+            int[] slots = new int[conditionCount];
+            byte[] ops = new byte[conditionCount];
+            int[] thresholds = new int[conditionCount];
+            int[] exitThresholds = new int[conditionCount];
+            boolean[] latching = new boolean[typeRules.size()];
+            List<RuleMatch> matches = new ArrayList<>(typeRules.size());
+
+            int c = 0;
+            for (int r = 0; r < typeRules.size(); r++) {
+                RuleDefinition rule = typeRules.get(r);
+                for (ConditionDefinition condition : rule.getConditions()) {
+                    slots[c] = slot(rule.getId(), readingType, fields, condition.getField());
+                    ops[c] = operator(rule.getId(), condition.getOp());
+                    thresholds[c] = param(rule.getId(), params, condition.getParam());
+                    exitThresholds[c] = thresholds[c];
+                    if (condition.getExitParam() != null) {
+                        exitThresholds[c] = exitThreshold(ops[c], thresholds[c],
+                            param(rule.getId(), params, condition.getExitParam()));
+                        latching[r] = true;
+                    }
+                    c++;
+                }
+                ruleEnds[r] = c;
+                matches.add(new RuleMatch(rule.getId(), severity(rule.getId(), rule.getSeverity()),
+                    renderLabel(rule.getId(), rule.getLabel(), params),
+                    rule.getFamily() != null ? rule.getFamily() : rule.getId()));
+            }
+            return new TypeRules(ruleEnds, slots, ops, thresholds, exitThresholds, latching,
+                matches.toArray(RuleMatch[]::new));
+        }
+
+        /**
+         * An exit threshold on the alarm side of its threshold, e.g. once a patient's override has moved the
+         * threshold past it, would release the rule before it could fire; the threshold itself is used instead.
+         */
+        private static int exitThreshold(byte op, int threshold, int exit) {
+            return op == GT || op == GE ? Math.min(exit, threshold) : Math.max(exit, threshold);
+        }
+
+        RuleMatch firstMatch(int[] values) {
+            int r = firstMatch(values, ThresholdLatch.NONE);
+            return r < 0 ? null : matches[r];
+        }
+
+        /**
+         * @param latched index of the rule the patient is latched in, whose exit thresholds apply, or NONE
+         * @return index of the first rule that holds, or -1
+         */
+        int firstMatch(int[] values, int latched) {
+            int start = 0;
+            for (int r = 0; r < ruleEnds.length; r++) {
+                int end = ruleEnds[r];
+                int[] limits = r == latched ? exitThresholds : thresholds;
+                int c = start;
+                while (c < end && holds(ops[c], values[slots[c]], limits[c])) {
+                    c++;
+                }
+                if (c == end) {
+                    return r;
+                }
+                start = end;
+            }
+            return -1;
+        }
+
+        /**
+         * Evaluate with hysteresis and move the latch: entering a latching rule latches it, and anything
+         * else releases the type.
+         * @return the rule the reading enters, or null if it is within every threshold or stays in the
+         *         latched rule
+         */
+        RuleMatch evaluate(int[] values, int type, ThresholdLatch latch, int generation) {
+            int latched = latch.latched(type, generation);
+            if (latched >= ruleEnds.length) {
+                latched = ThresholdLatch.NONE;
+            }
+            int r = firstMatch(values, latched);
+            if (r >= 0 && r == latched) {
+                return null;
+            }
+            latch.set(type, generation, r >= 0 && latching[r] ? r : ThresholdLatch.NONE);
+            return r < 0 ? null : matches[r];
+        }
+    }
+
+    /**
+     * Trend rules of one reading type. Trend t compares the newest value of slots[t] with the value
+     * spans[t] readings earlier; its guard conditions occupy [guardEnds[t - 1], guardEnds[t]).
+     */
+    private static final class TypeTrends {
+        private final int[] slots;
+        private final boolean[] rising;
+        private final int[] spans;
+        private final int[] deltas;
+        private final boolean[] steady;
+        private final int[] guardEnds;
+        private final int[] guardSlots;
+        private final byte[] guardOps;
+        private final int[] guardThresholds;
+        private final RuleMatch[] matches;
+
+        private TypeTrends(int[] slots, boolean[] rising, int[] spans, int[] deltas, boolean[] steady, int[] guardEnds,
+                           int[] guardSlots, byte[] guardOps, int[] guardThresholds, RuleMatch[] matches) {
+            this.slots = slots;
+            this.rising = rising;
+            this.spans = spans;
+            this.deltas = deltas;
+            this.steady = steady;
+            this.guardEnds = guardEnds;
+            this.guardSlots = guardSlots;
+            this.guardOps = guardOps;
+            this.guardThresholds = guardThresholds;
+            this.matches = matches;
+        }
+
+        static TypeTrends compile(String readingType, String[] fields, List<TrendDefinition> trends,
+                                  Map<String, Integer> params) {
+            List<TrendDefinition> typeTrends = trends.stream()
+                .filter(trend -> readingType.equals(trend.getReadingType()))
+                .toList();
+
+            int count = typeTrends.size();
+            int guardCount = typeTrends.stream()
+                .mapToInt(trend -> trend.getConditions() != null ? trend.getConditions().size() : 0)
+                .sum();
+            int[] slots = new int[count];
+            boolean[] rising = new boolean[count];
+            int[] spans = new int[count];
+            int[] deltas = new int[count];
+            boolean[] steady = new boolean[count];
+            int[] guardEnds = new int[count];
+            int[] guardSlots = new int[guardCount];
+            byte[] guardOps = new byte[guardCount];
+            int[] guardThresholds = new int[guardCount];
+            RuleMatch[] matches = new RuleMatch[count];
+
+            int g = 0;
+            for (int t = 0; t < count; t++) {
+                TrendDefinition trend = typeTrends.get(t);
+                String id = trend.getId();
+                slots[t] = slot(id, readingType, fields, trend.getField());
+                rising[t] = direction(trend);
+                if (trend.getReadings() < 2 || trend.getReadings() > VitalWindow.CAPACITY) {
+                    throw new IllegalArgumentException("Trend " + id + " must span between 2 and "
+                        + VitalWindow.CAPACITY + " readings, not " + trend.getReadings());
+                }
+                spans[t] = trend.getReadings() - 1;
+                deltas[t] = param(id, params, trend.getParam());
+                steady[t] = trend.isSteady();
+                if (trend.getConditions() != null) {
+                    for (ConditionDefinition condition : trend.getConditions()) {
+                        guardSlots[g] = slot(id, readingType, fields, condition.getField());
+                        guardOps[g] = operator(id, condition.getOp());
+                        guardThresholds[g] = param(id, params, condition.getParam());
+                        g++;
+                    }
+                }
+                guardEnds[t] = g;
+                matches[t] = new RuleMatch(id, severity(id, trend.getSeverity()), renderLabel(id, trend.getLabel(), params));
+            }
+            return new TypeTrends(slots, rising, spans, deltas, steady, guardEnds, guardSlots, guardOps,
+                guardThresholds, matches);
+        }
+
+        private static boolean direction(TrendDefinition trend) {
+            if ("RISING".equals(trend.getDirection())) {
+                return true;
+            }
+            if ("FALLING".equals(trend.getDirection())) {
+                return false;
+            }
+            throw new IllegalArgumentException("Trend " + trend.getId() + " has unknown direction: " + trend.getDirection());
+        }
+
+        List<RuleMatch> matches(VitalWindow window) {
+            List<RuleMatch> result = null;
+            int start = 0;
+            for (int t = 0; t < matches.length; t++) {
+                int end = guardEnds[t];
+                if (holds(t, window, start, end)) {
+                    if (result == null) {
+                        result = new ArrayList<>(2);
+                    }
+                    result.add(matches[t]);
+                }
+                start = end;
+            }
+            return result != null ? result : List.of();
+        }
+
+        private boolean holds(int t, VitalWindow window, int guardStart, int guardEnd) {
+            int span = spans[t];
+            if (window.size() <= span) {
+                return false;
+            }
+            int slot = slots[t];
+            int change = window.value(slot, 0) - window.value(slot, span);
+            if ((rising[t] ? change : -change) < deltas[t]) {
+                return false;
+            }
+            if (steady[t] && (rising[t] ? window.risingRun(slot) : window.fallingRun(slot)) < span) {
+                return false;
+            }
+            for (int g = guardStart; g < guardEnd; g++) {
+                if (!CompiledRuleSet.holds(guardOps[g], window.value(guardSlots[g], 0), guardThresholds[g])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Composite rules across reading types. Legs of composite c occupy [legEnds[c - 1], legEnds[c]) in the
+     * leg arrays; byType[t] lists the composites with a leg on reading type t.
+     */
+    private static final class CompositeRules {
+        private final int[][] byType;
+        private final int[] legEnds;
+        private final int[] legTypes;
+        private final int[] legSlots;
+        private final byte[] legOps;
+        private final int[] legThresholds;
+        private final long[] withinMillis;
+        private final RuleMatch[] matches;
+
+        private CompositeRules(int[][] byType, int[] legEnds, int[] legTypes, int[] legSlots, byte[] legOps,
+                               int[] legThresholds, long[] withinMillis, RuleMatch[] matches) {
+            this.byType = byType;
+            this.legEnds = legEnds;
+            this.legTypes = legTypes;
+            this.legSlots = legSlots;
+            this.legOps = legOps;
+            this.legThresholds = legThresholds;
+            this.withinMillis = withinMillis;
+            this.matches = matches;
+        }
+
+        static CompositeRules compile(List<CompositeDefinition> composites, Map<String, Integer> params) {
+            int count = composites.size();
+            int legCount = 0;
+            for (CompositeDefinition composite : composites) {
+                List<CompositeDefinition.LegDefinition> legs = composite.getLegs();
+                if (legs == null || legs.size() < 2) {
+                    throw new IllegalArgumentException("Composite " + composite.getId() + " needs at least two legs");
+                }
+                if (legs.stream().map(CompositeDefinition.LegDefinition::getReadingType).distinct().count() != legs.size()) {
+                    throw new IllegalArgumentException("Composite " + composite.getId() + " has more than one leg per reading type");
+                }
+                if (composite.getWithinMinutes() <= 0) {
+                    throw new IllegalArgumentException("Composite " + composite.getId() + " needs a positive withinMinutes");
+                }
+                legCount += legs.size();
+            }
+
+            int[] legEnds = new int[count];
+            int[] legTypes = new int[legCount];
+            int[] legSlots = new int[legCount];
+            byte[] legOps = new byte[legCount];
+            int[] legThresholds = new int[legCount];
+            long[] withinMillis = new long[count];
+            RuleMatch[] matches = new RuleMatch[count];
+            List<List<Integer>> byType = List.of(new ArrayList<>(), new ArrayList<>(), new ArrayList<>());
+
+            int l = 0;
+            for (int c = 0; c < count; c++) {
+                CompositeDefinition composite = composites.get(c);
+                String id = composite.getId();
+                for (CompositeDefinition.LegDefinition leg : composite.getLegs()) {
+                    validateReadingType(id, leg.getReadingType());
+                    int type = typeIndex(leg.getReadingType());
+                    legTypes[l] = type;
+                    legSlots[l] = slot(id, leg.getReadingType(), fields(type), leg.getField());
+                    legOps[l] = operator(id, leg.getOp());
+                    legThresholds[l] = param(id, params, leg.getParam());
+                    byType.get(type).add(c);
+                    l++;
+                }
+                legEnds[c] = l;
+                withinMillis[c] = composite.getWithinMinutes() * 60_000L;
+                matches[c] = new RuleMatch(id, severity(id, composite.getSeverity()),
+                    renderLabel(id, composite.getLabel(), params));
+            }
+            int[][] byTypeArrays = byType.stream()
+                .map(indices -> indices.stream().mapToInt(Integer::intValue).toArray())
+                .toArray(int[][]::new);
+            return new CompositeRules(byTypeArrays, legEnds, legTypes, legSlots, legOps, legThresholds, withinMillis, matches);
+        }
+
+        List<RuleMatch> matches(int type, PatientState state) {
+            List<RuleMatch> result = null;
+            for (int c : byType[type]) {
+                if (holds(c, type, state)) {
+                    if (result == null) {
+                        result = new ArrayList<>(1);
+                    }
+                    result.add(matches[c]);
+                }
+            }
+            return result != null ? result : List.of();
+        }
+
+        /**
+         * The leg on the arriving reading's type must hold for that reading; every other leg must hold for
+         * at least one reading of its type captured within the composite's time window around it.
+         */
+        private boolean holds(int c, int type, PatientState state) {
+            long anchor = state.window(READING_TYPES[type]).newestCapturedAt();
+            for (int l = c == 0 ? 0 : legEnds[c - 1]; l < legEnds[c]; l++) {
+                VitalWindow window = state.window(READING_TYPES[legTypes[l]]);
+                if (legTypes[l] == type) {
+                    if (!CompiledRuleSet.holds(legOps[l], window.value(legSlots[l], 0), legThresholds[l])) {
+                        return false;
+                    }
+                } else if (!anyWithin(window, l, anchor - withinMillis[c], anchor + withinMillis[c])) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean anyWithin(VitalWindow window, int l, long from, long to) {
+            for (int back = 0; back < window.size(); back++) {
+                long capturedAt = window.capturedAt(back);
+                if (capturedAt < from) {
+                    return false;
+                }
+                if (capturedAt <= to && CompiledRuleSet.holds(legOps[l], window.value(legSlots[l], back), legThresholds[l])) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Anomaly rules of one reading type. Anomaly a fires when the z-score of slots[a] reaches zThresholds[a]
+     * in its direction and the baseline held at least minSamples[a] readings before this one.
+     */
+    private static final class TypeAnomalies {
+        private final int[] slots;
+        private final byte[] directions;
+        private final int[] zThresholds;
+        private final int[] minSamples;
+        private final RuleMatch[] matches;
+
+        private TypeAnomalies(int[] slots, byte[] directions, int[] zThresholds, int[] minSamples, RuleMatch[] matches) {
+            this.slots = slots;
+            this.directions = directions;
+            this.zThresholds = zThresholds;
+            this.minSamples = minSamples;
+            this.matches = matches;
+        }
+
+        static TypeAnomalies compile(String readingType, String[] fields, List<AnomalyDefinition> anomalies,
+                                     Map<String, Integer> params) {
+            List<AnomalyDefinition> typeAnomalies = anomalies.stream()
+                .filter(anomaly -> readingType.equals(anomaly.getReadingType()))
+                .toList();
+
+            int count = typeAnomalies.size();
+            int[] slots = new int[count];
+            byte[] directions = new byte[count];
+            int[] zThresholds = new int[count];
+            int[] minSamples = new int[count];
+            RuleMatch[] matches = new RuleMatch[count];
+
+            for (int a = 0; a < count; a++) {
+                AnomalyDefinition anomaly = typeAnomalies.get(a);
+                String id = anomaly.getId();
+                slots[a] = slot(id, readingType, fields, anomaly.getField());
+                directions[a] = direction(anomaly);
+                zThresholds[a] = param(id, params, anomaly.getParam());
+                if (zThresholds[a] <= 0) {
+                    throw new IllegalArgumentException("Anomaly " + id + " needs a positive z-score threshold");
+                }
+                if (anomaly.getMinSamples() < 2) {
+                    throw new IllegalArgumentException("Anomaly " + id + " needs minSamples of at least 2, not "
+                        + anomaly.getMinSamples());
+                }
+                minSamples[a] = anomaly.getMinSamples();
+                matches[a] = new RuleMatch(id, severity(id, anomaly.getSeverity()), renderLabel(id, anomaly.getLabel(), params));
+            }
+            return new TypeAnomalies(slots, directions, zThresholds, minSamples, matches);
+        }
+
+        private static byte direction(AnomalyDefinition anomaly) {
+            if (anomaly.getDirection() == null) {
+                throw new IllegalArgumentException("Anomaly " + anomaly.getId() + " has no direction");
+            }
+            return switch (anomaly.getDirection()) {
+                case "ABOVE" -> ABOVE;
+                case "BELOW" -> BELOW;
+                case "EITHER" -> EITHER;
+                default -> throw new IllegalArgumentException("Anomaly " + anomaly.getId() + " has unknown direction: "
+                    + anomaly.getDirection());
+            };
+        }
+
+        List<RuleMatch> matches(VitalBaseline baseline) {
+            List<RuleMatch> result = null;
+            for (int a = 0; a < matches.length; a++) {
+                // samples() includes the reading being evaluated, whose z-score is against the ones before it
+                if (baseline.samples() - 1 < minSamples[a]) {
+                    continue;
+                }
+                double z = baseline.lastZ(slots[a]);
+                boolean holds = switch (directions[a]) {
+                    case ABOVE -> z >= zThresholds[a];
+                    case BELOW -> -z >= zThresholds[a];
+                    default -> Math.abs(z) >= zThresholds[a];
+                };
+                if (holds) {
+                    if (result == null) {
+                        result = new ArrayList<>(1);
+                    }
+                    result.add(matches[a]);
+                }
+            }
+            return result != null ? result : List.of();
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.folautech.alert.rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One rule that correlates different vital types of the same patient, e.g. hr > hr.high and
+ * spo2 < spo2.reduced captured within 5 minutes of each other. Each leg is one condition on one reading
+ * type; the rule is checked whenever a reading of any of its types arrives, against the patient's other
+ * readings captured no more than {@code withinMinutes} before or after it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class CompositeDefinition {
+    private String id;
+    private String severity;
+    private String label;
+    private int withinMinutes;
+    private List<LegDefinition> legs;
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class LegDefinition {
+        private String readingType;
+        private String field;
+        private String op;
+        private String param;
+    }
+}
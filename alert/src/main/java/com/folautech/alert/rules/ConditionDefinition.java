@@ -0,0 +1,24 @@
+package com.folautech.alert.rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Compares one reading field against a named threshold parameter, e.g. hr > hr.high.
+ * A threshold rule's condition may also name an exit parameter, e.g. hr.high.exit: once the rule has fired
+ * for a patient, the condition keeps holding until the field crosses the exit threshold instead.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ConditionDefinition {
+    private String field;
+    private String op;
+    private String param;
+    private String exitParam;
+
+    public ConditionDefinition(String field, String op, String param) {
+        this(field, op, param, null);
+    }
+}
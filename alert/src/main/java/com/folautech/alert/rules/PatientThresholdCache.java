@@ -0,0 +1,165 @@
+package com.folautech.alert.rules;
+
+import com.folautech.alert.model.ThresholdOverride;
+import com.folautech.alert.repository.ThresholdOverrideRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Cache of per-patient threshold overrides and the rule sets compiled from them. The overrides of every
+ * patient that has any are kept, loaded in full before the application reports itself ready, so their
+ * readings are never evaluated against the global thresholds; they are a few ints per patient. The rule sets
+ * compiled from them, which are far larger, are kept for at most {@code alert.thresholds.cache.max-patients}
+ * patients, least recently used first out, and recompiled from the overrides when needed again. Patients
+ * without overrides are cached in a least-recently-used map of the same size, so they are not looked up
+ * again on every reading. Lookups never touch the database: a patient that is not cached is evaluated
+ * against the global thresholds while they are loaded in the background, which is only wrong for overrides
+ * set through another instance since startup. Entries older than {@code alert.thresholds.cache.refresh-seconds}
+ * keep being served while they are refreshed.
+ */
+@Component
+public class PatientThresholdCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientThresholdCache.class);
+
+    private final ThresholdOverrideRepository repository;
+    private final long refreshNanos;
+    // Patients with overrides, never evicted; all three maps are guarded by the withoutOverrides monitor
+    private final Map<String, Entry> withOverrides = new HashMap<>();
+    private final Map<String, Entry> withoutOverrides;
+    private final Map<String, Compiled> compiled;
+    private final Set<String> loading = ConcurrentHashMap.newKeySet();
+
+    @Value("${alert.thresholds.cache.preload-timeout-seconds:30}")
+    private long preloadTimeoutSeconds;
+
+    public PatientThresholdCache(ThresholdOverrideRepository repository,
+                                 @Value("${alert.thresholds.cache.max-patients:10000}") int maxPatients,
+                                 @Value("${alert.thresholds.cache.refresh-seconds:300}") long refreshSeconds) {
+        this.repository = repository;
+        this.refreshNanos = TimeUnit.SECONDS.toNanos(refreshSeconds);
+        this.withoutOverrides = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > maxPatients;
+            }
+        };
+        this.compiled = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Compiled> eldest) {
+                return size() > maxPatients;
+            }
+        };
+    }
+
+    /**
+     * Load the overrides of every patient that has any. Ready listeners run before the application reports
+     * itself ready, so blocking here keeps it out of rotation until they are all in place.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        try {
+            Map<String, Map<String, Integer>> byPatient = repository.findAll()
+                .collect(Collectors.groupingBy(ThresholdOverride::getPatientId,
+                    Collectors.toMap(ThresholdOverride::getParamName, ThresholdOverride::getThreshold)))
+                .block(Duration.ofSeconds(preloadTimeoutSeconds));
+            byPatient.forEach(this::put);
+            logger.info("Preloaded threshold overrides for {} patients", byPatient.size());
+        } catch (RuntimeException error) {
+            logger.warn("Could not preload threshold overrides: {}", error.getMessage());
+        }
+    }
+
+    /**
+     * Rules to evaluate the patient's readings with: {@code base} itself unless the patient has overrides.
+     */
+    CompiledRuleSet rulesFor(String patientId, RuleEngine.ActiveRuleSet base) {
+        if (patientId == null) {
+            return base.compiled();
+        }
+        Entry entry;
+        synchronized (withoutOverrides) {
+            entry = withOverrides.get(patientId);
+            if (entry == null) {
+                entry = withoutOverrides.get(patientId);
+            }
+        }
+        if (entry == null || System.nanoTime() - entry.loadedAt() > refreshNanos) {
+            load(patientId);
+        }
+        if (entry == null || entry.overrides().isEmpty()) {
+            return base.compiled();
+        }
+        Compiled rules;
+        synchronized (withoutOverrides) {
+            rules = compiled.get(patientId);
+        }
+        if (rules == null || rules.base() != base || rules.overrides() != entry.overrides()) {
+            // First use since the overrides were loaded, the rule set was swapped or the compiled set was evicted
+            rules = new Compiled(entry.overrides(), base, CompiledRuleSet.compile(base.definition(), entry.overrides()));
+            synchronized (withoutOverrides) {
+                compiled.put(patientId, rules);
+            }
+        }
+        return rules.rules();
+    }
+
+    /**
+     * Cache a patient's overrides, e.g. right after they were changed through this instance.
+     */
+    public void put(String patientId, Map<String, Integer> overrides) {
+        Entry entry = new Entry(Map.copyOf(overrides), System.nanoTime());
+        synchronized (withoutOverrides) {
+            compiled.remove(patientId);
+            if (overrides.isEmpty()) {
+                withOverrides.remove(patientId);
+                withoutOverrides.put(patientId, entry);
+            } else {
+                withoutOverrides.remove(patientId);
+                withOverrides.put(patientId, entry);
+            }
+        }
+    }
+
+    int size() {
+        synchronized (withoutOverrides) {
+            return withOverrides.size() + withoutOverrides.size();
+        }
+    }
+
+    int compiledSize() {
+        synchronized (withoutOverrides) {
+            return compiled.size();
+        }
+    }
+
+    private void load(String patientId) {
+        if (!loading.add(patientId)) {
+            return;
+        }
+        repository.findByPatientId(patientId)
+            .doFinally(signal -> loading.remove(patientId))
+            .subscribe(
+                overrides -> put(patientId, overrides),
+                error -> logger.warn("Could not load threshold overrides for patient {}: {}", patientId, error.getMessage()));
+    }
+
+    private record Entry(Map<String, Integer> overrides, long loadedAt) {
+    }
+
+    private record Compiled(Map<String, Integer> overrides, RuleEngine.ActiveRuleSet base, CompiledRuleSet rules) {
+    }
+}
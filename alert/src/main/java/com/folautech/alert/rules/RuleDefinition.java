@@ -0,0 +1,29 @@
+package com.folautech.alert.rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One threshold rule. Rules of the same reading type are tried in file order and the first one whose
+ * conditions all hold raises the alert. The label may reference params as {name}. Rules that name the same
+ * family escalate one open alert instead of raising one each; the family defaults to the rule's id.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleDefinition {
+    private String id;
+    private String readingType;
+    private String severity;
+    private String label;
+    private List<ConditionDefinition> conditions;
+    private String family;
+
+    public RuleDefinition(String id, String readingType, String severity, String label,
+                          List<ConditionDefinition> conditions) {
+        this(id, readingType, severity, label, conditions, null);
+    }
+}
@@ -0,0 +1,167 @@
+package com.folautech.alert.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.folautech.alert.model.VitalReading;
+import com.folautech.alert.state.PatientState;
+import com.folautech.alert.state.ThresholdLatch;
+import com.folautech.alert.state.VitalBaseline;
+import com.folautech.alert.state.VitalWindow;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Evaluates readings against the active threshold rule set.
+ * The rule set is loaded from {@code alert.rules.location} at startup and can be replaced at runtime;
+ * a new set is compiled off to the side and published with a single reference swap, so evaluations
+ * in flight finish on the set they started with and never observe a partially applied change.
+ */
+@Component
+public class RuleEngine {
+
+    private static final Logger logger = LoggerFactory.getLogger(RuleEngine.class);
+
+    private final ResourceLoader resourceLoader;
+    private final ObjectMapper objectMapper;
+    private final PatientThresholdCache thresholdCache;
+    private final String location;
+    private final AtomicReference<ActiveRuleSet> active = new AtomicReference<>();
+    private final AtomicInteger generations = new AtomicInteger();
+
+    public RuleEngine(ResourceLoader resourceLoader, ObjectMapper objectMapper, PatientThresholdCache thresholdCache,
+                      @Value("${alert.rules.location:classpath:rules/default-rules.json}") String location) {
+        this.resourceLoader = resourceLoader;
+        this.objectMapper = objectMapper;
+        this.thresholdCache = thresholdCache;
+        this.location = location;
+        apply(read());
+    }
+
+    /**
+     * Evaluate against the active rule set, with the patient's own thresholds where they have any.
+     * @return the first rule the reading triggers, or null if no alert is due
+     */
+    public RuleMatch evaluate(VitalReading reading) {
+        return thresholdCache.rulesFor(reading.getPatientId(), active.get()).evaluate(reading);
+    }
+
+    /**
+     * Evaluate like {@link #evaluate(VitalReading)}, but with hysteresis: once a rule with exit thresholds
+     * fires for the patient it is latched, raises nothing more and keeps out the rules after it until a
+     * reading crosses its exit thresholds. Swapping in another rule set releases every latch.
+     * @param latch the patient's latch, updated for the reading; the caller holds the patient's monitor
+     * @return the rule the reading enters, or null if it is within every threshold or stays in the latched rule
+     */
+    public RuleMatch evaluate(VitalReading reading, ThresholdLatch latch) {
+        ActiveRuleSet set = active.get();
+        return thresholdCache.rulesFor(reading.getPatientId(), set).evaluate(reading, latch, set.generation());
+    }
+
+    /**
+     * Evaluate the trend rules of the active rule set, with the patient's own thresholds where they have any.
+     * @param window the patient's window for the reading's type, with the reading already appended
+     * @return every trend rule that holds, empty if none
+     */
+    public List<RuleMatch> evaluateTrends(VitalReading reading, VitalWindow window) {
+        return thresholdCache.rulesFor(reading.getPatientId(), active.get()).evaluateTrends(reading.getType(), window);
+    }
+
+    /**
+     * Evaluate the composite rules of the active rule set that have a leg on the reading's type.
+     * @param state the patient's state, with the reading already appended to its window
+     * @return every composite rule that holds, empty if none
+     */
+    public List<RuleMatch> evaluateComposites(VitalReading reading, PatientState state) {
+        return thresholdCache.rulesFor(reading.getPatientId(), active.get()).evaluateComposites(reading.getType(), state);
+    }
+
+    /**
+     * Evaluate the anomaly rules of the active rule set against the patient's own baseline.
+     * @param baseline the patient's baseline for the reading's type, with the reading already folded in
+     * @return every anomaly rule that holds, empty if none
+     */
+    public List<RuleMatch> evaluateAnomalies(VitalReading reading, VitalBaseline baseline) {
+        return thresholdCache.rulesFor(reading.getPatientId(), active.get()).evaluateAnomalies(reading.getType(), baseline);
+    }
+
+    /**
+     * @return the missing-reading rules of the active rule set whose deadline the reading resets, with the
+     *         patient's own thresholds where they have any; empty if none
+     */
+    public List<SilenceRule> silences(VitalReading reading) {
+        return thresholdCache.rulesFor(reading.getPatientId(), active.get()).silences(reading.getType());
+    }
+
+    /**
+     * @return the definition of the rule set currently in use
+     */
+    public RuleSetDefinition currentDefinition() {
+        return active.get().definition();
+    }
+
+    /**
+     * Re-read {@code alert.rules.location} and swap in the result.
+     * @return version of the rule set now in use
+     * @throws IllegalArgumentException if the file is invalid; the current rule set stays active
+     */
+    public String reload() {
+        return apply(read());
+    }
+
+    /**
+     * Compile a rule set and make it the active one.
+     * @return version of the rule set now in use
+     * @throws IllegalArgumentException if the rule set is invalid; the current rule set stays active
+     */
+    public String apply(RuleSetDefinition definition) {
+        CompiledRuleSet compiled = CompiledRuleSet.compile(definition);
+        active.set(new ActiveRuleSet(definition, compiled, generations.incrementAndGet()));
+        logger.info("Activated rule set {} with {} rules, {} trend rules, {} composite rules, {} anomaly rules "
+                + "and {} silence rules", compiled.version(),
+            definition.getRules() != null ? definition.getRules().size() : 0,
+            definition.getTrends() != null ? definition.getTrends().size() : 0,
+            definition.getComposites() != null ? definition.getComposites().size() : 0,
+            definition.getAnomalies() != null ? definition.getAnomalies().size() : 0,
+            definition.getSilences() != null ? definition.getSilences().size() : 0);
+        return compiled.version();
+    }
+
+    /**
+     * Check that patient overrides only name params of the active rule set.
+     * @throws IllegalArgumentException naming the first unknown param or missing value
+     */
+    public void validateOverrides(Map<String, Integer> overrides) {
+        Map<String, Integer> params = currentDefinition().getParams();
+        overrides.forEach((name, value) -> {
+            if (params == null || !params.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown threshold param: " + name);
+            }
+            if (value == null) {
+                throw new IllegalArgumentException("Threshold param " + name + " has no value");
+            }
+        });
+    }
+
+    private RuleSetDefinition read() {
+        Resource resource = resourceLoader.getResource(location);
+        try (InputStream in = resource.getInputStream()) {
+            return objectMapper.readValue(in, RuleSetDefinition.class);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not read rule set from " + location, e);
+        }
+    }
+
+    record ActiveRuleSet(RuleSetDefinition definition, CompiledRuleSet compiled, int generation) {
+    }
+}
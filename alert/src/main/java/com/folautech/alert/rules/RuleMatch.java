@@ -0,0 +1,15 @@
+package com.folautech.alert.rules;
+
+import com.folautech.alert.model.AlertType;
+
+/**
+ * The rule a reading triggered, with its label already rendered. Rules of one family, e.g. spo2-low and
+ * spo2-critical, share a patient's open alert, which a more severe rule of the family escalates in place;
+ * a rule that names no family is a family of its own.
+ */
+public record RuleMatch(String ruleId, AlertType severity, String label, String family) {
+
+    public RuleMatch(String ruleId, AlertType severity, String label) {
+        this(ruleId, severity, label, ruleId);
+    }
+}
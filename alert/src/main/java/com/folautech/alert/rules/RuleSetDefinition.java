@@ -0,0 +1,30 @@
+package com.folautech.alert.rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Declarative rule set as written in JSON: named threshold parameters plus ordered rules that refer to them,
+ * trend rules evaluated over each patient's recent readings, composite rules across vital types, anomaly
+ * rules against each patient's adaptive baseline, and missing-reading rules.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RuleSetDefinition {
+    private String version;
+    private Map<String, Integer> params;
+    private List<RuleDefinition> rules;
+    private List<TrendDefinition> trends;
+    private List<CompositeDefinition> composites;
+    private List<AnomalyDefinition> anomalies;
+    private List<SilenceDefinition> silences;
+
+    public RuleSetDefinition(String version, Map<String, Integer> params, List<RuleDefinition> rules) {
+        this(version, params, rules, null, null, null, null);
+    }
+}
@@ -0,0 +1,21 @@
+package com.folautech.alert.rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * One missing-reading rule, e.g. no HR reading from a patient for silence.hr.minutes. The deadline is
+ * reset by every reading of the type that arrives, and one alert is raised, against the last reading
+ * received, when it passes.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SilenceDefinition {
+    private String id;
+    private String readingType;
+    private String param;
+    private String severity;
+    private String label;
+}
@@ -0,0 +1,7 @@
+package com.folautech.alert.rules;
+
+/**
+ * A compiled missing-reading rule: the alert to raise once no reading of its type has arrived for {@code afterMillis}.
+ */
+public record SilenceRule(RuleMatch match, long afterMillis) {
+}
@@ -0,0 +1,29 @@
+package com.folautech.alert.rules;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * One trend rule over a patient's last {@code readings} readings of a type, e.g. hr rising by at least
+ * hr.rise across the last 3 readings. With {@code steady} every step in between must move in the same
+ * direction. Optional conditions are checked against the newest reading, so a trend can be limited to
+ * values the threshold rules do not already cover. Every trend that holds raises its own alert.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TrendDefinition {
+    private String id;
+    private String readingType;
+    private String field;
+    private String direction;
+    private int readings;
+    private String param;
+    private boolean steady;
+    private String severity;
+    private String label;
+    private List<ConditionDefinition> conditions;
+}
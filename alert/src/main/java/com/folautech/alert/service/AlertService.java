@@ -1,64 +1,280 @@
 package com.folautech.alert.service;
 
 import com.folautech.alert.model.*;
+import com.folautech.alert.repository.AlertBatchRepository;
 import com.folautech.alert.repository.AlertRepository;
+import com.folautech.alert.rules.RuleEngine;
+import com.folautech.alert.rules.RuleMatch;
+import com.folautech.alert.state.EarlyWarningScore;
+import com.folautech.alert.state.PatientState;
+import com.folautech.alert.state.PatientStateStore;
+import com.folautech.alert.state.VitalBaseline;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class AlertService {
     
     private static final Logger logger = LoggerFactory.getLogger(AlertService.class);
     
-    // Threshold constants
-    private static final int BP_SYSTOLIC_HIGH = 140;
-    private static final int BP_DIASTOLIC_HIGH = 90;
-    private static final int HR_LOW = 50;
-    private static final int HR_HIGH = 110;
-    private static final int SPO2_LOW = 92;
-    
     private final AlertRepository alertRepository;
+    private final AlertBatchRepository alertBatchRepository;
+    private final RuleEngine ruleEngine;
+    private final AlertIdGenerator alertIdGenerator;
+    private final PatientStateStore stateStore;
+    private final SilenceMonitor silenceMonitor;
+    private final OpenAlertCache openAlerts;
+    private final ReorderBuffer reorderBuffer;
+    
+    @Value("${alert.batch.insert.chunk-size:500}")
+    private int insertChunkSize;
     
-    public AlertService(AlertRepository alertRepository) {
+    public AlertService(AlertRepository alertRepository, AlertBatchRepository alertBatchRepository, RuleEngine ruleEngine,
+                        AlertIdGenerator alertIdGenerator, PatientStateStore stateStore, SilenceMonitor silenceMonitor,
+                        OpenAlertCache openAlerts, ReorderBuffer reorderBuffer) {
         this.alertRepository = alertRepository;
+        this.alertBatchRepository = alertBatchRepository;
+        this.ruleEngine = ruleEngine;
+        this.alertIdGenerator = alertIdGenerator;
+        this.stateStore = stateStore;
+        this.silenceMonitor = silenceMonitor;
+        this.openAlerts = openAlerts;
+        this.reorderBuffer = reorderBuffer;
+    }
+    
+    @PostConstruct
+    void startReorderBuffer() {
+        reorderBuffer.start(this::evaluateInOrder);
     }
     
     /**
      * Evaluate a list of vital readings
      * @param readings List of vital readings to evaluate
-     * @return Flux<Alert> of created alerts
+     * @return Flux<Alert> of created alerts, ordered by alertId
      */
     public Flux<Alert> evaluateReadings(List<VitalReading> readings) {
+        return evaluateReadings(readings, true);
+    }
+    
+    /**
+     * Evaluate a list of vital readings.
+     * With the reordering buffer enabled, readings are first held until their patients' watermarks pass them
+     * and then evaluated in capture order (see {@link ReorderBuffer}); the Flux completes once all of them
+     * have been. Patients this instance holds no state for are first rebuilt from their reading history, then
+     * readings are evaluated in order and the alerts they trigger are written in chunks of
+     * {@code alert.batch.insert.chunk-size}, one multi-row INSERT per chunk. A chunk that fails is
+     * retried alert by alert so only the offending alerts are dropped. Violations of a rule family the patient
+     * already has an open alert for are folded into that alert after the inserts (see {@link OpenAlertCache});
+     * they are not emitted unless they escalate it, in which case the escalated alert is.
+     * @param readings List of vital readings to evaluate
+     * @param ordered whether to hold the alerts back until the whole batch is saved and sort them by alertId;
+     *                otherwise each chunk's alerts are emitted as soon as they are saved, in reading order
+     * @return Flux<Alert> of created and escalated alerts
+     */
+    public Flux<Alert> evaluateReadings(List<VitalReading> readings, boolean ordered) {
         logger.info("Evaluating {} vital readings", readings.size());
         
-        return Flux.fromIterable(readings)
-            .flatMap(reading -> {
-                logger.debug("Evaluating reading: type={}, patientId={}, readingId={}", 
-                    reading.getType(), reading.getPatientId(), reading.getReadingId());
-                return evaluateReading(reading)
-                    .onErrorResume(error -> {
+        List<VitalReading> uniqueReadings = dedupeByReadingId(readings);
+        
+        Flux<Alert> saved = reorderBuffer.isEnabled()
+            ? reorderBuffer.submit(uniqueReadings).flatMapMany(Flux::fromIterable)
+            : evaluateInOrder(uniqueReadings);
+        return ordered ? saved.sort((a, b) -> a.getAlertId().compareTo(b.getAlertId())) : saved;
+    }
+    
+    /**
+     * Evaluate readings in list order and save the alerts they trigger.
+     * @param uniqueReadings readings without repeated readingIds
+     * @return Flux<Alert> of created and escalated alerts, each chunk's as soon as it is saved
+     */
+    private Flux<Alert> evaluateInOrder(List<VitalReading> uniqueReadings) {
+        // Check idempotency for the whole batch with one query instead of one per reading
+        return stateStore.hydrate(uniqueReadings)
+            .then(Mono.defer(() -> findExistingReadingIds(uniqueReadings)))
+            .flatMapMany(existingIds -> {
+                List<Alert> candidates = new ArrayList<>();
+                for (VitalReading reading : uniqueReadings) {
+                    if (existingIds.contains(reading.getReadingId())) {
+                        logger.info("Alert already exists for reading: {}", reading.getReadingId());
+                        continue;
+                    }
+                    logger.debug("Evaluating reading: type={}, patientId={}, readingId={}", 
+                        reading.getType(), reading.getPatientId(), reading.getReadingId());
+                    try {
+                        candidates.addAll(buildAlerts(reading));
+                    } catch (RuntimeException error) {
                         logger.error("Error evaluating reading {}: {}", reading.getReadingId(), error.getMessage());
                         // Continue processing other readings even if one fails
-                        return Mono.empty();
-                    });
+                    }
+                }
+                Coalesced coalesced = coalesce(candidates);
+                return Flux.fromIterable(coalesced.opened())
+                    .buffer(Math.max(1, insertChunkSize))
+                    .concatMap(this::saveChunk)
+                    .concatWith(Flux.defer(() -> saveRepeats(coalesced.repeats())));
+            });
+    }
+    
+    private Flux<Alert> saveChunk(List<Alert> chunk) {
+        return insertOpened(chunk)
+            .collectList()
+            .doOnNext(saved -> logger.info("Saved {} alerts, {} already existed", saved.size(), chunk.size() - saved.size()))
+            .flatMapMany(Flux::fromIterable)
+            .onErrorResume(error -> {
+                logger.warn("Batch insert of {} alerts failed, retrying individually: {}", chunk.size(), error.getMessage());
+                return Flux.fromIterable(chunk)
+                    .concatMap(alert -> insertOpened(List.of(alert))
+                        .onErrorResume(rowError -> {
+                            logger.error("Error saving alert for reading {}: {}", alert.getReadingId(), rowError.getMessage());
+                            return Mono.empty();
+                        }));
+            });
+    }
+    
+    /**
+     * Insert alerts that open a new alert, and stop treating those that were not stored as open.
+     */
+    private Flux<Alert> insertOpened(List<Alert> opened) {
+        if (opened.isEmpty()) {
+            return Flux.empty();
+        }
+        return alertBatchRepository.insertIgnoringDuplicates(opened)
+            .collectList()
+            .doOnNext(saved -> {
+                if (saved.size() < opened.size()) {
+                    Set<String> savedIds = saved.stream().map(Alert::getAlertId).collect(Collectors.toSet());
+                    opened.stream().filter(alert -> !savedIds.contains(alert.getAlertId())).forEach(openAlerts::forget);
+                }
             })
-            .sort((a, b) -> a.getAlertId().compareTo(b.getAlertId()));
+            .doOnError(error -> opened.forEach(openAlerts::forget))
+            .flatMapMany(Flux::fromIterable);
+    }
+    
+    /**
+     * Split alerts into those that open a new alert and repeats of an alert that is already open,
+     * folding the repeats of each open alert, and any escalation among them, into one update.
+     */
+    private Coalesced coalesce(List<Alert> candidates) {
+        List<Alert> opened = new ArrayList<>(candidates.size());
+        Map<String, PendingRepeat> repeats = new LinkedHashMap<>();
+        for (Alert alert : candidates) {
+            OpenAlertCache.Suppressed suppressed = openAlerts.suppressOrOpen(alert);
+            if (suppressed == null) {
+                opened.add(alert);
+                continue;
+            }
+            logger.debug("Suppressed repeat of {} for patient {}, folded into alert {}{}", alert.getRuleId(),
+                alert.getPatientId(), suppressed.alertId(), suppressed.escalates() ? " as " + alert.getAlertType() : "");
+            repeats.computeIfAbsent(suppressed.alertId(), PendingRepeat::new).add(alert, suppressed.escalates());
+        }
+        return new Coalesced(opened, repeats.values());
+    }
+    
+    /**
+     * Fold repeats into their open alerts in chunks, escalating alerts in place. Readings already folded by an
+     * earlier delivery are not counted again (see {@link AlertBatchRepository#recordRepeats}). A repeat whose open alert
+     * is no longer stored opens a new alert instead. If a chunk fails its alerts are no longer treated as open,
+     * so the next violation raises a new alert rather than being folded into one whose escalation was lost.
+     * @return Flux<Alert> the alerts escalated, as stored afterwards, and the alerts opened instead of a repeat
+     */
+    private Flux<Alert> saveRepeats(Collection<PendingRepeat> repeats) {
+        if (repeats.isEmpty()) {
+            return Flux.empty();
+        }
+        return Flux.fromIterable(repeats)
+            .buffer(Math.max(1, insertChunkSize))
+            .concatMap(chunk -> alertBatchRepository.recordRepeats(chunk.stream().map(PendingRepeat::toRow).toList())
+                .collectMap(Alert::getAlertId)
+                .flatMapMany(updated -> {
+                    logger.info("Folded repeats into {} open alerts", updated.size());
+                    List<Alert> escalated = new ArrayList<>();
+                    List<Alert> reopened = new ArrayList<>();
+                    for (PendingRepeat repeat : chunk) {
+                        Alert stored = updated.get(repeat.alertId);
+                        if (stored != null) {
+                            if (repeat.escalation != null) {
+                                logger.info("Escalated alert {} to {}", stored.getAlertId(), stored.getAlertType());
+                                escalated.add(stored);
+                            }
+                            continue;
+                        }
+                        Alert replacement = repeat.escalation != null ? repeat.escalation : repeat.latest;
+                        openAlerts.forget(replacement.getPatientId(), replacement.getRuleFamily(), repeat.alertId);
+                        if (openAlerts.suppressOrOpen(replacement) == null) {
+                            reopened.add(replacement);
+                        }
+                    }
+                    return reopened.isEmpty()
+                        ? Flux.fromIterable(escalated)
+                        : Flux.fromIterable(escalated).concatWith(saveChunk(reopened));
+                })
+                .onErrorResume(error -> {
+                    logger.error("Error folding repeats into {} open alerts: {}", chunk.size(), error.getMessage());
+                    for (PendingRepeat repeat : chunk) {
+                        openAlerts.forget(repeat.latest.getPatientId(), repeat.latest.getRuleFamily(), repeat.alertId);
+                    }
+                    return Flux.empty();
+                }));
+    }
+    
+    /**
+     * Drop repeated readingIds within one batch, keeping the first occurrence,
+     * so two copies of the same reading cannot race each other into two alerts.
+     */
+    private List<VitalReading> dedupeByReadingId(List<VitalReading> readings) {
+        Set<String> seen = new HashSet<>();
+        List<VitalReading> unique = new ArrayList<>(readings.size());
+        for (VitalReading reading : readings) {
+            String readingId = reading.getReadingId();
+            if (readingId != null && !seen.add(readingId)) {
+                logger.info("Reading {} appears more than once in the batch, ignoring duplicate", readingId);
+                continue;
+            }
+            unique.add(reading);
+        }
+        return unique;
+    }
+    
+    private Mono<Set<String>> findExistingReadingIds(List<VitalReading> readings) {
+        String[] readingIds = readings.stream()
+            .map(VitalReading::getReadingId)
+            .filter(Objects::nonNull)
+            .toArray(String[]::new);
+        if (readingIds.length == 0) {
+            return Mono.just(Set.of());
+        }
+        return alertRepository.findExistingReadingIds(readingIds)
+            .collect(Collectors.toSet());
     }
     
+    /**
+     * Evaluate a single reading.
+     * @return the first alert saved or escalated for the reading, threshold alerts before trend alerts, or empty if none
+     */
     public Mono<Alert> evaluateReading(VitalReading reading) {
         logger.info("Evaluating reading: type={}, patientId={}, readingId={}", 
             reading.getType(), reading.getPatientId(), reading.getReadingId());
         
         // Check if alert already exists for this reading (idempotency)
-        return alertRepository.existsByReadingId(reading.getReadingId())
+        return stateStore.hydrate(List.of(reading))
+            .then(Mono.defer(() -> alertRepository.existsByReadingId(reading.getReadingId())))
             .flatMap(exists -> {
                 if (exists) {
                     logger.info("Alert already exists for reading: {}", reading.getReadingId());
@@ -69,136 +285,184 @@ public class AlertService {
     }
     
     private Mono<Alert> evaluateAndCreateAlert(VitalReading reading) {
-        Alert alert = null;
+        List<Alert> alerts = buildAlerts(reading);
+        if (alerts.isEmpty()) {
+            return Mono.empty();
+        }
+        // The pre-check above only saves work; the insert itself is what keeps the alert unique
+        Coalesced coalesced = coalesce(alerts);
+        return insertOpened(coalesced.opened())
+            .concatWith(Flux.defer(() -> saveRepeats(coalesced.repeats())))
+            .collectList()
+            .flatMap(saved -> Mono.justOrEmpty(saved.stream().findFirst()))
+            .doOnSuccess(saved -> {
+                if (saved != null) {
+                    logger.info("Alert saved: {}", saved.getAlertId());
+                } else {
+                    logger.info("No new alert for reading: {}", reading.getReadingId());
+                }
+            })
+            .doOnError(error -> logger.error("Error saving alert: {}", error.getMessage()));
+    }
+    
+    /**
+     * Record the reading in the patient's windows and evaluate it.
+     * @return the alerts the reading triggers, not yet saved: the threshold alert first, if the reading enters
+     *         a threshold rule, then one per trend, composite or anomaly rule that holds, then one if the
+     *         patient's early-warning score moved up into an alerting band
+     */
+    private List<Alert> buildAlerts(VitalReading reading) {
         String type = reading.getType();
         
         if (type == null) {
             logger.warn("Reading type is null for reading: {}", reading.getReadingId());
-            return Mono.empty();
+            return List.of();
         }
         
-        switch (type) {
-            case "BP":
-                alert = evaluateBPReading((BPReading) reading);
-                break;
-            case "HR":
-                alert = evaluateHRReading((HRReading) reading);
-                break;
-            case "SPO2":
-                alert = evaluateSPO2Reading((SPO2Reading) reading);
-                break;
-            default:
-                logger.warn("Unknown reading type: {}", type);
-                return Mono.empty();
+        if (!type.equals("BP") && !type.equals("HR") && !type.equals("SPO2")) {
+            logger.warn("Unknown reading type: {}", type);
+            return List.of();
         }
         
-        if (alert != null) {
-            logger.info("Alert triggered for reading: {} - {}", reading.getReadingId(), alert.getThresholdViolated());
-            return alertRepository.save(alert)
-                .doOnSuccess(saved -> logger.info("Alert saved: {}", saved.getAlertId()))
-                .doOnError(error -> logger.error("Error saving alert: {}", error.getMessage()));
+        Evaluation evaluation = evaluateRules(reading);
+        
+        if (evaluation.matches().isEmpty()) {
+            logger.debug("No alert triggered for reading: {}", reading.getReadingId());
+            return List.of();
         }
         
-        logger.debug("No alert triggered for reading: {}", reading.getReadingId());
-        return Mono.empty();
+        List<Alert> alerts = new ArrayList<>(evaluation.matches().size());
+        for (RuleMatch match : evaluation.matches()) {
+            Alert alert = newAlert(reading, match);
+            alert.setLate(evaluation.late());
+            alerts.add(alert);
+        }
+        return alerts;
     }
     
-    private Alert evaluateBPReading(BPReading reading) {
-        Integer systolic = reading.getSystolic();
-        Integer diastolic = reading.getDiastolic();
-        
-        if (systolic == null || diastolic == null) {
-            return null;
+    /**
+     * Append the reading to the patient's window and evaluate the threshold rules against the patient's
+     * latch, the trend and composite rules over the patient's windows, the anomaly rules against their
+     * baseline, and the change in their early-warning score, then reset the patient's missing-reading
+     * deadlines for the type. A reading already evaluated, i.e. delivered again, raises what it raised then,
+     * as its alerts may never have been stored; another reading captured at the same time as the newest of its
+     * type is only evaluated against the latch. Readings captured strictly before the newest of their type,
+     * readings only rebuilt from history, and readings without a patientId, which have no state to record them
+     * in, are only evaluated against the threshold rules' entry thresholds, move no latch and reset nothing;
+     * the first are late, and judged as of their own capture time rather than against the newer state.
+     * A patient without state yet gets an empty one.
+     */
+    private Evaluation evaluateRules(VitalReading reading) {
+        if (reading.getPatientId() == null) {
+            return new Evaluation(thresholdMatch(reading), false);
         }
-        
-        String thresholdViolated = null;
-        AlertType alertType = null;
-        
-        if (systolic >= BP_SYSTOLIC_HIGH && diastolic >= BP_DIASTOLIC_HIGH) {
-            thresholdViolated = String.format("Systolic >= %d AND Diastolic >= %d", BP_SYSTOLIC_HIGH, BP_DIASTOLIC_HIGH);
-            alertType = AlertType.CRITICAL;
-        } else if (systolic >= BP_SYSTOLIC_HIGH) {
-            thresholdViolated = String.format("Systolic >= %d", BP_SYSTOLIC_HIGH);
-            alertType = AlertType.HIGH;
-        } else if (diastolic >= BP_DIASTOLIC_HIGH) {
-            thresholdViolated = String.format("Diastolic >= %d", BP_DIASTOLIC_HIGH);
-            alertType = AlertType.HIGH;
+        PatientState state = stateStore.stateFor(reading.getPatientId());
+        synchronized (state) {
+            EarlyWarningScore.Band previousBand = state.score().band();
+            if (!state.record(reading)) {
+                List<RuleMatch> raised = state.raisedBy(reading);
+                if (raised != null) {
+                    // Re-delivered, maybe because its alerts were never stored: raise what it raised when first
+                    // recorded, the insert and alert_repeats keep that from being counted twice
+                    logger.debug("Reading {} was already evaluated for patient {}, raising its {} rules again",
+                        reading.getReadingId(), reading.getPatientId(), raised.size());
+                    return new Evaluation(raised, false);
+                }
+                if (state.isDuplicate(reading)) {
+                    // Rebuilt from history before it reached this instance: judge it as of its capture time
+                    return new Evaluation(thresholdMatch(reading), false);
+                }
+                if (state.isLate(reading)) {
+                    logger.info("Reading {} is late: patient {} has a newer {} reading", reading.getReadingId(),
+                        reading.getPatientId(), reading.getType());
+                    return new Evaluation(thresholdMatch(reading), true);
+                }
+                // Another reading captured at the same time as the newest one is as current as it, so the latch applies
+                RuleMatch threshold = ruleEngine.evaluate(reading, state.latch());
+                return new Evaluation(threshold == null ? List.of() : List.of(threshold), false);
+            }
+            silenceMonitor.readingReceived(reading, readingValue(reading));
+            RuleMatch threshold = ruleEngine.evaluate(reading, state.latch());
+            List<RuleMatch> trends = ruleEngine.evaluateTrends(reading, state.window(reading.getType()));
+            List<RuleMatch> composites = ruleEngine.evaluateComposites(reading, state);
+            List<RuleMatch> anomalies = evaluateAnomalies(reading, state);
+            RuleMatch scoreMatch = scoreBandMatch(previousBand, state.score());
+            if (threshold == null && composites.isEmpty() && anomalies.isEmpty() && scoreMatch == null) {
+                state.raised(reading, trends);
+                return new Evaluation(trends, false);
+            }
+            List<RuleMatch> matches = new ArrayList<>(2 + trends.size() + composites.size() + anomalies.size());
+            if (threshold != null) {
+                matches.add(threshold);
+            }
+            matches.addAll(trends);
+            matches.addAll(composites);
+            matches.addAll(anomalies);
+            if (scoreMatch != null) {
+                matches.add(scoreMatch);
+            }
+            state.raised(reading, matches);
+            return new Evaluation(matches, false);
         }
-        
-        if (thresholdViolated != null) {
-            return new Alert(
-                UUID.randomUUID().toString(),
-                reading.getPatientId(),
-                reading.getReadingId(),
-                "BP",
-                alertType,
-                thresholdViolated,
-                String.format("%d/%d", systolic, diastolic),
-                parseDateTime(reading.getCapturedAt())
-            );
+    }
+    
+    private List<RuleMatch> thresholdMatch(VitalReading reading) {
+        RuleMatch match = ruleEngine.evaluate(reading);
+        return match == null ? List.of() : List.of(match);
+    }
+    
+    /**
+     * A reading the restored baseline checkpoint already includes, e.g. one re-forwarded after a restart,
+     * was not folded in again and carries no z-score of its own.
+     */
+    private List<RuleMatch> evaluateAnomalies(VitalReading reading, PatientState state) {
+        VitalBaseline baseline = state.baseline(reading.getType());
+        if (baseline.updatedAt() != state.window(reading.getType()).newestCapturedAt()) {
+            return List.of();
         }
-        
-        return null;
+        return ruleEngine.evaluateAnomalies(reading, baseline);
     }
     
-    private Alert evaluateHRReading(HRReading reading) {
-        Integer hr = reading.getHr();
-        
-        if (hr == null) {
+    /**
+     * Alert once when the aggregate score rises into the MEDIUM or HIGH band, not again while it stays there.
+     * LOW_MEDIUM means a single parameter is extreme, which the threshold rules already alert on.
+     * @return the band alert, or null if the band did not rise into an alerting band
+     */
+    private RuleMatch scoreBandMatch(EarlyWarningScore.Band previousBand, EarlyWarningScore score) {
+        EarlyWarningScore.Band band = score.band();
+        if (band.compareTo(previousBand) <= 0 || band.compareTo(EarlyWarningScore.Band.MEDIUM) < 0) {
             return null;
         }
-        
-        String thresholdViolated = null;
-        AlertType alertType = null;
-        
-        if (hr < HR_LOW) {
-            thresholdViolated = String.format("Heart Rate < %d", HR_LOW);
-            alertType = AlertType.LOW;
-        } else if (hr > HR_HIGH) {
-            thresholdViolated = String.format("Heart Rate > %d", HR_HIGH);
-            alertType = AlertType.HIGH;
-        }
-        
-        if (thresholdViolated != null) {
-            return new Alert(
-                UUID.randomUUID().toString(),
-                reading.getPatientId(),
-                reading.getReadingId(),
-                "HR",
-                alertType,
-                thresholdViolated,
-                String.valueOf(hr),
-                parseDateTime(reading.getCapturedAt())
-            );
-        }
-        
-        return null;
+        AlertType severity = band == EarlyWarningScore.Band.HIGH ? AlertType.CRITICAL : AlertType.HIGH;
+        return new RuleMatch("news2-" + band.name().toLowerCase().replace('_', '-'), severity,
+            "Early warning score " + score.total() + " (" + band + ")", "news2");
     }
     
-    private Alert evaluateSPO2Reading(SPO2Reading reading) {
-        Integer spo2 = reading.getSpo2();
-        
-        if (spo2 == null) {
-            return null;
+    private Alert newAlert(VitalReading reading, RuleMatch match) {
+        Alert alert = new Alert(
+            alertIdGenerator.nextId(),
+            reading.getPatientId(),
+            reading.getReadingId(),
+            reading.getType(),
+            match.severity(),
+            match.label(),
+            readingValue(reading),
+            parseDateTime(reading.getCapturedAt())
+        );
+        alert.setRuleId(match.ruleId());
+        alert.setRuleFamily(match.family());
+        logger.info("Alert triggered for reading: {} - {}", reading.getReadingId(), alert.getThresholdViolated());
+        return alert;
+    }
+    
+    private String readingValue(VitalReading reading) {
+        if (reading instanceof BPReading bp) {
+            return String.format("%d/%d", bp.getSystolic(), bp.getDiastolic());
         }
-        
-        if (spo2 < SPO2_LOW) {
-            String thresholdViolated = String.format("SpO2 < %d", SPO2_LOW);
-            AlertType alertType = spo2 < 90 ? AlertType.CRITICAL : AlertType.LOW;
-            
-            return new Alert(
-                UUID.randomUUID().toString(),
-                reading.getPatientId(),
-                reading.getReadingId(),
-                "SPO2",
-                alertType,
-                thresholdViolated,
-                String.valueOf(spo2),
-                parseDateTime(reading.getCapturedAt())
-            );
+        if (reading instanceof HRReading hr) {
+            return String.valueOf(hr.getHr());
         }
-        
-        return null;
+        return String.valueOf(((SPO2Reading) reading).getSpo2());
     }
     
     public Flux<Alert> getAlertsByPatientId(String patientId) {
@@ -208,12 +472,55 @@ public class AlertService {
     
     public Mono<Void> clearAllAlerts() {
         logger.info("Clearing all alerts from database");
-        return alertRepository.deleteAll()
-            .doOnSuccess(result -> logger.info("Successfully cleared all alerts"))
+        return alertBatchRepository.deleteAllRepeats()
+            .then(alertRepository.deleteAll())
+            .doOnSuccess(result -> {
+                openAlerts.clear();
+                logger.info("Successfully cleared all alerts");
+            })
             .doOnError(error -> logger.error("Error clearing alerts: {}", error.getMessage()));
     }
     
     private LocalDateTime parseDateTime(String dateTimeStr) {
         return LocalDateTime.parse(dateTimeStr, DateTimeFormatter.ISO_DATE_TIME);
     }
+    
+    private record Evaluation(List<RuleMatch> matches, boolean late) {
+    }
+    
+    private record Coalesced(List<Alert> opened, Collection<PendingRepeat> repeats) {
+    }
+    
+    /**
+     * Repeats of one open alert within a batch; the newest one is what the alert shows as last seen, and the
+     * last one that escalated it is the severity it is raised to.
+     */
+    private static final class PendingRepeat {
+        private final String alertId;
+        private final List<String> readingIds = new ArrayList<>();
+        private final List<String> ruleIds = new ArrayList<>();
+        private Alert latest;
+        private Alert escalation;
+        
+        private PendingRepeat(String alertId) {
+            this.alertId = alertId;
+        }
+        
+        void add(Alert alert, boolean escalates) {
+            readingIds.add(alert.getReadingId());
+            ruleIds.add(alert.getRuleId());
+            if (latest == null || !alert.getLastSeenAt().isBefore(latest.getLastSeenAt())) {
+                latest = alert;
+            }
+            if (escalates) {
+                escalation = alert;
+            }
+        }
+        
+        AlertRepeat toRow() {
+            return new AlertRepeat(alertId, readingIds, ruleIds, latest.getReadingId(), latest.getReadingValue(), latest.getLastSeenAt(),
+                escalation != null ? escalation.getAlertType() : null,
+                escalation != null ? escalation.getThresholdViolated() : null);
+        }
+    }
 }
\ No newline at end of file
@@ -0,0 +1,169 @@
+package com.folautech.alert.service;
+
+import com.folautech.alert.model.Alert;
+import com.folautech.alert.model.AlertType;
+import com.folautech.alert.repository.AlertRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Bounded, least-recently-used index of each patient's open alert per rule family, with its severity, used to
+ * suppress and escalate repeat violations without querying the database. An alert stays open while rules of
+ * its family keep being violated within {@code alert.suppression.window-minutes} (capture time) of its last
+ * violation; repeats inside the window are folded into it, a more severe one escalating it in place, and the
+ * first violation after the window opens a new alert. A window of 0 disables suppression. The index is warmed
+ * from the alerts seen within the window before the application reports itself ready.
+ * <p>
+ * The index belongs to one instance. With several replicas, each folds only the repeats it evaluates itself,
+ * so a patient whose readings are spread over replicas can get one open alert per replica, escalated
+ * separately. Each reading is still counted once, as that rests on the database (the unique
+ * (reading_id, rule_id) of alerts and alert_repeats), not on this index.
+ */
+@Component
+public class OpenAlertCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(OpenAlertCache.class);
+
+    private final AlertRepository alertRepository;
+    private final long windowMillis;
+    private final int maxEntries;
+    private final Map<Key, OpenAlert> entries;
+
+    @Value("${alert.suppression.preload-timeout-seconds:30}")
+    private long preloadTimeoutSeconds;
+
+    public OpenAlertCache(AlertRepository alertRepository,
+                          @Value("${alert.suppression.window-minutes:15}") long windowMinutes,
+                          @Value("${alert.suppression.max-entries:100000}") int maxEntries) {
+        this.alertRepository = alertRepository;
+        this.windowMillis = windowMinutes * 60_000L;
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, OpenAlert> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Load the open alerts before traffic arrives. Ready listeners run before the application reports itself
+     * ready, so blocking here keeps it out of rotation until the index is warm rather than letting the first
+     * evaluations open alerts that are already open.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void preload() {
+        if (windowMillis <= 0) {
+            return;
+        }
+        try {
+            List<Alert> alerts = alertRepository.findLatestPerFamilySeenSince(
+                    LocalDateTime.now(ZoneOffset.UTC).minus(Duration.ofMillis(windowMillis)), maxEntries)
+                .collectList()
+                .block(Duration.ofSeconds(preloadTimeoutSeconds));
+            alerts.forEach(this::open);
+            logger.info("Preloaded {} open alerts", alerts.size());
+        } catch (RuntimeException error) {
+            logger.warn("Could not preload open alerts: {}", error.getMessage());
+        }
+    }
+
+    /**
+     * Fold the violation into the patient's open alert for its rule family if one is open within the window,
+     * otherwise record {@code alert} as the open one.
+     * @return the open alert the violation repeats and whether it escalates it, or null if {@code alert}
+     *         should be inserted
+     */
+    public synchronized Suppressed suppressOrOpen(Alert alert) {
+        if (windowMillis <= 0) {
+            return null;
+        }
+        Key key = new Key(alert.getPatientId(), alert.getRuleFamily());
+        long seenAt = millis(alert.getLastSeenAt());
+        AlertType severity = AlertType.valueOf(alert.getAlertType());
+        OpenAlert open = entries.get(key);
+        if (open != null && Math.abs(seenAt - open.lastSeenAt) <= windowMillis) {
+            open.lastSeenAt = Math.max(open.lastSeenAt, seenAt);
+            boolean escalates = severity.outranks(open.severity);
+            if (escalates) {
+                open.severity = severity;
+            }
+            return new Suppressed(open.alertId, escalates);
+        }
+        entries.put(key, new OpenAlert(alert.getAlertId(), seenAt, severity));
+        return null;
+    }
+
+    /**
+     * Record a stored alert as open, e.g. one loaded at startup, unless a newer one is already recorded.
+     */
+    public synchronized void open(Alert alert) {
+        if (windowMillis <= 0) {
+            return;
+        }
+        long seenAt = millis(alert.getLastSeenAt());
+        entries.merge(new Key(alert.getPatientId(), alert.getRuleFamily()),
+            new OpenAlert(alert.getAlertId(), seenAt, AlertType.valueOf(alert.getAlertType())),
+            (kept, added) -> added.lastSeenAt >= kept.lastSeenAt ? added : kept);
+    }
+
+    /**
+     * Drop the alert if it is the open one for its rule family, e.g. because its insert failed or the row is gone.
+     */
+    public void forget(Alert alert) {
+        forget(alert.getPatientId(), alert.getRuleFamily(), alert.getAlertId());
+    }
+
+    public synchronized void forget(String patientId, String ruleFamily, String alertId) {
+        Key key = new Key(patientId, ruleFamily);
+        OpenAlert open = entries.get(key);
+        if (open != null && open.alertId.equals(alertId)) {
+            entries.remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    private static long millis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    /**
+     * @param alertId the open alert a violation was folded into
+     * @param escalates whether the violation is more severe than the alert was
+     */
+    public record Suppressed(String alertId, boolean escalates) {
+    }
+
+    private record Key(String patientId, String ruleFamily) {
+    }
+
+    private static final class OpenAlert {
+        private final String alertId;
+        private long lastSeenAt;
+        private AlertType severity;
+
+        private OpenAlert(String alertId, long lastSeenAt, AlertType severity) {
+            this.alertId = alertId;
+            this.lastSeenAt = lastSeenAt;
+            this.severity = severity;
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package com.folautech.alert.service;
+
+import com.folautech.alert.model.PatientScore;
+import com.folautech.alert.state.EarlyWarningScore;
+import com.folautech.alert.state.PatientState;
+import com.folautech.alert.state.PatientStateStore;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+@Service
+public class PatientScoreService {
+
+    private final PatientStateStore stateStore;
+
+    public PatientScoreService(PatientStateStore stateStore) {
+        this.stateStore = stateStore;
+    }
+
+    /**
+     * Read the patient's early-warning score from this instance's in-memory state; alert history is not queried.
+     * A patient this instance has not seen yet is first rebuilt from their latest readings.
+     * @return Mono<PatientScore> the current score, or empty if no reading of the patient has been scored
+     */
+    public Mono<PatientScore> getScore(String patientId) {
+        return stateStore.load(patientId)
+            .flatMap(state -> Mono.justOrEmpty(snapshot(patientId, state)));
+    }
+
+    private PatientScore snapshot(String patientId, PatientState state) {
+        synchronized (state) {
+            EarlyWarningScore score = state.score();
+            if (!score.isScored()) {
+                return null;
+            }
+            return new PatientScore(patientId, score.total(), score.band().name(),
+                score.component("BP"), score.component("HR"), score.component("SPO2"),
+                LocalDateTime.ofInstant(Instant.ofEpochMilli(score.updatedAt()), ZoneOffset.UTC));
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package com.folautech.alert.service;
+
+import com.folautech.alert.model.Alert;
+import com.folautech.alert.model.VitalReading;
+import com.folautech.alert.state.PatientState;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+/**
+ * Opt-in event-time reordering stage in front of evaluation, for gateways that upload buffered readings out
+ * of capture order. Each patient has a watermark, the newest capture time submitted for them minus
+ * {@code alert.reorder.max-delay-ms}; readings wait in the patient's buffer until the watermark passes them
+ * and are then released in capture order. A reading is never held longer than {@code alert.reorder.max-hold-ms},
+ * and once {@code alert.reorder.capacity} readings are waiting, the patients being submitted are released
+ * at once. A reading captured before one already released for the patient is late: it is released
+ * immediately and counted, and evaluation flags its alerts and judges it on its own rather than against
+ * the newer state.
+ * Released readings are evaluated one release at a time, so a patient's readings are always evaluated in
+ * release order; each caller's Mono completes with its readings' alerts once they have all been evaluated,
+ * so nothing is acknowledged while it is still buffered.
+ */
+@Component
+public class ReorderBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(ReorderBuffer.class);
+
+    private static final Comparator<Entry> CAPTURE_ORDER =
+        Comparator.comparingLong(Entry::capturedAt).thenComparingLong(Entry::sequence);
+
+    private final long maxDelayMillis;
+    private final long maxHoldNanos;
+    private final int capacity;
+    private final Map<String, PatientClock> clocks;
+    // Patients with readings waiting, for the hold-time sweep
+    private final Set<String> waiting = new LinkedHashSet<>();
+    private final AtomicInteger buffered = new AtomicInteger();
+    private final Sinks.Many<List<Entry>> released = Sinks.many().unicast().onBackpressureBuffer();
+    private final Timer delay;
+    private final Counter late;
+    private final Counter forced;
+    private long sequence;
+    private Disposable evaluator;
+
+    public ReorderBuffer(MeterRegistry meterRegistry,
+                         @Value("${alert.reorder.max-delay-ms:0}") long maxDelayMillis,
+                         @Value("${alert.reorder.max-hold-ms:250}") long maxHoldMillis,
+                         @Value("${alert.reorder.capacity:10000}") int capacity,
+                         @Value("${alert.reorder.max-patients:10000}") int maxPatients) {
+        this.maxDelayMillis = maxDelayMillis;
+        this.maxHoldNanos = TimeUnit.MILLISECONDS.toNanos(maxHoldMillis);
+        this.capacity = capacity;
+        this.clocks = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PatientClock> eldest) {
+                // A patient with readings waiting is kept until they are released
+                return size() > maxPatients && eldest.getValue().pending.isEmpty();
+            }
+        };
+        this.delay = Timer.builder("alert.reorder.delay")
+            .description("Time a reading waited in the reordering buffer")
+            .register(meterRegistry);
+        this.late = Counter.builder("alert.reorder.late")
+            .description("Readings captured before a reading already released for the patient")
+            .register(meterRegistry);
+        this.forced = Counter.builder("alert.reorder.forced")
+            .description("Readings released before their watermark because the buffer was full")
+            .register(meterRegistry);
+        meterRegistry.gauge("alert.reorder.buffered", buffered);
+        Gauge.builder("alert.reorder.patients", this, ReorderBuffer::trackedPatients)
+            .description("Patients whose watermark the reordering buffer keeps")
+            .register(meterRegistry);
+    }
+
+    public boolean isEnabled() {
+        return maxDelayMillis > 0;
+    }
+
+    /**
+     * Start evaluating released readings with {@code evaluation}, one release at a time.
+     * @param evaluation evaluates readings in list order and returns the alerts they raised
+     */
+    public void start(Function<List<VitalReading>, Flux<Alert>> evaluation) {
+        if (!isEnabled() || evaluator != null) {
+            return;
+        }
+        logger.info("Reordering buffer enabled: readings wait up to {} ms of capture time and {} ms of wall time",
+            maxDelayMillis, TimeUnit.NANOSECONDS.toMillis(maxHoldNanos));
+        evaluator = released.asFlux()
+            .publishOn(Schedulers.single())
+            .concatMap(batch -> evaluate(batch, evaluation), 1)
+            .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (evaluator == null) {
+            return;
+        }
+        synchronized (this) {
+            List<Entry> out = new ArrayList<>();
+            for (String patientId : List.copyOf(waiting)) {
+                releaseUpTo(patientId, clocks.get(patientId), Long.MAX_VALUE, out);
+            }
+            emit(out);
+            released.emitComplete(Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        }
+    }
+
+    /**
+     * Buffer readings until their patients' watermarks pass them and evaluate them in capture order.
+     * @param readings readings to evaluate, without repeated readingIds
+     * @return Mono<List<Alert>> the alerts the readings raised, once all of them have been evaluated
+     */
+    public Mono<List<Alert>> submit(List<VitalReading> readings) {
+        if (readings.isEmpty()) {
+            return Mono.just(List.of());
+        }
+        return Mono.defer(() -> {
+            Request request = new Request(readings.size());
+            long now = System.nanoTime();
+            synchronized (this) {
+                List<Entry> out = new ArrayList<>();
+                Set<String> touched = new LinkedHashSet<>();
+                for (VitalReading reading : readings) {
+                    Entry entry = new Entry(reading, eventTime(reading), sequence++, now, request);
+                    if (entry.capturedAt() == Long.MIN_VALUE) {
+                        // Without a patient or a capture time there is nothing to order by
+                        out.add(entry);
+                        continue;
+                    }
+                    PatientClock clock = clocks.computeIfAbsent(reading.getPatientId(), id -> new PatientClock());
+                    if (entry.capturedAt() < clock.frontier) {
+                        late.increment();
+                        logger.info("Reading {} is late: captured before a reading already evaluated for patient {}",
+                            reading.getReadingId(), reading.getPatientId());
+                        out.add(entry);
+                        continue;
+                    }
+                    clock.pending.add(entry);
+                    clock.maxSeen = Math.max(clock.maxSeen, entry.capturedAt());
+                    buffered.incrementAndGet();
+                    waiting.add(reading.getPatientId());
+                    touched.add(reading.getPatientId());
+                }
+                boolean full = buffered.get() > capacity;
+                for (String patientId : touched) {
+                    PatientClock clock = clocks.get(patientId);
+                    int before = out.size();
+                    releaseUpTo(patientId, clock, full ? Long.MAX_VALUE : clock.maxSeen - maxDelayMillis, out);
+                    if (full) {
+                        forced.increment(out.size() - before);
+                    }
+                }
+                emit(out);
+            }
+            return request.result.asMono();
+        });
+    }
+
+    /**
+     * Release readings that have waited {@code alert.reorder.max-hold-ms}, with every reading of the same
+     * patient captured before them.
+     */
+    @Scheduled(fixedDelayString = "${alert.reorder.tick-ms:50}")
+    public void releaseExpired() {
+        if (isEnabled()) {
+            releaseExpired(System.nanoTime());
+        }
+    }
+
+    synchronized void releaseExpired(long nowNanos) {
+        if (waiting.isEmpty()) {
+            return;
+        }
+        List<Entry> out = new ArrayList<>();
+        for (String patientId : List.copyOf(waiting)) {
+            PatientClock clock = clocks.get(patientId);
+            long limit = Long.MIN_VALUE;
+            for (Entry entry : clock.pending) {
+                if (nowNanos - entry.arrivedAt() >= maxHoldNanos) {
+                    limit = Math.max(limit, entry.capturedAt());
+                }
+            }
+            if (limit != Long.MIN_VALUE) {
+                releaseUpTo(patientId, clock, limit, out);
+            }
+        }
+        emit(out);
+    }
+
+    /**
+     * @return readings waiting for their watermark
+     */
+    public int buffered() {
+        return buffered.get();
+    }
+
+    synchronized int trackedPatients() {
+        return clocks.size();
+    }
+
+    private void releaseUpTo(String patientId, PatientClock clock, long limit, List<Entry> out) {
+        long now = System.nanoTime();
+        while (!clock.pending.isEmpty() && clock.pending.peek().capturedAt() <= limit) {
+            Entry entry = clock.pending.poll();
+            clock.frontier = Math.max(clock.frontier, entry.capturedAt());
+            buffered.decrementAndGet();
+            delay.record(now - entry.arrivedAt(), TimeUnit.NANOSECONDS);
+            out.add(entry);
+        }
+        if (clock.pending.isEmpty()) {
+            waiting.remove(patientId);
+        }
+    }
+
+    /**
+     * Called with the monitor held, so releases reach the evaluator in the order they were made.
+     */
+    private void emit(List<Entry> out) {
+        if (out.isEmpty()) {
+            return;
+        }
+        if (evaluator == null) {
+            out.forEach(entry -> entry.request().fail(new IllegalStateException("Reordering buffer is not started")));
+            return;
+        }
+        Sinks.EmitResult result = released.tryEmitNext(out);
+        if (result.isFailure()) {
+            logger.error("Could not hand {} released readings to evaluation: {}", out.size(), result);
+            out.forEach(entry -> entry.request().fail(new IllegalStateException("Reordering buffer is stopped")));
+        }
+    }
+
+    private Mono<Void> evaluate(List<Entry> batch, Function<List<VitalReading>, Flux<Alert>> evaluation) {
+        return Flux.defer(() -> evaluation.apply(batch.stream().map(Entry::reading).toList()))
+            .collectList()
+            .doOnNext(alerts -> route(batch, alerts))
+            .doOnError(error -> batch.forEach(entry -> entry.request().fail(error)))
+            .onErrorResume(error -> Mono.empty())
+            .then();
+    }
+
+    /**
+     * Hand each alert to the caller of the reading that raised it. An alert escalated in place keeps the
+     * reading that opened it, so it goes to the caller of its patient's newest reading in the batch.
+     */
+    private static void route(List<Entry> batch, List<Alert> alerts) {
+        Map<String, Entry> byReading = new HashMap<>();
+        Map<String, Entry> newestByPatient = new HashMap<>();
+        for (Entry entry : batch) {
+            byReading.put(entry.reading().getReadingId(), entry);
+            newestByPatient.put(entry.reading().getPatientId(), entry);
+        }
+        for (Alert alert : alerts) {
+            Entry owner = byReading.get(alert.getReadingId());
+            if (owner == null) {
+                owner = newestByPatient.get(alert.getPatientId());
+            }
+            if (owner != null) {
+                owner.request().add(alert);
+            }
+        }
+        batch.forEach(entry -> entry.request().evaluated());
+    }
+
+    /**
+     * @return capture time in epoch milliseconds, or Long.MIN_VALUE if the reading cannot be ordered
+     */
+    private static long eventTime(VitalReading reading) {
+        if (reading.getPatientId() == null || reading.getCapturedAt() == null) {
+            return Long.MIN_VALUE;
+        }
+        try {
+            return PatientState.capturedAtMillis(reading.getCapturedAt());
+        } catch (DateTimeParseException e) {
+            return Long.MIN_VALUE;
+        }
+    }
+
+    private static final class PatientClock {
+        private final PriorityQueue<Entry> pending = new PriorityQueue<>(CAPTURE_ORDER);
+        // Newest capture time submitted, which drives the watermark
+        private long maxSeen = Long.MIN_VALUE;
+        // Newest capture time released; anything captured before it is late
+        private long frontier = Long.MIN_VALUE;
+    }
+
+    private record Entry(VitalReading reading, long capturedAt, long sequence, long arrivedAt, Request request) {
+    }
+
+    /**
+     * One caller's readings, completed once every one of them has been evaluated.
+     */
+    private static final class Request {
+        private final Sinks.One<List<Alert>> result = Sinks.one();
+        private final List<Alert> alerts = new ArrayList<>();
+        private int remaining;
+
+        private Request(int readings) {
+            this.remaining = readings;
+        }
+
+        synchronized void add(Alert alert) {
+            alerts.add(alert);
+        }
+
+        synchronized void evaluated() {
+            if (--remaining == 0) {
+                result.tryEmitValue(List.copyOf(alerts));
+            }
+        }
+
+        void fail(Throwable error) {
+            result.tryEmitError(error);
+        }
+    }
+}
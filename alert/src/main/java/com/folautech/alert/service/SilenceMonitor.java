@@ -0,0 +1,149 @@
+package com.folautech.alert.service;
+
+import com.folautech.alert.model.Alert;
+import com.folautech.alert.model.VitalReading;
+import com.folautech.alert.repository.AlertBatchRepository;
+import com.folautech.alert.rules.RuleEngine;
+import com.folautech.alert.rules.RuleMatch;
+import com.folautech.alert.rules.SilenceRule;
+import com.folautech.alert.state.TimingWheel;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+
+/**
+ * Raises missing-reading alerts, e.g. no HR reading from a patient for 10 minutes.
+ * Every reading that becomes the newest of its type resets the patient's deadline for each silence rule
+ * of that type in a {@link TimingWheel}, one entry per patient and rule, so hundreds of thousands of
+ * monitored patients cost one O(1) reschedule per reading and a single scheduled sweep, not a task each.
+ * Deadlines are wall-clock: they measure how long this instance has gone without hearing from the patient.
+ * A deadline that passes raises one alert against the last reading received and is not rearmed until the
+ * next reading; the (reading_id, rule_id) constraint keeps that alert unique across retries.
+ */
+@Component
+public class SilenceMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(SilenceMonitor.class);
+
+    private final RuleEngine ruleEngine;
+    private final AlertBatchRepository alertBatchRepository;
+    private final AlertIdGenerator alertIdGenerator;
+    private final long tickMillis;
+    private final TimingWheel<SilenceKey, Deadline> wheel;
+
+    @Value("${alert.silence.enabled:true}")
+    private boolean enabled;
+
+    @Value("${alert.batch.insert.chunk-size:500}")
+    private int insertChunkSize;
+
+    public SilenceMonitor(RuleEngine ruleEngine, AlertBatchRepository alertBatchRepository,
+                          AlertIdGenerator alertIdGenerator,
+                          @Value("${alert.silence.tick-ms:1000}") long tickMillis,
+                          @Value("${alert.silence.wheel-size:4096}") int wheelSize) {
+        this.ruleEngine = ruleEngine;
+        this.alertBatchRepository = alertBatchRepository;
+        this.alertIdGenerator = alertIdGenerator;
+        this.tickMillis = tickMillis;
+        this.wheel = new TimingWheel<>(tickMillis, wheelSize, System.currentTimeMillis());
+    }
+
+    /**
+     * Reset the patient's missing-reading deadlines for the reading's type.
+     * @param readingValue the reading's value as shown on alerts
+     */
+    public void readingReceived(VitalReading reading, String readingValue) {
+        List<SilenceRule> rules = ruleEngine.silences(reading);
+        if (rules.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (SilenceRule rule : rules) {
+            long deadline = now + rule.afterMillis();
+            wheel.schedule(new SilenceKey(reading.getPatientId(), rule.match().ruleId()),
+                new Deadline(reading.getPatientId(), reading.getReadingId(), reading.getType(), readingValue,
+                    rule.match(), deadline),
+                deadline);
+        }
+    }
+
+    /**
+     * @return number of patient and rule pairs with a pending deadline
+     */
+    public int pending() {
+        return wheel.size();
+    }
+
+    /**
+     * @return Mono<Integer> number of missing-reading alerts saved
+     */
+    @Scheduled(fixedDelayString = "${alert.silence.tick-ms:1000}")
+    public Mono<Integer> sweep() {
+        if (!enabled) {
+            return Mono.just(0);
+        }
+        return sweep(System.currentTimeMillis());
+    }
+
+    Mono<Integer> sweep(long nowMillis) {
+        List<Deadline> expired = wheel.advance(nowMillis);
+        if (expired.isEmpty()) {
+            return Mono.just(0);
+        }
+        return Flux.fromIterable(expired)
+            .buffer(Math.max(1, insertChunkSize))
+            .concatMap(chunk -> saveChunk(chunk, nowMillis))
+            .reduce(0, Integer::sum)
+            .doOnNext(saved -> logger.info("Raised {} missing-reading alerts", saved));
+    }
+
+    private Mono<Integer> saveChunk(List<Deadline> chunk, long nowMillis) {
+        List<Alert> alerts = chunk.stream().map(this::newAlert).toList();
+        return alertBatchRepository.insertIgnoringDuplicates(alerts)
+            .count()
+            .map(Long::intValue)
+            .onErrorResume(error -> {
+                logger.warn("Could not save {} missing-reading alerts, will retry: {}", chunk.size(), error.getMessage());
+                // A reading that arrived since the deadline passed has rearmed it; only retry the rest
+                for (Deadline deadline : chunk) {
+                    wheel.scheduleIfAbsent(new SilenceKey(deadline.patientId(), deadline.match().ruleId()), deadline,
+                        nowMillis + tickMillis);
+                }
+                return Mono.just(0);
+            });
+    }
+
+    private Alert newAlert(Deadline deadline) {
+        RuleMatch match = deadline.match();
+        Alert alert = new Alert(
+            alertIdGenerator.nextId(),
+            deadline.patientId(),
+            deadline.readingId(),
+            deadline.readingType(),
+            match.severity(),
+            match.label(),
+            deadline.readingValue(),
+            LocalDateTime.ofInstant(Instant.ofEpochMilli(deadline.deadlineMillis()), ZoneOffset.UTC)
+        );
+        alert.setRuleId(match.ruleId());
+        alert.setRuleFamily(match.family());
+        logger.info("Missing-reading alert for patient {}: {}", deadline.patientId(), match.label());
+        return alert;
+    }
+
+    private record SilenceKey(String patientId, String ruleId) {
+    }
+
+    private record Deadline(String patientId, String readingId, String readingType, String readingValue,
+                            RuleMatch match, long deadlineMillis) {
+    }
+}
@@ -0,0 +1,57 @@
+package com.folautech.alert.service;
+
+import com.folautech.alert.repository.ThresholdOverrideRepository;
+import com.folautech.alert.rules.PatientThresholdCache;
+import com.folautech.alert.rules.RuleEngine;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+@Service
+public class ThresholdOverrideService {
+
+    private static final Logger logger = LoggerFactory.getLogger(ThresholdOverrideService.class);
+
+    private final ThresholdOverrideRepository thresholdOverrideRepository;
+    private final PatientThresholdCache thresholdCache;
+    private final RuleEngine ruleEngine;
+
+    public ThresholdOverrideService(ThresholdOverrideRepository thresholdOverrideRepository,
+                                    PatientThresholdCache thresholdCache, RuleEngine ruleEngine) {
+        this.thresholdOverrideRepository = thresholdOverrideRepository;
+        this.thresholdCache = thresholdCache;
+        this.ruleEngine = ruleEngine;
+    }
+
+    /**
+     * @return Mono<Map<String, Integer>> the patient's overrides by param name, empty if they use the global thresholds
+     */
+    public Mono<Map<String, Integer>> getOverrides(String patientId) {
+        return thresholdOverrideRepository.findByPatientId(patientId);
+    }
+
+    /**
+     * Replace a patient's overrides and apply them to this instance's cache right away;
+     * other instances pick them up on their next refresh.
+     * @return Mono<Map<String, Integer>> the overrides now in effect, or IllegalArgumentException if a param is unknown
+     */
+    public Mono<Map<String, Integer>> replaceOverrides(String patientId, Map<String, Integer> overrides) {
+        return Mono.fromRunnable(() -> ruleEngine.validateOverrides(overrides))
+            .then(Mono.defer(() -> thresholdOverrideRepository.replace(patientId, overrides)))
+            .doOnSuccess(updated -> {
+                thresholdCache.put(patientId, overrides);
+                logger.info("Set {} threshold overrides for patient {}", overrides.size(), patientId);
+            })
+            .thenReturn(overrides);
+    }
+
+    /**
+     * Return a patient to the global thresholds.
+     */
+    public Mono<Void> clearOverrides(String patientId) {
+        return replaceOverrides(patientId, Map.of()).then();
+    }
+}
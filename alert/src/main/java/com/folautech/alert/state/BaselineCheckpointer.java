@@ -0,0 +1,68 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.BaselineCheckpoint;
+import com.folautech.alert.repository.BaselineRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Background job that saves the adaptive baselines changed since its last run to patient_baselines,
+ * in chunks of {@code alert.baseline.checkpoint.chunk-size} rows per upsert. A restart therefore loses at
+ * most one interval of baseline updates, and those are mostly recovered by replaying the reading history.
+ * Chunks that fail are kept for the next run.
+ */
+@Component
+public class BaselineCheckpointer {
+
+    private static final Logger logger = LoggerFactory.getLogger(BaselineCheckpointer.class);
+
+    private final PatientStateStore stateStore;
+    private final BaselineRepository baselineRepository;
+
+    @Value("${alert.baseline.checkpoint.enabled:true}")
+    private boolean enabled;
+
+    @Value("${alert.baseline.checkpoint.chunk-size:500}")
+    private int chunkSize;
+
+    public BaselineCheckpointer(PatientStateStore stateStore, BaselineRepository baselineRepository) {
+        this.stateStore = stateStore;
+        this.baselineRepository = baselineRepository;
+    }
+
+    /**
+     * @return Mono<Integer> number of checkpoint rows saved
+     */
+    @Scheduled(fixedDelayString = "${alert.baseline.checkpoint.interval-ms:60000}")
+    public Mono<Integer> checkpoint() {
+        if (!enabled) {
+            return Mono.just(0);
+        }
+        List<BaselineCheckpoint> rows = stateStore.drainBaselineCheckpoints();
+        if (rows.isEmpty()) {
+            return Mono.just(0);
+        }
+        return Flux.fromIterable(rows)
+            .buffer(Math.max(1, chunkSize))
+            .concatMap(this::saveChunk)
+            .reduce(0, Integer::sum)
+            .doOnNext(saved -> logger.info("Checkpointed {} of {} baseline rows", saved, rows.size()));
+    }
+
+    private Mono<Integer> saveChunk(List<BaselineCheckpoint> chunk) {
+        return baselineRepository.upsertAll(chunk)
+            .thenReturn(chunk.size())
+            .onErrorResume(error -> {
+                logger.warn("Could not checkpoint {} baseline rows, will retry: {}", chunk.size(), error.getMessage());
+                stateStore.requeueCheckpoints(chunk);
+                return Mono.just(0);
+            });
+    }
+}
@@ -0,0 +1,141 @@
+package com.folautech.alert.state;
+
+/**
+ * NEWS2-style aggregate early-warning score of one patient, built from the latest reading of each vital
+ * type. The National Early Warning Score 2 tables are used for the parameters this service receives
+ * (systolic BP, pulse and SpO2 on scale 1); respiration rate, temperature, consciousness and supplemental
+ * oxygen are not measured here, so the score is a partial NEWS2. Each new reading replaces its type's
+ * sub-score and the total is adjusted by the difference, so an update is O(1). Not thread-safe; see
+ * {@link PatientState}.
+ */
+public final class EarlyWarningScore {
+
+    /** NEWS2 clinical risk bands; LOW_MEDIUM is a low total with a single parameter scoring 3 */
+    public enum Band {
+        NONE, LOW, LOW_MEDIUM, MEDIUM, HIGH
+    }
+
+    private static final int BP = 0;
+    private static final int HR = 1;
+    private static final int SPO2 = 2;
+    private static final int NOT_SCORED = -1;
+    private static final int RED = 3;
+
+    private final int[] components = {NOT_SCORED, NOT_SCORED, NOT_SCORED};
+    private int total;
+    private int redCount;
+    private long updatedAt = Long.MIN_VALUE;
+
+    /**
+     * Replace the sub-score of the reading's type.
+     * @param readingValues the reading's values in window slot order
+     */
+    void update(String type, int[] readingValues, long capturedAtMillis) {
+        int component;
+        int score;
+        switch (type) {
+            case "BP" -> {
+                component = BP;
+                score = systolicScore(readingValues[0]);
+            }
+            case "HR" -> {
+                component = HR;
+                score = pulseScore(readingValues[0]);
+            }
+            case "SPO2" -> {
+                component = SPO2;
+                score = spo2Score(readingValues[0]);
+            }
+            default -> {
+                return;
+            }
+        }
+        int previous = components[component];
+        if (previous != NOT_SCORED) {
+            total -= previous;
+            if (previous == RED) {
+                redCount--;
+            }
+        }
+        components[component] = score;
+        total += score;
+        if (score == RED) {
+            redCount++;
+        }
+        updatedAt = Math.max(updatedAt, capturedAtMillis);
+    }
+
+    public int total() {
+        return total;
+    }
+
+    public Band band() {
+        if (total >= 7) {
+            return Band.HIGH;
+        }
+        if (total >= 5) {
+            return Band.MEDIUM;
+        }
+        if (redCount > 0) {
+            return Band.LOW_MEDIUM;
+        }
+        return total > 0 ? Band.LOW : Band.NONE;
+    }
+
+    /**
+     * @return whether any reading has been scored yet
+     */
+    public boolean isScored() {
+        return updatedAt != Long.MIN_VALUE;
+    }
+
+    /**
+     * @return sub-score of BP, HR or SPO2, or null if no reading of that type has been scored
+     */
+    public Integer component(String type) {
+        int index = switch (type) {
+            case "BP" -> BP;
+            case "HR" -> HR;
+            case "SPO2" -> SPO2;
+            default -> throw new IllegalArgumentException("Unknown reading type: " + type);
+        };
+        return components[index] == NOT_SCORED ? null : components[index];
+    }
+
+    /**
+     * @return capture time of the newest scored reading, epoch milliseconds
+     */
+    public long updatedAt() {
+        return updatedAt;
+    }
+
+    static int systolicScore(int systolic) {
+        if (systolic <= 90 || systolic >= 220) {
+            return 3;
+        }
+        if (systolic <= 100) {
+            return 2;
+        }
+        return systolic <= 110 ? 1 : 0;
+    }
+
+    static int pulseScore(int hr) {
+        if (hr <= 40 || hr >= 131) {
+            return 3;
+        }
+        if (hr >= 111) {
+            return 2;
+        }
+        return hr <= 50 || hr >= 91 ? 1 : 0;
+    }
+
+    static int spo2Score(int spo2) {
+        if (spo2 <= 91) {
+            return 3;
+        }
+        if (spo2 <= 93) {
+            return 2;
+        }
+        return spo2 <= 95 ? 1 : 0;
+    }
+}
@@ -0,0 +1,186 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.BPReading;
+import com.folautech.alert.model.BaselineCheckpoint;
+import com.folautech.alert.model.HRReading;
+import com.folautech.alert.model.SPO2Reading;
+import com.folautech.alert.model.VitalReading;
+import com.folautech.alert.rules.RuleMatch;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Everything the alert service remembers about one patient between readings: a {@link VitalWindow} and a
+ * {@link VitalBaseline} per vital type, the {@link EarlyWarningScore} of their latest readings and the
+ * {@link ThresholdLatch} of their threshold rules. Callers
+ * must hold the instance's monitor while recording a reading and evaluating against the windows or reading
+ * the score, so concurrent batches for the same patient see each other's readings atomically.
+ */
+public final class PatientState {
+
+    private final VitalWindow bp = new VitalWindow(2);
+    private final VitalWindow hr = new VitalWindow(1);
+    private final VitalWindow spo2 = new VitalWindow(1);
+    private final VitalBaseline bpBaseline = new VitalBaseline("BP", "systolic", "diastolic");
+    private final VitalBaseline hrBaseline = new VitalBaseline("HR", "hr");
+    private final VitalBaseline spo2Baseline = new VitalBaseline("SPO2", "spo2");
+    private final EarlyWarningScore score = new EarlyWarningScore();
+    private final ThresholdLatch latch = new ThresholdLatch();
+    private final double baselineAlpha;
+
+    public PatientState() {
+        this(VitalBaseline.DEFAULT_ALPHA);
+    }
+
+    /**
+     * @param baselineAlpha weight of each new reading in the adaptive baselines, between 0 and 1
+     */
+    public PatientState(double baselineAlpha) {
+        this.baselineAlpha = baselineAlpha;
+    }
+
+    public EarlyWarningScore score() {
+        return score;
+    }
+
+    public ThresholdLatch latch() {
+        return latch;
+    }
+
+    /**
+     * @return the window for BP, HR or SPO2 readings, or null for any other type
+     */
+    public VitalWindow window(String type) {
+        if (type == null) {
+            return null;
+        }
+        return switch (type) {
+            case "BP" -> bp;
+            case "HR" -> hr;
+            case "SPO2" -> spo2;
+            default -> null;
+        };
+    }
+
+    /**
+     * @return the adaptive baseline for BP, HR or SPO2 readings, or null for any other type
+     */
+    public VitalBaseline baseline(String type) {
+        if (type == null) {
+            return null;
+        }
+        return switch (type) {
+            case "BP" -> bpBaseline;
+            case "HR" -> hrBaseline;
+            case "SPO2" -> spo2Baseline;
+            default -> null;
+        };
+    }
+
+    /**
+     * Append the reading to its window and, if it is the newest of its type, rescore it and fold it into
+     * the type's baseline.
+     * @return whether the reading is now the newest of its type; false for incomplete readings and for
+     *         readings captured no later than the newest one already recorded
+     */
+    public boolean record(VitalReading reading) {
+        int[] values = values(reading);
+        if (values == null || reading.getCapturedAt() == null) {
+            return false;
+        }
+        long capturedAt = capturedAtMillis(reading.getCapturedAt());
+        if (!window(reading.getType()).append(capturedAt, values, reading.getReadingId())) {
+            return false;
+        }
+        score.update(reading.getType(), values, capturedAt);
+        baseline(reading.getType()).update(capturedAt, values, baselineAlpha);
+        return true;
+    }
+
+    /**
+     * Resume a baseline from its saved state; readings it already includes are not folded in again.
+     */
+    public void restoreBaseline(BaselineCheckpoint checkpoint) {
+        VitalBaseline baseline = baseline(checkpoint.getReadingType());
+        if (baseline != null) {
+            baseline.restore(checkpoint);
+        }
+    }
+
+    /**
+     * @return checkpoint rows of every baseline that changed since the last call
+     */
+    public List<BaselineCheckpoint> drainBaselineCheckpoints(String patientId) {
+        List<BaselineCheckpoint> rows = new ArrayList<>(0);
+        rows.addAll(bpBaseline.drainCheckpoint(patientId));
+        rows.addAll(hrBaseline.drainCheckpoint(patientId));
+        rows.addAll(spo2Baseline.drainCheckpoint(patientId));
+        return rows;
+    }
+
+    /**
+     * @return whether this very reading, same readingId and capture time, is already recorded, e.g. because
+     *         it was delivered again; only the last {@link VitalWindow#CAPACITY} readings of the type are known
+     */
+    public boolean isDuplicate(VitalReading reading) {
+        VitalWindow window = window(reading.getType());
+        return window != null && reading.getCapturedAt() != null
+            && window.contains(capturedAtMillis(reading.getCapturedAt()), reading.getReadingId());
+    }
+
+    /**
+     * @return the rules the reading raised when it was recorded and evaluated, empty if none, or null if it is
+     *         not recorded or was only rebuilt from history
+     */
+    public List<RuleMatch> raisedBy(VitalReading reading) {
+        VitalWindow window = window(reading.getType());
+        if (window == null || reading.getCapturedAt() == null) {
+            return null;
+        }
+        return window.raisedBy(capturedAtMillis(reading.getCapturedAt()), reading.getReadingId());
+    }
+
+    /**
+     * Remember the rules a reading just recorded raised, so a re-delivery of it raises them again.
+     */
+    public void raised(VitalReading reading, List<RuleMatch> matches) {
+        window(reading.getType()).setRaised(matches);
+    }
+
+    /**
+     * @return whether a reading of the same type captured later is already recorded, so this one arrived too
+     *         late to be recorded; a reading captured at the same time as the newest is not late, see
+     *         {@link #isDuplicate(VitalReading)}
+     */
+    public boolean isLate(VitalReading reading) {
+        VitalWindow window = window(reading.getType());
+        return window != null && reading.getCapturedAt() != null
+            && capturedAtMillis(reading.getCapturedAt()) < window.newestCapturedAt();
+    }
+
+    /**
+     * @return the capture time as epoch milliseconds; capture times carry no zone and are taken as UTC
+     */
+    public static long capturedAtMillis(String capturedAt) {
+        return LocalDateTime.parse(capturedAt, DateTimeFormatter.ISO_DATE_TIME).toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private static int[] values(VitalReading reading) {
+        if (reading instanceof BPReading bpReading) {
+            Integer systolic = bpReading.getSystolic();
+            Integer diastolic = bpReading.getDiastolic();
+            return systolic == null || diastolic == null ? null : new int[] {systolic, diastolic};
+        }
+        if (reading instanceof HRReading hrReading) {
+            return hrReading.getHr() == null ? null : new int[] {hrReading.getHr()};
+        }
+        if (reading instanceof SPO2Reading spo2Reading) {
+            return spo2Reading.getSpo2() == null ? null : new int[] {spo2Reading.getSpo2()};
+        }
+        return null;
+    }
+}
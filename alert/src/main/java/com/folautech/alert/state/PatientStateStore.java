@@ -0,0 +1,223 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.BaselineCheckpoint;
+import com.folautech.alert.model.VitalReading;
+import com.folautech.alert.repository.BaselineRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Bounded, least-recently-used store of {@link PatientState} held in memory by this instance.
+ * Windows are not persisted: the first time a patient is seen (after a restart, or after being evicted)
+ * their windows are rebuilt from the Vital Service's reading history, one request per patient.
+ * If the history cannot be fetched in time the patient starts with empty windows, so trend rules
+ * stay quiet until enough new readings arrive; threshold rules are unaffected.
+ * Adaptive baselines span far more readings than a window holds, so they are checkpointed to
+ * patient_baselines instead (see {@link BaselineCheckpointer}) and restored before the history is replayed.
+ */
+@Component
+public class PatientStateStore {
+
+    private static final Logger logger = LoggerFactory.getLogger(PatientStateStore.class);
+
+    private final VitalHistoryClient historyClient;
+    private final BaselineRepository baselineRepository;
+    private final int hydrateConcurrency;
+    private final Duration hydrateTimeout;
+    private final double baselineAlpha;
+    private final Map<String, PatientState> states;
+    // Baseline changes of evicted patients, and of failed checkpoints, waiting for the next checkpoint;
+    // keyed by patient and field so a long database outage keeps only the newest row of each
+    private final Map<String, BaselineCheckpoint> pendingCheckpoints = new HashMap<>();
+
+    public PatientStateStore(VitalHistoryClient historyClient, BaselineRepository baselineRepository,
+                             @Value("${alert.state.max-patients:10000}") int maxPatients,
+                             @Value("${alert.state.hydrate.concurrency:8}") int hydrateConcurrency,
+                             @Value("${alert.state.hydrate.timeout-ms:2000}") long hydrateTimeoutMs,
+                             @Value("${alert.baseline.alpha:0.1}") double baselineAlpha) {
+        if (baselineAlpha <= 0 || baselineAlpha >= 1) {
+            throw new IllegalArgumentException("alert.baseline.alpha must be between 0 and 1, not " + baselineAlpha);
+        }
+        this.historyClient = historyClient;
+        this.baselineRepository = baselineRepository;
+        this.hydrateConcurrency = Math.max(1, hydrateConcurrency);
+        this.hydrateTimeout = Duration.ofMillis(hydrateTimeoutMs);
+        this.baselineAlpha = baselineAlpha;
+        this.states = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, PatientState> eldest) {
+                if (size() <= maxPatients) {
+                    return false;
+                }
+                PatientState evicted = eldest.getValue();
+                synchronized (evicted) {
+                    addPending(evicted.drainBaselineCheckpoints(eldest.getKey()));
+                }
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Make sure every patient in the batch has state, rebuilding missing ones from history captured
+     * before their earliest reading in the batch. Never fails; patients whose history could not be
+     * fetched are left to {@link #stateFor(String)}.
+     */
+    public Mono<Void> hydrate(List<VitalReading> readings) {
+        Map<String, String> earliestByPatient = new HashMap<>();
+        synchronized (states) {
+            for (VitalReading reading : readings) {
+                String patientId = reading.getPatientId();
+                String capturedAt = reading.getCapturedAt();
+                if (patientId == null || capturedAt == null || states.containsKey(patientId)) {
+                    continue;
+                }
+                earliestByPatient.merge(patientId, capturedAt, PatientStateStore::earlier);
+            }
+        }
+        if (earliestByPatient.isEmpty()) {
+            return Mono.empty();
+        }
+
+        return Flux.fromIterable(earliestByPatient.entrySet())
+            .flatMap(entry -> rebuild(entry.getKey(), entry.getValue()), hydrateConcurrency)
+            .then();
+    }
+
+    /**
+     * The patient's state, rebuilt from their latest readings if this instance holds none.
+     * @return Mono<PatientState> never empty; the state is empty if the history could not be fetched
+     */
+    public Mono<PatientState> load(String patientId) {
+        synchronized (states) {
+            PatientState state = states.get(patientId);
+            if (state != null) {
+                return Mono.just(state);
+            }
+        }
+        return rebuild(patientId, null).then(Mono.fromSupplier(() -> stateFor(patientId)));
+    }
+
+    /**
+     * @return the patient's state, created empty if they have none yet, or null for a null patientId
+     */
+    public PatientState stateFor(String patientId) {
+        if (patientId == null) {
+            return null;
+        }
+        synchronized (states) {
+            return states.computeIfAbsent(patientId, id -> new PatientState(baselineAlpha));
+        }
+    }
+
+    /**
+     * Collect every baseline that changed since the last call, including those of evicted patients.
+     * @return checkpoint rows to save; pass them back to {@link #requeueCheckpoints(List)} if saving fails
+     */
+    public List<BaselineCheckpoint> drainBaselineCheckpoints() {
+        List<BaselineCheckpoint> rows;
+        List<Map.Entry<String, PatientState>> snapshot;
+        synchronized (states) {
+            rows = new ArrayList<>(pendingCheckpoints.values());
+            pendingCheckpoints.clear();
+            snapshot = new ArrayList<>(states.entrySet());
+        }
+        // Take each patient's monitor outside the store's lock, as evaluation does
+        for (Map.Entry<String, PatientState> entry : snapshot) {
+            PatientState state = entry.getValue();
+            synchronized (state) {
+                rows.addAll(state.drainBaselineCheckpoints(entry.getKey()));
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Keep rows that could not be saved for the next checkpoint. Rows that have since been superseded are
+     * harmless: the database never lets a checkpoint replace a newer one.
+     */
+    public void requeueCheckpoints(List<BaselineCheckpoint> rows) {
+        synchronized (states) {
+            addPending(rows);
+        }
+    }
+
+    // Callers hold the lock on states
+    private void addPending(List<BaselineCheckpoint> rows) {
+        for (BaselineCheckpoint row : rows) {
+            pendingCheckpoints.merge(row.getPatientId() + ':' + row.getField(), row,
+                (kept, added) -> added.getLastCapturedAt().isBefore(kept.getLastCapturedAt()) ? kept : added);
+        }
+    }
+
+    int size() {
+        synchronized (states) {
+            return states.size();
+        }
+    }
+
+    private Mono<Void> rebuild(String patientId, String before) {
+        Mono<List<BaselineCheckpoint>> checkpoints = baselineRepository.findByPatientId(patientId)
+            .collectList()
+            .timeout(hydrateTimeout)
+            .onErrorResume(error -> {
+                logger.warn("Could not load baselines for patient {}: {}", patientId, error.getMessage());
+                return Mono.just(List.of());
+            });
+        Mono<Optional<List<VitalReading>>> history = historyClient.fetchRecent(patientId, before, VitalWindow.CAPACITY)
+            .timeout(hydrateTimeout)
+            .map(Optional::of)
+            .defaultIfEmpty(Optional.empty())
+            .onErrorResume(error -> {
+                logger.warn("Could not load reading history for patient {}: {}", patientId, error.getMessage());
+                return Mono.just(Optional.empty());
+            });
+
+        return Mono.zip(checkpoints, history)
+            .doOnNext(loaded -> {
+                List<BaselineCheckpoint> saved = loaded.getT1();
+                List<VitalReading> readings = loaded.getT2().orElse(null);
+                if (saved.isEmpty() && readings == null) {
+                    // Nothing to rebuild from; stateFor creates the state empty when the patient is evaluated
+                    return;
+                }
+                PatientState state = new PatientState(baselineAlpha);
+                saved.forEach(state::restoreBaseline);
+                for (VitalReading reading : readings != null ? readings : List.<VitalReading>of()) {
+                    try {
+                        state.record(reading);
+                    } catch (DateTimeParseException e) {
+                        logger.warn("Skipping history reading {} with invalid capturedAt", reading.getReadingId());
+                    }
+                }
+                synchronized (states) {
+                    // A concurrent batch may have created the patient's state in the meantime; keep that one
+                    states.putIfAbsent(patientId, state);
+                }
+                logger.debug("Rebuilt state for patient {} from {} baseline rows and {} historical readings",
+                    patientId, saved.size(), readings != null ? readings.size() : 0);
+            })
+            .then();
+    }
+
+    private static String earlier(String a, String b) {
+        try {
+            return PatientState.capturedAtMillis(a) <= PatientState.capturedAtMillis(b) ? a : b;
+        } catch (DateTimeParseException e) {
+            return a;
+        }
+    }
+}
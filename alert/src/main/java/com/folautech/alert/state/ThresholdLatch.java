@@ -0,0 +1,36 @@
+package com.folautech.alert.state;
+
+/**
+ * Hysteresis state of one patient's threshold rules: for each vital type, the index of the rule the patient
+ * has entered and not yet left, or {@link #NONE}. One int per type, so borderline patients cost no more
+ * memory than any other. Indexes refer to one rule set generation; a latch written under an older
+ * generation reads as NONE. Callers hold the owning {@link PatientState}'s monitor.
+ */
+public final class ThresholdLatch {
+
+    public static final int NONE = -1;
+
+    private final int[] rules = {NONE, NONE, NONE};
+    private int generation;
+
+    /**
+     * @param type 0 for BP, 1 for HR, 2 for SPO2
+     * @return index of the latched rule, or NONE
+     */
+    public int latched(int type, int generation) {
+        return generation == this.generation ? rules[type] : NONE;
+    }
+
+    /**
+     * @param rule index of the rule to latch, or NONE to release the type
+     */
+    public void set(int type, int generation, int rule) {
+        if (generation != this.generation) {
+            rules[0] = NONE;
+            rules[1] = NONE;
+            rules[2] = NONE;
+            this.generation = generation;
+        }
+        rules[type] = rule;
+    }
+}
@@ -0,0 +1,148 @@
+package com.folautech.alert.state;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Hashed timing wheel of keyed deadlines. A deadline lives in the bucket of its tick modulo the wheel size,
+ * on an intrusive doubly-linked list, and is indexed by key, so scheduling, rescheduling and cancelling are
+ * O(1) however many deadlines are pending. Advancing visits only the buckets of the ticks that passed, and
+ * deadlines more than one revolution away simply stay in their bucket until their tick comes round.
+ * All methods are synchronized; none of them does I/O.
+ */
+public final class TimingWheel<K, V> {
+
+    private final long tickMillis;
+    private final int mask;
+    private final Node<K, V>[] buckets;
+    private final Map<K, Node<K, V>> nodes = new HashMap<>();
+    // Last tick whose bucket has been swept
+    private long currentTick;
+
+    /**
+     * @param tickMillis resolution of the wheel; deadlines fire up to one tick late
+     * @param wheelSize number of buckets, rounded up to a power of two
+     * @param startMillis current time, epoch milliseconds
+     */
+    @SuppressWarnings("unchecked")
+    public TimingWheel(long tickMillis, int wheelSize, long startMillis) {
+        if (tickMillis <= 0 || wheelSize <= 0) {
+            throw new IllegalArgumentException("Timing wheel needs a positive tick and size");
+        }
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        this.tickMillis = tickMillis;
+        this.mask = size - 1;
+        this.buckets = new Node[size];
+        for (int i = 0; i < size; i++) {
+            Node<K, V> head = new Node<>(null);
+            head.prev = head;
+            head.next = head;
+            buckets[i] = head;
+        }
+        this.currentTick = startMillis / tickMillis;
+    }
+
+    /**
+     * Set the key's deadline and value, replacing any deadline it already had.
+     */
+    public synchronized void schedule(K key, V value, long deadlineMillis) {
+        Node<K, V> node = nodes.get(key);
+        if (node == null) {
+            node = new Node<>(key);
+            nodes.put(key, node);
+        } else {
+            unlink(node);
+        }
+        node.value = value;
+        link(node, deadlineMillis);
+    }
+
+    /**
+     * Schedule the key unless it already has a deadline, e.g. to retry a fired deadline that nothing has reset.
+     * @return whether the key was scheduled
+     */
+    public synchronized boolean scheduleIfAbsent(K key, V value, long deadlineMillis) {
+        if (nodes.containsKey(key)) {
+            return false;
+        }
+        schedule(key, value, deadlineMillis);
+        return true;
+    }
+
+    /**
+     * @return whether the key had a deadline
+     */
+    public synchronized boolean cancel(K key) {
+        Node<K, V> node = nodes.remove(key);
+        if (node == null) {
+            return false;
+        }
+        unlink(node);
+        return true;
+    }
+
+    public synchronized int size() {
+        return nodes.size();
+    }
+
+    /**
+     * Move the wheel to {@code nowMillis} and remove every deadline that has passed.
+     * @return values of the expired deadlines, in no particular order
+     */
+    public synchronized List<V> advance(long nowMillis) {
+        long nowTick = nowMillis / tickMillis;
+        if (nowTick <= currentTick) {
+            return List.of();
+        }
+        List<V> expired = new ArrayList<>();
+        // After a full revolution every bucket has been swept once; later ticks would revisit the same buckets
+        long ticks = Math.min(nowTick - currentTick, (long) buckets.length);
+        for (long tick = currentTick + 1; tick <= currentTick + ticks; tick++) {
+            Node<K, V> head = buckets[(int) (tick & mask)];
+            Node<K, V> node = head.next;
+            while (node != head) {
+                Node<K, V> next = node.next;
+                if (node.deadlineTick <= nowTick) {
+                    unlink(node);
+                    nodes.remove(node.key);
+                    expired.add(node.value);
+                }
+                node = next;
+            }
+        }
+        currentTick = nowTick;
+        return expired;
+    }
+
+    private void link(Node<K, V> node, long deadlineMillis) {
+        // Round up so a deadline never fires early; a deadline already due goes into the next bucket swept
+        long tick = Math.max(Math.floorDiv(deadlineMillis + tickMillis - 1, tickMillis), currentTick + 1);
+        node.deadlineTick = tick;
+        Node<K, V> head = buckets[(int) (tick & mask)];
+        node.prev = head.prev;
+        node.next = head;
+        head.prev.next = node;
+        head.prev = node;
+    }
+
+    private static <K, V> void unlink(Node<K, V> node) {
+        node.prev.next = node.next;
+        node.next.prev = node.prev;
+        node.prev = null;
+        node.next = null;
+    }
+
+    private static final class Node<K, V> {
+        private final K key;
+        private V value;
+        private long deadlineTick;
+        private Node<K, V> prev;
+        private Node<K, V> next;
+
+        private Node(K key) {
+            this.key = key;
+        }
+    }
+}
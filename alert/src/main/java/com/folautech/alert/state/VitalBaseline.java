@@ -0,0 +1,122 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.BaselineCheckpoint;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Exponentially weighted mean and variance of each field of one vital type for one patient, in primitive
+ * arrays. Each update also records the z-score of the new value against the baseline as it was before that
+ * value, which is what anomaly rules compare. Not thread-safe; see {@link PatientState}.
+ */
+public final class VitalBaseline {
+
+    /** Weight of the newest reading; about the last 1 / alpha readings dominate the baseline */
+    public static final double DEFAULT_ALPHA = 0.1;
+
+    // Floor for the standard deviation so a patient with near-constant readings does not turn every
+    // one-unit change into a huge z-score
+    private static final double MIN_STDDEV = 1.0;
+
+    private final String readingType;
+    private final String[] fields;
+    private final double[] mean;
+    private final double[] variance;
+    private final double[] lastZ;
+    private int samples;
+    private long updatedAt = Long.MIN_VALUE;
+    private boolean dirty;
+
+    public VitalBaseline(String readingType, String... fields) {
+        this.readingType = readingType;
+        this.fields = fields;
+        this.mean = new double[fields.length];
+        this.variance = new double[fields.length];
+        this.lastZ = new double[fields.length];
+    }
+
+    /**
+     * Fold a reading into the baseline unless it is already part of it, e.g. a reading replayed from history
+     * that was included in the restored checkpoint.
+     * @return whether the baseline changed
+     */
+    boolean update(long capturedAtMillis, int[] readingValues, double alpha) {
+        if (capturedAtMillis <= updatedAt) {
+            return false;
+        }
+        for (int slot = 0; slot < fields.length; slot++) {
+            double value = readingValues[slot];
+            if (samples == 0) {
+                mean[slot] = value;
+                variance[slot] = 0;
+                lastZ[slot] = 0;
+                continue;
+            }
+            double deviation = value - mean[slot];
+            lastZ[slot] = deviation / Math.max(Math.sqrt(variance[slot]), MIN_STDDEV);
+            mean[slot] += alpha * deviation;
+            variance[slot] = (1 - alpha) * (variance[slot] + alpha * deviation * deviation);
+        }
+        samples++;
+        updatedAt = capturedAtMillis;
+        dirty = true;
+        return true;
+    }
+
+    /**
+     * @return number of readings folded in, including the newest
+     */
+    public int samples() {
+        return samples;
+    }
+
+    /**
+     * @return capture time of the newest reading folded in, epoch milliseconds
+     */
+    public long updatedAt() {
+        return updatedAt;
+    }
+
+    public double mean(int slot) {
+        return mean[slot];
+    }
+
+    /**
+     * @return z-score of the newest reading against the baseline before it; 0 for the first reading
+     */
+    public double lastZ(int slot) {
+        return lastZ[slot];
+    }
+
+    void restore(BaselineCheckpoint checkpoint) {
+        for (int slot = 0; slot < fields.length; slot++) {
+            if (fields[slot].equals(checkpoint.getField())) {
+                mean[slot] = checkpoint.getMean();
+                variance[slot] = checkpoint.getVariance();
+                samples = checkpoint.getSamples();
+                updatedAt = checkpoint.getLastCapturedAt().toInstant(ZoneOffset.UTC).toEpochMilli();
+            }
+        }
+    }
+
+    /**
+     * @return one checkpoint row per field if the baseline changed since the last call, otherwise none
+     */
+    List<BaselineCheckpoint> drainCheckpoint(String patientId) {
+        if (!dirty) {
+            return List.of();
+        }
+        dirty = false;
+        LocalDateTime lastCapturedAt = LocalDateTime.ofInstant(Instant.ofEpochMilli(updatedAt), ZoneOffset.UTC);
+        List<BaselineCheckpoint> rows = new ArrayList<>(fields.length);
+        for (int slot = 0; slot < fields.length; slot++) {
+            rows.add(new BaselineCheckpoint(patientId, readingType, fields[slot], mean[slot], variance[slot], samples,
+                lastCapturedAt));
+        }
+        return rows;
+    }
+}
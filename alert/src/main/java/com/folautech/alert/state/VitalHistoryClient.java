@@ -0,0 +1,44 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.VitalReading;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+/**
+ * Reads a patient's recent reading history back from the Vital Service, which owns {@code vital_readings}.
+ */
+@Component
+public class VitalHistoryClient {
+
+    private final WebClient webClient;
+
+    @Value("${alert.vital-service.url:http://localhost:8081}")
+    private String vitalServiceUrl;
+
+    public VitalHistoryClient(WebClient.Builder webClientBuilder) {
+        this.webClient = webClientBuilder.build();
+    }
+
+    /**
+     * @param before ISO-8601 capture time; only readings captured strictly before it are returned, or null for the latest
+     * @param perTypeLimit maximum number of readings per vital type
+     * @return the latest readings of each type, oldest first
+     */
+    public Mono<List<VitalReading>> fetchRecent(String patientId, String before, int perTypeLimit) {
+        String uri = before != null
+            ? "/readings/patients/{patientId}/recent?before={before}&limit={limit}"
+            : "/readings/patients/{patientId}/recent?limit={limit}";
+        Object[] variables = before != null
+            ? new Object[] {patientId, before, perTypeLimit}
+            : new Object[] {patientId, perTypeLimit};
+        return webClient.get()
+            .uri(vitalServiceUrl + uri, variables)
+            .retrieve()
+            .bodyToMono(new ParameterizedTypeReference<List<VitalReading>>() {});
+    }
+}
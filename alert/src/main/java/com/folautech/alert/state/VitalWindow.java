@@ -0,0 +1,168 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.rules.RuleMatch;
+
+import java.util.List;
+
+/**
+ * Fixed-size ring buffer of the most recent readings of one vital type for one patient.
+ * Each reading contributes one int per field slot (systolic and diastolic for BP, a single value otherwise).
+ * Alongside the values the window keeps, per slot, the length of the current run of strictly rising and
+ * strictly falling readings, so both "changed by N over k readings" and "k steady steps" checks are O(1)
+ * lookups instead of scans. Each reading also keeps its readingId and the rules it raised when it was appended,
+ * so a re-delivery of it raises the same again. Not thread-safe; see {@link PatientState}.
+ */
+public final class VitalWindow {
+
+    /** Most readings a window holds, and therefore the longest span a trend rule can look back over */
+    public static final int CAPACITY = 16;
+
+    private final int slots;
+    // Reading i (0 = oldest physical cell) occupies values[i * slots .. i * slots + slots)
+    private final int[] values;
+    private final long[] capturedAt;
+    private final String[] readingIds;
+    private final List<RuleMatch>[] raised;
+    private final int[] risingRun;
+    private final int[] fallingRun;
+    private int newest = -1;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public VitalWindow(int slots) {
+        this.slots = slots;
+        this.values = new int[CAPACITY * slots];
+        this.capturedAt = new long[CAPACITY];
+        this.readingIds = new String[CAPACITY];
+        this.raised = new List[CAPACITY];
+        this.risingRun = new int[slots];
+        this.fallingRun = new int[slots];
+    }
+
+    /**
+     * Append a reading if it is newer than every reading already in the window.
+     * Older or equally old readings (late arrivals, replays) are ignored so the window stays in capture order.
+     * @param capturedAtMillis capture time of the reading, epoch milliseconds
+     * @param readingValues one value per slot
+     * @return whether the reading was appended
+     */
+    public boolean append(long capturedAtMillis, int[] readingValues) {
+        return append(capturedAtMillis, readingValues, null);
+    }
+
+    /**
+     * Append a reading like {@link #append(long, int[])}, remembering its readingId so a re-delivery of it
+     * can be told apart from another reading (see {@link #contains(long, String)}).
+     */
+    public boolean append(long capturedAtMillis, int[] readingValues, String readingId) {
+        if (size > 0 && capturedAtMillis <= capturedAt[newest]) {
+            return false;
+        }
+        int previous = newest;
+        newest = (newest + 1) % CAPACITY;
+        capturedAt[newest] = capturedAtMillis;
+        readingIds[newest] = readingId;
+        raised[newest] = null;
+        for (int slot = 0; slot < slots; slot++) {
+            int value = readingValues[slot];
+            if (size > 0) {
+                int last = values[previous * slots + slot];
+                risingRun[slot] = value > last ? Math.min(risingRun[slot] + 1, CAPACITY - 1) : 0;
+                fallingRun[slot] = value < last ? Math.min(fallingRun[slot] + 1, CAPACITY - 1) : 0;
+            }
+            values[newest * slots + slot] = value;
+        }
+        if (size < CAPACITY) {
+            size++;
+        }
+        return true;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return capture time of the newest reading, or Long.MIN_VALUE if the window is empty
+     */
+    public long newestCapturedAt() {
+        return size == 0 ? Long.MIN_VALUE : capturedAt[newest];
+    }
+
+    /**
+     * @return whether the window holds the reading with this readingId and capture time
+     */
+    public boolean contains(long capturedAtMillis, String readingId) {
+        return find(capturedAtMillis, readingId) >= 0;
+    }
+
+    /**
+     * Remember the rules the newest reading raised, for {@link #raisedBy(long, String)}.
+     */
+    public void setRaised(List<RuleMatch> matches) {
+        if (size > 0) {
+            raised[newest] = List.copyOf(matches);
+        }
+    }
+
+    /**
+     * @return the rules the reading with this readingId and capture time raised, empty if none, or null if the
+     *         window does not hold it or it was appended without being evaluated, e.g. rebuilt from history
+     */
+    public List<RuleMatch> raisedBy(long capturedAtMillis, String readingId) {
+        int index = find(capturedAtMillis, readingId);
+        return index < 0 ? null : raised[index];
+    }
+
+    private int find(long capturedAtMillis, String readingId) {
+        if (readingId == null) {
+            return -1;
+        }
+        for (int back = 0; back < size; back++) {
+            int index = index(back);
+            if (capturedAt[index] == capturedAtMillis && readingId.equals(readingIds[index])) {
+                return index;
+            }
+            if (capturedAt[index] < capturedAtMillis) {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * @param back 0 for the newest reading, 1 for the one before, up to size() - 1
+     */
+    public int value(int slot, int back) {
+        return values[index(back) * slots + slot];
+    }
+
+    /**
+     * @param back 0 for the newest reading, 1 for the one before, up to size() - 1
+     * @return capture time of that reading, epoch milliseconds
+     */
+    public long capturedAt(int back) {
+        return capturedAt[index(back)];
+    }
+
+    private int index(int back) {
+        if (back < 0 || back >= size) {
+            throw new IndexOutOfBoundsException("No reading " + back + " back in a window of " + size);
+        }
+        return (newest - back + CAPACITY) % CAPACITY;
+    }
+
+    /**
+     * @return how many consecutive steps up, each strictly higher than the last, end at the newest reading
+     */
+    public int risingRun(int slot) {
+        return risingRun[slot];
+    }
+
+    /**
+     * @return how many consecutive steps down, each strictly lower than the last, end at the newest reading
+     */
+    public int fallingRun(int slot) {
+        return fallingRun[slot];
+    }
+}
@@ -1,22 +1,67 @@
 -- Alerts table to store triggered alerts
 DROP TABLE IF EXISTS alerts;
+DROP TABLE IF EXISTS alert_repeats;
 
 CREATE TABLE IF NOT EXISTS alerts (
     id SERIAL PRIMARY KEY,
     alert_id VARCHAR(50) UNIQUE NOT NULL,
     patient_id VARCHAR(50) NOT NULL,
     reading_id VARCHAR(50) NOT NULL,
+    rule_id VARCHAR(100) NOT NULL,
+    rule_family VARCHAR(100) NOT NULL,
     reading_type VARCHAR(10) NOT NULL,
     alert_type VARCHAR(20) NOT NULL,
     threshold_violated VARCHAR(100) NOT NULL,
     reading_value VARCHAR(100) NOT NULL,
     triggered_at TIMESTAMP NOT NULL,
     created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP,
+    -- Repeats of the rule folded into this alert within the suppression window, and the newest of them
+    occurrences INTEGER NOT NULL DEFAULT 1,
+    last_reading_id VARCHAR(50) NOT NULL,
+    last_value VARCHAR(100) NOT NULL,
+    last_seen_at TIMESTAMP NOT NULL,
+    -- Raised by a reading that arrived after a newer one of the patient had been evaluated
+    late BOOLEAN NOT NULL DEFAULT FALSE,
     CONSTRAINT chk_reading_type CHECK (reading_type IN ('BP', 'HR', 'SPO2')),
-    CONSTRAINT chk_alert_type CHECK (alert_type IN ('HIGH', 'LOW', 'CRITICAL'))
+    CONSTRAINT chk_alert_type CHECK (alert_type IN ('HIGH', 'LOW', 'CRITICAL')),
+    -- At most one alert per reading and rule, however many replicas or retries evaluate it
+    CONSTRAINT uq_alerts_reading_rule UNIQUE (reading_id, rule_id)
 );
 
 -- Indexes for better query performance
-CREATE INDEX IF NOT EXISTS idx_alerts_patient_id ON alerts(patient_id);
+-- Serves findByPatientIdOrderByAlertId; alert_id is time-ordered, so this is the patient's alerts in creation order
+CREATE INDEX IF NOT EXISTS idx_alerts_patient_alert_id ON alerts(patient_id, alert_id);
 CREATE INDEX IF NOT EXISTS idx_alerts_triggered_at ON alerts(triggered_at DESC);
-CREATE INDEX IF NOT EXISTS idx_alerts_reading_id ON alerts(reading_id);
\ No newline at end of file
+-- reading_id lookups are served by the leading column of uq_alerts_reading_rule
+
+-- Readings folded into an open alert as repeats, one row per reading and rule like the alerts themselves,
+-- so a retried or concurrently evaluated reading is counted once
+CREATE TABLE IF NOT EXISTS alert_repeats (
+    reading_id VARCHAR(50) NOT NULL,
+    rule_id VARCHAR(100) NOT NULL,
+    alert_id VARCHAR(50) NOT NULL,
+    recorded_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP,
+    PRIMARY KEY (reading_id, rule_id)
+);
+
+-- Per-patient threshold overrides, keyed by rule set param name (e.g. spo2.low); kept across restarts
+CREATE TABLE IF NOT EXISTS patient_threshold_overrides (
+    patient_id VARCHAR(50) NOT NULL,
+    param_name VARCHAR(100) NOT NULL,
+    threshold INTEGER NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP,
+    PRIMARY KEY (patient_id, param_name)
+);
+
+-- Checkpoints of the per-patient adaptive (EWMA) baselines held in memory, one row per vital field
+CREATE TABLE IF NOT EXISTS patient_baselines (
+    patient_id VARCHAR(50) NOT NULL,
+    reading_type VARCHAR(10) NOT NULL,
+    field VARCHAR(20) NOT NULL,
+    mean DOUBLE PRECISION NOT NULL,
+    variance DOUBLE PRECISION NOT NULL,
+    samples INTEGER NOT NULL,
+    last_captured_at TIMESTAMP NOT NULL,
+    checkpointed_at TIMESTAMP NOT NULL DEFAULT LOCALTIMESTAMP,
+    PRIMARY KEY (patient_id, field)
+);
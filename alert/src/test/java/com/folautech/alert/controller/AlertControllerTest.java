@@ -12,12 +12,15 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(AlertController.class)
@@ -202,4 +205,66 @@ class AlertControllerTest {
                 .expectBody(String.class)
                 .isEqualTo("Alert Service is running");
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should stream alerts as NDJSON when asked for application/x-ndjson")
+    void testStreamEvaluation() {
+        Alert alert1 = new Alert("alert-1", patientId, "reading-1", "HR", 
+                AlertType.HIGH, "Heart Rate > 110", "120", LocalDateTime.now());
+        Alert alert2 = new Alert("alert-2", patientId, "reading-2", "SPO2", 
+                AlertType.LOW, "SpO2 < 92", "91", LocalDateTime.now());
+        when(alertService.evaluateReadings(anyList(), eq(false))).thenReturn(Flux.just(alert2, alert1));
+
+        String requestBody = """
+            [{"type": "HR", "readingId": "reading-1", "patientId": "%s", "hr": 120, "capturedAt": "%s"},
+             {"type": "SPO2", "readingId": "reading-2", "patientId": "%s", "spo2": 91, "capturedAt": "%s"}]
+            """.formatted(patientId, capturedAt, patientId, capturedAt);
+
+        webTestClient.post()
+                .uri("/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue(requestBody)
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+                .returnResult(Alert.class)
+                .getResponseBody()
+                .map(Alert::getAlertId)
+                .as(StepVerifier::create)
+                .expectNext("alert-2", "alert-1")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should pass ordered=true through to the service when streaming")
+    void testStreamEvaluationOrdered() {
+        when(alertService.evaluateReadings(anyList(), eq(true))).thenReturn(Flux.empty());
+
+        webTestClient.post()
+                .uri("/evaluate?ordered=true")
+                .contentType(MediaType.APPLICATION_JSON)
+                .accept(MediaType.APPLICATION_NDJSON)
+                .bodyValue("[]")
+                .exchange()
+                .expectStatus().isOk();
+
+        verify(alertService).evaluateReadings(anyList(), eq(true));
+    }
+
+    @Test
+    @DisplayName("Should keep answering with a JSON array when no NDJSON is requested")
+    void testEvaluateDefaultsToJsonArray() {
+        when(alertService.evaluateReadings(anyList())).thenReturn(Flux.empty());
+
+        webTestClient.post()
+                .uri("/evaluate")
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue("[]")
+                .exchange()
+                .expectStatus().isOk()
+                .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_JSON)
+                .expectBody()
+                .json("[]");
+    }
+}
@@ -0,0 +1,54 @@
+package com.folautech.alert.controller;
+
+import com.folautech.alert.model.PatientScore;
+import com.folautech.alert.service.PatientScoreService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(PatientScoreController.class)
+@ActiveProfiles("test")
+class PatientScoreControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private PatientScoreService patientScoreService;
+
+    @Test
+    @DisplayName("Should return the patient's current score")
+    void testGetScore() {
+        when(patientScoreService.getScore("p-001")).thenReturn(Mono.just(
+            new PatientScore("p-001", 5, "MEDIUM", 1, 2, 2, LocalDateTime.parse("2025-08-01T12:03:00"))));
+
+        webTestClient.get()
+            .uri("/patients/p-001/score")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.score").isEqualTo(5)
+            .jsonPath("$.band").isEqualTo("MEDIUM")
+            .jsonPath("$.spo2").isEqualTo(2);
+    }
+
+    @Test
+    @DisplayName("Should return 404 for patients without scored readings")
+    void testGetScoreUnknownPatient() {
+        when(patientScoreService.getScore("p-unknown")).thenReturn(Mono.empty());
+
+        webTestClient.get()
+            .uri("/patients/p-unknown/score")
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+}
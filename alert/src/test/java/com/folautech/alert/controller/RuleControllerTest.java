@@ -0,0 +1,89 @@
+package com.folautech.alert.controller;
+
+import com.folautech.alert.rules.RuleEngine;
+import com.folautech.alert.rules.RuleSetDefinition;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(RuleController.class)
+@ActiveProfiles("test")
+class RuleControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private RuleEngine ruleEngine;
+
+    @Test
+    @DisplayName("Should return the active rule set")
+    void testGetRules() {
+        when(ruleEngine.currentDefinition())
+            .thenReturn(new RuleSetDefinition("default-1", Map.of("hr.high", 110), List.of()));
+
+        webTestClient.get()
+            .uri("/rules")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.version").isEqualTo("default-1")
+            .jsonPath("$.params['hr.high']").isEqualTo(110);
+    }
+
+    @Test
+    @DisplayName("Should return the new version when a rule set is applied")
+    void testReplaceRules() {
+        when(ruleEngine.apply(any(RuleSetDefinition.class))).thenReturn("v2");
+
+        webTestClient.put()
+            .uri("/rules")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("""
+                {"version": "v2", "params": {"hr.high": 120}, "rules": []}
+                """)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).isEqualTo("v2");
+    }
+
+    @Test
+    @DisplayName("Should reject an invalid rule set with 400")
+    void testReplaceRulesInvalid() {
+        when(ruleEngine.apply(any(RuleSetDefinition.class)))
+            .thenThrow(new IllegalArgumentException("Rule hr-high references unknown param: hr.max"));
+
+        webTestClient.put()
+            .uri("/rules")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("""
+                {"version": "bad", "params": {}, "rules": []}
+                """)
+            .exchange()
+            .expectStatus().isBadRequest()
+            .expectBody(String.class).isEqualTo("Rule hr-high references unknown param: hr.max");
+    }
+
+    @Test
+    @DisplayName("Should reload the rule file")
+    void testReloadRules() {
+        when(ruleEngine.reload()).thenReturn("default-1");
+
+        webTestClient.post()
+            .uri("/rules/reload")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody(String.class).isEqualTo("default-1");
+    }
+}
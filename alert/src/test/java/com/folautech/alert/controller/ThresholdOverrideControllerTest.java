@@ -0,0 +1,86 @@
+package com.folautech.alert.controller;
+
+import com.folautech.alert.service.ThresholdOverrideService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@WebFluxTest(ThresholdOverrideController.class)
+@ActiveProfiles("test")
+class ThresholdOverrideControllerTest {
+
+    @Autowired
+    private WebTestClient webTestClient;
+
+    @MockBean
+    private ThresholdOverrideService thresholdOverrideService;
+
+    @Test
+    @DisplayName("Should return a patient's overrides")
+    void testGetOverrides() {
+        when(thresholdOverrideService.getOverrides("p-copd")).thenReturn(Mono.just(Map.of("spo2.low", 88)));
+
+        webTestClient.get()
+            .uri("/patients/p-copd/thresholds")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$['spo2.low']").isEqualTo(88);
+    }
+
+    @Test
+    @DisplayName("Should replace a patient's overrides")
+    void testReplaceOverrides() {
+        when(thresholdOverrideService.replaceOverrides(eq("p-athlete"), anyMap()))
+            .thenReturn(Mono.just(Map.of("hr.low", 40)));
+
+        webTestClient.put()
+            .uri("/patients/p-athlete/thresholds")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"hr.low\": 40}")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$['hr.low']").isEqualTo(40);
+
+        verify(thresholdOverrideService).replaceOverrides("p-athlete", Map.of("hr.low", 40));
+    }
+
+    @Test
+    @DisplayName("Should reject overrides for unknown params with 400")
+    void testReplaceOverridesUnknownParam() {
+        when(thresholdOverrideService.replaceOverrides(eq("p-001"), anyMap()))
+            .thenReturn(Mono.error(new IllegalArgumentException("Unknown threshold param: spo2.min")));
+
+        webTestClient.put()
+            .uri("/patients/p-001/thresholds")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue("{\"spo2.min\": 88}")
+            .exchange()
+            .expectStatus().isBadRequest();
+    }
+
+    @Test
+    @DisplayName("Should clear a patient's overrides")
+    void testClearOverrides() {
+        when(thresholdOverrideService.clearOverrides("p-copd")).thenReturn(Mono.empty());
+
+        webTestClient.delete()
+            .uri("/patients/p-copd/thresholds")
+            .exchange()
+            .expectStatus().isNoContent();
+    }
+}
@@ -0,0 +1,155 @@
+package com.folautech.alert.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.folautech.alert.model.AlertType;
+import com.folautech.alert.model.HRReading;
+import com.folautech.alert.model.SPO2Reading;
+import com.folautech.alert.model.ThresholdOverride;
+import com.folautech.alert.repository.ThresholdOverrideRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class PatientThresholdCacheTest {
+
+    @Mock
+    private ThresholdOverrideRepository thresholdOverrideRepository;
+
+    private PatientThresholdCache thresholdCache;
+    private RuleEngine ruleEngine;
+
+    @BeforeEach
+    void setUp() {
+        thresholdCache = new PatientThresholdCache(thresholdOverrideRepository, 2, 300);
+        ruleEngine = new RuleEngine(new DefaultResourceLoader(), new ObjectMapper(), thresholdCache,
+            "classpath:rules/default-rules.json");
+    }
+
+    private SPO2Reading spo2(String patientId, int value) {
+        return new SPO2Reading("r-1", patientId, "2025-08-01T12:00:00Z", value);
+    }
+
+    @Test
+    @DisplayName("A cache miss should use the global thresholds while the overrides load in the background")
+    void testMissUsesDefaultsUntilLoaded() {
+        Sinks.One<Map<String, Integer>> pending = Sinks.one();
+        when(thresholdOverrideRepository.findByPatientId("p-copd")).thenReturn(pending.asMono());
+
+        assertEquals(AlertType.LOW, ruleEngine.evaluate(spo2("p-copd", 91)).severity());
+        // Still loading: no second query, still the global thresholds
+        assertEquals(AlertType.LOW, ruleEngine.evaluate(spo2("p-copd", 91)).severity());
+
+        pending.tryEmitValue(Map.of("spo2.low", 88, "spo2.critical", 85));
+
+        assertNull(ruleEngine.evaluate(spo2("p-copd", 91)));
+        RuleMatch match = ruleEngine.evaluate(spo2("p-copd", 87));
+        assertEquals(AlertType.LOW, match.severity());
+        assertEquals("SpO2 < 88", match.label());
+        verify(thresholdOverrideRepository, times(1)).findByPatientId("p-copd");
+    }
+
+    @Test
+    @DisplayName("Patients without overrides should be cached and keep the global thresholds")
+    void testPatientWithoutOverridesIsCached() {
+        when(thresholdOverrideRepository.findByPatientId("p-001")).thenReturn(Mono.just(Map.of()));
+
+        for (int i = 0; i < 5; i++) {
+            assertEquals(AlertType.LOW, ruleEngine.evaluate(spo2("p-001", 91)).severity());
+        }
+
+        verify(thresholdOverrideRepository, times(1)).findByPatientId("p-001");
+    }
+
+    @Test
+    @DisplayName("Overrides should only apply to their own patient")
+    void testOverridesArePerPatient() {
+        thresholdCache.put("p-athlete", Map.of("hr.low", 40));
+        thresholdCache.put("p-001", Map.of());
+
+        assertNull(ruleEngine.evaluate(new HRReading("r-1", "p-athlete", "2025-08-01T12:00:00Z", 45)));
+        assertEquals(AlertType.LOW,
+            ruleEngine.evaluate(new HRReading("r-2", "p-001", "2025-08-01T12:00:00Z", 45)).severity());
+        verifyNoInteractions(thresholdOverrideRepository);
+    }
+
+    @Test
+    @DisplayName("Overrides should be recompiled against a newly applied rule set")
+    void testOverridesFollowRuleSetSwap() {
+        thresholdCache.put("p-athlete", Map.of("hr.low", 40));
+        List<RuleDefinition> hrRules = ruleEngine.currentDefinition().getRules().stream()
+            .filter(rule -> rule.getReadingType().equals("HR"))
+            .toList();
+
+        ruleEngine.apply(new RuleSetDefinition("default-2", Map.of("hr.low", 55, "hr.high", 100), hrRules));
+
+        assertNull(ruleEngine.evaluate(new HRReading("r-1", "p-athlete", "2025-08-01T12:00:00Z", 45)));
+        assertEquals(AlertType.HIGH,
+            ruleEngine.evaluate(new HRReading("r-2", "p-athlete", "2025-08-01T12:00:00Z", 105)).severity());
+    }
+
+    @Test
+    @DisplayName("The cache should keep patients with overrides and bound only the patients without any")
+    void testCacheIsBounded() {
+        thresholdCache.put("p-copd", Map.of("spo2.low", 88, "spo2.critical", 85));
+        thresholdCache.put("p-1", Map.of());
+        thresholdCache.put("p-2", Map.of());
+        thresholdCache.put("p-3", Map.of());
+
+        assertEquals(3, thresholdCache.size());
+        assertNull(ruleEngine.evaluate(spo2("p-copd", 89)));
+        verifyNoInteractions(thresholdOverrideRepository);
+    }
+
+    @Test
+    @DisplayName("Compiled rule sets should stay within the patient limit and be recompiled from the overrides")
+    void testCompiledRuleSetsAreBounded() {
+        for (int i = 1; i <= 3; i++) {
+            thresholdCache.put("p-copd-" + i, Map.of("spo2.low", 88, "spo2.critical", 85));
+            assertNull(ruleEngine.evaluate(spo2("p-copd-" + i, 89)));
+        }
+
+        assertEquals(2, thresholdCache.compiledSize());
+        // p-copd-1's rule set was evicted, its overrides were not
+        assertNull(ruleEngine.evaluate(spo2("p-copd-1", 89)));
+        assertEquals(2, thresholdCache.compiledSize());
+        verifyNoInteractions(thresholdOverrideRepository);
+    }
+
+    @Test
+    @DisplayName("Preloaded overrides should be in place as soon as preload returns")
+    void testPreloadCompletesBeforeReturning() {
+        ReflectionTestUtils.setField(thresholdCache, "preloadTimeoutSeconds", 5L);
+        when(thresholdOverrideRepository.findAll()).thenReturn(Flux.just(
+            new ThresholdOverride("p-copd", "spo2.low", 88), new ThresholdOverride("p-copd", "spo2.critical", 85))
+            .delayElements(Duration.ofMillis(50)));
+
+        thresholdCache.preload();
+
+        assertNull(ruleEngine.evaluate(spo2("p-copd", 89)));
+        verify(thresholdOverrideRepository, never()).findByPatientId(anyString());
+    }
+
+    @Test
+    @DisplayName("Overrides naming unknown params should be rejected")
+    void testValidateOverrides() {
+        assertDoesNotThrow(() -> ruleEngine.validateOverrides(Map.of("spo2.low", 88)));
+        assertThrows(IllegalArgumentException.class, () -> ruleEngine.validateOverrides(Map.of("spo2.min", 88)));
+    }
+}
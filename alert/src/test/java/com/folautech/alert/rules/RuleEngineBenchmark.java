@@ -0,0 +1,81 @@
+package com.folautech.alert.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.folautech.alert.model.BPReading;
+import com.folautech.alert.model.HRReading;
+import com.folautech.alert.model.SPO2Reading;
+import com.folautech.alert.model.VitalReading;
+import com.folautech.alert.repository.ThresholdOverrideRepository;
+import org.mockito.Mockito;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.core.io.DefaultResourceLoader;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-reading cost of {@link RuleEngine#evaluate} over a mix of normal and abnormal readings.
+ * Not part of the test suite; run with
+ * {@code mvn test-compile exec:java -Dexec.classpathScope=test -Dexec.mainClass=com.folautech.alert.rules.RuleEngineBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class RuleEngineBenchmark {
+
+    private static final int READINGS = 1024;
+    private static final int PATIENTS = 64;
+
+    private RuleEngine ruleEngine;
+    private VitalReading[] readings;
+
+    @Setup
+    public void setUp() {
+        ThresholdOverrideRepository repository = Mockito.mock(ThresholdOverrideRepository.class);
+        Mockito.when(repository.findByPatientId(Mockito.anyString())).thenReturn(Mono.just(Map.of()));
+        PatientThresholdCache thresholdCache = new PatientThresholdCache(repository, PATIENTS, 3600);
+        ruleEngine = new RuleEngine(new DefaultResourceLoader(), new ObjectMapper(), thresholdCache,
+            "classpath:rules/default-rules.json");
+        Random random = new Random(42);
+        readings = new VitalReading[READINGS];
+        // Every tenth patient has their own thresholds
+        for (int p = 0; p < PATIENTS; p += 10) {
+            thresholdCache.put("p-" + p, Map.of("spo2.low", 88, "hr.low", 40));
+        }
+        for (int i = 0; i < READINGS; i++) {
+            String readingId = "bench-" + i;
+            String patientId = "p-" + (i % PATIENTS);
+            readings[i] = switch (i % 3) {
+                case 0 -> new BPReading(readingId, patientId, "2025-08-01T12:00:00Z",
+                    110 + random.nextInt(50), 70 + random.nextInt(30));
+                case 1 -> new HRReading(readingId, patientId, "2025-08-01T12:00:00Z", 40 + random.nextInt(90));
+                default -> new SPO2Reading(readingId, patientId, "2025-08-01T12:00:00Z", 85 + random.nextInt(15));
+            };
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(READINGS)
+    public void evaluate(Blackhole blackhole) {
+        for (VitalReading reading : readings) {
+            blackhole.consume(ruleEngine.evaluate(reading));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+            .include(RuleEngineBenchmark.class.getSimpleName())
+            .build();
+        new Runner(options).run();
+    }
+}
@@ -0,0 +1,279 @@
+package com.folautech.alert.rules;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.folautech.alert.model.AlertType;
+import com.folautech.alert.model.BPReading;
+import com.folautech.alert.model.HRReading;
+import com.folautech.alert.model.SPO2Reading;
+import com.folautech.alert.model.VitalReading;
+import com.folautech.alert.repository.ThresholdOverrideRepository;
+import com.folautech.alert.state.PatientState;
+import com.folautech.alert.state.ThresholdLatch;
+import com.folautech.alert.state.VitalWindow;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import reactor.core.publisher.Mono;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.lenient;
+
+@ExtendWith(MockitoExtension.class)
+public class RuleEngineTest {
+
+    @Mock
+    private ThresholdOverrideRepository thresholdOverrideRepository;
+
+    private RuleEngine ruleEngine;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(thresholdOverrideRepository.findByPatientId(anyString())).thenReturn(Mono.just(Map.of()));
+        ruleEngine = new RuleEngine(new DefaultResourceLoader(), new ObjectMapper(),
+            new PatientThresholdCache(thresholdOverrideRepository, 100, 300), "classpath:rules/default-rules.json");
+    }
+
+    private RuleSetDefinition hrOnly(String version, int high) {
+        Map<String, Integer> params = new HashMap<>();
+        params.put("hr.high", high);
+        RuleDefinition rule = new RuleDefinition("hr-high", "HR", "HIGH", "Heart Rate > {hr.high}",
+            List.of(new ConditionDefinition("hr", ">", "hr.high")));
+        return new RuleSetDefinition(version, params, List.of(rule));
+    }
+
+    @ParameterizedTest
+    @DisplayName("Default rule set should keep the existing severities and labels")
+    @CsvSource({
+        "BP, 150, 95, CRITICAL, 'Systolic >= 140 AND Diastolic >= 90'",
+        "BP, 150, 80, HIGH, 'Systolic >= 140'",
+        "BP, 120, 95, HIGH, 'Diastolic >= 90'",
+        "HR, 45, 0, LOW, 'Heart Rate < 50'",
+        "HR, 120, 0, HIGH, 'Heart Rate > 110'",
+        "SPO2, 85, 0, CRITICAL, 'SpO2 < 92'",
+        "SPO2, 91, 0, LOW, 'SpO2 < 92'"
+    })
+    void testDefaultRules(String type, int first, int second, AlertType severity, String label) {
+        RuleMatch match = switch (type) {
+            case "BP" -> ruleEngine.evaluate(new BPReading("r-1", "p-001", "2025-08-01T12:00:00Z", first, second));
+            case "HR" -> ruleEngine.evaluate(new HRReading("r-1", "p-001", "2025-08-01T12:00:00Z", first));
+            default -> ruleEngine.evaluate(new SPO2Reading("r-1", "p-001", "2025-08-01T12:00:00Z", first));
+        };
+
+        assertNotNull(match);
+        assertEquals(severity, match.severity());
+        assertEquals(label, match.label());
+    }
+
+    @Test
+    @DisplayName("Threshold rules should share the family they name and default to their own id")
+    void testRuleFamilies() {
+        assertEquals("spo2-low", ruleEngine.evaluate(new SPO2Reading("r-1", "p-001", "2025-08-01T12:00:00Z", 85)).family());
+        assertEquals("spo2-low", ruleEngine.evaluate(new SPO2Reading("r-1", "p-001", "2025-08-01T12:00:00Z", 91)).family());
+        assertEquals("bp-high", ruleEngine.evaluate(new BPReading("r-1", "p-001", "2025-08-01T12:00:00Z", 120, 95)).family());
+
+        ruleEngine.apply(hrOnly("v2", 100));
+        assertEquals("hr-high", ruleEngine.evaluate(new HRReading("r-1", "p-001", "2025-08-01T12:00:00Z", 120)).family());
+    }
+
+    @Test
+    @DisplayName("A latched rule should hold until the reading crosses its exit threshold, and a new rule set should release it")
+    void testHysteresis() {
+        ThresholdLatch latch = new ThresholdLatch();
+
+        assertEquals("hr-high", ruleEngine.evaluate(new HRReading("r-1", "p-001", "2025-08-01T12:00:00Z", 111), latch).ruleId());
+        assertNull(ruleEngine.evaluate(new HRReading("r-2", "p-001", "2025-08-01T12:01:00Z", 109), latch));
+        assertNull(ruleEngine.evaluate(new HRReading("r-3", "p-001", "2025-08-01T12:02:00Z", 120), latch));
+        assertNull(ruleEngine.evaluate(new HRReading("r-4", "p-001", "2025-08-01T12:03:00Z", 104), latch));
+        assertEquals("hr-high", ruleEngine.evaluate(new HRReading("r-5", "p-001", "2025-08-01T12:04:00Z", 111), latch).ruleId());
+        // Another rule of the type still fires from the latched state
+        assertEquals("hr-low", ruleEngine.evaluate(new HRReading("r-6", "p-001", "2025-08-01T12:05:00Z", 45), latch).ruleId());
+        assertNull(ruleEngine.evaluate(new HRReading("r-7", "p-001", "2025-08-01T12:06:00Z", 54), latch));
+
+        ruleEngine.apply(hrOnly("v2", 50));
+        // hr-high has no exit threshold in v2, so it fires on every reading above it
+        assertEquals("hr-high", ruleEngine.evaluate(new HRReading("r-8", "p-001", "2025-08-01T12:07:00Z", 54), latch).ruleId());
+        assertEquals("hr-high", ruleEngine.evaluate(new HRReading("r-9", "p-001", "2025-08-01T12:08:00Z", 54), latch).ruleId());
+    }
+
+    @Test
+    @DisplayName("Readings within thresholds or with missing values should not match")
+    void testNoMatch() {
+        assertNull(ruleEngine.evaluate(new BPReading("r-1", "p-001", "2025-08-01T12:00:00Z", 139, 89)));
+        assertNull(ruleEngine.evaluate(new HRReading("r-1", "p-001", "2025-08-01T12:00:00Z", 110)));
+        assertNull(ruleEngine.evaluate(new SPO2Reading("r-1", "p-001", "2025-08-01T12:00:00Z", 92)));
+        assertNull(ruleEngine.evaluate(new HRReading("r-1", "p-001", "2025-08-01T12:00:00Z", null)));
+    }
+
+    @Test
+    @DisplayName("Applying a new rule set should take effect for the next evaluation")
+    void testApplySwapsRuleSet() {
+        HRReading reading = new HRReading("r-1", "p-001", "2025-08-01T12:00:00Z", 115);
+        assertEquals(AlertType.HIGH, ruleEngine.evaluate(reading).severity());
+
+        assertEquals("v2", ruleEngine.apply(hrOnly("v2", 120)));
+
+        assertNull(ruleEngine.evaluate(reading));
+        assertEquals("v2", ruleEngine.currentDefinition().getVersion());
+    }
+
+    @Test
+    @DisplayName("An invalid rule set should be rejected and leave the active one in place")
+    void testInvalidRuleSetRejected() {
+        RuleSetDefinition invalid = hrOnly("broken", 120);
+        invalid.getParams().clear();
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class, () -> ruleEngine.apply(invalid));
+
+        assertTrue(error.getMessage().contains("hr.high"));
+        assertEquals("default-1", ruleEngine.currentDefinition().getVersion());
+        assertNotNull(ruleEngine.evaluate(new HRReading("r-1", "p-001", "2025-08-01T12:00:00Z", 115)));
+    }
+
+    @Test
+    @DisplayName("Rules with unknown fields or operators should be rejected")
+    void testUnknownFieldOrOperatorRejected() {
+        RuleSetDefinition unknownField = hrOnly("bad-field", 120);
+        unknownField.getRules().get(0).getConditions().get(0).setField("systolic");
+        RuleSetDefinition unknownOp = hrOnly("bad-op", 120);
+        unknownOp.getRules().get(0).getConditions().get(0).setOp("=~");
+
+        assertThrows(IllegalArgumentException.class, () -> ruleEngine.apply(unknownField));
+        assertThrows(IllegalArgumentException.class, () -> ruleEngine.apply(unknownOp));
+    }
+
+    private List<RuleMatch> recordAndEvaluate(PatientState state, VitalReading reading) {
+        assertTrue(state.record(reading));
+        return ruleEngine.evaluateTrends(reading, state.window(reading.getType()));
+    }
+
+    @Test
+    @DisplayName("Heart rate rising by hr.rise over three readings should match the default trend rule")
+    void testHeartRateRisingTrend() {
+        PatientState state = new PatientState();
+
+        assertTrue(recordAndEvaluate(state, new HRReading("r-1", "p-001", "2025-08-01T12:00:00", 70)).isEmpty());
+        assertTrue(recordAndEvaluate(state, new HRReading("r-2", "p-001", "2025-08-01T12:05:00", 95)).isEmpty());
+        List<RuleMatch> matches = recordAndEvaluate(state, new HRReading("r-3", "p-001", "2025-08-01T12:10:00", 100));
+
+        assertEquals(1, matches.size());
+        assertEquals("hr-rising", matches.get(0).ruleId());
+        assertEquals(AlertType.HIGH, matches.get(0).severity());
+        assertEquals("Heart Rate up >= 30 over 3 readings", matches.get(0).label());
+    }
+
+    @Test
+    @DisplayName("SpO2 should only match the falling trend when every step is lower and it is still above spo2.low")
+    void testSpo2SteadyFallingTrend() {
+        PatientState steady = new PatientState();
+        recordAndEvaluate(steady, new SPO2Reading("r-1", "p-001", "2025-08-01T12:00:00", 98));
+        recordAndEvaluate(steady, new SPO2Reading("r-2", "p-001", "2025-08-01T12:05:00", 96));
+        List<RuleMatch> matches = recordAndEvaluate(steady, new SPO2Reading("r-3", "p-001", "2025-08-01T12:10:00", 94));
+        assertEquals(List.of("spo2-falling"), matches.stream().map(RuleMatch::ruleId).toList());
+
+        PatientState bouncing = new PatientState();
+        recordAndEvaluate(bouncing, new SPO2Reading("r-1", "p-001", "2025-08-01T12:00:00", 98));
+        recordAndEvaluate(bouncing, new SPO2Reading("r-2", "p-001", "2025-08-01T12:05:00", 99));
+        assertTrue(recordAndEvaluate(bouncing, new SPO2Reading("r-3", "p-001", "2025-08-01T12:10:00", 94)).isEmpty());
+
+        PatientState belowThreshold = new PatientState();
+        recordAndEvaluate(belowThreshold, new SPO2Reading("r-1", "p-001", "2025-08-01T12:00:00", 96));
+        recordAndEvaluate(belowThreshold, new SPO2Reading("r-2", "p-001", "2025-08-01T12:05:00", 93));
+        assertTrue(recordAndEvaluate(belowThreshold, new SPO2Reading("r-3", "p-001", "2025-08-01T12:10:00", 91)).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Trend rules spanning more readings than a window holds should be rejected")
+    void testTrendSpanBeyondWindowRejected() {
+        RuleSetDefinition tooLong = hrOnly("too-long", 120);
+        tooLong.getParams().put("hr.rise", 30);
+        tooLong.setTrends(List.of(new TrendDefinition("hr-rising", "HR", "hr", "RISING", VitalWindow.CAPACITY + 1,
+            "hr.rise", false, "HIGH", "Heart Rate rising", null)));
+
+        assertThrows(IllegalArgumentException.class, () -> ruleEngine.apply(tooLong));
+    }
+
+    @Test
+    @DisplayName("Composite rules should only join readings captured within their time window, in either order")
+    void testCompositeWithinWindow() {
+        PatientState state = new PatientState();
+        HRReading highHr = new HRReading("r-1", "p-001", "2025-08-01T12:10:00", 120);
+        assertTrue(state.record(highHr));
+        assertTrue(ruleEngine.evaluateComposites(highHr, state).isEmpty());
+
+        // SpO2 captured earlier than the HR reading but within 5 minutes of it
+        SPO2Reading reduced = new SPO2Reading("r-2", "p-001", "2025-08-01T12:06:00", 93);
+        assertTrue(state.record(reduced));
+        List<RuleMatch> matches = ruleEngine.evaluateComposites(reduced, state);
+        assertEquals(List.of("hr-high-spo2-reduced"), matches.stream().map(RuleMatch::ruleId).toList());
+        assertEquals(AlertType.CRITICAL, matches.get(0).severity());
+
+        PatientState apart = new PatientState();
+        apart.record(new HRReading("r-1", "p-001", "2025-08-01T12:00:00", 120));
+        SPO2Reading late = new SPO2Reading("r-2", "p-001", "2025-08-01T12:05:01", 93);
+        apart.record(late);
+        assertTrue(ruleEngine.evaluateComposites(late, apart).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Composite rules with fewer than two legs or two legs on one reading type should be rejected")
+    void testInvalidCompositeRejected() {
+        RuleSetDefinition oneLeg = hrOnly("one-leg", 120);
+        oneLeg.setComposites(List.of(new CompositeDefinition("c", "CRITICAL", "c", 5,
+            List.of(new CompositeDefinition.LegDefinition("HR", "hr", ">", "hr.high")))));
+        RuleSetDefinition sameType = hrOnly("same-type", 120);
+        sameType.setComposites(List.of(new CompositeDefinition("c", "CRITICAL", "c", 5, List.of(
+            new CompositeDefinition.LegDefinition("HR", "hr", ">", "hr.high"),
+            new CompositeDefinition.LegDefinition("HR", "hr", ">", "hr.high")))));
+
+        assertThrows(IllegalArgumentException.class, () -> ruleEngine.apply(oneLeg));
+        assertThrows(IllegalArgumentException.class, () -> ruleEngine.apply(sameType));
+    }
+
+    @Test
+    @DisplayName("Anomaly rules should only fire once the baseline is warm and in their direction")
+    void testAnomalyAgainstBaseline() {
+        PatientState state = new PatientState();
+        for (int i = 0; i < 20; i++) {
+            SPO2Reading steady = new SPO2Reading("r-" + i, "p-001", String.format("2025-08-01T12:%02d:00", i), 97 + i % 2);
+            state.record(steady);
+            assertTrue(ruleEngine.evaluateAnomalies(steady, state.baseline("SPO2")).isEmpty());
+        }
+
+        // 94 is above every SpO2 threshold but far below this patient's usual 97-98
+        SPO2Reading drop = new SPO2Reading("r-20", "p-001", "2025-08-01T12:20:00", 94);
+        state.record(drop);
+        List<RuleMatch> matches = ruleEngine.evaluateAnomalies(drop, state.baseline("SPO2"));
+        assertEquals(List.of("spo2-anomaly"), matches.stream().map(RuleMatch::ruleId).toList());
+        assertEquals("SpO2 >= 3 standard deviations below patient baseline", matches.get(0).label());
+
+        // spo2-anomaly only looks below the baseline
+        SPO2Reading rise = new SPO2Reading("r-21", "p-001", "2025-08-01T12:21:00", 100);
+        state.record(rise);
+        assertTrue(ruleEngine.evaluateAnomalies(rise, state.baseline("SPO2")).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Anomaly rules with an unknown direction or too few minSamples should be rejected")
+    void testInvalidAnomalyRejected() {
+        RuleSetDefinition badDirection = hrOnly("bad-direction", 120);
+        badDirection.getParams().put("anomaly.z", 3);
+        badDirection.setAnomalies(List.of(new AnomalyDefinition("a", "HR", "hr", "SIDEWAYS", "anomaly.z", 20, "LOW", "a")));
+        RuleSetDefinition coldStart = hrOnly("cold-start", 120);
+        coldStart.getParams().put("anomaly.z", 3);
+        coldStart.setAnomalies(List.of(new AnomalyDefinition("a", "HR", "hr", "EITHER", "anomaly.z", 0, "LOW", "a")));
+
+        assertThrows(IllegalArgumentException.class, () -> ruleEngine.apply(badDirection));
+        assertThrows(IllegalArgumentException.class, () -> ruleEngine.apply(coldStart));
+    }
+}
@@ -0,0 +1,88 @@
+package com.folautech.alert.service;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AlertIdGeneratorTest {
+
+    @Test
+    @DisplayName("Should produce RFC 9562 version 7 UUIDs carrying the current millisecond")
+    void testUuidV7Layout() {
+        long now = 1_754_049_600_000L;
+        UUID id = new AlertIdGenerator(() -> now).nextUuid();
+
+        assertEquals(7, id.version());
+        assertEquals(2, id.variant());
+        assertEquals(now, id.getMostSignificantBits() >>> 16);
+    }
+
+    @Test
+    @DisplayName("IDs should sort as strings in generation order, within and across milliseconds")
+    void testIdsSortChronologically() {
+        AtomicLong clock = new AtomicLong(1_754_049_600_000L);
+        AlertIdGenerator generator = new AlertIdGenerator(clock::get);
+
+        List<String> ids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            if (i % 1000 == 0) {
+                clock.addAndGet(1);
+            }
+            ids.add(generator.nextId());
+        }
+
+        List<String> sorted = new ArrayList<>(ids);
+        sorted.sort(String::compareTo);
+        assertEquals(ids, sorted);
+    }
+
+    @Test
+    @DisplayName("IDs should keep increasing when the clock steps back")
+    void testClockStepBackKeepsOrder() {
+        AtomicLong clock = new AtomicLong(1_754_049_600_000L);
+        AlertIdGenerator generator = new AlertIdGenerator(clock::get);
+
+        String before = generator.nextId();
+        clock.addAndGet(-5_000);
+        String after = generator.nextId();
+
+        assertTrue(after.compareTo(before) > 0);
+    }
+
+    @Test
+    @DisplayName("Concurrent callers should never receive the same ID")
+    void testConcurrentIdsAreUnique() throws Exception {
+        AlertIdGenerator generator = new AlertIdGenerator();
+        Set<String> ids = ConcurrentHashMap.newKeySet();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        ids.add(generator.nextId());
+                    }
+                }));
+            }
+            for (Future<?> future : futures) {
+                future.get(10, TimeUnit.SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(80_000, ids.size());
+    }
+}
@@ -1,24 +1,44 @@
 package com.folautech.alert.service;
 
 import com.folautech.alert.model.*;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.folautech.alert.repository.AlertBatchRepository;
 import com.folautech.alert.repository.AlertRepository;
+import com.folautech.alert.repository.BaselineRepository;
+import com.folautech.alert.repository.ThresholdOverrideRepository;
+import com.folautech.alert.rules.PatientThresholdCache;
+import com.folautech.alert.rules.RuleEngine;
+import com.folautech.alert.state.PatientStateStore;
+import com.folautech.alert.state.VitalHistoryClient;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.CsvSource;
-import org.mockito.InjectMocks;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
 import java.time.LocalDateTime;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
@@ -28,15 +48,38 @@ class AlertServiceTest {
     @Mock
     private AlertRepository alertRepository;
 
-    @InjectMocks
+    @Mock
+    private AlertBatchRepository alertBatchRepository;
+
+    @Mock
+    private ThresholdOverrideRepository thresholdOverrideRepository;
+
+    @Mock
+    private VitalHistoryClient vitalHistoryClient;
+
+    @Mock
+    private BaselineRepository baselineRepository;
+
     private AlertService alertService;
 
+    private SilenceMonitor silenceMonitor;
+
     private String readingId;
     private String patientId;
     private String capturedAt;
 
     @BeforeEach
     void setUp() {
+        lenient().when(thresholdOverrideRepository.findByPatientId(anyString())).thenReturn(Mono.just(Map.of()));
+        RuleEngine ruleEngine = new RuleEngine(new DefaultResourceLoader(), new ObjectMapper(),
+            new PatientThresholdCache(thresholdOverrideRepository, 100, 300), "classpath:rules/default-rules.json");
+        lenient().when(vitalHistoryClient.fetchRecent(anyString(), anyString(), anyInt())).thenReturn(Mono.just(List.of()));
+        lenient().when(baselineRepository.findByPatientId(anyString())).thenReturn(Flux.empty());
+        silenceMonitor = new SilenceMonitor(ruleEngine, alertBatchRepository, new AlertIdGenerator(), 1000, 64);
+        alertService = new AlertService(alertRepository, alertBatchRepository, ruleEngine, new AlertIdGenerator(),
+            new PatientStateStore(vitalHistoryClient, baselineRepository, 100, 4, 1000, 0.1), silenceMonitor,
+            new OpenAlertCache(alertRepository, 15, 1000), new ReorderBuffer(new SimpleMeterRegistry(), 0, 250, 100, 100));
+        ReflectionTestUtils.setField(alertService, "insertChunkSize", 2);
         readingId = UUID.randomUUID().toString();
         patientId = "p-001";
         capturedAt = LocalDateTime.now().toString();
@@ -48,10 +91,10 @@ class AlertServiceTest {
         BPReading reading = new BPReading(readingId, patientId, capturedAt, 150, 95);
         
         when(alertRepository.existsByReadingId(readingId)).thenReturn(Mono.just(false));
-        when(alertRepository.save(any(Alert.class))).thenAnswer(invocation -> {
-            Alert alert = invocation.getArgument(0);
-            alert.setId(1L);
-            return Mono.just(alert);
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            java.util.List<Alert> alerts = invocation.getArgument(0);
+            alerts.get(0).setId(1L);
+            return Flux.fromIterable(alerts);
         });
 
         StepVerifier.create(alertService.evaluateReading(reading))
@@ -71,10 +114,10 @@ class AlertServiceTest {
         BPReading reading = new BPReading(readingId, patientId, capturedAt, 145, 85);
         
         when(alertRepository.existsByReadingId(readingId)).thenReturn(Mono.just(false));
-        when(alertRepository.save(any(Alert.class))).thenAnswer(invocation -> {
-            Alert alert = invocation.getArgument(0);
-            alert.setId(1L);
-            return Mono.just(alert);
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            java.util.List<Alert> alerts = invocation.getArgument(0);
+            alerts.get(0).setId(1L);
+            return Flux.fromIterable(alerts);
         });
 
         StepVerifier.create(alertService.evaluateReading(reading))
@@ -94,10 +137,10 @@ class AlertServiceTest {
         BPReading reading = new BPReading(readingId, patientId, capturedAt, 135, 92);
         
         when(alertRepository.existsByReadingId(readingId)).thenReturn(Mono.just(false));
-        when(alertRepository.save(any(Alert.class))).thenAnswer(invocation -> {
-            Alert alert = invocation.getArgument(0);
-            alert.setId(1L);
-            return Mono.just(alert);
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            java.util.List<Alert> alerts = invocation.getArgument(0);
+            alerts.get(0).setId(1L);
+            return Flux.fromIterable(alerts);
         });
 
         StepVerifier.create(alertService.evaluateReading(reading))
@@ -121,7 +164,7 @@ class AlertServiceTest {
         StepVerifier.create(alertService.evaluateReading(reading))
                 .verifyComplete();
 
-        verify(alertRepository, never()).save(any(Alert.class));
+        verify(alertBatchRepository, never()).insertIgnoringDuplicates(anyList());
     }
 
     @ParameterizedTest
@@ -136,10 +179,10 @@ class AlertServiceTest {
         HRReading reading = new HRReading(readingId, patientId, capturedAt, hr);
         
         when(alertRepository.existsByReadingId(readingId)).thenReturn(Mono.just(false));
-        when(alertRepository.save(any(Alert.class))).thenAnswer(invocation -> {
-            Alert alert = invocation.getArgument(0);
-            alert.setId(1L);
-            return Mono.just(alert);
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            java.util.List<Alert> alerts = invocation.getArgument(0);
+            alerts.get(0).setId(1L);
+            return Flux.fromIterable(alerts);
         });
 
         StepVerifier.create(alertService.evaluateReading(reading))
@@ -170,7 +213,7 @@ class AlertServiceTest {
         StepVerifier.create(alertService.evaluateReading(reading))
                 .verifyComplete();
 
-        verify(alertRepository, never()).save(any(Alert.class));
+        verify(alertBatchRepository, never()).insertIgnoringDuplicates(anyList());
     }
 
     @ParameterizedTest
@@ -185,10 +228,10 @@ class AlertServiceTest {
         SPO2Reading reading = new SPO2Reading(readingId, patientId, capturedAt, spo2);
         
         when(alertRepository.existsByReadingId(readingId)).thenReturn(Mono.just(false));
-        when(alertRepository.save(any(Alert.class))).thenAnswer(invocation -> {
-            Alert alert = invocation.getArgument(0);
-            alert.setId(1L);
-            return Mono.just(alert);
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            java.util.List<Alert> alerts = invocation.getArgument(0);
+            alerts.get(0).setId(1L);
+            return Flux.fromIterable(alerts);
         });
 
         StepVerifier.create(alertService.evaluateReading(reading))
@@ -218,7 +261,7 @@ class AlertServiceTest {
         StepVerifier.create(alertService.evaluateReading(reading))
                 .verifyComplete();
 
-        verify(alertRepository, never()).save(any(Alert.class));
+        verify(alertBatchRepository, never()).insertIgnoringDuplicates(anyList());
     }
 
     @Test
@@ -231,7 +274,7 @@ class AlertServiceTest {
         StepVerifier.create(alertService.evaluateReading(reading))
                 .verifyComplete();
 
-        verify(alertRepository, never()).save(any(Alert.class));
+        verify(alertBatchRepository, never()).insertIgnoringDuplicates(anyList());
     }
 
     @Test
@@ -244,7 +287,7 @@ class AlertServiceTest {
         StepVerifier.create(alertService.evaluateReading(reading))
                 .verifyComplete();
 
-        verify(alertRepository, never()).save(any(Alert.class));
+        verify(alertBatchRepository, never()).insertIgnoringDuplicates(anyList());
     }
 
     @Test
@@ -257,7 +300,7 @@ class AlertServiceTest {
         StepVerifier.create(alertService.evaluateReading(reading))
                 .verifyComplete();
 
-        verify(alertRepository, never()).save(any(Alert.class));
+        verify(alertBatchRepository, never()).insertIgnoringDuplicates(anyList());
     }
 
     @Test
@@ -270,7 +313,7 @@ class AlertServiceTest {
         StepVerifier.create(alertService.evaluateReading(reading))
                 .verifyComplete();
 
-        verify(alertRepository, never()).save(any(Alert.class));
+        verify(alertBatchRepository, never()).insertIgnoringDuplicates(anyList());
     }
 
     @Test
@@ -296,9 +339,443 @@ class AlertServiceTest {
         BPReading reading = new BPReading(readingId, patientId, capturedAt, 150, 95);
         
         when(alertRepository.existsByReadingId(readingId)).thenReturn(Mono.just(false));
-        when(alertRepository.save(any(Alert.class))).thenReturn(Mono.error(new RuntimeException("Database error")));
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenReturn(Flux.error(new RuntimeException("Database error")));
 
         StepVerifier.create(alertService.evaluateReading(reading))
                 .verifyError(RuntimeException.class);
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should resolve batch idempotency with one query and ignore repeated readings in the batch")
+    void testEvaluateReadingsBatchIdempotency() {
+        HRReading existing = new HRReading("reading-existing", patientId, capturedAt, 120);
+        HRReading fresh = new HRReading("reading-fresh", patientId, capturedAt, 120);
+        HRReading freshCopy = new HRReading("reading-fresh", patientId, capturedAt, 120);
+
+        when(alertRepository.findExistingReadingIds(any(String[].class)))
+                .thenReturn(Flux.just("reading-existing"));
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(alertService.evaluateReadings(java.util.List.of(existing, fresh, freshCopy)))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-fresh"))
+                .verifyComplete();
+
+        verify(alertRepository, times(1)).findExistingReadingIds(any(String[].class));
+        verify(alertRepository, never()).existsByReadingId(anyString());
+        verify(alertBatchRepository, times(1)).insertIgnoringDuplicates(argThat(alerts -> alerts.size() == 1));
+    }
+
+    @Test
+    @DisplayName("Should write a batch's alerts with one insert per chunk, in reading order, and return them ordered by alertId")
+    void testEvaluateReadingsInsertsInChunks() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new HRReading("reading-1", patientId, capturedAt, 120),
+                new HRReading("reading-2", patientId, capturedAt, 75),
+                // Another patient, so high HR and low SpO2 do not also raise the composite alert
+                new SPO2Reading("reading-3", "p-002", capturedAt, 91),
+                new BPReading("reading-4", patientId, capturedAt, 150, 95),
+                new HRReading("reading-5", patientId, capturedAt, 45));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(alertService.evaluateReadings(readings).collectList())
+                .expectNextMatches(alerts -> alerts.size() == 4
+                        && alerts.stream().map(Alert::getAlertId).sorted().toList()
+                            .equals(alerts.stream().map(Alert::getAlertId).toList()))
+                .verifyComplete();
+
+        InOrder inOrder = inOrder(alertBatchRepository);
+        inOrder.verify(alertBatchRepository).insertIgnoringDuplicates(argThat(alerts -> alerts.size() == 2
+                && alerts.get(0).getReadingId().equals("reading-1")
+                && alerts.get(1).getReadingId().equals("reading-3")));
+        inOrder.verify(alertBatchRepository).insertIgnoringDuplicates(argThat(alerts -> alerts.size() == 2
+                && alerts.get(0).getReadingId().equals("reading-4")
+                && alerts.get(1).getReadingId().equals("reading-5")));
+        verify(alertBatchRepository, times(2)).insertIgnoringDuplicates(anyList());
+    }
+
+    @Test
+    @DisplayName("Should retry a failed chunk alert by alert and drop only the alerts that still fail")
+    void testEvaluateReadingsFallsBackToSingleInserts() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new HRReading("reading-1", patientId, capturedAt, 120),
+                new HRReading("reading-2", patientId, capturedAt, 45));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> {
+            java.util.List<Alert> alerts = invocation.getArgument(0);
+            return alerts.size() == 1 && alerts.get(0).getReadingId().equals("reading-1")
+                    ? Flux.fromIterable(alerts)
+                    : Flux.error(new RuntimeException("value too long"));
+        });
+
+        StepVerifier.create(alertService.evaluateReadings(readings))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-1"))
+                .verifyComplete();
+
+        verify(alertBatchRepository, times(3)).insertIgnoringDuplicates(anyList());
+    }
+
+    @Test
+    @DisplayName("Should tag alerts with the rule that raised them")
+    void testAlertCarriesRuleId() {
+        HRReading reading = new HRReading(readingId, patientId, capturedAt, 120);
+
+        when(alertRepository.existsByReadingId(readingId)).thenReturn(Mono.just(false));
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(alertService.evaluateReading(reading))
+                .expectNextMatches(alert -> "hr-high".equals(alert.getRuleId()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should raise nothing when another replica stored the same reading's alert after the pre-check")
+    void testConcurrentDuplicateIsSkipped() {
+        HRReading reading = new HRReading(readingId, patientId, capturedAt, 120);
+
+        when(alertRepository.existsByReadingId(readingId)).thenReturn(Mono.just(false));
+        // ON CONFLICT DO NOTHING: the row already exists, so nothing is returned
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenReturn(Flux.empty());
+
+        StepVerifier.create(alertService.evaluateReading(reading))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Unordered evaluation should emit alerts in reading order without waiting for a sort")
+    void testEvaluateReadingsUnorderedKeepsReadingOrder() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new HRReading("reading-1", patientId, capturedAt, 120),
+                new SPO2Reading("reading-2", "p-002", capturedAt, 91),
+                new HRReading("reading-3", patientId, capturedAt, 45));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(alertService.evaluateReadings(readings, false).map(Alert::getReadingId))
+                .expectNext("reading-1", "reading-2", "reading-3")
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should raise a trend alert when heart rate climbs by 30 over three readings, seeded from history")
+    void testHeartRateTrendAlert() {
+        when(vitalHistoryClient.fetchRecent(patientId, "2025-08-01T12:10:00", 16))
+                .thenReturn(Mono.just(List.of(new HRReading("history-1", patientId, "2025-08-01T12:00:00", 72))));
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new HRReading("reading-1", patientId, "2025-08-01T12:10:00", 88),
+                new HRReading("reading-2", patientId, "2025-08-01T12:20:00", 104));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        // 72 -> 88 -> 104 stays below hr.high (110) but rises by 32 over three readings
+        StepVerifier.create(alertService.evaluateReadings(readings, false))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-2")
+                        && "hr-rising".equals(alert.getRuleId())
+                        && alert.getAlertType().equals("HIGH"))
+                .verifyComplete();
+
+        verify(vitalHistoryClient, times(1)).fetchRecent(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should raise one CRITICAL composite alert when high HR and reduced SpO2 are captured within 5 minutes")
+    void testCompositeHeartRateAndSpo2Alert() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new HRReading("reading-1", patientId, "2025-08-01T12:00:00", 115),
+                new SPO2Reading("reading-2", patientId, "2025-08-01T12:04:00", 93),
+                new SPO2Reading("reading-3", "p-002", "2025-08-01T12:04:00", 93),
+                new SPO2Reading("reading-4", patientId, "2025-08-01T12:10:00", 93));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        // SpO2 93 is above spo2.low, so only the HR threshold alert and the composite fire
+        StepVerifier.create(alertService.evaluateReadings(readings, false))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-1") && "hr-high".equals(alert.getRuleId()))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-2")
+                        && "hr-high-spo2-reduced".equals(alert.getRuleId())
+                        && alert.getAlertType().equals("CRITICAL"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should alert once when the early-warning score rises into the MEDIUM band")
+    void testScoreBandAlert() {
+        // Running totals 1, 2, 3, 4, 5, 5: only reading-5 moves the score into MEDIUM
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new HRReading("reading-1", patientId, "2025-08-01T12:00:00", 100),
+                new BPReading("reading-2", patientId, "2025-08-01T12:01:00", 105, 70),
+                new SPO2Reading("reading-3", patientId, "2025-08-01T12:02:00", 94),
+                new SPO2Reading("reading-4", patientId, "2025-08-01T12:03:00", 92),
+                new BPReading("reading-5", patientId, "2025-08-01T12:04:00", 95, 65),
+                new BPReading("reading-6", patientId, "2025-08-01T12:05:00", 96, 65));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(alertService.evaluateReadings(readings, false))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-5")
+                        && "news2-medium".equals(alert.getRuleId())
+                        && alert.getAlertType().equals("HIGH")
+                        && alert.getThresholdViolated().equals("Early warning score 5 (MEDIUM)"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should raise an anomaly alert against a baseline restored from its checkpoint")
+    void testAnomalyAgainstRestoredBaseline() {
+        when(baselineRepository.findByPatientId(patientId)).thenReturn(Flux.just(new BaselineCheckpoint(patientId, "HR", "hr",
+                70.0, 4.0, 50, LocalDateTime.parse("2025-08-01T11:55:00"))));
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new HRReading("reading-1", patientId, "2025-08-01T12:00:00", 71),
+                new HRReading("reading-2", patientId, "2025-08-01T12:05:00", 86));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        // 86 is within hr.high but about 7 standard deviations above this patient's usual 70
+        StepVerifier.create(alertService.evaluateReadings(readings, false))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-2")
+                        && "hr-anomaly".equals(alert.getRuleId())
+                        && alert.getAlertType().equals("LOW"))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should arm one missing-reading deadline per patient for evaluated HR readings only")
+    void testHeartRateReadingsArmSilenceDeadline() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new HRReading("reading-1", patientId, "2025-08-01T12:00:00", 72),
+                new HRReading("reading-2", patientId, "2025-08-01T12:05:00", 74),
+                new HRReading("reading-3", patientId, "2025-08-01T11:55:00", 70),
+                new SPO2Reading("reading-4", "p-002", "2025-08-01T12:05:00", 97));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+
+        StepVerifier.create(alertService.evaluateReadings(readings, false)).verifyComplete();
+
+        assertEquals(1, silenceMonitor.pending());
+    }
+
+    @Test
+    @DisplayName("Should fold repeat violations within 15 minutes into the open alert and open a new one after the window")
+    void testRepeatViolationsAreSuppressed() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new BPReading("reading-1", patientId, "2025-08-01T12:00:00", 150, 80),
+                new BPReading("reading-2", patientId, "2025-08-01T12:05:00", 155, 80),
+                new BPReading("reading-3", patientId, "2025-08-01T12:10:00", 160, 80),
+                new BPReading("reading-4", patientId, "2025-08-01T12:30:00", 150, 80));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        when(alertBatchRepository.recordRepeats(anyList())).thenAnswer(invocation -> Flux.fromIterable(
+                invocation.<java.util.List<AlertRepeat>>getArgument(0)).map(AlertServiceTest::storedAfter));
+
+        // reading-4 comes 20 minutes after the last repeat, so the window has closed
+        StepVerifier.create(alertService.evaluateReadings(readings, false).map(Alert::getReadingId))
+                .expectNext("reading-1", "reading-4")
+                .verifyComplete();
+
+        verify(alertBatchRepository, times(1)).insertIgnoringDuplicates(anyList());
+        verify(alertBatchRepository).recordRepeats(argThat(rows -> rows.size() == 1
+                && rows.get(0).getRepeats() == 2
+                && rows.get(0).getLastReadingId().equals("reading-3")
+                && rows.get(0).getLastValue().equals("160/80")));
+    }
+
+    @Test
+    @DisplayName("Should leave the occurrences of an open alert unchanged when the same batch is delivered again")
+    void testRedeliveredRepeatsAreNotCountedAgain() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new BPReading("reading-1", patientId, "2025-08-01T12:00:00", 150, 80),
+                new BPReading("reading-2", patientId, "2025-08-01T12:05:00", 155, 80),
+                new BPReading("reading-3", patientId, "2025-08-01T12:10:00", 160, 80));
+        // Readings stored in alerts or alert_repeats, and the open alert's occurrences, as the database would hold them
+        Set<String> recorded = new HashSet<>();
+        AtomicInteger occurrences = new AtomicInteger();
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenAnswer(invocation ->
+                Flux.fromArray(invocation.<String[]>getArgument(0)).filter(recorded::contains));
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(
+                invocation.<java.util.List<Alert>>getArgument(0)).filter(alert -> recorded.add(alert.getReadingId()))
+                .doOnNext(alert -> occurrences.incrementAndGet()));
+        when(alertBatchRepository.recordRepeats(anyList())).thenAnswer(invocation -> Flux.fromIterable(
+                invocation.<java.util.List<AlertRepeat>>getArgument(0))
+                .doOnNext(row -> row.getReadingIds().stream().filter(recorded::add).forEach(id -> occurrences.incrementAndGet()))
+                .map(AlertServiceTest::storedAfter));
+
+        StepVerifier.create(alertService.evaluateReadings(readings, false).map(Alert::getReadingId))
+                .expectNext("reading-1")
+                .verifyComplete();
+        assertEquals(3, occurrences.get());
+
+        StepVerifier.create(alertService.evaluateReadings(readings, false)).verifyComplete();
+
+        assertEquals(3, occurrences.get());
+        verify(alertBatchRepository, times(1)).recordRepeats(argThat(rows -> rows.size() == 1
+                && rows.get(0).getReadingIds().equals(java.util.List.of("reading-2", "reading-3"))));
+    }
+
+    @Test
+    @DisplayName("Should open a new alert when the open alert a repeat belongs to is no longer stored")
+    void testRepeatOfDeletedAlertOpensNewAlert() {
+        BPReading first = new BPReading("reading-1", patientId, "2025-08-01T12:00:00", 150, 80);
+        BPReading repeat = new BPReading("reading-2", patientId, "2025-08-01T12:05:00", 155, 80);
+
+        when(alertRepository.existsByReadingId(anyString())).thenReturn(Mono.just(false));
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        when(alertBatchRepository.recordRepeats(anyList())).thenReturn(Flux.empty());
+
+        StepVerifier.create(alertService.evaluateReading(first))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-1"))
+                .verifyComplete();
+        StepVerifier.create(alertService.evaluateReading(repeat))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-2") && alert.getOccurrences() == 1)
+                .verifyComplete();
+
+        verify(alertBatchRepository, times(2)).insertIgnoringDuplicates(anyList());
+    }
+
+    @Test
+    @DisplayName("Should escalate the open SpO2 alert to CRITICAL in place instead of raising a second alert")
+    void testMoreSevereRepeatEscalatesOpenAlert() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new SPO2Reading("reading-1", patientId, "2025-08-01T12:00:00", 91),
+                new SPO2Reading("reading-2", patientId, "2025-08-01T12:05:00", 88),
+                new SPO2Reading("reading-3", patientId, "2025-08-01T12:08:00", 89));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        when(alertBatchRepository.recordRepeats(anyList())).thenAnswer(invocation -> Flux.fromIterable(
+                invocation.<java.util.List<AlertRepeat>>getArgument(0)).map(AlertServiceTest::storedAfter));
+
+        StepVerifier.create(alertService.evaluateReadings(readings, false).collectList())
+                .expectNextMatches(alerts -> alerts.size() == 2
+                        && alerts.get(0).getReadingId().equals("reading-1")
+                        && alerts.get(0).getAlertType().equals("LOW")
+                        && alerts.get(1).getAlertId().equals(alerts.get(0).getAlertId())
+                        && alerts.get(1).getAlertType().equals("CRITICAL"))
+                .verifyComplete();
+
+        verify(alertBatchRepository, times(1)).insertIgnoringDuplicates(argThat(alerts -> alerts.size() == 1
+                && "spo2-low".equals(alerts.get(0).getRuleFamily())));
+        // Folded into one update: both repeats counted, reading-2 escalated the alert and reading-3 is the newest
+        verify(alertBatchRepository).recordRepeats(argThat(rows -> rows.size() == 1
+                && rows.get(0).getRepeats() == 2
+                && rows.get(0).getLastReadingId().equals("reading-3")
+                && "CRITICAL".equals(rows.get(0).getAlertType())));
+    }
+
+    @Test
+    @DisplayName("Should not raise or fold heart rates flapping around hr.high until they drop below the exit threshold")
+    void testHysteresisStopsFlapping() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new HRReading("reading-1", patientId, "2025-08-01T12:00:00", 111),
+                new HRReading("reading-2", patientId, "2025-08-01T12:01:00", 109),
+                new HRReading("reading-3", patientId, "2025-08-01T12:02:00", 111),
+                new HRReading("reading-4", patientId, "2025-08-01T12:03:00", 109),
+                new HRReading("reading-5", patientId, "2025-08-01T12:04:00", 104),
+                new HRReading("reading-6", patientId, "2025-08-01T12:05:00", 111));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+        when(alertBatchRepository.recordRepeats(anyList())).thenAnswer(invocation -> Flux.fromIterable(
+                invocation.<java.util.List<AlertRepeat>>getArgument(0)).map(AlertServiceTest::storedAfter));
+
+        StepVerifier.create(alertService.evaluateReadings(readings, false).map(Alert::getReadingId))
+                .expectNext("reading-1")
+                .verifyComplete();
+
+        // reading-3 stays within the latched rule; only reading-6, after the drop to 104, enters it again
+        verify(alertBatchRepository, times(1)).insertIgnoringDuplicates(argThat(alerts -> alerts.size() == 1));
+        verify(alertBatchRepository).recordRepeats(argThat(rows -> rows.size() == 1
+                && rows.get(0).getRepeats() == 1
+                && rows.get(0).getLastReadingId().equals("reading-6")));
+    }
+
+    @Test
+    @DisplayName("Should not raise a latched heart rate again when its reading is delivered a second time")
+    void testRedeliveredReadingKeepsHysteresis() {
+        HRReading latched = new HRReading("reading-2", patientId, "2025-08-01T12:01:00", 112);
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(alertService.evaluateReadings(java.util.List.of(
+                        new HRReading("reading-1", patientId, "2025-08-01T12:00:00", 111), latched), false)
+                        .map(Alert::getReadingId))
+                .expectNext("reading-1")
+                .verifyComplete();
+        // reading-2 raised nothing, so nothing stored tells the idempotency check it was evaluated
+        StepVerifier.create(alertService.evaluateReadings(java.util.List.of(latched), false)).verifyComplete();
+
+        verify(alertBatchRepository, times(1)).insertIgnoringDuplicates(anyList());
+        verify(alertBatchRepository, never()).recordRepeats(anyList());
+    }
+
+    @Test
+    @DisplayName("Should store the alert of a re-delivered reading whose first evaluation failed to store it")
+    void testRedeliveryStoresAlertLostOnFirstDelivery() {
+        SPO2Reading reading = new SPO2Reading("reading-1", patientId, "2025-08-01T12:00:00", 91);
+        AtomicInteger inserts = new AtomicInteger();
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        // The batch insert and its row-by-row retry fail, as if the connection dropped, then the database is back
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> inserts.getAndIncrement() < 2
+                ? Flux.error(new RuntimeException("Connection closed"))
+                : Flux.fromIterable(invocation.<java.util.List<Alert>>getArgument(0)));
+
+        StepVerifier.create(alertService.evaluateReadings(java.util.List.of(reading), false)).verifyComplete();
+        // The reading is already in the patient's window, but its alert was never stored
+        StepVerifier.create(alertService.evaluateReadings(java.util.List.of(reading), false).collectList())
+                .expectNextMatches(alerts -> alerts.stream().anyMatch(alert -> alert.getReadingId().equals("reading-1")
+                        && "spo2-low".equals(alert.getRuleId()) && !alert.getLate()))
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should flag alerts of a reading captured before one already evaluated as late")
+    void testLateReadingIsFlagged() {
+        java.util.List<VitalReading> readings = java.util.List.of(
+                new SPO2Reading("reading-1", patientId, "2025-08-01T12:05:00", 95),
+                new SPO2Reading("reading-2", patientId, "2025-08-01T12:00:00", 91));
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(alertService.evaluateReadings(readings, false))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-2") && alert.getLate())
+                .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should not flag alerts of a reading captured at the same time as the newest one as late")
+    void testSameTimeReadingIsNotLate() {
+        SPO2Reading first = new SPO2Reading("reading-1", patientId, "2025-08-01T12:05:00", 95);
+
+        when(alertRepository.findExistingReadingIds(any(String[].class))).thenReturn(Flux.empty());
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList())).thenAnswer(invocation -> Flux.fromIterable(invocation.getArgument(0)));
+
+        StepVerifier.create(alertService.evaluateReadings(java.util.List.of(first), false)).verifyComplete();
+        // A retry of reading-1 is neither late nor evaluated again; another reading at 12:05 is not late either
+        StepVerifier.create(alertService.evaluateReadings(java.util.List.of(first,
+                        new SPO2Reading("reading-2", patientId, "2025-08-01T12:05:00", 91)), false))
+                .expectNextMatches(alert -> alert.getReadingId().equals("reading-2") && !alert.getLate())
+                .verifyComplete();
+    }
+
+    /**
+     * The alert as recordRepeats would return it after folding the row in.
+     */
+    private static Alert storedAfter(AlertRepeat row) {
+        Alert alert = new Alert();
+        alert.setAlertId(row.getAlertId());
+        alert.setAlertType(row.getAlertType() != null ? row.getAlertType() : "LOW");
+        alert.setLastReadingId(row.getLastReadingId());
+        return alert;
+    }
+}
@@ -0,0 +1,123 @@
+package com.folautech.alert.service;
+
+import com.folautech.alert.model.Alert;
+import com.folautech.alert.model.AlertType;
+import com.folautech.alert.repository.AlertRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class OpenAlertCacheTest {
+
+    @Mock
+    private AlertRepository alertRepository;
+
+    private OpenAlertCache cache;
+
+    @BeforeEach
+    void setUp() {
+        cache = new OpenAlertCache(alertRepository, 15, 2);
+    }
+
+    @Test
+    @DisplayName("Should keep an alert open while violations keep coming within the window of the last one")
+    void testWindowSlidesWithEachRepeat() {
+        assertNull(cache.suppressOrOpen(alert("a-1", "p-001", "hr-high", "2025-08-01T12:00:00")));
+        assertEquals("a-1", cache.suppressOrOpen(alert("a-2", "p-001", "hr-high", "2025-08-01T12:15:00")).alertId());
+        assertEquals("a-1", cache.suppressOrOpen(alert("a-3", "p-001", "hr-high", "2025-08-01T12:28:00")).alertId());
+        // 16 minutes after the last repeat
+        assertNull(cache.suppressOrOpen(alert("a-4", "p-001", "hr-high", "2025-08-01T12:44:00")));
+        assertEquals("a-4", cache.suppressOrOpen(alert("a-5", "p-001", "hr-high", "2025-08-01T12:45:00")).alertId());
+    }
+
+    @Test
+    @DisplayName("Should track each patient and rule separately and evict the least recently used")
+    void testKeysAndEviction() {
+        assertNull(cache.suppressOrOpen(alert("a-1", "p-001", "hr-high", "2025-08-01T12:00:00")));
+        assertNull(cache.suppressOrOpen(alert("a-2", "p-001", "hr-low", "2025-08-01T12:01:00")));
+        assertNull(cache.suppressOrOpen(alert("a-3", "p-002", "hr-high", "2025-08-01T12:01:00")));
+
+        assertEquals(2, cache.size());
+        assertNull(cache.suppressOrOpen(alert("a-4", "p-001", "hr-high", "2025-08-01T12:02:00")));
+    }
+
+    @Test
+    @DisplayName("Should only forget the alert that is open and keep the newest of two stored alerts")
+    void testForgetAndOpen() {
+        cache.open(alert("a-2", "p-001", "hr-high", "2025-08-01T12:10:00"));
+        cache.open(alert("a-1", "p-001", "hr-high", "2025-08-01T12:00:00"));
+        cache.forget("p-001", "hr-high", "a-1");
+
+        assertEquals("a-2", cache.suppressOrOpen(alert("a-3", "p-001", "hr-high", "2025-08-01T12:20:00")).alertId());
+
+        cache.forget("p-001", "hr-high", "a-2");
+        assertNull(cache.suppressOrOpen(alert("a-4", "p-001", "hr-high", "2025-08-01T12:21:00")));
+    }
+
+    @Test
+    @DisplayName("Should fold rules of one family into one alert and only report escalations to a higher severity")
+    void testFamilyEscalation() {
+        assertNull(cache.suppressOrOpen(alert("a-1", "p-001", "spo2-low", "spo2-low", AlertType.LOW, "2025-08-01T12:00:00")));
+
+        OpenAlertCache.Suppressed critical = cache.suppressOrOpen(
+            alert("a-2", "p-001", "spo2-critical", "spo2-low", AlertType.CRITICAL, "2025-08-01T12:05:00"));
+        assertEquals("a-1", critical.alertId());
+        assertTrue(critical.escalates());
+
+        OpenAlertCache.Suppressed low = cache.suppressOrOpen(
+            alert("a-3", "p-001", "spo2-low", "spo2-low", AlertType.LOW, "2025-08-01T12:06:00"));
+        assertEquals("a-1", low.alertId());
+        assertFalse(low.escalates());
+        assertFalse(cache.suppressOrOpen(
+            alert("a-4", "p-001", "spo2-critical", "spo2-low", AlertType.CRITICAL, "2025-08-01T12:07:00")).escalates());
+    }
+
+    @Test
+    @DisplayName("Should have the preloaded open alerts in place as soon as preload returns")
+    void testPreloadCompletesBeforeReturning() {
+        ReflectionTestUtils.setField(cache, "preloadTimeoutSeconds", 5L);
+        when(alertRepository.findLatestPerFamilySeenSince(any(LocalDateTime.class), anyInt()))
+            .thenReturn(Flux.just(alert("a-1", "p-001", "hr-high", "2025-08-01T12:00:00")).delayElements(Duration.ofMillis(50)));
+
+        cache.preload();
+
+        assertEquals("a-1", cache.suppressOrOpen(alert("a-2", "p-001", "hr-high", "2025-08-01T12:05:00")).alertId());
+    }
+
+    @Test
+    @DisplayName("Should never suppress when the window is 0")
+    void testDisabled() {
+        OpenAlertCache disabled = new OpenAlertCache(alertRepository, 0, 2);
+
+        assertNull(disabled.suppressOrOpen(alert("a-1", "p-001", "hr-high", "2025-08-01T12:00:00")));
+        assertNull(disabled.suppressOrOpen(alert("a-2", "p-001", "hr-high", "2025-08-01T12:01:00")));
+        assertEquals(0, disabled.size());
+    }
+
+    private static Alert alert(String alertId, String patientId, String ruleId, String capturedAt) {
+        return alert(alertId, patientId, ruleId, ruleId, AlertType.HIGH, capturedAt);
+    }
+
+    private static Alert alert(String alertId, String patientId, String ruleId, String family, AlertType severity,
+                               String capturedAt) {
+        Alert alert = new Alert(alertId, patientId, "reading-" + alertId, "HR", severity, "Heart Rate > 110", "120",
+            LocalDateTime.parse(capturedAt));
+        alert.setRuleId(ruleId);
+        alert.setRuleFamily(family);
+        return alert;
+    }
+}
@@ -0,0 +1,134 @@
+package com.folautech.alert.service;
+
+import com.folautech.alert.model.Alert;
+import com.folautech.alert.model.AlertType;
+import com.folautech.alert.model.HRReading;
+import com.folautech.alert.model.VitalReading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReorderBufferTest {
+
+    private static final long ONE_MINUTE = 60_000L;
+
+    private SimpleMeterRegistry meterRegistry;
+    private ReorderBuffer buffer;
+    private List<String> evaluated;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        evaluated = Collections.synchronizedList(new ArrayList<>());
+        buffer = start(new ReorderBuffer(meterRegistry, ONE_MINUTE, 250, 100, 100));
+    }
+
+    @AfterEach
+    void tearDown() {
+        buffer.stop();
+    }
+
+    @Test
+    @DisplayName("Should evaluate a patient's readings in capture order once the watermark passes them")
+    void testReordersByCaptureTime() throws Exception {
+        CompletableFuture<List<Alert>> first = buffer.submit(List.of(
+            reading("r-2", "p-001", "2025-08-01T12:01:00"),
+            reading("r-1", "p-001", "2025-08-01T12:00:00"))).toFuture();
+        assertEquals(1, buffer.buffered());
+        assertFalse(first.isDone());
+
+        CompletableFuture<List<Alert>> second = buffer.submit(List.of(
+            reading("r-3", "p-001", "2025-08-01T12:03:00"))).toFuture();
+
+        assertEquals(List.of("r-1", "r-2"), readingIds(first.get(5, TimeUnit.SECONDS)));
+        assertEquals(List.of("r-1", "r-2"), evaluated);
+        assertFalse(second.isDone());
+        assertEquals(1, buffer.buffered());
+    }
+
+    @Test
+    @DisplayName("Should release a reading captured before one already released at once and count it as late")
+    void testLateReading() throws Exception {
+        buffer.submit(List.of(
+            reading("r-1", "p-001", "2025-08-01T12:00:00"),
+            reading("r-2", "p-001", "2025-08-01T12:02:00"))).toFuture();
+
+        List<Alert> alerts = buffer.submit(List.of(reading("r-0", "p-001", "2025-08-01T11:59:00")))
+            .toFuture().get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("r-0"), readingIds(alerts));
+        assertEquals(1.0, meterRegistry.get("alert.reorder.late").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should release readings that waited max-hold-ms, with every reading of the patient captured before them")
+    void testReleaseExpired() throws Exception {
+        CompletableFuture<List<Alert>> result = buffer.submit(List.of(
+            reading("r-1", "p-001", "2025-08-01T12:00:00"),
+            reading("r-2", "p-002", "2025-08-01T12:00:00"))).toFuture();
+        assertEquals(2.0, meterRegistry.get("alert.reorder.buffered").gauge().value());
+        assertEquals(2.0, meterRegistry.get("alert.reorder.patients").gauge().value());
+
+        buffer.releaseExpired(System.nanoTime());
+        assertFalse(result.isDone());
+
+        buffer.releaseExpired(System.nanoTime() + TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(List.of("r-1", "r-2"), readingIds(result.get(5, TimeUnit.SECONDS)));
+        assertEquals(0.0, meterRegistry.get("alert.reorder.buffered").gauge().value());
+        assertEquals(2, meterRegistry.get("alert.reorder.delay").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should release the submitted patients at once when the buffer is over capacity")
+    void testForcedReleaseWhenFull() throws Exception {
+        buffer.stop();
+        meterRegistry = new SimpleMeterRegistry();
+        buffer = start(new ReorderBuffer(meterRegistry, ONE_MINUTE, 250, 2, 100));
+
+        List<Alert> alerts = buffer.submit(List.of(
+            reading("r-3", "p-001", "2025-08-01T12:00:30"),
+            reading("r-1", "p-001", "2025-08-01T12:00:00"),
+            reading("r-2", "p-001", "2025-08-01T12:00:10"))).toFuture().get(5, TimeUnit.SECONDS);
+
+        assertEquals(List.of("r-1", "r-2", "r-3"), readingIds(alerts));
+        assertEquals(0, buffer.buffered());
+        assertEquals(3.0, meterRegistry.get("alert.reorder.forced").counter().count());
+    }
+
+    @Test
+    @DisplayName("Should be disabled with a max delay of 0")
+    void testDisabled() {
+        assertFalse(new ReorderBuffer(new SimpleMeterRegistry(), 0, 250, 100, 100).isEnabled());
+        assertTrue(buffer.isEnabled());
+    }
+
+    private ReorderBuffer start(ReorderBuffer reorderBuffer) {
+        // One alert per reading, so the alerts show which readings were evaluated and in what order
+        reorderBuffer.start(readings -> Flux.fromIterable(readings)
+            .doOnNext(reading -> evaluated.add(reading.getReadingId()))
+            .map(reading -> new Alert("alert-" + reading.getReadingId(), reading.getPatientId(), reading.getReadingId(),
+                "HR", AlertType.HIGH, "Heart Rate > 110", "120", LocalDateTime.parse(reading.getCapturedAt()))));
+        return reorderBuffer;
+    }
+
+    private static VitalReading reading(String readingId, String patientId, String capturedAt) {
+        return new HRReading(readingId, patientId, capturedAt, 120);
+    }
+
+    private static List<String> readingIds(List<Alert> alerts) {
+        return alerts.stream().map(Alert::getReadingId).toList();
+    }
+}
@@ -0,0 +1,92 @@
+package com.folautech.alert.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.folautech.alert.model.Alert;
+import com.folautech.alert.model.HRReading;
+import com.folautech.alert.model.SPO2Reading;
+import com.folautech.alert.repository.AlertBatchRepository;
+import com.folautech.alert.repository.ThresholdOverrideRepository;
+import com.folautech.alert.rules.PatientThresholdCache;
+import com.folautech.alert.rules.RuleEngine;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SilenceMonitorTest {
+
+    private static final long TEN_MINUTES = 600_000L;
+
+    @Mock
+    private AlertBatchRepository alertBatchRepository;
+
+    @Mock
+    private ThresholdOverrideRepository thresholdOverrideRepository;
+
+    private SilenceMonitor silenceMonitor;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(thresholdOverrideRepository.findByPatientId(anyString())).thenReturn(Mono.just(Map.of()));
+        RuleEngine ruleEngine = new RuleEngine(new DefaultResourceLoader(), new ObjectMapper(),
+            new PatientThresholdCache(thresholdOverrideRepository, 100, 300), "classpath:rules/default-rules.json");
+        silenceMonitor = new SilenceMonitor(ruleEngine, alertBatchRepository, new AlertIdGenerator(), 1000, 64);
+        ReflectionTestUtils.setField(silenceMonitor, "insertChunkSize", 500);
+    }
+
+    @Test
+    @DisplayName("Should raise one alert against the last HR reading once no HR reading arrived for 10 minutes")
+    void testSilenceAlert() {
+        long start = System.currentTimeMillis();
+        silenceMonitor.readingReceived(new HRReading("r-1", "p-001", "2025-08-01T12:00:00", 72), "72");
+        silenceMonitor.readingReceived(new HRReading("r-2", "p-001", "2025-08-01T12:01:00", 75), "75");
+        silenceMonitor.readingReceived(new SPO2Reading("r-3", "p-002", "2025-08-01T12:01:00", 97), "97");
+        assertEquals(1, silenceMonitor.pending());
+
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Alert>>getArgument(0)));
+
+        StepVerifier.create(silenceMonitor.sweep(start + TEN_MINUTES - 60_000L)).expectNext(0).verifyComplete();
+        StepVerifier.create(silenceMonitor.sweep(start + TEN_MINUTES + 60_000L)).expectNext(1).verifyComplete();
+
+        verify(alertBatchRepository).insertIgnoringDuplicates(argThat(alerts -> alerts.size() == 1
+            && alerts.get(0).getReadingId().equals("r-2")
+            && alerts.get(0).getRuleId().equals("hr-silent")
+            && alerts.get(0).getAlertType().equals("HIGH")
+            && alerts.get(0).getThresholdViolated().equals("No Heart Rate reading for 10 minutes")
+            && alerts.get(0).getReadingValue().equals("75")));
+        assertEquals(0, silenceMonitor.pending());
+    }
+
+    @Test
+    @DisplayName("Should retry a missing-reading alert that could not be saved")
+    void testSilenceAlertRetriedAfterFailure() {
+        long start = System.currentTimeMillis();
+        silenceMonitor.readingReceived(new HRReading("r-1", "p-001", "2025-08-01T12:00:00", 72), "72");
+        when(alertBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenReturn(Flux.error(new RuntimeException("Connection refused")))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<Alert>>getArgument(0)));
+
+        StepVerifier.create(silenceMonitor.sweep(start + TEN_MINUTES + 2_000L)).expectNext(0).verifyComplete();
+        assertEquals(1, silenceMonitor.pending());
+        StepVerifier.create(silenceMonitor.sweep(start + TEN_MINUTES + 4_000L)).expectNext(1).verifyComplete();
+        assertEquals(0, silenceMonitor.pending());
+    }
+}
@@ -0,0 +1,74 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.BPReading;
+import com.folautech.alert.model.HRReading;
+import com.folautech.alert.model.SPO2Reading;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EarlyWarningScoreTest {
+
+    @ParameterizedTest
+    @DisplayName("Sub-scores should follow the NEWS2 tables at every band edge")
+    @CsvSource({
+        "BP, 90, 3", "BP, 91, 2", "BP, 100, 2", "BP, 101, 1", "BP, 110, 1", "BP, 111, 0", "BP, 219, 0", "BP, 220, 3",
+        "HR, 40, 3", "HR, 41, 1", "HR, 50, 1", "HR, 51, 0", "HR, 90, 0", "HR, 91, 1", "HR, 110, 1", "HR, 111, 2",
+        "HR, 130, 2", "HR, 131, 3",
+        "SPO2, 91, 3", "SPO2, 92, 2", "SPO2, 93, 2", "SPO2, 94, 1", "SPO2, 95, 1", "SPO2, 96, 0"
+    })
+    void testSubScores(String type, int value, int expected) {
+        int actual = switch (type) {
+            case "BP" -> EarlyWarningScore.systolicScore(value);
+            case "HR" -> EarlyWarningScore.pulseScore(value);
+            default -> EarlyWarningScore.spo2Score(value);
+        };
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    @DisplayName("A newer reading should replace its type's sub-score and move the band")
+    void testIncrementalUpdate() {
+        PatientState state = new PatientState();
+        assertFalse(state.score().isScored());
+
+        state.record(new HRReading("r-1", "p-001", "2025-08-01T12:00:00", 115));
+        state.record(new SPO2Reading("r-2", "p-001", "2025-08-01T12:01:00", 95));
+        assertEquals(3, state.score().total());
+        assertEquals(EarlyWarningScore.Band.LOW, state.score().band());
+        assertNull(state.score().component("BP"));
+
+        state.record(new BPReading("r-3", "p-001", "2025-08-01T12:02:00", 105, 70));
+        assertEquals(4, state.score().total());
+
+        state.record(new SPO2Reading("r-4", "p-001", "2025-08-01T12:03:00", 92));
+        assertEquals(5, state.score().total());
+        assertEquals(EarlyWarningScore.Band.MEDIUM, state.score().band());
+
+        state.record(new HRReading("r-5", "p-001", "2025-08-01T12:04:00", 75));
+        assertEquals(3, state.score().total());
+        assertEquals(EarlyWarningScore.Band.LOW, state.score().band());
+
+        // A late reading is not the latest of its type and must not be scored
+        state.record(new HRReading("r-6", "p-001", "2025-08-01T11:00:00", 150));
+        assertEquals(0, state.score().component("HR"));
+    }
+
+    @Test
+    @DisplayName("A single parameter scoring 3 should put a low total in the LOW_MEDIUM band")
+    void testRedScoreBand() {
+        PatientState state = new PatientState();
+        state.record(new SPO2Reading("r-1", "p-001", "2025-08-01T12:00:00", 90));
+
+        assertEquals(3, state.score().total());
+        assertEquals(EarlyWarningScore.Band.LOW_MEDIUM, state.score().band());
+
+        state.record(new HRReading("r-2", "p-001", "2025-08-01T12:01:00", 135));
+        state.record(new BPReading("r-3", "p-001", "2025-08-01T12:02:00", 95, 60));
+        assertEquals(8, state.score().total());
+        assertEquals(EarlyWarningScore.Band.HIGH, state.score().band());
+    }
+}
@@ -0,0 +1,144 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.BaselineCheckpoint;
+import com.folautech.alert.model.BPReading;
+import com.folautech.alert.model.HRReading;
+import com.folautech.alert.model.SPO2Reading;
+import com.folautech.alert.model.VitalReading;
+import com.folautech.alert.repository.BaselineRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PatientStateStoreTest {
+
+    @Mock
+    private VitalHistoryClient historyClient;
+
+    @Mock
+    private BaselineRepository baselineRepository;
+
+    private PatientStateStore store;
+
+    @BeforeEach
+    void setUp() {
+        lenient().when(baselineRepository.findByPatientId(anyString())).thenReturn(Flux.empty());
+        store = new PatientStateStore(historyClient, baselineRepository, 2, 4, 1000, 0.1);
+    }
+
+    @Test
+    @DisplayName("Should rebuild a new patient's windows from history before their earliest reading in the batch")
+    void testHydrateFromHistory() {
+        when(historyClient.fetchRecent("p-001", "2025-08-01T12:05:00", VitalWindow.CAPACITY))
+            .thenReturn(Mono.just(List.of(
+                new HRReading("h-1", "p-001", "2025-08-01T11:50:00", 70),
+                new HRReading("h-2", "p-001", "2025-08-01T11:55:00", 74))));
+        List<VitalReading> batch = List.of(
+            new HRReading("r-2", "p-001", "2025-08-01T12:10:00", 80),
+            new HRReading("r-1", "p-001", "2025-08-01T12:05:00", 78));
+
+        StepVerifier.create(store.hydrate(batch)).verifyComplete();
+
+        VitalWindow hr = store.stateFor("p-001").window("HR");
+        assertEquals(2, hr.size());
+        assertEquals(74, hr.value(0, 0));
+
+        // Known patients are not fetched again
+        StepVerifier.create(store.hydrate(batch)).verifyComplete();
+        verify(historyClient, times(1)).fetchRecent(anyString(), anyString(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should start with empty windows when the history cannot be fetched")
+    void testHydrateFailureLeavesEmptyState() {
+        when(historyClient.fetchRecent(anyString(), anyString(), anyInt()))
+            .thenReturn(Mono.error(new RuntimeException("Connection refused")));
+
+        StepVerifier.create(store.hydrate(List.of(new SPO2Reading("r-1", "p-002", "2025-08-01T12:00:00", 97))))
+            .verifyComplete();
+
+        assertEquals(0, store.size());
+        assertEquals(0, store.stateFor("p-002").window("SPO2").size());
+    }
+
+    @Test
+    @DisplayName("Should evict the least recently used patient beyond max-patients")
+    void testEviction() {
+        PatientState first = store.stateFor("p-001");
+        store.stateFor("p-002");
+        store.stateFor("p-001");
+        store.stateFor("p-003");
+
+        assertEquals(2, store.size());
+        assertSame(first, store.stateFor("p-001"));
+        assertEquals(2, store.size());
+    }
+
+    @Test
+    @DisplayName("Should restore a baseline from its checkpoint and only fold in history it does not include")
+    void testHydrateRestoresBaseline() {
+        when(baselineRepository.findByPatientId("p-001")).thenReturn(Flux.just(
+            new BaselineCheckpoint("p-001", "HR", "hr", 70.0, 4.0, 40, LocalDateTime.parse("2025-08-01T11:55:00"))));
+        when(historyClient.fetchRecent("p-001", "2025-08-01T12:05:00", VitalWindow.CAPACITY))
+            .thenReturn(Mono.just(List.of(
+                new HRReading("h-1", "p-001", "2025-08-01T11:50:00", 90),
+                new HRReading("h-2", "p-001", "2025-08-01T12:00:00", 80))));
+
+        StepVerifier.create(store.hydrate(List.of(new HRReading("r-1", "p-001", "2025-08-01T12:05:00", 78))))
+            .verifyComplete();
+
+        // h-1 is already part of the checkpoint; h-2 moves the mean a tenth of the way towards 80
+        VitalBaseline hr = store.stateFor("p-001").baseline("HR");
+        assertEquals(41, hr.samples());
+        assertEquals(71.0, hr.mean(0), 1e-9);
+        assertEquals(2, store.stateFor("p-001").window("HR").size());
+    }
+
+    @Test
+    @DisplayName("Should keep the baselines of a patient whose history cannot be fetched")
+    void testHydrateRestoresBaselineWithoutHistory() {
+        when(baselineRepository.findByPatientId("p-001")).thenReturn(Flux.just(
+            new BaselineCheckpoint("p-001", "SPO2", "spo2", 97.0, 1.0, 30, LocalDateTime.parse("2025-08-01T11:55:00"))));
+        when(historyClient.fetchRecent(anyString(), anyString(), anyInt()))
+            .thenReturn(Mono.error(new RuntimeException("Connection refused")));
+
+        StepVerifier.create(store.hydrate(List.of(new SPO2Reading("r-1", "p-001", "2025-08-01T12:00:00", 97))))
+            .verifyComplete();
+
+        assertEquals(1, store.size());
+        assertEquals(30, store.stateFor("p-001").baseline("SPO2").samples());
+    }
+
+    @Test
+    @DisplayName("Should drain changed baselines once, including those of evicted patients")
+    void testDrainBaselineCheckpoints() {
+        store.stateFor("p-001").record(new HRReading("r-1", "p-001", "2025-08-01T12:00:00", 70));
+        store.stateFor("p-002").record(new BPReading("r-2", "p-002", "2025-08-01T12:00:00", 120, 80));
+        store.stateFor("p-003");
+
+        List<BaselineCheckpoint> rows = store.drainBaselineCheckpoints();
+
+        // p-001 was evicted by p-003; BP contributes one row per field
+        assertEquals(3, rows.size());
+        assertTrue(rows.stream().anyMatch(row -> row.getPatientId().equals("p-001") && row.getField().equals("hr")));
+        assertTrue(store.drainBaselineCheckpoints().isEmpty());
+
+        store.requeueCheckpoints(rows);
+        assertEquals(3, store.drainBaselineCheckpoints().size());
+    }
+}
@@ -0,0 +1,30 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.HRReading;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PatientStateTest {
+
+    @Test
+    @DisplayName("Should treat a re-delivered reading as a duplicate, not as late")
+    void testRedeliveredReadingIsNotLate() {
+        PatientState state = new PatientState();
+        HRReading reading = new HRReading("r-1", "p-001", "2025-08-01T12:00:00", 112);
+        assertTrue(state.record(reading));
+
+        assertFalse(state.record(reading));
+        assertTrue(state.isDuplicate(reading));
+        assertFalse(state.isLate(reading));
+
+        HRReading sameTime = new HRReading("r-2", "p-001", "2025-08-01T12:00:00", 110);
+        assertFalse(state.isDuplicate(sameTime));
+        assertFalse(state.isLate(sameTime));
+
+        HRReading older = new HRReading("r-0", "p-001", "2025-08-01T11:59:00", 110);
+        assertFalse(state.isDuplicate(older));
+        assertTrue(state.isLate(older));
+    }
+}
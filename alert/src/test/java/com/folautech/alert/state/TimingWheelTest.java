@@ -0,0 +1,73 @@
+package com.folautech.alert.state;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    @Test
+    @DisplayName("Should fire a deadline on the first advance at or after it, never before")
+    void testFiresOnDeadline() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.schedule("p-001", "first", 250);
+
+        assertTrue(wheel.advance(200).isEmpty());
+        assertEquals(List.of("first"), wheel.advance(300));
+        assertEquals(0, wheel.size());
+        assertTrue(wheel.advance(10_000).isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should replace a key's deadline when it is rescheduled")
+    void testRescheduleReplacesDeadline() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(100, 8, 0);
+        wheel.schedule("p-001", "first", 300);
+        wheel.schedule("p-001", "second", 600);
+
+        assertEquals(1, wheel.size());
+        assertTrue(wheel.advance(500).isEmpty());
+        assertEquals(List.of("second"), wheel.advance(600));
+    }
+
+    @Test
+    @DisplayName("Should keep deadlines more than one revolution away until their tick comes round")
+    void testDeadlinesBeyondOneRevolution() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(100, 8, 0);
+        // Tick 10 shares a bucket with tick 2 on an 8-bucket wheel
+        wheel.schedule("p-001", "far", 1_000);
+        wheel.schedule("p-002", "near", 200);
+
+        assertEquals(List.of("near"), wheel.advance(200));
+        assertTrue(wheel.advance(900).isEmpty());
+        assertEquals(List.of("far"), wheel.advance(1_000));
+    }
+
+    @Test
+    @DisplayName("Should fire every passed deadline when the wheel jumps more than one revolution")
+    void testLongJump() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(100, 8, 0);
+        for (int i = 1; i <= 20; i++) {
+            wheel.schedule("p-" + i, "p-" + i, i * 100L);
+        }
+
+        assertEquals(20, wheel.advance(5_000).size());
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    @DisplayName("Should fire a deadline that is already due on the next advance, and not a cancelled one")
+    void testPastDeadlineAndCancel() {
+        TimingWheel<String, String> wheel = new TimingWheel<>(100, 8, 1_000);
+        wheel.schedule("p-001", "overdue", 500);
+        wheel.schedule("p-002", "cancelled", 1_100);
+
+        assertTrue(wheel.cancel("p-002"));
+        assertFalse(wheel.cancel("p-002"));
+        assertFalse(wheel.scheduleIfAbsent("p-001", "again", 2_000));
+        assertEquals(List.of("overdue"), wheel.advance(1_100));
+    }
+}
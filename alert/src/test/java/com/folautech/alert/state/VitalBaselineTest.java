@@ -0,0 +1,65 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.BaselineCheckpoint;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VitalBaselineTest {
+
+    @Test
+    @DisplayName("Should score each reading against the baseline before it, then move the mean by alpha")
+    void testZScoreAgainstPreviousBaseline() {
+        VitalBaseline baseline = new VitalBaseline("HR", "hr");
+
+        assertTrue(baseline.update(1_000L, new int[] {70}, 0.5));
+        assertEquals(0.0, baseline.lastZ(0));
+        assertEquals(70.0, baseline.mean(0));
+
+        // Variance is still 0, so the deviation is divided by the standard deviation floor of 1
+        assertTrue(baseline.update(2_000L, new int[] {74}, 0.5));
+        assertEquals(4.0, baseline.lastZ(0), 1e-9);
+        assertEquals(72.0, baseline.mean(0), 1e-9);
+
+        // Variance is now 0.5 * (0 + 0.5 * 16) = 4
+        assertTrue(baseline.update(3_000L, new int[] {66}, 0.5));
+        assertEquals(-3.0, baseline.lastZ(0), 1e-9);
+        assertEquals(3, baseline.samples());
+    }
+
+    @Test
+    @DisplayName("Should ignore readings captured no later than the newest one folded in")
+    void testIgnoresReplayedReadings() {
+        VitalBaseline baseline = new VitalBaseline("SPO2", "spo2");
+        baseline.update(2_000L, new int[] {97}, 0.1);
+
+        assertFalse(baseline.update(2_000L, new int[] {90}, 0.1));
+        assertFalse(baseline.update(1_000L, new int[] {90}, 0.1));
+        assertEquals(1, baseline.samples());
+        assertEquals(97.0, baseline.mean(0));
+    }
+
+    @Test
+    @DisplayName("Should round-trip through a checkpoint and only drain after a change")
+    void testCheckpointRoundTrip() {
+        VitalBaseline baseline = new VitalBaseline("BP", "systolic", "diastolic");
+        baseline.update(PatientState.capturedAtMillis("2025-08-01T12:00:00"), new int[] {120, 80}, 0.1);
+
+        List<BaselineCheckpoint> rows = baseline.drainCheckpoint("p-001");
+        assertEquals(2, rows.size());
+        assertEquals("diastolic", rows.get(1).getField());
+        assertEquals(LocalDateTime.parse("2025-08-01T12:00:00"), rows.get(0).getLastCapturedAt());
+        assertTrue(baseline.drainCheckpoint("p-001").isEmpty());
+
+        VitalBaseline restored = new VitalBaseline("BP", "systolic", "diastolic");
+        rows.forEach(restored::restore);
+        assertEquals(1, restored.samples());
+        assertEquals(80.0, restored.mean(1));
+        assertFalse(restored.update(PatientState.capturedAtMillis("2025-08-01T12:00:00"), new int[] {150, 95}, 0.1));
+        assertTrue(restored.drainCheckpoint("p-001").isEmpty());
+    }
+}
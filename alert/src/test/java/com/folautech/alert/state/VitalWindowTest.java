@@ -0,0 +1,86 @@
+package com.folautech.alert.state;
+
+import com.folautech.alert.model.AlertType;
+import com.folautech.alert.rules.RuleMatch;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VitalWindowTest {
+
+    @Test
+    @DisplayName("Should keep the newest CAPACITY readings, newest first")
+    void testWrapsAround() {
+        VitalWindow window = new VitalWindow(2);
+        for (int i = 0; i < VitalWindow.CAPACITY + 5; i++) {
+            assertTrue(window.append(1_000L * i, new int[] {100 + i, 60 + i}));
+        }
+
+        assertEquals(VitalWindow.CAPACITY, window.size());
+        assertEquals(100 + VitalWindow.CAPACITY + 4, window.value(0, 0));
+        assertEquals(60 + VitalWindow.CAPACITY + 4, window.value(1, 0));
+        assertEquals(105, window.value(0, VitalWindow.CAPACITY - 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> window.value(0, VitalWindow.CAPACITY));
+    }
+
+    @Test
+    @DisplayName("Should ignore readings captured no later than the newest one")
+    void testRejectsLateAndDuplicateReadings() {
+        VitalWindow window = new VitalWindow(1);
+        assertTrue(window.append(2_000L, new int[] {80}));
+
+        assertFalse(window.append(2_000L, new int[] {90}));
+        assertFalse(window.append(1_000L, new int[] {70}));
+
+        assertEquals(1, window.size());
+        assertEquals(80, window.value(0, 0));
+        assertEquals(2_000L, window.newestCapturedAt());
+    }
+
+    @Test
+    @DisplayName("Should track runs of strictly rising and falling values per slot")
+    void testRuns() {
+        VitalWindow window = new VitalWindow(1);
+        window.append(1L, new int[] {98});
+        window.append(2L, new int[] {97});
+        window.append(3L, new int[] {95});
+        assertEquals(2, window.fallingRun(0));
+        assertEquals(0, window.risingRun(0));
+
+        window.append(4L, new int[] {95});
+        assertEquals(0, window.fallingRun(0));
+
+        window.append(5L, new int[] {96});
+        assertEquals(1, window.risingRun(0));
+    }
+
+    @Test
+    @DisplayName("Should know a reading it holds by readingId and capture time")
+    void testContains() {
+        VitalWindow window = new VitalWindow(1);
+        window.append(1_000L, new int[] {80}, "r-1");
+        window.append(2_000L, new int[] {82}, "r-2");
+
+        assertTrue(window.contains(1_000L, "r-1"));
+        assertTrue(window.contains(2_000L, "r-2"));
+        assertFalse(window.contains(2_000L, "r-3"));
+        assertFalse(window.contains(1_000L, "r-2"));
+        assertFalse(window.contains(2_000L, null));
+    }
+
+    @Test
+    @DisplayName("Should remember the rules each reading raised, and nothing for readings never evaluated")
+    void testRaisedBy() {
+        VitalWindow window = new VitalWindow(1);
+        window.append(1_000L, new int[] {80}, "r-1");
+        window.append(2_000L, new int[] {125}, "r-2");
+        window.setRaised(List.of(new RuleMatch("hr-high", AlertType.HIGH, "Heart Rate > 110")));
+
+        assertNull(window.raisedBy(1_000L, "r-1"));
+        assertEquals("hr-high", window.raisedBy(2_000L, "r-2").get(0).ruleId());
+        assertNull(window.raisedBy(2_000L, "r-3"));
+    }
+}
@@ -1,9 +1,14 @@
 package com.folautech.vital.controller;
 
 import com.folautech.vital.model.Alert;
+import com.folautech.vital.model.BatchStatus;
+import com.folautech.vital.model.IngestResult;
+import com.folautech.vital.model.ReadingResult;
 import com.folautech.vital.model.VitalReading;
+import com.folautech.vital.service.BatchTracker;
 import com.folautech.vital.service.VitalService;
 import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.Parameter;
 import io.swagger.v3.oas.annotations.media.Content;
 import io.swagger.v3.oas.annotations.media.Schema;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
@@ -11,12 +16,17 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.List;
 
 @RestController
@@ -26,17 +36,26 @@ public class VitalController {
     
     private static final Logger logger = LoggerFactory.getLogger(VitalController.class);
     
+    private static final int MAX_RECENT_LIMIT = 100;
+    
+    // Ingest counts of POST /readings, whose body stays the list of created alerts
+    static final String ACCEPTED_HEADER = "X-Readings-Accepted";
+    static final String DUPLICATES_HEADER = "X-Readings-Duplicates";
+    static final String REJECTED_HEADER = "X-Readings-Rejected";
+    
     private final VitalService vitalService;
+    private final BatchTracker batchTracker;
     
-    public VitalController(VitalService vitalService) {
+    public VitalController(VitalService vitalService, BatchTracker batchTracker) {
         this.vitalService = vitalService;
+        this.batchTracker = batchTracker;
     }
     
     @PostMapping
     @Operation(summary = "Submit vital readings", 
-               description = "Accepts a list of patient vital readings, validates them, stores them, forwards to alert service, and returns created alerts. Use ?transactional=true for all-or-nothing processing.")
+               description = "Accepts a list of patient vital readings, validates them, stores them, forwards to alert service, and returns created alerts. Readings that already exist are skipped; the accepted, duplicate and rejected counts are returned in the X-Readings-Accepted, X-Readings-Duplicates and X-Readings-Rejected headers. Use ?transactional=true for all-or-nothing processing.")
     @ApiResponses(value = {
-        @ApiResponse(responseCode = "200", description = "Readings processed successfully, returning created alerts"),
+        @ApiResponse(responseCode = "200", description = "Readings processed successfully, returning created alerts and ingest counts in headers"),
         @ApiResponse(responseCode = "207", description = "Multi-status response (some readings may have failed)"),
         @ApiResponse(responseCode = "400", description = "Invalid reading data", 
                     content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
@@ -47,22 +66,23 @@ public class VitalController {
             @RequestParam(value = "transactional", defaultValue = "false", required = false) boolean transactional) {
         logger.info("Received {} vital readings (transactional={})", readings.size(), transactional);
         
-        Mono<List<Alert>> processingResult = transactional 
-            ? vitalService.processReadingsTransactional(readings)
-            : vitalService.processReadings(readings);
+        Mono<IngestResult> processingResult = transactional 
+            ? vitalService.ingestReadingsTransactional(readings)
+            : vitalService.ingestReadings(readings);
             
         return processingResult
-            .map(alerts -> {
-                logger.info("Processed {} readings, created {} alerts", readings.size(), alerts.size());
-                return ResponseEntity.ok(alerts);
+            .map(result -> {
+                logger.info("Processed {} readings ({} accepted, {} duplicates, {} rejected), created {} alerts", 
+                    readings.size(), result.getAccepted(), result.getDuplicates(), result.getRejected(), 
+                    result.getAlerts().size());
+                return ResponseEntity.ok()
+                    .header(ACCEPTED_HEADER, String.valueOf(result.getAccepted()))
+                    .header(DUPLICATES_HEADER, String.valueOf(result.getDuplicates()))
+                    .header(REJECTED_HEADER, String.valueOf(result.getRejected()))
+                    .body(result.getAlerts());
             })
             .onErrorResume(error -> {
                 logger.error("Error processing readings: {}", error.getMessage());
-                // Handle specific error cases
-                if (error.getMessage() != null && error.getMessage().contains("already exists")) {
-                    // Idempotent response for duplicates (when single reading)
-                    return Mono.just(ResponseEntity.ok(List.<Alert>of()));
-                }
                 // Let ResponseStatusException pass through for validation errors
                 if (error instanceof org.springframework.web.server.ResponseStatusException) {
                     return Mono.error(error);
@@ -72,6 +92,104 @@ public class VitalController {
             });
     }
     
+    @PostMapping(params = "async=true")
+    @Operation(summary = "Submit vital readings asynchronously", 
+               description = "Validates and stores the readings, then returns 202 with a batch token without waiting for the alert service. Alerts are evaluated in the background; poll GET /readings/batches/{token} or subscribe to GET /readings/batches/{token}/events for the result.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Readings stored, alert evaluation in progress",
+                    content = @Content(schema = @Schema(implementation = BatchStatus.class))),
+        @ApiResponse(responseCode = "400", description = "Invalid reading data", 
+                    content = @Content(schema = @Schema(implementation = ErrorResponse.class))),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<BatchStatus>> submitReadingsAsync(@RequestBody List<VitalReading> readings) {
+        logger.info("Received {} vital readings (async)", readings.size());
+        
+        return vitalService.ingestReadingsAsync(readings)
+            .map(status -> {
+                logger.info("Stored batch {} ({} accepted), evaluating alerts in background", 
+                    status.getBatchToken(), status.getAccepted());
+                return ResponseEntity.accepted()
+                    .header(HttpHeaders.LOCATION, "/readings/batches/" + status.getBatchToken())
+                    .body(status);
+            })
+            .onErrorResume(error -> {
+                logger.error("Error processing readings: {}", error.getMessage());
+                // Let ResponseStatusException pass through for validation errors
+                if (error instanceof org.springframework.web.server.ResponseStatusException) {
+                    return Mono.error(error);
+                }
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build());
+            });
+    }
+    
+    @GetMapping("/batches/{token}")
+    @Operation(summary = "Get async batch status", 
+               description = "Returns the counts of a batch submitted with ?async=true and, once evaluation has completed, its alerts")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Batch status",
+                    content = @Content(schema = @Schema(implementation = BatchStatus.class))),
+        @ApiResponse(responseCode = "404", description = "Unknown or expired batch token")
+    })
+    public Mono<ResponseEntity<BatchStatus>> getBatchStatus(@PathVariable String token) {
+        return batchTracker.find(token)
+            .map(ResponseEntity::ok)
+            .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+    
+    @GetMapping(value = "/batches/{token}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Follow async batch status", 
+               description = "Server-sent events: the current status of the batch, then its final status when evaluation finishes: COMPLETED with its alerts, or PENDING_RELAY if the alert service could not be reached and the outbox relay will evaluate the readings. Empty for unknown or expired tokens.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stream of batch status updates",
+                    content = @Content(mediaType = MediaType.TEXT_EVENT_STREAM_VALUE, 
+                                       schema = @Schema(implementation = BatchStatus.class)))
+    })
+    public Flux<BatchStatus> watchBatch(@PathVariable String token) {
+        return batchTracker.watch(token);
+    }
+    
+    @PostMapping(consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream vital readings", 
+               description = "Accepts newline-delimited JSON readings and processes them in bounded windows while the upload is still streaming in. Emits one NDJSON result per reading (ACCEPTED with its alerts, DUPLICATE or REJECTED) as each window completes.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Stream of per-reading results",
+                    content = @Content(mediaType = MediaType.APPLICATION_NDJSON_VALUE, 
+                                       schema = @Schema(implementation = ReadingResult.class))),
+        @ApiResponse(responseCode = "400", description = "Malformed NDJSON payload")
+    })
+    public Flux<ReadingResult> streamReadings(@RequestBody Flux<VitalReading> readings) {
+        logger.info("Receiving streamed vital readings");
+        
+        return vitalService.processReadingStream(readings)
+            .doOnComplete(() -> logger.info("Completed streamed vital readings"))
+            .doOnError(error -> logger.error("Error streaming readings: {}", error.getMessage()));
+    }
+    
+    @PostMapping("/bulk")
+    @Operation(summary = "Bulk load vital readings", 
+               description = "Loads large batches of readings (backfills, gateway catch-up) with PostgreSQL COPY through a staging table. Readings that already exist are skipped, invalid readings are counted as rejected, and new readings are forwarded to the alert service in chunks afterwards.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Readings loaded, returning counts and created alerts",
+                    content = @Content(schema = @Schema(implementation = IngestResult.class))),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<IngestResult>> submitBulkReadings(@RequestBody List<VitalReading> readings) {
+        logger.info("Received {} vital readings for bulk load", readings.size());
+        
+        return vitalService.bulkIngestReadings(readings)
+            .map(result -> {
+                logger.info("Bulk loaded {} readings ({} duplicates, {} rejected), created {} alerts", 
+                    result.getAccepted(), result.getDuplicates(), result.getRejected(), result.getAlerts().size());
+                return ResponseEntity.ok(result);
+            })
+            .onErrorResume(error -> {
+                logger.error("Error bulk loading readings: {}", error.getMessage());
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(new IngestResult(List.of(), 0, 0, readings.size())));
+            });
+    }
+    
     @GetMapping("/readings")
     @Operation(summary = "Get all vital readings", 
                description = "Retrieves all stored vital readings from the database")
@@ -94,6 +212,43 @@ public class VitalController {
             });
     }
     
+    @GetMapping("/patients/{patientId}/recent")
+    @Operation(summary = "Get recent readings of a patient", 
+               description = "Returns the latest readings of each vital type captured before the given time, oldest first. The alert service uses it to rebuild its trend windows after a restart.")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Readings retrieved successfully"),
+        @ApiResponse(responseCode = "400", description = "Invalid before timestamp or limit"),
+        @ApiResponse(responseCode = "500", description = "Internal server error")
+    })
+    public Mono<ResponseEntity<List<VitalReading>>> getRecentReadings(
+            @PathVariable String patientId,
+            @Parameter(description = "Only readings captured strictly before this ISO-8601 date-time")
+            @RequestParam(required = false) String before,
+            @Parameter(description = "Maximum number of readings per vital type")
+            @RequestParam(defaultValue = "16") int limit) {
+        LocalDateTime capturedBefore = null;
+        if (before != null) {
+            try {
+                capturedBefore = LocalDateTime.parse(before, DateTimeFormatter.ISO_DATE_TIME);
+            } catch (DateTimeParseException e) {
+                logger.error("Invalid before timestamp: {}", before);
+                return Mono.just(ResponseEntity.badRequest().build());
+            }
+        }
+        if (limit < 1 || limit > MAX_RECENT_LIMIT) {
+            logger.error("Invalid recent readings limit: {}", limit);
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        
+        return vitalService.getRecentReadings(patientId, capturedBefore, limit)
+            .collectList()
+            .map(ResponseEntity::ok)
+            .onErrorResume(error -> {
+                logger.error("Error retrieving recent readings for patient {}: {}", patientId, error.getMessage());
+                return Mono.just(ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(List.<VitalReading>of()));
+            });
+    }
+    
     @DeleteMapping("/clear")
     @Operation(summary = "Clear all vital readings data", 
                description = "Removes all stored vital readings from the database - useful for testing")
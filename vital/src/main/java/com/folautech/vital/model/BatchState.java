@@ -0,0 +1,8 @@
+package com.folautech.vital.model;
+
+public enum BatchState {
+    EVALUATING,
+    COMPLETED,
+    // The alert service could not be reached; the outbox relay evaluates the readings later, without reporting here
+    PENDING_RELAY
+}
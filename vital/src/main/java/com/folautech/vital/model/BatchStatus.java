@@ -0,0 +1,42 @@
+package com.folautech.vital.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Progress of a batch submitted with ?async=true")
+public class BatchStatus {
+
+    @Schema(description = "Token returned when the batch was accepted", example = "7f6c2d1e-3b4a-4c5d-8e9f-0a1b2c3d4e5f")
+    private String batchToken;
+
+    @Schema(description = "EVALUATING while alerts are being evaluated, COMPLETED once they have been, or PENDING_RELAY if the alert service could not be reached and the outbox relay will evaluate the readings later")
+    private BatchState state;
+
+    @Schema(description = "Number of readings newly stored", example = "4")
+    private int accepted;
+
+    @Schema(description = "Number of readings ignored because their readingId was already stored or repeated in the batch", example = "1")
+    private int duplicates;
+
+    @Schema(description = "Number of readings rejected by validation or by the database", example = "0")
+    private int rejected;
+
+    @Schema(description = "Alerts created for the batch, present once evaluation has completed")
+    private List<Alert> alerts;
+
+    @Schema(description = "When the readings were stored")
+    private LocalDateTime acceptedAt;
+
+    @Schema(description = "When alert evaluation finished or was left to the outbox relay")
+    private LocalDateTime completedAt;
+}
@@ -0,0 +1,27 @@
+package com.folautech.vital.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of ingesting a batch of vital readings")
+public class IngestResult {
+
+    @Schema(description = "Alerts created by the alert service for the newly stored readings")
+    private List<Alert> alerts;
+
+    @Schema(description = "Number of readings newly stored", example = "4")
+    private int accepted;
+
+    @Schema(description = "Number of readings ignored because their readingId was already stored or repeated in the batch", example = "1")
+    private int duplicates;
+
+    @Schema(description = "Number of readings rejected by validation or by the database", example = "0")
+    private int rejected;
+}
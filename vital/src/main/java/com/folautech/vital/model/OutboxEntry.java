@@ -0,0 +1,17 @@
+package com.folautech.vital.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * A reading waiting in reading_outbox to be evaluated by the alert service.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class OutboxEntry {
+    private Long id;
+    private String readingId;
+    private int attempts;
+}
@@ -0,0 +1,41 @@
+package com.folautech.vital.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@Schema(description = "Per-reading outcome emitted by the streaming ingest endpoint")
+public class ReadingResult {
+
+    @Schema(description = "Reading identifier", example = "11111111-1111-1111-1111-111111111111")
+    private String readingId;
+
+    @Schema(description = "What happened to the reading")
+    private ReadingStatus status;
+
+    @Schema(description = "Why the reading was rejected or skipped", example = "hr must be between 0 and 300")
+    private String message;
+
+    @Schema(description = "Alerts created for the reading")
+    private List<Alert> alerts;
+
+    public static ReadingResult accepted(String readingId, List<Alert> alerts) {
+        return new ReadingResult(readingId, ReadingStatus.ACCEPTED, null, alerts);
+    }
+
+    public static ReadingResult duplicate(String readingId, String message) {
+        return new ReadingResult(readingId, ReadingStatus.DUPLICATE, message, null);
+    }
+
+    public static ReadingResult rejected(String readingId, String message) {
+        return new ReadingResult(readingId, ReadingStatus.REJECTED, message, null);
+    }
+}
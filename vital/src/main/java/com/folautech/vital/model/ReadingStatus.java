@@ -0,0 +1,7 @@
+package com.folautech.vital.model;
+
+public enum ReadingStatus {
+    ACCEPTED,
+    DUPLICATE,
+    REJECTED
+}
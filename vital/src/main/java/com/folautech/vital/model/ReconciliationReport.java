@@ -0,0 +1,33 @@
+package com.folautech.vital.model;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Schema(description = "Outcome of one reconciliation run over vital_readings")
+public class ReconciliationReport {
+
+    @Schema(description = "Start of the scanned created_at window (exclusive)")
+    private LocalDateTime windowStart;
+
+    @Schema(description = "End of the scanned created_at window (inclusive)")
+    private LocalDateTime windowEnd;
+
+    @Schema(description = "Readings found without an evaluation acknowledgement", example = "12")
+    private int gaps;
+
+    @Schema(description = "Gap readings re-forwarded and acknowledged by the alert service", example = "12")
+    private int reforwarded;
+
+    @Schema(description = "Gap readings whose re-forward failed and will be retried by the next run", example = "0")
+    private int failed;
+
+    @Schema(description = "Wall-clock duration of the run in milliseconds", example = "840")
+    private long durationMs;
+}
@@ -0,0 +1,121 @@
+package com.folautech.vital.repository;
+
+import com.folautech.vital.model.OutboxEntry;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Access to reading_outbox, the durable queue of readings still to be evaluated by the alert service.
+ * Rows are created by {@link VitalBatchRepository} together with the readings themselves.
+ */
+@Repository
+public class OutboxRepository {
+
+    // Lease the oldest due rows: concurrent relays skip each other's rows, and a relay that dies
+    // mid-batch only delays them until the lease expires
+    private static final String CLAIM_BATCH =
+        "UPDATE reading_outbox SET attempts = attempts + 1, "
+            + "next_attempt_at = LOCALTIMESTAMP + :leaseSeconds * INTERVAL '1 second' "
+            + "WHERE id IN (SELECT id FROM reading_outbox WHERE next_attempt_at <= LOCALTIMESTAMP "
+            + "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED) "
+            + "RETURNING id, reading_id, attempts";
+
+    private static final String RESCHEDULE =
+        "UPDATE reading_outbox SET last_error = :error, "
+            + "next_attempt_at = LOCALTIMESTAMP + LEAST(:maxBackoffSeconds, :baseBackoffSeconds * POWER(2, LEAST(attempts, 20) - 1)) * INTERVAL '1 second' "
+            + "WHERE id = ANY(:ids)";
+
+    // Record the acks and clear the outbox in one statement
+    private static final String ACKNOWLEDGE =
+        "WITH acked AS (INSERT INTO evaluation_acks (reading_id) SELECT unnest(CAST(:readingIds AS VARCHAR[])) "
+            + "ON CONFLICT (reading_id) DO NOTHING) "
+            + "DELETE FROM reading_outbox WHERE reading_id = ANY(:readingIds)";
+
+    // Acks of readings created up to the reconciled point, or no longer stored, are never read again
+    private static final String DELETE_ACKS_CREATED_UNTIL =
+        "DELETE FROM evaluation_acks WHERE reading_id IN (SELECT a.reading_id FROM evaluation_acks a "
+            + "WHERE NOT EXISTS (SELECT 1 FROM vital_readings v WHERE v.reading_id = a.reading_id AND v.created_at > :createdUntil) "
+            + "LIMIT :limit)";
+
+    private final DatabaseClient databaseClient;
+
+    public OutboxRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * Claim up to {@code limit} due entries in insertion order and lease them for {@code leaseSeconds}.
+     * @return Flux<OutboxEntry> claimed entries, ordered by id
+     */
+    public Flux<OutboxEntry> claimBatch(int limit, int leaseSeconds) {
+        return databaseClient.sql(CLAIM_BATCH)
+            .bind("leaseSeconds", leaseSeconds)
+            .bind("limit", limit)
+            .map(row -> new OutboxEntry(row.get("id", Long.class), row.get("reading_id", String.class),
+                row.get("attempts", Integer.class)))
+            .all()
+            .sort((a, b) -> Long.compare(a.getId(), b.getId()));
+    }
+
+    /**
+     * Remove entries that have nothing left to deliver.
+     */
+    public Mono<Long> delete(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return databaseClient.sql("DELETE FROM reading_outbox WHERE id = ANY(:ids)")
+            .bind("ids", ids.toArray(Long[]::new))
+            .fetch()
+            .rowsUpdated();
+    }
+
+    /**
+     * Mark readings as evaluated by the alert service: record them in evaluation_acks and remove
+     * their outbox entries.
+     * @return Mono<Long> number of outbox entries removed
+     */
+    public Mono<Long> acknowledge(List<String> readingIds) {
+        if (readingIds.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return databaseClient.sql(ACKNOWLEDGE)
+            .bind("readingIds", readingIds.toArray(String[]::new))
+            .fetch()
+            .rowsUpdated();
+    }
+
+    /**
+     * Delete up to {@code limit} acks of readings created no later than {@code createdUntil}, which the
+     * reconciler has scanned past and will not look up again.
+     * @return Mono<Long> number of acks deleted; fewer than {@code limit} once none are left
+     */
+    public Mono<Long> deleteAcksCreatedUntil(LocalDateTime createdUntil, int limit) {
+        return databaseClient.sql(DELETE_ACKS_CREATED_UNTIL)
+            .bind("createdUntil", createdUntil)
+            .bind("limit", limit)
+            .fetch()
+            .rowsUpdated();
+    }
+
+    /**
+     * Push failed entries back with exponential backoff based on their attempt count.
+     */
+    public Mono<Long> reschedule(List<Long> ids, String error, int baseBackoffSeconds, int maxBackoffSeconds) {
+        if (ids.isEmpty()) {
+            return Mono.just(0L);
+        }
+        return databaseClient.sql(RESCHEDULE)
+            .bind("error", error)
+            .bind("baseBackoffSeconds", baseBackoffSeconds)
+            .bind("maxBackoffSeconds", maxBackoffSeconds)
+            .bind("ids", ids.toArray(Long[]::new))
+            .fetch()
+            .rowsUpdated();
+    }
+}
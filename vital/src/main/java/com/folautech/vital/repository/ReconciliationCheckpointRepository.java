@@ -0,0 +1,41 @@
+package com.folautech.vital.repository;
+
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDateTime;
+
+/**
+ * Persistent scan position of reconciliation jobs, so a restart resumes where the last run stopped.
+ */
+@Repository
+public class ReconciliationCheckpointRepository {
+
+    private static final String UPSERT =
+        "INSERT INTO reconciliation_checkpoint (job_name, scanned_until, updated_at) VALUES (:jobName, :scannedUntil, LOCALTIMESTAMP) "
+            + "ON CONFLICT (job_name) DO UPDATE SET scanned_until = EXCLUDED.scanned_until, updated_at = EXCLUDED.updated_at";
+
+    private final DatabaseClient databaseClient;
+
+    public ReconciliationCheckpointRepository(DatabaseClient databaseClient) {
+        this.databaseClient = databaseClient;
+    }
+
+    /**
+     * @return Mono<LocalDateTime> created_at up to which the job has already scanned, empty if it never ran
+     */
+    public Mono<LocalDateTime> findScannedUntil(String jobName) {
+        return databaseClient.sql("SELECT scanned_until FROM reconciliation_checkpoint WHERE job_name = :jobName")
+            .bind("jobName", jobName)
+            .map(row -> row.get("scanned_until", LocalDateTime.class))
+            .one();
+    }
+
+    public Mono<Void> saveScannedUntil(String jobName, LocalDateTime scannedUntil) {
+        return databaseClient.sql(UPSERT)
+            .bind("jobName", jobName)
+            .bind("scannedUntil", scannedUntil)
+            .then();
+    }
+}
@@ -0,0 +1,181 @@
+package com.folautech.vital.repository;
+
+import com.folautech.vital.model.VitalReadingEntity;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.r2dbc.postgresql.api.PostgresqlConnection;
+import io.r2dbc.spi.Connection;
+import io.r2dbc.spi.Wrapped;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.nio.charset.StandardCharsets;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+
+/**
+ * Set-based writes against vital_readings that Spring Data's per-entity save cannot express.
+ */
+@Repository
+public class VitalBatchRepository {
+
+    private static final String INSERT_PREFIX =
+        "WITH inserted AS (INSERT INTO vital_readings (reading_id, patient_id, type, systolic, diastolic, hr, spo2, captured_at, created_at) VALUES ";
+
+    private static final String COLUMNS =
+        "reading_id, patient_id, type, systolic, diastolic, hr, spo2, captured_at, created_at";
+
+    // Session-local staging table, dropped automatically when the bulk transaction ends
+    private static final String CREATE_STAGING =
+        "CREATE TEMP TABLE vital_readings_staging (LIKE vital_readings INCLUDING DEFAULTS) ON COMMIT DROP";
+
+    private static final String COPY_STAGING =
+        "COPY vital_readings_staging (" + COLUMNS + ") FROM STDIN WITH (FORMAT csv)";
+
+    private static final String MERGE_STAGING =
+        "WITH inserted AS (INSERT INTO vital_readings (" + COLUMNS + ") "
+            + "SELECT DISTINCT ON (reading_id) " + COLUMNS + " FROM vital_readings_staging ORDER BY reading_id "
+            + "ON CONFLICT (reading_id) DO NOTHING RETURNING reading_id), ";
+
+    // Every newly inserted reading also gets a reading_outbox row in the same statement, so a reading
+    // can never be stored without being queued for evaluation. The row only becomes due for the relay
+    // after vital.outbox.delay-seconds, giving the inline forward time to acknowledge it first.
+    private static final String QUEUE_OUTBOX =
+        "queued AS (INSERT INTO reading_outbox (reading_id, next_attempt_at) "
+            + "SELECT reading_id, LOCALTIMESTAMP + %d * INTERVAL '1 second' FROM inserted) "
+            + "SELECT reading_id FROM inserted";
+
+    private static final int COPY_ROWS_PER_BUFFER = 1000;
+
+    private final DatabaseClient databaseClient;
+    private final String queueOutbox;
+
+    public VitalBatchRepository(DatabaseClient databaseClient,
+                                @Value("${vital.outbox.delay-seconds:30}") int outboxDelaySeconds) {
+        this.databaseClient = databaseClient;
+        this.queueOutbox = QUEUE_OUTBOX.formatted(outboxDelaySeconds);
+    }
+
+    /**
+     * Insert all entities with a single multi-row INSERT ... ON CONFLICT DO NOTHING statement.
+     * Readings whose reading_id is already stored are skipped atomically, so concurrent requests
+     * carrying the same reading cannot both insert it. New readings are queued in reading_outbox
+     * by the same statement. Any other constraint violation fails the
+     * whole statement and no row is written.
+     * @param entities readings to insert, callers are expected to chunk large batches
+     * @return Flux<String> reading IDs that were newly inserted
+     */
+    public Flux<String> insertIgnoringDuplicates(List<VitalReadingEntity> entities) {
+        if (entities.isEmpty()) {
+            return Flux.empty();
+        }
+
+        StringBuilder sql = new StringBuilder(INSERT_PREFIX);
+        for (int i = 0; i < entities.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:readingId").append(i)
+                .append(", :patientId").append(i)
+                .append(", :type").append(i)
+                .append(", :systolic").append(i)
+                .append(", :diastolic").append(i)
+                .append(", :hr").append(i)
+                .append(", :spo2").append(i)
+                .append(", :capturedAt").append(i)
+                .append(", :createdAt").append(i)
+                .append(")");
+        }
+        sql.append(" ON CONFLICT (reading_id) DO NOTHING RETURNING reading_id), ").append(queueOutbox);
+
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(sql.toString());
+        for (int i = 0; i < entities.size(); i++) {
+            VitalReadingEntity entity = entities.get(i);
+            spec = spec.bind("readingId" + i, entity.getReadingId())
+                .bind("patientId" + i, entity.getPatientId())
+                .bind("type" + i, entity.getType())
+                .bind("capturedAt" + i, entity.getCapturedAt())
+                .bind("createdAt" + i, entity.getCreatedAt());
+            spec = bindNullable(spec, "systolic" + i, entity.getSystolic());
+            spec = bindNullable(spec, "diastolic" + i, entity.getDiastolic());
+            spec = bindNullable(spec, "hr" + i, entity.getHr());
+            spec = bindNullable(spec, "spo2" + i, entity.getSpo2());
+        }
+
+        return spec.map(row -> row.get("reading_id", String.class)).all();
+    }
+
+    private DatabaseClient.GenericExecuteSpec bindNullable(DatabaseClient.GenericExecuteSpec spec, String name, Integer value) {
+        return value != null ? spec.bind(name, value) : spec.bindNull(name, Integer.class);
+    }
+
+    /**
+     * Bulk load entities with PostgreSQL COPY into a temporary staging table, then merge them into
+     * vital_readings with INSERT ... SELECT ... ON CONFLICT DO NOTHING so idempotency is still honored.
+     * Rows are encoded as CSV and streamed to the server as they are produced.
+     * Everything runs in one transaction on one connection: either the whole load is merged or nothing is.
+     * @param entities readings to load
+     * @return Flux<String> reading IDs that were newly inserted, emitted after the transaction commits
+     */
+    public Flux<String> copyIgnoringDuplicates(Flux<VitalReadingEntity> entities) {
+        return databaseClient.inConnectionMany(connection -> {
+            PostgresqlConnection postgresConnection = unwrapPostgres(connection);
+            return Mono.from(connection.beginTransaction())
+                .thenMany(Flux.from(connection.createStatement(CREATE_STAGING).execute())
+                    .flatMap(result -> result.getRowsUpdated()))
+                .then(postgresConnection.copyIn(COPY_STAGING, encodeCsv(entities)))
+                .thenMany(Flux.from(connection.createStatement(MERGE_STAGING + queueOutbox).execute())
+                    .flatMap(result -> result.map((row, metadata) -> row.get("reading_id", String.class))))
+                .collectList()
+                .flatMapMany(insertedIds -> Mono.from(connection.commitTransaction())
+                    .thenMany(Flux.fromIterable(insertedIds)))
+                .onErrorResume(error -> Mono.from(connection.rollbackTransaction())
+                    .then(Mono.error(error)));
+        });
+    }
+
+    private PostgresqlConnection unwrapPostgres(Connection connection) {
+        Object current = connection;
+        while (!(current instanceof PostgresqlConnection) && current instanceof Wrapped<?> wrapped) {
+            current = wrapped.unwrap();
+        }
+        if (current instanceof PostgresqlConnection postgresConnection) {
+            return postgresConnection;
+        }
+        throw new IllegalStateException("COPY requires a PostgreSQL connection, got " + connection.getClass().getName());
+    }
+
+    private Flux<ByteBuf> encodeCsv(Flux<VitalReadingEntity> entities) {
+        return entities
+            .buffer(COPY_ROWS_PER_BUFFER)
+            .map(rows -> {
+                StringBuilder csv = new StringBuilder(rows.size() * 128);
+                for (VitalReadingEntity entity : rows) {
+                    csv.append(quote(entity.getReadingId())).append(',')
+                        .append(quote(entity.getPatientId())).append(',')
+                        .append(quote(entity.getType())).append(',')
+                        .append(nullable(entity.getSystolic())).append(',')
+                        .append(nullable(entity.getDiastolic())).append(',')
+                        .append(nullable(entity.getHr())).append(',')
+                        .append(nullable(entity.getSpo2())).append(',')
+                        .append(entity.getCapturedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append(',')
+                        .append(entity.getCreatedAt().format(DateTimeFormatter.ISO_LOCAL_DATE_TIME)).append('\n');
+                }
+                ByteBuf buffer = ByteBufAllocator.DEFAULT.buffer(csv.length());
+                buffer.writeCharSequence(csv, StandardCharsets.UTF_8);
+                return buffer;
+            });
+    }
+
+    private String quote(String value) {
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    // An unquoted empty field is NULL in COPY csv format
+    private String nullable(Integer value) {
+        return value != null ? value.toString() : "";
+    }
+}
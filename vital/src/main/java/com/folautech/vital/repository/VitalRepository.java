@@ -7,6 +7,8 @@ import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.LocalDateTime;
+
 @Repository
 public interface VitalRepository extends R2dbcRepository<VitalReadingEntity, String> {
     
@@ -22,4 +24,22 @@ public interface VitalRepository extends R2dbcRepository<VitalReadingEntity, Str
     // Custom query to find recent readings for a patient
     @Query("SELECT * FROM vital_readings WHERE patient_id = :patientId ORDER BY captured_at DESC LIMIT :limit")
     Flux<VitalReadingEntity> findRecentReadingsByPatientId(String patientId, int limit);
-}
\ No newline at end of file
+    
+    // Keyset page of readings created up to windowEnd that were never acknowledged by the alert service
+    // and are not waiting in the outbox either
+    @Query("SELECT v.* FROM vital_readings v "
+        + "LEFT JOIN evaluation_acks a ON a.reading_id = v.reading_id "
+        + "LEFT JOIN reading_outbox o ON o.reading_id = v.reading_id "
+        + "WHERE (v.created_at, v.reading_id) > (:afterCreatedAt, :afterReadingId) AND v.created_at <= :windowEnd "
+        + "AND a.reading_id IS NULL AND o.reading_id IS NULL "
+        + "ORDER BY v.created_at, v.reading_id LIMIT :limit")
+    Flux<VitalReadingEntity> findUnevaluatedAfter(LocalDateTime afterCreatedAt, String afterReadingId, 
+                                                  LocalDateTime windowEnd, int limit);
+    
+    // The latest `limit` readings of each type captured before `before`, oldest first
+    @Query("SELECT reading_id, patient_id, type, systolic, diastolic, hr, spo2, captured_at, created_at FROM ("
+        + "SELECT v.*, ROW_NUMBER() OVER (PARTITION BY v.type ORDER BY v.captured_at DESC) AS recency "
+        + "FROM vital_readings v WHERE v.patient_id = :patientId AND v.captured_at < :before) recent "
+        + "WHERE recency <= :limit ORDER BY captured_at")
+    Flux<VitalReadingEntity> findRecentPerTypeBefore(String patientId, LocalDateTime before, int limit);
+}
@@ -0,0 +1,209 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.Alert;
+import com.folautech.vital.model.VitalReading;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Opt-in fan-in stage for /evaluate calls.
+ * Readings forwarded by concurrent requests are queued and sent to the alert service in one POST
+ * once {@code vital.alert-forward.coalesce.max-batch-size} readings are waiting or
+ * {@code vital.alert-forward.coalesce.max-latency-ms} has passed. The returned alerts are split
+ * back to each caller by readingId.
+ * On shutdown the queued readings are still sent, waiting at most {@link #SHUTDOWN_TIMEOUT}; any left after
+ * that are picked up by the outbox relay.
+ */
+@Component
+public class AlertForwardCoalescer {
+
+    private static final Logger logger = LoggerFactory.getLogger(AlertForwardCoalescer.class);
+    static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final WebClient webClient;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final Duration maxLatency;
+    private final Sinks.Many<PendingForward> queue;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final DistributionSummary forwardSize;
+    private final CountDownLatch drained = new CountDownLatch(1);
+    private Disposable forwarder;
+
+    @Value("${alert.service.url:http://localhost:8082}")
+    private String alertServiceUrl;
+
+    @Value("${alert.service.timeout.seconds:5}")
+    private int alertServiceTimeoutSeconds;
+
+    public AlertForwardCoalescer(WebClient.Builder webClientBuilder,
+                                 MeterRegistry meterRegistry,
+                                 @Value("${vital.alert-forward.coalesce.enabled:false}") boolean enabled,
+                                 @Value("${vital.alert-forward.coalesce.max-batch-size:500}") int maxBatchSize,
+                                 @Value("${vital.alert-forward.coalesce.max-latency-ms:10}") long maxLatencyMs,
+                                 @Value("${vital.alert-forward.coalesce.capacity:10000}") int capacity) {
+        this.webClient = webClientBuilder.build();
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatency = Duration.ofMillis(maxLatencyMs);
+        this.queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingForward>get(capacity).get());
+        this.forwardSize = DistributionSummary.builder("vital.alert_forward.batch.size")
+            .description("Readings sent per coalesced /evaluate call")
+            .register(meterRegistry);
+        meterRegistry.gauge("vital.alert_forward.queue.depth", queueDepth);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        logger.info("Alert forward coalescing enabled: send at {} readings or {} ms", maxBatchSize, maxLatency.toMillis());
+        forwarder = queue.asFlux()
+            .bufferTimeout(maxBatchSize, maxLatency, true)
+            .concatMap(this::forward, 1)
+            .doFinally(signal -> drained.countDown())
+            .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (forwarder == null) {
+            return;
+        }
+        queue.emitComplete(Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        try {
+            if (!drained.await(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Alert forward queue did not drain within {} ms, {} readings left to the outbox relay",
+                    SHUTDOWN_TIMEOUT.toMillis(), queueDepth.get());
+                forwarder.dispose();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            forwarder.dispose();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue readings for the next coalesced /evaluate call.
+     * A failed call is reported to every caller that shared it, so each can leave its readings to the outbox relay.
+     * @param readings newly stored readings
+     * @return Mono<List<Alert>> alerts raised for these readings, in reading order;
+     *         errors with RejectedExecutionException if the queue is full
+     */
+    public Mono<List<Alert>> evaluate(List<VitalReading> readings) {
+        return evaluate(readings, rejected -> Mono.error(new RejectedExecutionException("Alert forward queue is full")));
+    }
+
+    /**
+     * Queue readings for the next coalesced /evaluate call, handing only those the full queue rejects to
+     * {@code overflow}, so no reading is sent twice.
+     * @param readings newly stored readings
+     * @param overflow evaluates the rejected readings, e.g. with a direct /evaluate call
+     * @return Mono<List<Alert>> alerts raised for the queued readings in reading order, then for the rejected ones
+     */
+    public Mono<List<Alert>> evaluate(List<VitalReading> readings,
+                                      Function<List<VitalReading>, Mono<List<Alert>>> overflow) {
+        return Mono.defer(() -> {
+            List<Mono<List<Alert>>> queued = new ArrayList<>(readings.size());
+            List<VitalReading> rejected = new ArrayList<>();
+            for (VitalReading reading : readings) {
+                Mono<List<Alert>> alerts = enqueue(reading);
+                if (alerts != null) {
+                    queued.add(alerts);
+                } else {
+                    rejected.add(reading);
+                }
+            }
+            Flux<List<Alert>> results = Flux.concat(queued);
+            if (!rejected.isEmpty()) {
+                logger.warn("Alert forward queue is full, {} of {} readings go direct", rejected.size(), readings.size());
+                results = results.concatWith(Mono.defer(() -> overflow.apply(rejected)));
+            }
+            return results.concatMap(Flux::fromIterable).collectList();
+        });
+    }
+
+    /**
+     * @return the reading's alerts once its coalesced call completes, or null if the queue is full
+     */
+    private Mono<List<Alert>> enqueue(VitalReading reading) {
+        PendingForward pending = new PendingForward(reading, Sinks.one());
+        Sinks.EmitResult result;
+        do {
+            result = queue.tryEmitNext(pending);
+        } while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+        if (result.isFailure()) {
+            logger.warn("Alert forward queue rejected reading {}: {}", reading.getReadingId(), result);
+            return null;
+        }
+        queueDepth.incrementAndGet();
+        return pending.alerts().asMono();
+    }
+
+    private Mono<Void> forward(List<PendingForward> batch) {
+        queueDepth.addAndGet(-batch.size());
+        forwardSize.record(batch.size());
+        List<VitalReading> readings = batch.stream().map(PendingForward::reading).toList();
+
+        return webClient
+            .post()
+            .uri(alertServiceUrl + "/evaluate")
+            .accept(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
+            .bodyValue(readings)
+            .retrieve()
+            // Decoded one alert at a time as the alert service streams them
+            .bodyToFlux(Alert.class)
+            .collectList()
+            .timeout(Duration.ofSeconds(alertServiceTimeoutSeconds))
+            .doOnSuccess(alerts -> logger.info("Forwarded {} coalesced readings to alert service, received {} alerts",
+                readings.size(), alerts.size()))
+            .doOnNext(alerts -> complete(batch, alerts))
+            .onErrorResume(error -> {
+                logger.error("Coalesced alert service call for {} readings failed: {}", readings.size(), error.getMessage());
+                batch.forEach(pending -> pending.alerts().tryEmitError(error));
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private void complete(List<PendingForward> batch, List<Alert> alerts) {
+        Map<String, List<Alert>> alertsByReading = alerts.stream()
+            .filter(alert -> alert.getReadingId() != null)
+            .collect(Collectors.groupingBy(Alert::getReadingId));
+        for (PendingForward pending : batch) {
+            pending.alerts().tryEmitValue(alertsByReading.getOrDefault(pending.reading().getReadingId(), List.of()));
+        }
+    }
+
+    private record PendingForward(VitalReading reading, Sinks.One<List<Alert>> alerts) {
+    }
+}
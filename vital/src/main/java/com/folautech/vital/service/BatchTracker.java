@@ -0,0 +1,118 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.Alert;
+import com.folautech.vital.model.BatchState;
+import com.folautech.vital.model.BatchStatus;
+import com.folautech.vital.model.IngestResult;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * In-memory registry of batches submitted with ?async=true.
+ * Only the most recent {@code vital.async.max-tracked-batches} batches are kept; older tokens are
+ * forgotten oldest-first, so the tracker cannot grow without bound under sustained traffic.
+ */
+@Component
+public class BatchTracker {
+
+    private final Map<String, TrackedBatch> batches;
+
+    public BatchTracker(@Value("${vital.async.max-tracked-batches:10000}") int maxTrackedBatches) {
+        this.batches = new LinkedHashMap<>(16, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, TrackedBatch> eldest) {
+                return size() > maxTrackedBatches;
+            }
+        };
+    }
+
+    /**
+     * Register a batch whose readings are durable and whose alerts are still being evaluated.
+     * @param counts accepted, duplicate and rejected counts of the stored batch
+     * @return BatchStatus the initial status carrying the new batch token
+     */
+    public BatchStatus register(IngestResult counts) {
+        BatchStatus status = new BatchStatus(UUID.randomUUID().toString(), BatchState.EVALUATING,
+            counts.getAccepted(), counts.getDuplicates(), counts.getRejected(), null, LocalDateTime.now(), null);
+        synchronized (batches) {
+            batches.put(status.getBatchToken(), new TrackedBatch(status, Sinks.one()));
+        }
+        return status;
+    }
+
+    /**
+     * Record the alerts of a batch and notify anyone watching it.
+     * Does nothing if the token has already been evicted.
+     */
+    public void complete(String batchToken, List<Alert> alerts) {
+        finish(batchToken, BatchState.COMPLETED, alerts);
+    }
+
+    /**
+     * Record that the batch could not be evaluated inline and is left to the outbox relay, and notify anyone
+     * watching it. Its alerts are not reported here. Does nothing if the token has already been evicted.
+     */
+    public void pendingRelay(String batchToken) {
+        finish(batchToken, BatchState.PENDING_RELAY, null);
+    }
+
+    private void finish(String batchToken, BatchState state, List<Alert> alerts) {
+        TrackedBatch tracked;
+        synchronized (batches) {
+            tracked = batches.get(batchToken);
+            if (tracked == null) {
+                return;
+            }
+            BatchStatus pending = tracked.status();
+            BatchStatus finished = new BatchStatus(batchToken, state, pending.getAccepted(),
+                pending.getDuplicates(), pending.getRejected(), alerts, pending.getAcceptedAt(), LocalDateTime.now());
+            tracked = new TrackedBatch(finished, tracked.completion());
+            batches.put(batchToken, tracked);
+        }
+        tracked.completion().tryEmitValue(tracked.status());
+    }
+
+    /**
+     * @return Mono<BatchStatus> the current status, or empty if the token is unknown or evicted
+     */
+    public Mono<BatchStatus> find(String batchToken) {
+        return Mono.fromSupplier(() -> {
+            synchronized (batches) {
+                TrackedBatch tracked = batches.get(batchToken);
+                return tracked != null ? tracked.status() : null;
+            }
+        });
+    }
+
+    /**
+     * Follow a batch: emits its current status and, if evaluation is still running, the final status when it arrives.
+     * @return Flux<BatchStatus> status updates, empty if the token is unknown or evicted
+     */
+    public Flux<BatchStatus> watch(String batchToken) {
+        return Flux.defer(() -> {
+            TrackedBatch tracked;
+            synchronized (batches) {
+                tracked = batches.get(batchToken);
+            }
+            if (tracked == null) {
+                return Flux.empty();
+            }
+            if (tracked.status().getState() != BatchState.EVALUATING) {
+                return Flux.just(tracked.status());
+            }
+            return Flux.concat(Mono.just(tracked.status()), tracked.completion().asMono());
+        });
+    }
+
+    private record TrackedBatch(BatchStatus status, Sinks.One<BatchStatus> completion) {
+    }
+}
@@ -0,0 +1,185 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.ReconciliationReport;
+import com.folautech.vital.model.VitalReadingEntity;
+import com.folautech.vital.repository.OutboxRepository;
+import com.folautech.vital.repository.ReconciliationCheckpointRepository;
+import com.folautech.vital.repository.VitalRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Safety net behind the inline forward and the {@link OutboxRelay}: finds stored readings that were
+ * never acknowledged by the alert service and re-forwards them.
+ * Each run scans one created_at window, from the persisted checkpoint up to at most
+ * {@code vital.reconciler.max-window-minutes} later and never closer to now than
+ * {@code vital.reconciler.settle-seconds}, so readings still in flight are left alone. Gaps are read
+ * in keyset pages and re-forwarded with bounded concurrency; the checkpoint only advances when the
+ * whole window was delivered, and the acks of readings created up to it are then deleted in pages, as
+ * no later run looks at them again.
+ */
+@Component
+public class EvaluationReconciler {
+
+    private static final Logger logger = LoggerFactory.getLogger(EvaluationReconciler.class);
+
+    static final String JOB_NAME = "evaluation-acks";
+
+    private final VitalRepository vitalRepository;
+    private final OutboxRepository outboxRepository;
+    private final ReconciliationCheckpointRepository checkpointRepository;
+    private final VitalService vitalService;
+    private final Counter gapCounter;
+    private final Timer runTimer;
+
+    @Value("${vital.reconciler.enabled:true}")
+    private boolean enabled;
+
+    @Value("${vital.reconciler.page-size:1000}")
+    private int pageSize;
+
+    @Value("${vital.reconciler.concurrency:4}")
+    private int concurrency;
+
+    @Value("${vital.reconciler.settle-seconds:300}")
+    private long settleSeconds;
+
+    @Value("${vital.reconciler.initial-lookback-hours:24}")
+    private long initialLookbackHours;
+
+    @Value("${vital.reconciler.max-window-minutes:60}")
+    private long maxWindowMinutes;
+
+    public EvaluationReconciler(VitalRepository vitalRepository, OutboxRepository outboxRepository,
+                                ReconciliationCheckpointRepository checkpointRepository, VitalService vitalService,
+                                MeterRegistry meterRegistry) {
+        this.vitalRepository = vitalRepository;
+        this.outboxRepository = outboxRepository;
+        this.checkpointRepository = checkpointRepository;
+        this.vitalService = vitalService;
+        this.gapCounter = Counter.builder("vital.reconciler.gaps")
+            .description("Stored readings found without an evaluation acknowledgement")
+            .register(meterRegistry);
+        this.runTimer = Timer.builder("vital.reconciler.duration")
+            .description("Time taken by one reconciliation run")
+            .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${vital.reconciler.interval-ms:300000}",
+               initialDelayString = "${vital.reconciler.initial-delay-ms:60000}")
+    public Mono<ReconciliationReport> reconcile() {
+        if (!enabled) {
+            return Mono.empty();
+        }
+        return reconcile(LocalDateTime.now())
+            .onErrorResume(error -> {
+                logger.error("Reconciliation run failed: {}", error.getMessage());
+                return Mono.empty();
+            });
+    }
+
+    /**
+     * Scan the next window ending no later than {@code now} minus the settle delay.
+     * @return Mono<ReconciliationReport> what the run found and re-forwarded, empty if there was nothing to scan yet
+     */
+    Mono<ReconciliationReport> reconcile(LocalDateTime now) {
+        LocalDateTime horizon = now.minusSeconds(settleSeconds);
+        return checkpointRepository.findScannedUntil(JOB_NAME)
+            .defaultIfEmpty(horizon.minusHours(initialLookbackHours))
+            .flatMap(windowStart -> {
+                LocalDateTime windowEnd = windowStart.plusMinutes(maxWindowMinutes);
+                if (windowEnd.isAfter(horizon)) {
+                    windowEnd = horizon;
+                }
+                if (!windowEnd.isAfter(windowStart)) {
+                    return Mono.empty();
+                }
+                return reconcileWindow(windowStart, windowEnd);
+            });
+    }
+
+    private Mono<ReconciliationReport> reconcileWindow(LocalDateTime windowStart, LocalDateTime windowEnd) {
+        long started = System.nanoTime();
+        AtomicInteger gaps = new AtomicInteger();
+        AtomicInteger reforwarded = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        return pages(windowStart, windowEnd)
+            .doOnNext(page -> gaps.addAndGet(page.size()))
+            .flatMap(page -> reforward(page)
+                .doOnNext(reforwarded::addAndGet)
+                .onErrorResume(error -> {
+                    logger.warn("Reconciler could not re-forward {} readings: {}", page.size(), error.getMessage());
+                    failed.addAndGet(page.size());
+                    return Mono.empty();
+                }), Math.max(1, concurrency))
+            // Leave the checkpoint where it is if anything failed so the next run retries this window
+            .then(Mono.defer(() -> failed.get() == 0
+                ? checkpointRepository.saveScannedUntil(JOB_NAME, windowEnd).then(pruneAcks(windowEnd))
+                : Mono.empty()))
+            .then(Mono.fromSupplier(() -> {
+                Duration took = Duration.ofNanos(System.nanoTime() - started);
+                gapCounter.increment(gaps.get());
+                runTimer.record(took);
+                ReconciliationReport report = new ReconciliationReport(windowStart, windowEnd, gaps.get(),
+                    reforwarded.get(), failed.get(), took.toMillis());
+                logger.info("Reconciled readings created in ({}, {}]: {} gaps, {} re-forwarded, {} failed in {} ms",
+                    windowStart, windowEnd, report.getGaps(), report.getReforwarded(), report.getFailed(), report.getDurationMs());
+                return report;
+            }));
+    }
+
+    /**
+     * Delete the acks of readings created up to the saved checkpoint, a page at a time. A failure only leaves
+     * them for the next run.
+     */
+    private Mono<Void> pruneAcks(LocalDateTime scannedUntil) {
+        int limit = Math.max(1, pageSize);
+        return Mono.defer(() -> outboxRepository.deleteAcksCreatedUntil(scannedUntil, limit))
+            .expand(deleted -> deleted < limit ? Mono.empty() : outboxRepository.deleteAcksCreatedUntil(scannedUntil, limit))
+            .reduce(0L, Long::sum)
+            .doOnNext(deleted -> logger.debug("Deleted {} evaluation acks of readings created up to {}", deleted, scannedUntil))
+            .onErrorResume(error -> {
+                logger.warn("Could not delete evaluation acks up to {}: {}", scannedUntil, error.getMessage());
+                return Mono.empty();
+            })
+            .then();
+    }
+
+    private Flux<List<VitalReadingEntity>> pages(LocalDateTime windowStart, LocalDateTime windowEnd) {
+        return page(windowStart, "", windowEnd)
+            .expand(previous -> {
+                if (previous.size() < pageSize) {
+                    return Mono.empty();
+                }
+                VitalReadingEntity last = previous.get(previous.size() - 1);
+                return page(last.getCreatedAt(), last.getReadingId(), windowEnd);
+            });
+    }
+
+    private Mono<List<VitalReadingEntity>> page(LocalDateTime afterCreatedAt, String afterReadingId, LocalDateTime windowEnd) {
+        return vitalRepository.findUnevaluatedAfter(afterCreatedAt, afterReadingId, windowEnd, pageSize)
+            .collectList()
+            .filter(page -> !page.isEmpty());
+    }
+
+    private Mono<Integer> reforward(List<VitalReadingEntity> page) {
+        List<String> readingIds = page.stream().map(VitalReadingEntity::getReadingId).toList();
+        return vitalService.evaluateStoredReadings(page)
+            .then(Mono.defer(() -> outboxRepository.acknowledge(readingIds)))
+            .thenReturn(page.size());
+    }
+}
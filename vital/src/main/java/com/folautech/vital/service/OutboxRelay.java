@@ -0,0 +1,119 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.OutboxEntry;
+import com.folautech.vital.model.VitalReadingEntity;
+import com.folautech.vital.repository.OutboxRepository;
+import com.folautech.vital.repository.VitalRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Background relay that drains reading_outbox to the alert service.
+ * Entries are claimed in insertion order in batches of {@code vital.outbox.relay.batch-size} and sent
+ * with one /evaluate call per batch. Delivered readings are acknowledged; failed ones are retried with
+ * exponential backoff. Because claims are leases in the database, a restarted relay simply picks up
+ * whatever is due, giving at-least-once evaluation for every stored reading.
+ */
+@Component
+public class OutboxRelay {
+
+    private static final Logger logger = LoggerFactory.getLogger(OutboxRelay.class);
+
+    private final OutboxRepository outboxRepository;
+    private final VitalRepository vitalRepository;
+    private final VitalService vitalService;
+
+    @Value("${vital.outbox.relay.enabled:true}")
+    private boolean enabled;
+
+    @Value("${vital.outbox.relay.batch-size:1000}")
+    private int batchSize;
+
+    @Value("${vital.outbox.relay.lease-seconds:60}")
+    private int leaseSeconds;
+
+    @Value("${vital.outbox.relay.backoff.base-seconds:5}")
+    private int baseBackoffSeconds;
+
+    @Value("${vital.outbox.relay.backoff.max-seconds:600}")
+    private int maxBackoffSeconds;
+
+    public OutboxRelay(OutboxRepository outboxRepository, VitalRepository vitalRepository, VitalService vitalService) {
+        this.outboxRepository = outboxRepository;
+        this.vitalRepository = vitalRepository;
+        this.vitalService = vitalService;
+    }
+
+    /**
+     * Drain every due entry, one batch after another, stopping early when the alert service fails.
+     * @return Mono<Integer> number of readings delivered
+     */
+    @Scheduled(fixedDelayString = "${vital.outbox.relay.interval-ms:1000}")
+    public Mono<Integer> relay() {
+        if (!enabled) {
+            return Mono.just(0);
+        }
+        return relayBatch()
+            .expand(delivered -> delivered >= batchSize ? relayBatch() : Mono.empty())
+            .reduce(0, Integer::sum)
+            .doOnNext(delivered -> {
+                if (delivered > 0) {
+                    logger.info("Outbox relay delivered {} readings to alert service", delivered);
+                }
+            })
+            .onErrorResume(error -> {
+                logger.error("Outbox relay failed: {}", error.getMessage());
+                return Mono.just(0);
+            });
+    }
+
+    private Mono<Integer> relayBatch() {
+        return outboxRepository.claimBatch(batchSize, leaseSeconds)
+            .collectList()
+            .flatMap(entries -> {
+                if (entries.isEmpty()) {
+                    return Mono.just(0);
+                }
+                List<Long> ids = entries.stream().map(OutboxEntry::getId).toList();
+                List<String> readingIds = entries.stream().map(OutboxEntry::getReadingId).distinct().toList();
+
+                return vitalRepository.findAllById(readingIds)
+                    .collectMap(VitalReadingEntity::getReadingId, Function.identity())
+                    .flatMap(stored -> deliver(entries, ids, readingIds, stored));
+            });
+    }
+
+    private Mono<Integer> deliver(List<OutboxEntry> entries, List<Long> ids, List<String> readingIds,
+                                  Map<String, VitalReadingEntity> stored) {
+        // Keep outbox order; readings deleted since they were queued have nothing left to evaluate
+        List<VitalReadingEntity> readings = entries.stream()
+            .map(entry -> stored.get(entry.getReadingId()))
+            .filter(Objects::nonNull)
+            .distinct()
+            .toList();
+        if (readings.isEmpty()) {
+            return outboxRepository.delete(ids).thenReturn(entries.size());
+        }
+
+        // Acknowledging by readingId also clears entries whose reading has since been deleted
+        return vitalService.evaluateStoredReadings(readings)
+            .then(Mono.defer(() -> outboxRepository.acknowledge(readingIds)))
+            .thenReturn(entries.size())
+            .onErrorResume(error -> {
+                int attempts = entries.stream().mapToInt(OutboxEntry::getAttempts).max().orElse(1);
+                logger.warn("Outbox relay could not deliver {} readings (attempt {}), will retry: {}",
+                    readings.size(), attempts, error.getMessage());
+                return outboxRepository.reschedule(ids, String.valueOf(error.getMessage()), baseBackoffSeconds, maxBackoffSeconds)
+                    .thenReturn(0);
+            });
+    }
+}
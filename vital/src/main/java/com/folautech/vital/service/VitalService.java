@@ -2,29 +2,53 @@ package com.folautech.vital.service;
 
 import com.folautech.vital.model.*;
 import com.folautech.vital.model.Alert;
+import com.folautech.vital.repository.OutboxRepository;
+import com.folautech.vital.repository.VitalBatchRepository;
 import com.folautech.vital.repository.VitalRepository;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class VitalService {
     
     private static final Logger logger = LoggerFactory.getLogger(VitalService.class);
     
+    // Stand-in for "no upper bound" that still fits a PostgreSQL TIMESTAMP
+    private static final LocalDateTime NO_UPPER_BOUND = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+    
     private final VitalRepository vitalRepository;
+    private final VitalBatchRepository vitalBatchRepository;
+    private final WriteBehindBuffer writeBehindBuffer;
+    private final AlertForwardCoalescer alertForwardCoalescer;
+    private final BatchTracker batchTracker;
+    private final OutboxRepository outboxRepository;
     private final WebClient webClient;
+    // Background evaluations of async batches, cancelled on shutdown; their readings stay in the outbox
+    private final Disposable.Composite backgroundEvaluations = Disposables.composite();
     
     @Value("${alert.service.url:http://localhost:8082}")
     private String alertServiceUrl;
@@ -32,27 +56,104 @@ public class VitalService {
     @Value("${alert.service.timeout.seconds:5}")
     private int alertServiceTimeoutSeconds;
     
-    public VitalService(VitalRepository vitalRepository, WebClient.Builder webClientBuilder) {
+    @Value("${vital.batch.insert.chunk-size:500}")
+    private int insertChunkSize;
+    
+    @Value("${vital.bulk.forward.chunk-size:1000}")
+    private int bulkForwardChunkSize;
+    
+    @Value("${vital.stream.window-size:200}")
+    private int streamWindowSize;
+    
+    @Value("${vital.stream.window-timeout-ms:50}")
+    private long streamWindowTimeoutMs;
+    
+    public VitalService(VitalRepository vitalRepository, VitalBatchRepository vitalBatchRepository, 
+                        WriteBehindBuffer writeBehindBuffer, AlertForwardCoalescer alertForwardCoalescer,
+                        BatchTracker batchTracker, OutboxRepository outboxRepository,
+                        WebClient.Builder webClientBuilder) {
         this.vitalRepository = vitalRepository;
+        this.vitalBatchRepository = vitalBatchRepository;
+        this.writeBehindBuffer = writeBehindBuffer;
+        this.alertForwardCoalescer = alertForwardCoalescer;
+        this.batchTracker = batchTracker;
+        this.outboxRepository = outboxRepository;
         this.webClient = webClientBuilder.build();
     }
     
+    @PreDestroy
+    void stop() {
+        backgroundEvaluations.dispose();
+    }
+    
     /**
      * Process a list of vital readings (partial success allowed)
      * @param readings List of vital readings to process
      * @return Mono<List<Alert>> list of alerts created
      */
     public Mono<List<Alert>> processReadings(List<VitalReading> readings) {
+        return ingestReadings(readings).map(IngestResult::getAlerts);
+    }
+    
+    /**
+     * Process a list of vital readings (partial success allowed) and report what happened to them.
+     * Duplicates are resolved by the insert itself and reported as a count rather than as errors.
+     * @param readings List of vital readings to process
+     * @return Mono<IngestResult> alerts created plus accepted, duplicate and rejected counts
+     */
+    public Mono<IngestResult> ingestReadings(List<VitalReading> readings) {
         logger.info("Processing {} vital readings", readings.size());
         
+        List<VitalReading> uniqueReadings = dedupeByReadingId(readings);
+        
+        return validateAndSave(readings, uniqueReadings)
+            .flatMap(saved -> forwardToAlertServiceAndGetAlerts(saved.outcome().inserted())
+                .map(alerts -> toIngestResult(readings, uniqueReadings, saved.validated(), saved.outcome(), alerts)));
+    }
+    
+    /**
+     * Asynchronous variant of {@link #ingestReadings(List)}: completes as soon as the readings are durable
+     * and evaluates alerts in the background. Progress is available from {@link BatchTracker} under the
+     * returned token: COMPLETED with the alerts, or PENDING_RELAY if the alert service could not be reached
+     * and the outbox relay will evaluate the readings instead.
+     * @param readings List of vital readings to process
+     * @return Mono<BatchStatus> batch token plus accepted, duplicate and rejected counts
+     */
+    public Mono<BatchStatus> ingestReadingsAsync(List<VitalReading> readings) {
+        logger.info("Processing {} vital readings asynchronously", readings.size());
+        
+        List<VitalReading> uniqueReadings = dedupeByReadingId(readings);
+        
+        return validateAndSave(readings, uniqueReadings)
+            .map(saved -> new AsyncBatch(batchTracker.register(
+                    toIngestResult(readings, uniqueReadings, saved.validated(), saved.outcome(), List.of())),
+                saved.outcome().inserted()))
+            // Alert evaluation is off the response path
+            .doOnNext(batch -> evaluateInBackground(batch.status().getBatchToken(), batch.inserted()))
+            .map(AsyncBatch::status);
+    }
+    
+    private void evaluateInBackground(String batchToken, List<VitalReading> inserted) {
+        Disposable.Swap evaluation = Disposables.swap();
+        backgroundEvaluations.add(evaluation);
+        evaluation.update(evaluateAndAcknowledge(inserted)
+            .doFinally(signal -> backgroundEvaluations.remove(evaluation))
+            .subscribe(
+                alerts -> batchTracker.complete(batchToken, alerts),
+                error -> {
+                    logger.error("Alert service communication failed for batch {}, leaving {} readings to the outbox relay: {}", 
+                        batchToken, inserted.size(), error.getMessage());
+                    batchTracker.pendingRelay(batchToken);
+                }));
+    }
+    
+    private Mono<SavedReadings> validateAndSave(List<VitalReading> readings, List<VitalReading> uniqueReadings) {
         // Process all readings and collect successful ones
-        return Flux.fromIterable(readings)
+        return Flux.fromIterable(uniqueReadings)
             .flatMap(reading -> {
                 logger.debug("Processing reading: type={}, patientId={}, readingId={}", 
                     reading.getType(), reading.getPatientId(), reading.getReadingId());
                 return validateReading(reading)
-                    .then(checkIdempotency(reading.getReadingId()))
-                    .then(saveReading(reading))
                     .thenReturn(reading)
                     .onErrorResume(error -> {
                         logger.error("Error processing reading {}: {}", reading.getReadingId(), error.getMessage());
@@ -65,13 +166,9 @@ public class VitalService {
                     });
             })
             .collectList()
-            .flatMap(processedReadings -> {
-                // Forward all successfully processed readings to alert service as a batch
-                if (!processedReadings.isEmpty()) {
-                    return forwardToAlertServiceAndGetAlerts(processedReadings);
-                }
-                return Mono.just(List.of());
-            });
+            // Insert-or-skip in multi-row statements; only really new readings come back
+            .flatMap(validatedReadings -> saveNewReadings(validatedReadings, readings.size() == 1)
+                .map(outcome -> new SavedReadings(validatedReadings, outcome)));
     }
     
     /**
@@ -81,15 +178,31 @@ public class VitalService {
      */
     @Transactional
     public Mono<List<Alert>> processReadingsTransactional(List<VitalReading> readings) {
+        return ingestAllOrNothing(readings).map(IngestResult::getAlerts);
+    }
+    
+    /**
+     * Transactional variant of {@link #ingestReadings(List)}: any invalid reading or database error
+     * rolls back the whole batch, while readings that already exist are skipped and counted.
+     * @param readings List of vital readings to process
+     * @return Mono<IngestResult> alerts created plus accepted and duplicate counts
+     */
+    @Transactional
+    public Mono<IngestResult> ingestReadingsTransactional(List<VitalReading> readings) {
+        return ingestAllOrNothing(readings);
+    }
+    
+    private Mono<IngestResult> ingestAllOrNothing(List<VitalReading> readings) {
         logger.info("Processing {} vital readings transactionally (all-or-nothing)", readings.size());
         
+        List<VitalReading> uniqueReadings = dedupeByReadingId(readings);
+        
         // First validate ALL readings before saving any
-        return Flux.fromIterable(readings)
+        return Flux.fromIterable(uniqueReadings)
             .flatMap(reading -> {
                 logger.debug("Validating reading: type={}, patientId={}, readingId={}", 
                     reading.getType(), reading.getPatientId(), reading.getReadingId());
                 return validateReading(reading)
-                    .then(checkIdempotency(reading.getReadingId()))
                     .thenReturn(reading);
             })
             .collectList()
@@ -97,13 +210,16 @@ public class VitalService {
                 // If all validations pass, save all readings
                 logger.info("All {} readings validated, saving to database", validatedReadings.size());
                 return Flux.fromIterable(validatedReadings)
-                    .flatMap(this::saveReading)
-                    .then(Mono.just(validatedReadings));
-            })
-            .flatMap(savedReadings -> {
-                // Forward all readings to alert service
-                logger.info("All {} readings saved, forwarding to alert service", savedReadings.size());
-                return forwardToAlertServiceAndGetAlerts(savedReadings);
+                    .buffer(Math.max(1, insertChunkSize))
+                    .concatMap(this::insertChunk)
+                    .collectList()
+                    .map(inserted -> new PersistOutcome(inserted, Map.of()))
+                    .flatMap(outcome -> {
+                        // Forward only the readings that were really new to alert service
+                        logger.info("{} readings saved, forwarding to alert service", outcome.inserted().size());
+                        return forwardToAlertServiceAndGetAlerts(outcome.inserted())
+                            .map(alerts -> toIngestResult(readings, uniqueReadings, validatedReadings, outcome, alerts));
+                    });
             })
             .onErrorResume(error -> {
                 logger.error("Transaction failed, rolling back all changes: {}", error.getMessage());
@@ -112,16 +228,138 @@ public class VitalService {
             });
     }
     
-    public Mono<Void> processReading(VitalReading reading) {
-        // Validate the reading based on type
-        return validateReading(reading)
-            // Check for idempotency
-            .then(checkIdempotency(reading.getReadingId()))
-            // Convert to entity and save
-            .then(saveReading(reading))
-            // Forward to alert service asynchronously
-            .then(forwardToAlertService(reading))
-            .then();
+    /**
+     * Bulk ingest for backfills and gateway catch-up: valid readings are streamed into a staging
+     * table with PostgreSQL COPY and merged into vital_readings, skipping readings that already exist.
+     * Invalid readings are dropped and counted. Alert forwarding for the new rows happens after the
+     * merge commits, in chunks of {@code vital.bulk.forward.chunk-size}.
+     * @param readings List of vital readings to load
+     * @return Mono<IngestResult> alerts created plus accepted, duplicate and rejected counts
+     */
+    public Mono<IngestResult> bulkIngestReadings(List<VitalReading> readings) {
+        logger.info("Bulk loading {} vital readings", readings.size());
+        
+        List<VitalReading> uniqueReadings = dedupeByReadingId(readings);
+        Map<String, VitalReading> validReadings = new LinkedHashMap<>();
+        
+        return Flux.fromIterable(uniqueReadings)
+            .concatMap(reading -> validateReading(reading)
+                .then(Mono.fromCallable(() -> convertToEntity(reading)))
+                .doOnNext(entity -> validReadings.put(reading.getReadingId(), reading))
+                .onErrorResume(error -> {
+                    logger.error("Error processing reading {}: {}", reading.getReadingId(), error.getMessage());
+                    return Mono.empty();
+                }))
+            .collectList()
+            .flatMap(entities -> vitalBatchRepository.copyIgnoringDuplicates(Flux.fromIterable(entities))
+                .collect(Collectors.toSet()))
+            .flatMap(insertedIds -> {
+                List<VitalReading> inserted = validReadings.values().stream()
+                    .filter(reading -> insertedIds.contains(reading.getReadingId()))
+                    .toList();
+                logger.info("Bulk load stored {} new readings, forwarding to alert service in chunks of {}", 
+                    inserted.size(), bulkForwardChunkSize);
+                return Flux.fromIterable(inserted)
+                    .buffer(Math.max(1, bulkForwardChunkSize))
+                    .concatMap(this::forwardToAlertServiceAndGetAlerts)
+                    .flatMapIterable(alerts -> alerts)
+                    .collectList()
+                    .map(alerts -> toIngestResult(readings, uniqueReadings, List.copyOf(validReadings.values()), 
+                        new PersistOutcome(inserted, Map.of()), alerts));
+            });
+    }
+    
+    /**
+     * Streaming ingest: readings are consumed as they are decoded and processed in bounded windows
+     * of {@code vital.stream.window-size} readings (or whatever arrived within
+     * {@code vital.stream.window-timeout-ms}). Each window is validated, stored with one insert and
+     * forwarded with one /evaluate call before the next window is requested, so memory stays flat
+     * regardless of payload size.
+     * @param readings readings decoded from the request body
+     * @return Flux<ReadingResult> one result per reading, in arrival order
+     */
+    public Flux<ReadingResult> processReadingStream(Flux<VitalReading> readings) {
+        return readings
+            .bufferTimeout(Math.max(1, streamWindowSize), Duration.ofMillis(streamWindowTimeoutMs), true)
+            .concatMap(this::processWindow, 1);
+    }
+    
+    private Flux<ReadingResult> processWindow(List<VitalReading> window) {
+        logger.debug("Processing streamed window of {} readings", window.size());
+        // Repeats within a window are caught here, repeats across windows by the insert itself
+        Set<String> seenReadingIds = new HashSet<>();
+        Map<VitalReading, ReadingResult> earlyResults = new IdentityHashMap<>();
+        
+        return Flux.fromIterable(window)
+            .concatMap(reading -> validateReading(reading)
+                .then(Mono.defer(() -> {
+                    if (!seenReadingIds.add(reading.getReadingId())) {
+                        earlyResults.put(reading, ReadingResult.duplicate(reading.getReadingId(), 
+                            "readingId repeated in request"));
+                        return Mono.<VitalReading>empty();
+                    }
+                    return Mono.just(reading);
+                }))
+                .onErrorResume(error -> {
+                    logger.error("Error processing reading {}: {}", reading.getReadingId(), error.getMessage());
+                    earlyResults.put(reading, ReadingResult.rejected(reading.getReadingId(), describe(error)));
+                    return Mono.empty();
+                }))
+            .collectList()
+            .flatMap(validatedReadings -> saveNewReadings(validatedReadings, false))
+            .flatMap(outcome -> forwardToAlertServiceAndGetAlerts(outcome.inserted())
+                .map(alerts -> {
+                    Set<String> insertedIds = outcome.inserted().stream()
+                        .map(VitalReading::getReadingId)
+                        .collect(Collectors.toSet());
+                    Map<String, List<Alert>> alertsByReading = alerts.stream()
+                        .filter(alert -> alert.getReadingId() != null)
+                        .collect(Collectors.groupingBy(Alert::getReadingId));
+                    return window.stream()
+                        .map(reading -> {
+                            ReadingResult early = earlyResults.get(reading);
+                            if (early != null) {
+                                return early;
+                            }
+                            String readingId = reading.getReadingId();
+                            if (insertedIds.contains(readingId)) {
+                                return ReadingResult.accepted(readingId, alertsByReading.getOrDefault(readingId, List.of()));
+                            }
+                            String failure = outcome.failed().get(readingId);
+                            return failure != null 
+                                ? ReadingResult.rejected(readingId, failure)
+                                : ReadingResult.duplicate(readingId, "Reading already exists");
+                        })
+                        .toList();
+                }))
+            .flatMapIterable(results -> results);
+    }
+    
+    private String describe(Throwable error) {
+        if (error instanceof ResponseStatusException statusException && statusException.getReason() != null) {
+            return statusException.getReason();
+        }
+        return error.getMessage();
+    }
+    
+    private IngestResult toIngestResult(List<VitalReading> readings, List<VitalReading> uniqueReadings,
+                                        List<VitalReading> validatedReadings, PersistOutcome outcome, List<Alert> alerts) {
+        int accepted = outcome.inserted().size();
+        int duplicates = (readings.size() - uniqueReadings.size()) 
+            + (validatedReadings.size() - accepted - outcome.failed().size());
+        int rejected = (uniqueReadings.size() - validatedReadings.size()) + outcome.failed().size();
+        logger.info("Stored {} new readings, ignored {} duplicates, rejected {}", accepted, duplicates, rejected);
+        return new IngestResult(alerts, accepted, duplicates, rejected);
+    }
+    
+    /**
+     * Process a single vital reading through the same insert as batches, so it is queued in reading_outbox
+     * with the insert and a reading that already exists is counted as a duplicate rather than failing.
+     * @param reading vital reading to process; an invalid one fails with 400
+     * @return Mono<IngestResult> alerts created plus accepted, duplicate and rejected counts
+     */
+    public Mono<IngestResult> processReading(VitalReading reading) {
+        return ingestReadings(List.of(reading));
     }
     
     private Mono<Void> validateReading(VitalReading reading) {
@@ -185,23 +423,122 @@ public class VitalService {
         });
     }
     
-    private Mono<Void> checkIdempotency(String readingId) {
-        return vitalRepository.existsByReadingId(readingId)
-            .flatMap(exists -> {
-                if (exists) {
-                    logger.info("Reading with ID {} already exists, ignoring duplicate", readingId);
-                    return Mono.error(new RuntimeException("Reading already exists"));
-                }
-                return Mono.just(readingId);
-            })
-            .then();
+    /**
+     * Drop repeated readingIds within one request, keeping the first occurrence.
+     * Readings without an ID are kept so validation can reject them.
+     */
+    private List<VitalReading> dedupeByReadingId(List<VitalReading> readings) {
+        Set<String> seen = new HashSet<>();
+        List<VitalReading> unique = new ArrayList<>(readings.size());
+        for (VitalReading reading : readings) {
+            String readingId = reading.getReadingId();
+            if (readingId != null && !seen.add(readingId)) {
+                logger.info("Reading with ID {} appears more than once in the batch, ignoring duplicate", readingId);
+                continue;
+            }
+            unique.add(reading);
+        }
+        return unique;
+    }
+    
+    /**
+     * Save readings in chunks of {@code vital.batch.insert.chunk-size}, one multi-row
+     * INSERT ... ON CONFLICT DO NOTHING per chunk. A chunk that fails is retried row by row
+     * so only the offending readings are dropped.
+     * When {@code vital.write-behind.enabled} is set, rows are handed to the shared
+     * {@link WriteBehindBuffer} instead so concurrent requests are coalesced into one statement.
+     * @param readings validated readings to persist
+     * @param propagateErrors whether a failed row should fail the whole call (single reading requests)
+     * @return Mono<PersistOutcome> readings that were newly stored and the number of rows that failed
+     */
+    private Mono<PersistOutcome> saveNewReadings(List<VitalReading> readings, boolean propagateErrors) {
+        if (writeBehindBuffer.isEnabled()) {
+            return saveThroughBuffer(readings, propagateErrors);
+        }
+        return Flux.fromIterable(readings)
+            .buffer(Math.max(1, insertChunkSize))
+            .concatMap(chunk -> saveChunk(chunk, propagateErrors))
+            .reduce(PersistOutcome.EMPTY, PersistOutcome::merge);
+    }
+    
+    private Mono<PersistOutcome> saveThroughBuffer(List<VitalReading> readings, boolean propagateErrors) {
+        // Enqueue every reading at once so they share a flush, but keep the results in submission order
+        return Flux.fromIterable(readings)
+            .flatMapSequential(reading -> Mono.fromCallable(() -> convertToEntity(reading))
+                .flatMap(writeBehindBuffer::write)
+                .map(inserted -> inserted
+                    ? new PersistOutcome(List.of(reading), Map.of())
+                    : PersistOutcome.EMPTY)
+                .onErrorResume(error -> {
+                    logger.error("Error saving reading {}: {}", reading.getReadingId(), error.getMessage());
+                    return propagateErrors
+                        ? Mono.error(error)
+                        : Mono.just(new PersistOutcome(List.of(), Map.of(reading.getReadingId(), String.valueOf(error.getMessage()))));
+                }), Math.max(1, readings.size()))
+            .reduce(PersistOutcome.EMPTY, PersistOutcome::merge);
+    }
+    
+    private Mono<PersistOutcome> saveChunk(List<VitalReading> chunk, boolean propagateErrors) {
+        return insertChunk(chunk)
+            .collectList()
+            .map(inserted -> new PersistOutcome(inserted, Map.of()))
+            .onErrorResume(error -> {
+                logger.warn("Batch insert of {} readings failed, retrying individually: {}", 
+                    chunk.size(), error.getMessage());
+                return Flux.fromIterable(chunk)
+                    .concatMap(reading -> insertChunk(List.of(reading))
+                        .collectList()
+                        .map(inserted -> new PersistOutcome(inserted, Map.of()))
+                        .onErrorResume(rowError -> {
+                            logger.error("Error saving reading {}: {}", reading.getReadingId(), rowError.getMessage());
+                            return propagateErrors 
+                                ? Mono.error(rowError) 
+                                : Mono.just(new PersistOutcome(List.of(), Map.of(reading.getReadingId(), String.valueOf(rowError.getMessage()))));
+                        }))
+                    .reduce(PersistOutcome.EMPTY, PersistOutcome::merge);
+            });
+    }
+    
+    /**
+     * Insert one chunk with a single statement and emit the readings that were really new,
+     * in the order they were submitted.
+     */
+    private Flux<VitalReading> insertChunk(List<VitalReading> chunk) {
+        return Mono.fromCallable(() -> chunk.stream().map(this::convertToEntity).toList())
+            .flatMap(entities -> vitalBatchRepository.insertIgnoringDuplicates(entities)
+                .collect(Collectors.toSet()))
+            .flatMapMany(insertedIds -> {
+                logger.info("Saved {} of {} vital readings in one batch insert", insertedIds.size(), chunk.size());
+                return Flux.fromIterable(chunk)
+                    .filter(reading -> insertedIds.contains(reading.getReadingId()));
+            });
+    }
+    
+    /**
+     * An async batch as registered, and the readings it stored that still need evaluating.
+     */
+    private record AsyncBatch(BatchStatus status, List<VitalReading> inserted) {
+    }
+    
+    /**
+     * Readings that passed validation and what the save did with them.
+     */
+    private record SavedReadings(List<VitalReading> validated, PersistOutcome outcome) {
     }
     
-    private Mono<VitalReadingEntity> saveReading(VitalReading reading) {
-        VitalReadingEntity entity = convertToEntity(reading);
-        return vitalRepository.save(entity)
-            .doOnSuccess(saved -> logger.info("Saved vital reading: {}", saved.getReadingId()))
-            .doOnError(error -> logger.error("Error saving vital reading: {}", error.getMessage()));
+    /**
+     * Readings newly stored by a save, plus the error message for each reading the database rejected.
+     */
+    private record PersistOutcome(List<VitalReading> inserted, Map<String, String> failed) {
+        static final PersistOutcome EMPTY = new PersistOutcome(List.of(), Map.of());
+        
+        PersistOutcome merge(PersistOutcome other) {
+            List<VitalReading> mergedInserted = new ArrayList<>(inserted);
+            mergedInserted.addAll(other.inserted());
+            Map<String, String> mergedFailed = new LinkedHashMap<>(failed);
+            mergedFailed.putAll(other.failed());
+            return new PersistOutcome(mergedInserted, mergedFailed);
+        }
     }
     
     private VitalReadingEntity convertToEntity(VitalReading reading) {
@@ -239,69 +576,71 @@ public class VitalService {
         }
     }
     
-    private Mono<Void> forwardToAlertService(VitalReading reading) {
-        // For single reading, wrap in a list
-        return forwardToAlertService(List.of(reading));
+    private Mono<List<Alert>> forwardToAlertServiceAndGetAlerts(List<VitalReading> readings) {
+        return evaluateAndAcknowledge(readings)
+            .onErrorResume(error -> {
+                // Log but don't fail the main request; the outbox relay retries these readings
+                logger.error("Alert service communication failed, leaving {} readings to the outbox relay: {}", 
+                    readings.size(), error.getMessage());
+                return Mono.just(List.of());
+            });
     }
     
-    private Mono<Void> forwardToAlertService(List<VitalReading> readings) {
+    /**
+     * Evaluate newly stored readings and acknowledge their outbox rows.
+     * @return Mono<List<Alert>> alerts created; errors if the alert service could not be reached
+     */
+    private Mono<List<Alert>> evaluateAndAcknowledge(List<VitalReading> readings) {
         if (readings.isEmpty()) {
-            return Mono.empty();
+            return Mono.just(List.of());
         }
         
-        String readingIds = readings.stream()
-            .map(VitalReading::getReadingId)
-            .filter(id -> id != null)
-            .reduce((a, b) -> a + ", " + b)
-            .orElse("");
-            
-        return webClient
-            .post()
-            .uri(alertServiceUrl + "/evaluate")
-            .bodyValue(readings)  // Send as list
-            .retrieve()
-            .toBodilessEntity()
+        Mono<List<Alert>> evaluation = alertForwardCoalescer.isEnabled()
+            // Share one /evaluate call with concurrent requests; readings the full queue rejects go direct
+            ? alertForwardCoalescer.evaluate(readings, this::requestAlerts)
+            : requestAlerts(readings);
+        
+        List<String> readingIds = readings.stream().map(VitalReading::getReadingId).toList();
+        return evaluation
+            // Evaluated inline, so the relay has nothing left to do for these readings
+            .flatMap(alerts -> outboxRepository.acknowledge(readingIds).thenReturn(alerts));
+    }
+    
+    /**
+     * Evaluate readings that are already stored, on behalf of the {@link OutboxRelay}.
+     * Unlike the ingest paths, failures are propagated so the relay can retry.
+     * @param entities stored readings, in the order they should be evaluated
+     * @return Mono<List<Alert>> alerts created by the alert service
+     */
+    Mono<List<Alert>> evaluateStoredReadings(List<VitalReadingEntity> entities) {
+        return requestAlerts(entities.stream().map(this::convertEntityToReading).toList());
+    }
+    
+    private Mono<List<Alert>> requestAlerts(List<VitalReading> readings) {
+        return streamAlerts(readings)
+            .collectList()
             .timeout(java.time.Duration.ofSeconds(alertServiceTimeoutSeconds))
-            .doOnSuccess(response -> logger.info("Successfully forwarded {} readings to alert service: {}", 
-                readings.size(), readingIds))
+            .doOnSuccess(alerts -> logger.info("Successfully forwarded {} readings to alert service, received {} alerts", 
+                readings.size(), alerts.size()))
             .doOnError(error -> logger.error("Failed to forward {} readings to alert service: {}", 
-                readings.size(), error.getMessage()))
-            .onErrorResume(error -> {
-                // Log but don't fail the main request
-                logger.error("Alert service communication failed, but continuing: {}", error.getMessage());
-                return Mono.empty();
-            })
-            .then();
+                readings.size(), error.getMessage()));
     }
     
-    private Mono<List<Alert>> forwardToAlertServiceAndGetAlerts(List<VitalReading> readings) {
-        if (readings.isEmpty()) {
-            return Mono.just(List.of());
-        }
-        
-        String readingIds = readings.stream()
-            .map(VitalReading::getReadingId)
-            .filter(id -> id != null)
-            .reduce((a, b) -> a + ", " + b)
-            .orElse("");
-            
+    /**
+     * POST readings to /evaluate and decode the created alerts one by one as they arrive.
+     * The alert service streams them as NDJSON, each as soon as it is saved; an alert service
+     * without the streaming endpoint answers with a JSON array, which is decoded element by element as well.
+     */
+    private Flux<Alert> streamAlerts(List<VitalReading> readings) {
         return webClient
             .post()
             .uri(alertServiceUrl + "/evaluate")
+            .accept(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON)
             .bodyValue(readings)  // Send as list
             .retrieve()
-            .bodyToMono(Alert[].class)
-            .map(alerts -> List.of(alerts))
-            .timeout(java.time.Duration.ofSeconds(alertServiceTimeoutSeconds))
-            .doOnSuccess(alerts -> logger.info("Successfully forwarded {} readings to alert service, received {} alerts", 
-                readings.size(), alerts.size()))
-            .doOnError(error -> logger.error("Failed to forward {} readings to alert service: {}", 
-                readings.size(), error.getMessage()))
-            .onErrorResume(error -> {
-                // Log but don't fail the main request
-                logger.error("Alert service communication failed, but continuing: {}", error.getMessage());
-                return Mono.just(List.of());
-            });
+            .bodyToFlux(Alert.class)
+            .doOnNext(alert -> logger.debug("Received {} alert {} for reading {}", 
+                alert.getAlertType(), alert.getAlertId(), alert.getReadingId()));
     }
     
     public Mono<Void> clearAllData() {
@@ -318,6 +657,18 @@ public class VitalService {
             .doOnError(error -> logger.error("Error retrieving vital readings: {}", error.getMessage()));
     }
     
+    /**
+     * Recent history of one patient, used by the alert service to rebuild its per-patient trend windows.
+     * @param before only readings captured strictly before this instant, or null for no upper bound
+     * @param perTypeLimit maximum number of readings per vital type
+     * @return Flux<VitalReading> the latest readings of each type, oldest first
+     */
+    public Flux<VitalReading> getRecentReadings(String patientId, LocalDateTime before, int perTypeLimit) {
+        return vitalRepository.findRecentPerTypeBefore(patientId, before != null ? before : NO_UPPER_BOUND, perTypeLimit)
+            .map(this::convertEntityToReading)
+            .doOnError(error -> logger.error("Error retrieving recent readings for patient {}: {}", patientId, error.getMessage()));
+    }
+    
     private VitalReading convertEntityToReading(VitalReadingEntity entity) {
         String capturedAt = entity.getCapturedAt().format(DateTimeFormatter.ISO_DATE_TIME);
         
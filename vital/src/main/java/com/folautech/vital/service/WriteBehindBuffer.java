@@ -0,0 +1,175 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.VitalReadingEntity;
+import com.folautech.vital.repository.VitalBatchRepository;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Opt-in write-behind stage for vital_readings inserts.
+ * Readings from all in-flight requests are queued into one bounded buffer and flushed with a single
+ * INSERT ... ON CONFLICT DO NOTHING when {@code vital.write-behind.max-batch-size} rows are waiting
+ * or {@code vital.write-behind.max-latency-ms} has passed, whichever comes first.
+ * Each caller's Mono completes once its row is durable: true if it was newly stored, false if it already existed.
+ * On shutdown the remaining rows are flushed before the bean is destroyed, waiting at most {@link #SHUTDOWN_TIMEOUT}.
+ */
+@Component
+public class WriteBehindBuffer {
+
+    private static final Logger logger = LoggerFactory.getLogger(WriteBehindBuffer.class);
+    static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private final VitalBatchRepository vitalBatchRepository;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final Duration maxLatency;
+    private final Sinks.Many<PendingWrite> queue;
+    private final AtomicInteger queueDepth = new AtomicInteger();
+    private final DistributionSummary flushSize;
+    private final Timer flushLatency;
+    private final Timer writeLatency;
+    private final CountDownLatch drained = new CountDownLatch(1);
+    private Disposable flusher;
+
+    public WriteBehindBuffer(VitalBatchRepository vitalBatchRepository,
+                             MeterRegistry meterRegistry,
+                             @Value("${vital.write-behind.enabled:false}") boolean enabled,
+                             @Value("${vital.write-behind.max-batch-size:500}") int maxBatchSize,
+                             @Value("${vital.write-behind.max-latency-ms:20}") long maxLatencyMs,
+                             @Value("${vital.write-behind.capacity:10000}") int capacity) {
+        this.vitalBatchRepository = vitalBatchRepository;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.maxLatency = Duration.ofMillis(maxLatencyMs);
+        this.queue = Sinks.many().unicast().onBackpressureBuffer(Queues.<PendingWrite>get(capacity).get());
+        this.flushSize = DistributionSummary.builder("vital.write_behind.flush.size")
+            .description("Rows written per write-behind flush")
+            .register(meterRegistry);
+        this.flushLatency = Timer.builder("vital.write_behind.flush.latency")
+            .description("Time spent writing one write-behind flush")
+            .register(meterRegistry);
+        this.writeLatency = Timer.builder("vital.write_behind.write.latency")
+            .description("Time from enqueue until a reading is durable")
+            .register(meterRegistry);
+        meterRegistry.gauge("vital.write_behind.queue.depth", queueDepth);
+    }
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        logger.info("Write-behind buffer enabled: flush at {} rows or {} ms", maxBatchSize, maxLatency.toMillis());
+        flusher = queue.asFlux()
+            .bufferTimeout(maxBatchSize, maxLatency, true)
+            .concatMap(this::flush, 1)
+            .doFinally(signal -> drained.countDown())
+            .subscribe();
+    }
+
+    @PreDestroy
+    void stop() {
+        if (flusher == null) {
+            return;
+        }
+        // Completing the queue flushes whatever is still buffered; wait for that flush before the connection pool closes
+        queue.emitComplete(Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+        try {
+            if (!drained.await(SHUTDOWN_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)) {
+                logger.warn("Write-behind buffer did not flush within {} ms, {} readings still queued",
+                    SHUTDOWN_TIMEOUT.toMillis(), queueDepth.get());
+                flusher.dispose();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            flusher.dispose();
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Queue a reading for the next flush.
+     * @param entity reading to persist
+     * @return Mono<Boolean> true when newly stored, false when the reading already existed; errors if the row was rejected
+     */
+    public Mono<Boolean> write(VitalReadingEntity entity) {
+        return Mono.defer(() -> {
+            PendingWrite pending = new PendingWrite(entity, Sinks.one(), System.nanoTime());
+            Sinks.EmitResult result;
+            do {
+                result = queue.tryEmitNext(pending);
+            } while (result == Sinks.EmitResult.FAIL_NON_SERIALIZED);
+            if (result.isFailure()) {
+                logger.warn("Write-behind buffer rejected reading {}: {}", entity.getReadingId(), result);
+                return Mono.error(new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Write buffer is full"));
+            }
+            queueDepth.incrementAndGet();
+            return pending.result().asMono();
+        });
+    }
+
+    private Mono<Void> flush(List<PendingWrite> batch) {
+        queueDepth.addAndGet(-batch.size());
+        flushSize.record(batch.size());
+        long start = System.nanoTime();
+
+        return vitalBatchRepository.insertIgnoringDuplicates(batch.stream().map(PendingWrite::entity).toList())
+            .collect(Collectors.toSet())
+            .doOnNext(insertedIds -> complete(batch, insertedIds))
+            .onErrorResume(error -> {
+                logger.warn("Write-behind flush of {} rows failed, retrying individually: {}", batch.size(), error.getMessage());
+                return Flux.fromIterable(batch)
+                    .concatMap(pending -> vitalBatchRepository.insertIgnoringDuplicates(List.of(pending.entity()))
+                        .collect(Collectors.toSet())
+                        .doOnNext(insertedIds -> complete(List.of(pending), insertedIds))
+                        .onErrorResume(rowError -> {
+                            pending.result().tryEmitError(rowError);
+                            return Mono.empty();
+                        }))
+                    .then(Mono.empty());
+            })
+            .doFinally(signal -> flushLatency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+            .then();
+    }
+
+    private void complete(List<PendingWrite> batch, Set<String> insertedIds) {
+        // The same readingId can be queued by two requests; only the first one stored it
+        Set<String> claimed = new HashSet<>();
+        long now = System.nanoTime();
+        for (PendingWrite pending : batch) {
+            String readingId = pending.entity().getReadingId();
+            boolean inserted = insertedIds.contains(readingId) && claimed.add(readingId);
+            writeLatency.record(now - pending.enqueuedAt(), TimeUnit.NANOSECONDS);
+            pending.result().tryEmitValue(inserted);
+        }
+    }
+
+    private record PendingWrite(VitalReadingEntity entity, Sinks.One<Boolean> result, long enqueuedAt) {
+    }
+}
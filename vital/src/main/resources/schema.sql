@@ -1,4 +1,7 @@
 -- Drop table if exists for clean slate (comment out in production)
+DROP TABLE IF EXISTS reconciliation_checkpoint;
+DROP TABLE IF EXISTS evaluation_acks;
+DROP TABLE IF EXISTS reading_outbox;
 DROP TABLE IF EXISTS vital_readings;
 
 -- Create vital_readings table
@@ -17,4 +20,34 @@ CREATE TABLE IF NOT EXISTS vital_readings (
 
 -- Create indexes for better query performance
 CREATE INDEX IF NOT EXISTS idx_vital_patient_id ON vital_readings(patient_id);
-CREATE INDEX IF NOT EXISTS idx_vital_captured_at ON vital_readings(captured_at DESC);
\ No newline at end of file
+CREATE INDEX IF NOT EXISTS idx_vital_captured_at ON vital_readings(captured_at DESC);
+CREATE INDEX IF NOT EXISTS idx_vital_created_at ON vital_readings(created_at, reading_id);
+-- Serves the per-type recent history the alert service rebuilds its trend windows from
+CREATE INDEX IF NOT EXISTS idx_vital_patient_type_captured ON vital_readings(patient_id, type, captured_at DESC);
+
+-- Readings stored but not yet confirmed as evaluated by the alert service.
+-- Rows are written by the same statement that inserts the reading and deleted once /evaluate succeeds.
+CREATE TABLE IF NOT EXISTS reading_outbox (
+    id BIGSERIAL PRIMARY KEY,
+    reading_id VARCHAR(50) NOT NULL,
+    attempts INTEGER NOT NULL DEFAULT 0,
+    next_attempt_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    last_error TEXT,
+    created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+CREATE INDEX IF NOT EXISTS idx_outbox_next_attempt ON reading_outbox(next_attempt_at, id);
+CREATE INDEX IF NOT EXISTS idx_outbox_reading_id ON reading_outbox(reading_id);
+
+-- Readings the alert service has confirmed as evaluated, written when an /evaluate call succeeds
+CREATE TABLE IF NOT EXISTS evaluation_acks (
+    reading_id VARCHAR(50) PRIMARY KEY,
+    evaluated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
+
+-- How far each reconciliation job has scanned vital_readings.created_at
+CREATE TABLE IF NOT EXISTS reconciliation_checkpoint (
+    job_name VARCHAR(50) PRIMARY KEY,
+    scanned_until TIMESTAMP NOT NULL,
+    updated_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP
+);
@@ -1,6 +1,7 @@
 package com.folautech.vital.controller;
 
 import com.folautech.vital.model.*;
+import com.folautech.vital.service.BatchTracker;
 import com.folautech.vital.service.VitalService;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -12,14 +13,19 @@ import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.Mockito.*;
 
 @WebFluxTest(VitalController.class)
@@ -32,9 +38,12 @@ public class VitalControllerTest {
     @MockBean
     private VitalService vitalService;
 
+    @MockBean
+    private BatchTracker batchTracker;
+
     @BeforeEach
     void setUp() {
-        reset(vitalService);
+        reset(vitalService, batchTracker);
     }
 
     @Test
@@ -42,8 +51,8 @@ public class VitalControllerTest {
     void testValidBPReading() {
         // Given - BP reading within normal range, no alerts
         List<Alert> emptyAlerts = new ArrayList<>();
-        when(vitalService.processReadings(anyList()))
-            .thenReturn(Mono.just(emptyAlerts));
+        when(vitalService.ingestReadings(anyList()))
+            .thenReturn(Mono.just(new IngestResult(emptyAlerts, 1, 0, 0)));
 
         String requestBody = """
             [{
@@ -68,7 +77,7 @@ public class VitalControllerTest {
             .jsonPath("$").isArray()
             .jsonPath("$.length()").isEqualTo(0);
 
-        verify(vitalService, times(1)).processReadings(anyList());
+        verify(vitalService, times(1)).ingestReadings(anyList());
     }
 
     @Test
@@ -76,8 +85,8 @@ public class VitalControllerTest {
     void testValidHRReading() {
         // Given - HR reading within normal range, no alerts
         List<Alert> emptyAlerts = new ArrayList<>();
-        when(vitalService.processReadings(anyList()))
-            .thenReturn(Mono.just(emptyAlerts));
+        when(vitalService.ingestReadings(anyList()))
+            .thenReturn(Mono.just(new IngestResult(emptyAlerts, 1, 0, 0)));
 
         String requestBody = """
             [{
@@ -101,7 +110,7 @@ public class VitalControllerTest {
             .jsonPath("$").isArray()
             .jsonPath("$.length()").isEqualTo(0);
 
-        verify(vitalService, times(1)).processReadings(anyList());
+        verify(vitalService, times(1)).ingestReadings(anyList());
     }
 
     @Test
@@ -109,8 +118,8 @@ public class VitalControllerTest {
     void testValidSPO2Reading() {
         // Given - SPO2 reading within normal range, no alerts
         List<Alert> emptyAlerts = new ArrayList<>();
-        when(vitalService.processReadings(anyList()))
-            .thenReturn(Mono.just(emptyAlerts));
+        when(vitalService.ingestReadings(anyList()))
+            .thenReturn(Mono.just(new IngestResult(emptyAlerts, 1, 0, 0)));
 
         String requestBody = """
             [{
@@ -134,15 +143,15 @@ public class VitalControllerTest {
             .jsonPath("$").isArray()
             .jsonPath("$.length()").isEqualTo(0);
 
-        verify(vitalService, times(1)).processReadings(anyList());
+        verify(vitalService, times(1)).ingestReadings(anyList());
     }
 
     @Test
     @DisplayName("Should handle duplicate readings gracefully")
     void testIdempotentReading() {
-        // Given - first call succeeds, second call indicates duplicate
-        when(vitalService.processReadings(anyList()))
-            .thenReturn(Mono.error(new RuntimeException("Reading already exists")));
+        // Given - the reading is already stored, so it is counted as a duplicate
+        when(vitalService.ingestReadings(anyList()))
+            .thenReturn(Mono.just(new IngestResult(List.of(), 0, 1, 0)));
 
         String requestBody = """
             [{
@@ -155,7 +164,7 @@ public class VitalControllerTest {
             }]
             """;
 
-        // When & Then - Should return 200 OK with empty alerts for duplicate (idempotent response)
+        // When & Then - Should return 200 OK with empty alerts and the duplicate count (idempotent response)
         webTestClient
             .post()
             .uri("/readings")
@@ -163,6 +172,9 @@ public class VitalControllerTest {
             .bodyValue(requestBody)
             .exchange()
             .expectStatus().isOk()
+            .expectHeader().valueEquals(VitalController.ACCEPTED_HEADER, "0")
+            .expectHeader().valueEquals(VitalController.DUPLICATES_HEADER, "1")
+            .expectHeader().valueEquals(VitalController.REJECTED_HEADER, "0")
             .expectBody()
             .jsonPath("$").isArray()
             .jsonPath("$.length()").isEqualTo(0);
@@ -172,7 +184,7 @@ public class VitalControllerTest {
     @DisplayName("Should return 400 for validation error")
     void testValidationError() {
         // Given
-        when(vitalService.processReadings(anyList()))
+        when(vitalService.ingestReadings(anyList()))
             .thenReturn(Mono.error(new ResponseStatusException(
                 org.springframework.http.HttpStatus.BAD_REQUEST, 
                 "Validation failed")));
@@ -201,7 +213,7 @@ public class VitalControllerTest {
     @DisplayName("Should handle missing required fields")
     void testMissingRequiredFields() {
         // Given
-        when(vitalService.processReadings(anyList()))
+        when(vitalService.ingestReadings(anyList()))
             .thenReturn(Mono.error(new ResponseStatusException(
                 org.springframework.http.HttpStatus.BAD_REQUEST, 
                 "readingId is required")));
@@ -257,8 +269,8 @@ public class VitalControllerTest {
         alerts.add(createAlert("33333333-3333-3333-3333-333333333333", "HR", "LOW", "Heart Rate < 50", "45"));
         alerts.add(createAlert("44444444-4444-4444-4444-444444444444", "SPO2", "LOW", "SpO2 < 92", "90"));
         
-        when(vitalService.processReadings(anyList()))
-            .thenReturn(Mono.just(alerts));
+        when(vitalService.ingestReadings(anyList()))
+            .thenReturn(Mono.just(new IngestResult(alerts, 5, 0, 0)));
 
         String batchReadings = """
             [
@@ -326,7 +338,7 @@ public class VitalControllerTest {
             .jsonPath("$[3].readingType").isEqualTo("SPO2")
             .jsonPath("$[3].alertType").isEqualTo("LOW");
 
-        verify(vitalService, times(1)).processReadings(anyList());
+        verify(vitalService, times(1)).ingestReadings(anyList());
     }
     
     // Helper method to create test alerts
@@ -342,4 +354,145 @@ public class VitalControllerTest {
         alert.setTriggeredAt(LocalDateTime.now());
         return alert;
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("Should bulk load readings and return counts")
+    void testBulkLoad() {
+        when(vitalService.bulkIngestReadings(anyList()))
+            .thenReturn(Mono.just(new IngestResult(List.of(), 2, 1, 0)));
+
+        String requestBody = """
+            [
+                { "readingId":"bulk-1", "patientId":"p-001", "type":"HR", "hr":75, "capturedAt":"2025-08-01T12:00:00Z" },
+                { "readingId":"bulk-2", "patientId":"p-001", "type":"HR", "hr":76, "capturedAt":"2025-08-01T12:05:00Z" },
+                { "readingId":"bulk-3", "patientId":"p-001", "type":"HR", "hr":77, "capturedAt":"2025-08-01T12:10:00Z" }
+            ]
+            """;
+
+        webTestClient
+            .post()
+            .uri("/readings/bulk")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(requestBody)
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.accepted").isEqualTo(2)
+            .jsonPath("$.duplicates").isEqualTo(1)
+            .jsonPath("$.rejected").isEqualTo(0);
+
+        verify(vitalService, times(1)).bulkIngestReadings(argThat(readings -> readings.size() == 3));
+        verify(vitalService, never()).ingestReadings(anyList());
+    }
+
+    @Test
+    @DisplayName("Should stream NDJSON readings and return one NDJSON result per reading")
+    void testStreamedReadings() {
+        when(vitalService.processReadingStream(any()))
+            .thenAnswer(invocation -> invocation.<Flux<VitalReading>>getArgument(0)
+                .map(reading -> ReadingResult.accepted(reading.getReadingId(), List.of())));
+
+        String requestBody = """
+            { "readingId":"stream-1", "patientId":"p-001", "type":"HR", "hr":75, "capturedAt":"2025-08-01T12:00:00Z" }
+            { "readingId":"stream-2", "patientId":"p-001", "type":"SPO2", "spo2":97, "capturedAt":"2025-08-01T12:05:00Z" }
+            """;
+
+        webTestClient
+            .post()
+            .uri("/readings")
+            .contentType(MediaType.APPLICATION_NDJSON)
+            .accept(MediaType.APPLICATION_NDJSON)
+            .bodyValue(requestBody)
+            .exchange()
+            .expectStatus().isOk()
+            .expectHeader().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON)
+            .expectBodyList(ReadingResult.class)
+            .hasSize(2)
+            .value(results -> {
+                assertThat(results)
+                    .extracting(ReadingResult::getReadingId)
+                    .containsExactly("stream-1", "stream-2");
+                assertThat(results)
+                    .allMatch(result -> result.getStatus() == ReadingStatus.ACCEPTED);
+            });
+
+        verify(vitalService, never()).ingestReadings(anyList());
+    }
+
+    @Test
+    @DisplayName("Should return 202 with a batch token when async=true")
+    void testAsyncSubmitReturnsAccepted() {
+        BatchStatus status = new BatchStatus("token-1", BatchState.EVALUATING, 1, 0, 0, null, LocalDateTime.now(), null);
+        when(vitalService.ingestReadingsAsync(anyList())).thenReturn(Mono.just(status));
+
+        String requestBody = """
+            [{ "readingId":"async-1", "patientId":"p-001", "type":"HR", "hr":130, "capturedAt":"2025-08-01T12:00:00Z" }]
+            """;
+
+        webTestClient
+            .post()
+            .uri("/readings?async=true")
+            .contentType(MediaType.APPLICATION_JSON)
+            .bodyValue(requestBody)
+            .exchange()
+            .expectStatus().isAccepted()
+            .expectHeader().valueEquals("Location", "/readings/batches/token-1")
+            .expectBody()
+            .jsonPath("$.batchToken").isEqualTo("token-1")
+            .jsonPath("$.state").isEqualTo("EVALUATING")
+            .jsonPath("$.accepted").isEqualTo(1);
+
+        verify(vitalService, never()).ingestReadings(anyList());
+    }
+
+    @Test
+    @DisplayName("Should return batch status by token and 404 for unknown tokens")
+    void testGetBatchStatus() {
+        Alert alert = new Alert();
+        alert.setReadingId("async-1");
+        alert.setAlertType("HIGH");
+        BatchStatus completed = new BatchStatus("token-1", BatchState.COMPLETED, 1, 0, 0, List.of(alert),
+            LocalDateTime.now(), LocalDateTime.now());
+        when(batchTracker.find("token-1")).thenReturn(Mono.just(completed));
+        when(batchTracker.find("missing")).thenReturn(Mono.empty());
+
+        webTestClient
+            .get()
+            .uri("/readings/batches/token-1")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$.state").isEqualTo("COMPLETED")
+            .jsonPath("$.alerts[0].readingId").isEqualTo("async-1");
+
+        webTestClient
+            .get()
+            .uri("/readings/batches/missing")
+            .exchange()
+            .expectStatus().isNotFound();
+    }
+
+    @Test
+    @DisplayName("Should return a patient's recent readings and reject a malformed before timestamp")
+    void testGetRecentReadings() {
+        when(vitalService.getRecentReadings("p-001", LocalDateTime.parse("2025-08-01T12:10:00"), 3))
+            .thenReturn(Flux.just(new HRReading("hr-1", "p-001", "2025-08-01T12:00:00", 80)));
+
+        webTestClient
+            .get()
+            .uri("/readings/patients/p-001/recent?before=2025-08-01T12:10:00&limit=3")
+            .exchange()
+            .expectStatus().isOk()
+            .expectBody()
+            .jsonPath("$[0].readingId").isEqualTo("hr-1")
+            .jsonPath("$[0].hr").isEqualTo(80);
+
+        webTestClient
+            .get()
+            .uri("/readings/patients/p-001/recent?before=yesterday")
+            .exchange()
+            .expectStatus().isBadRequest();
+
+        verify(vitalService, times(1)).getRecentReadings(anyString(), any(), anyInt());
+    }
+}
@@ -0,0 +1,164 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.Alert;
+import com.folautech.vital.model.HRReading;
+import com.folautech.vital.model.SPO2Reading;
+import com.folautech.vital.model.VitalReading;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class AlertForwardCoalescerTest {
+
+    @Mock
+    private WebClient.Builder webClientBuilder;
+
+    @Mock
+    private WebClient webClient;
+
+    @Mock
+    private WebClient.RequestBodyUriSpec requestBodyUriSpec;
+
+    @Mock
+    private WebClient.RequestBodySpec requestBodySpec;
+
+    @Mock
+    private WebClient.RequestHeadersSpec requestHeadersSpec;
+
+    @Mock
+    private WebClient.ResponseSpec responseSpec;
+
+    private AlertForwardCoalescer coalescer;
+
+    @BeforeEach
+    void setUp() {
+        when(webClientBuilder.build()).thenReturn(webClient);
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
+        when(requestBodySpec.accept(any(MediaType[].class))).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+
+        coalescer = new AlertForwardCoalescer(webClientBuilder, new SimpleMeterRegistry(), true, 3, 1000, 100);
+        ReflectionTestUtils.setField(coalescer, "alertServiceUrl", "http://localhost:8082");
+        ReflectionTestUtils.setField(coalescer, "alertServiceTimeoutSeconds", 5);
+        coalescer.start();
+    }
+
+    @AfterEach
+    void tearDown() {
+        coalescer.stop();
+    }
+
+    private Alert alert(String readingId, String alertType) {
+        Alert alert = new Alert();
+        alert.setReadingId(readingId);
+        alert.setAlertType(alertType);
+        return alert;
+    }
+
+    @Test
+    @DisplayName("Should merge concurrent callers into one /evaluate call and split alerts by readingId")
+    void testCallersShareOneEvaluateCall() {
+        when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.just(alert("fwd-3", "LOW"), alert("fwd-1", "HIGH")));
+        List<VitalReading> first = List.of(
+            new HRReading("fwd-1", "p-001", "2025-08-01T12:00:00Z", 120),
+            new HRReading("fwd-2", "p-001", "2025-08-01T12:05:00Z", 75));
+        List<VitalReading> second = List.of(
+            new SPO2Reading("fwd-3", "p-002", "2025-08-01T12:00:00Z", 91));
+
+        StepVerifier.create(Mono.zip(coalescer.evaluate(first), coalescer.evaluate(second)))
+            .expectNextMatches(results -> results.getT1().size() == 1
+                && results.getT1().get(0).getReadingId().equals("fwd-1")
+                && results.getT2().size() == 1
+                && results.getT2().get(0).getReadingId().equals("fwd-3"))
+            .verifyComplete();
+
+        verify(requestBodySpec, times(1)).bodyValue(argThat(body -> ((List<?>) body).size() == 3));
+        verify(requestBodySpec).accept(MediaType.APPLICATION_NDJSON, MediaType.APPLICATION_JSON);
+    }
+
+    @Test
+    @DisplayName("Should report an alert service failure to every caller so the outbox relay can retry")
+    void testFailedCallIsReportedToCallers() {
+        when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.error(new RuntimeException("connection refused")));
+        List<VitalReading> readings = List.of(
+            new HRReading("fwd-1", "p-001", "2025-08-01T12:00:00Z", 120),
+            new HRReading("fwd-2", "p-001", "2025-08-01T12:05:00Z", 75),
+            new HRReading("fwd-3", "p-001", "2025-08-01T12:10:00Z", 80));
+
+        StepVerifier.create(coalescer.evaluate(readings))
+            .expectErrorMessage("connection refused")
+            .verify();
+    }
+
+    @Test
+    @DisplayName("Should send only the readings a full queue rejects directly")
+    void testOnlyRejectedReadingsGoDirect() {
+        when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.just(alert("fwd-1", "HIGH")));
+        // Not started and room for one reading, so the second one is rejected
+        AlertForwardCoalescer full = new AlertForwardCoalescer(webClientBuilder, new SimpleMeterRegistry(), true, 3, 10, 1);
+        ReflectionTestUtils.setField(full, "alertServiceUrl", "http://localhost:8082");
+        ReflectionTestUtils.setField(full, "alertServiceTimeoutSeconds", 5);
+        List<VitalReading> readings = List.of(
+            new HRReading("fwd-1", "p-001", "2025-08-01T12:00:00Z", 120),
+            new HRReading("fwd-2", "p-001", "2025-08-01T12:05:00Z", 130));
+        List<List<VitalReading>> direct = new ArrayList<>();
+
+        Mono<List<Alert>> result = full.evaluate(readings, rejected -> {
+            direct.add(rejected);
+            return Mono.just(List.of(alert("fwd-2", "HIGH")));
+        }).cache();
+        result.subscribe();
+        full.start();
+
+        try {
+            StepVerifier.create(result)
+                .expectNextMatches(alerts -> alerts.size() == 2
+                    && alerts.get(0).getReadingId().equals("fwd-1")
+                    && alerts.get(1).getReadingId().equals("fwd-2"))
+                .verifyComplete();
+        } finally {
+            full.stop();
+        }
+
+        assertEquals(List.of(List.of(readings.get(1))), direct);
+        verify(requestBodySpec).bodyValue(argThat(body -> ((List<?>) body).size() == 1));
+    }
+
+    @Test
+    @DisplayName("Should send queued readings before stop returns")
+    void testStopWaitsForQueuedReadings() {
+        when(responseSpec.bodyToFlux(Alert.class))
+            .thenReturn(Flux.just(alert("fwd-1", "HIGH")).delaySubscription(Duration.ofMillis(200)));
+        AtomicReference<List<Alert>> forwarded = new AtomicReference<>();
+        coalescer.evaluate(List.of(new HRReading("fwd-1", "p-001", "2025-08-01T12:00:00Z", 120)))
+            .subscribe(forwarded::set);
+
+        coalescer.stop();
+
+        assertEquals(1, forwarded.get().size());
+        assertEquals("fwd-1", forwarded.get().get(0).getReadingId());
+    }
+}
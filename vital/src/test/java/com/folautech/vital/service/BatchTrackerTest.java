@@ -0,0 +1,80 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.Alert;
+import com.folautech.vital.model.BatchState;
+import com.folautech.vital.model.BatchStatus;
+import com.folautech.vital.model.IngestResult;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+public class BatchTrackerTest {
+
+    private final BatchTracker batchTracker = new BatchTracker(2);
+
+    @Test
+    @DisplayName("Should report a batch as evaluating until its alerts are recorded")
+    void testCompleteBatch() {
+        BatchStatus status = batchTracker.register(new IngestResult(List.of(), 2, 1, 0));
+        Alert alert = new Alert();
+        alert.setReadingId("async-1");
+
+        StepVerifier.create(batchTracker.find(status.getBatchToken()))
+            .expectNextMatches(found -> found.getState() == BatchState.EVALUATING && found.getAccepted() == 2)
+            .verifyComplete();
+
+        batchTracker.complete(status.getBatchToken(), List.of(alert));
+
+        StepVerifier.create(batchTracker.find(status.getBatchToken()))
+            .expectNextMatches(found -> found.getState() == BatchState.COMPLETED
+                && found.getAlerts().size() == 1
+                && found.getDuplicates() == 1
+                && found.getCompletedAt() != null)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should push the completed status to watchers")
+    void testWatchBatch() {
+        BatchStatus status = batchTracker.register(new IngestResult(List.of(), 1, 0, 0));
+
+        StepVerifier.create(batchTracker.watch(status.getBatchToken()))
+            .expectNextMatches(update -> update.getState() == BatchState.EVALUATING)
+            .then(() -> batchTracker.complete(status.getBatchToken(), List.of()))
+            .expectNextMatches(update -> update.getState() == BatchState.COMPLETED)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should tell a batch left to the outbox relay apart from one that raised no alerts")
+    void testPendingRelay() {
+        BatchStatus status = batchTracker.register(new IngestResult(List.of(), 1, 0, 0));
+
+        StepVerifier.create(batchTracker.watch(status.getBatchToken()))
+            .expectNextMatches(update -> update.getState() == BatchState.EVALUATING)
+            .then(() -> batchTracker.pendingRelay(status.getBatchToken()))
+            .expectNextMatches(update -> update.getState() == BatchState.PENDING_RELAY
+                && update.getAlerts() == null
+                && update.getCompletedAt() != null)
+            .verifyComplete();
+
+        StepVerifier.create(batchTracker.watch(status.getBatchToken()))
+            .expectNextMatches(update -> update.getState() == BatchState.PENDING_RELAY)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should evict the oldest batch once the tracker is full")
+    void testOldestBatchIsEvicted() {
+        BatchStatus first = batchTracker.register(new IngestResult(List.of(), 1, 0, 0));
+        batchTracker.register(new IngestResult(List.of(), 1, 0, 0));
+        batchTracker.register(new IngestResult(List.of(), 1, 0, 0));
+
+        StepVerifier.create(batchTracker.find(first.getBatchToken()))
+            .verifyComplete();
+        StepVerifier.create(batchTracker.watch(first.getBatchToken()))
+            .verifyComplete();
+    }
+}
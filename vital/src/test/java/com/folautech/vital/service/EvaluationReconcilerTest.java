@@ -0,0 +1,150 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.VitalReadingEntity;
+import com.folautech.vital.repository.OutboxRepository;
+import com.folautech.vital.repository.ReconciliationCheckpointRepository;
+import com.folautech.vital.repository.VitalRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class EvaluationReconcilerTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.parse("2025-08-01T12:00:00");
+
+    @Mock
+    private VitalRepository vitalRepository;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private ReconciliationCheckpointRepository checkpointRepository;
+
+    @Mock
+    private VitalService vitalService;
+
+    private EvaluationReconciler reconciler;
+
+    @BeforeEach
+    void setUp() {
+        reconciler = new EvaluationReconciler(vitalRepository, outboxRepository, checkpointRepository, vitalService,
+            new SimpleMeterRegistry());
+        ReflectionTestUtils.setField(reconciler, "pageSize", 2);
+        ReflectionTestUtils.setField(reconciler, "concurrency", 2);
+        ReflectionTestUtils.setField(reconciler, "settleSeconds", 300L);
+        ReflectionTestUtils.setField(reconciler, "initialLookbackHours", 24L);
+        ReflectionTestUtils.setField(reconciler, "maxWindowMinutes", 60L);
+    }
+
+    private VitalReadingEntity entity(String readingId, LocalDateTime createdAt) {
+        return VitalReadingEntity.builder()
+            .readingId(readingId)
+            .patientId("p-001")
+            .type("HR")
+            .hr(75)
+            .capturedAt(createdAt)
+            .createdAt(createdAt)
+            .build();
+    }
+
+    @Test
+    @DisplayName("Should page through gaps with keyset pagination, re-forward them and advance the checkpoint")
+    void testReconcileWindow() {
+        LocalDateTime checkpoint = NOW.minusHours(2);
+        LocalDateTime windowEnd = checkpoint.plusMinutes(60);
+        VitalReadingEntity first = entity("gap-1", checkpoint.plusMinutes(1));
+        VitalReadingEntity second = entity("gap-2", checkpoint.plusMinutes(2));
+        VitalReadingEntity third = entity("gap-3", checkpoint.plusMinutes(3));
+        when(checkpointRepository.findScannedUntil(EvaluationReconciler.JOB_NAME)).thenReturn(Mono.just(checkpoint));
+        when(vitalRepository.findUnevaluatedAfter(checkpoint, "", windowEnd, 2)).thenReturn(Flux.just(first, second));
+        when(vitalRepository.findUnevaluatedAfter(second.getCreatedAt(), "gap-2", windowEnd, 2)).thenReturn(Flux.just(third));
+        when(vitalService.evaluateStoredReadings(anyList())).thenReturn(Mono.just(List.of()));
+        when(outboxRepository.acknowledge(anyList())).thenReturn(Mono.just(0L));
+        when(checkpointRepository.saveScannedUntil(EvaluationReconciler.JOB_NAME, windowEnd)).thenReturn(Mono.empty());
+        when(outboxRepository.deleteAcksCreatedUntil(windowEnd, 2)).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(reconciler.reconcile(NOW))
+            .expectNextMatches(report -> report.getGaps() == 3
+                && report.getReforwarded() == 3
+                && report.getFailed() == 0
+                && report.getWindowEnd().equals(windowEnd))
+            .verifyComplete();
+
+        verify(outboxRepository).acknowledge(List.of("gap-1", "gap-2"));
+        verify(outboxRepository).acknowledge(List.of("gap-3"));
+        verify(checkpointRepository).saveScannedUntil(EvaluationReconciler.JOB_NAME, windowEnd);
+    }
+
+    @Test
+    @DisplayName("Should keep the checkpoint when a re-forward fails")
+    void testFailedReforwardKeepsCheckpoint() {
+        LocalDateTime checkpoint = NOW.minusHours(2);
+        when(checkpointRepository.findScannedUntil(EvaluationReconciler.JOB_NAME)).thenReturn(Mono.just(checkpoint));
+        when(vitalRepository.findUnevaluatedAfter(any(), anyString(), any(), anyInt()))
+            .thenReturn(Flux.just(entity("gap-1", checkpoint.plusMinutes(1))));
+        when(vitalService.evaluateStoredReadings(anyList())).thenReturn(Mono.error(new RuntimeException("connection refused")));
+
+        StepVerifier.create(reconciler.reconcile(NOW))
+            .expectNextMatches(report -> report.getGaps() == 1 && report.getFailed() == 1 && report.getReforwarded() == 0)
+            .verifyComplete();
+
+        verify(checkpointRepository, never()).saveScannedUntil(anyString(), any());
+        verify(outboxRepository, never()).acknowledge(anyList());
+        verify(outboxRepository, never()).deleteAcksCreatedUntil(any(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should not scan readings newer than the settle delay")
+    void testWindowStopsAtSettleHorizon() {
+        LocalDateTime checkpoint = NOW.minusMinutes(6);
+        LocalDateTime horizon = NOW.minusMinutes(5);
+        when(checkpointRepository.findScannedUntil(EvaluationReconciler.JOB_NAME)).thenReturn(Mono.just(checkpoint));
+        when(vitalRepository.findUnevaluatedAfter(checkpoint, "", horizon, 2)).thenReturn(Flux.empty());
+        when(checkpointRepository.saveScannedUntil(EvaluationReconciler.JOB_NAME, horizon)).thenReturn(Mono.empty());
+        when(outboxRepository.deleteAcksCreatedUntil(horizon, 2)).thenReturn(Mono.just(0L));
+
+        StepVerifier.create(reconciler.reconcile(NOW))
+            .expectNextMatches(report -> report.getGaps() == 0 && report.getWindowEnd().equals(horizon))
+            .verifyComplete();
+
+        verify(vitalService, never()).evaluateStoredReadings(anyList());
+    }
+
+    @Test
+    @DisplayName("Should delete the acks of a reconciled window in pages once its checkpoint is saved")
+    void testAcksOfReconciledWindowAreDeleted() {
+        LocalDateTime checkpoint = NOW.minusHours(2);
+        LocalDateTime windowEnd = checkpoint.plusMinutes(60);
+        when(checkpointRepository.findScannedUntil(EvaluationReconciler.JOB_NAME)).thenReturn(Mono.just(checkpoint));
+        when(vitalRepository.findUnevaluatedAfter(checkpoint, "", windowEnd, 2)).thenReturn(Flux.empty());
+        when(checkpointRepository.saveScannedUntil(EvaluationReconciler.JOB_NAME, windowEnd)).thenReturn(Mono.empty());
+        // Five acks in the window: two full pages, then the last one
+        when(outboxRepository.deleteAcksCreatedUntil(windowEnd, 2))
+            .thenReturn(Mono.just(2L), Mono.just(2L), Mono.just(1L));
+
+        StepVerifier.create(reconciler.reconcile(NOW))
+            .expectNextMatches(report -> report.getGaps() == 0)
+            .verifyComplete();
+
+        InOrder order = inOrder(checkpointRepository, outboxRepository);
+        order.verify(checkpointRepository).saveScannedUntil(EvaluationReconciler.JOB_NAME, windowEnd);
+        order.verify(outboxRepository, times(3)).deleteAcksCreatedUntil(windowEnd, 2);
+    }
+}
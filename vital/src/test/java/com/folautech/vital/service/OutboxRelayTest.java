@@ -0,0 +1,117 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.OutboxEntry;
+import com.folautech.vital.model.VitalReadingEntity;
+import com.folautech.vital.repository.OutboxRepository;
+import com.folautech.vital.repository.VitalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class OutboxRelayTest {
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private VitalRepository vitalRepository;
+
+    @Mock
+    private VitalService vitalService;
+
+    private OutboxRelay outboxRelay;
+
+    @BeforeEach
+    void setUp() {
+        outboxRelay = new OutboxRelay(outboxRepository, vitalRepository, vitalService);
+        ReflectionTestUtils.setField(outboxRelay, "enabled", true);
+        ReflectionTestUtils.setField(outboxRelay, "batchSize", 2);
+        ReflectionTestUtils.setField(outboxRelay, "leaseSeconds", 60);
+        ReflectionTestUtils.setField(outboxRelay, "baseBackoffSeconds", 5);
+        ReflectionTestUtils.setField(outboxRelay, "maxBackoffSeconds", 600);
+    }
+
+    private VitalReadingEntity entity(String readingId) {
+        return VitalReadingEntity.builder()
+            .readingId(readingId)
+            .patientId("p-001")
+            .type("HR")
+            .hr(75)
+            .capturedAt(LocalDateTime.parse("2025-08-01T12:00:00"))
+            .build();
+    }
+
+    @Test
+    @DisplayName("Should drain full batches in order until the outbox is empty")
+    void testRelayDrainsBatches() {
+        when(outboxRepository.claimBatch(2, 60))
+            .thenReturn(Flux.just(new OutboxEntry(1L, "ob-2", 1), new OutboxEntry(2L, "ob-1", 1)))
+            .thenReturn(Flux.just(new OutboxEntry(3L, "ob-3", 1)));
+        when(vitalRepository.findAllById(anyIterable()))
+            .thenReturn(Flux.just(entity("ob-1"), entity("ob-2")))
+            .thenReturn(Flux.just(entity("ob-3")));
+        when(vitalService.evaluateStoredReadings(anyList())).thenReturn(Mono.just(List.of()));
+        when(outboxRepository.acknowledge(anyList())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(outboxRelay.relay())
+            .expectNext(3)
+            .verifyComplete();
+
+        // Outbox order is kept, not repository order
+        verify(vitalService).evaluateStoredReadings(argThat(readings -> readings.size() == 2
+            && readings.get(0).getReadingId().equals("ob-2")));
+        verify(outboxRepository).acknowledge(List.of("ob-2", "ob-1"));
+        verify(outboxRepository).acknowledge(List.of("ob-3"));
+        verify(outboxRepository, never()).reschedule(anyList(), anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should reschedule a batch with backoff when the alert service fails")
+    void testRelayReschedulesOnFailure() {
+        when(outboxRepository.claimBatch(2, 60))
+            .thenReturn(Flux.just(new OutboxEntry(1L, "ob-1", 3), new OutboxEntry(2L, "ob-2", 3)));
+        when(vitalRepository.findAllById(anyIterable()))
+            .thenReturn(Flux.just(entity("ob-1"), entity("ob-2")));
+        when(vitalService.evaluateStoredReadings(anyList()))
+            .thenReturn(Mono.error(new RuntimeException("connection refused")));
+        when(outboxRepository.reschedule(anyList(), anyString(), anyInt(), anyInt())).thenReturn(Mono.just(2L));
+
+        StepVerifier.create(outboxRelay.relay())
+            .expectNext(0)
+            .verifyComplete();
+
+        verify(outboxRepository).reschedule(List.of(1L, 2L), "connection refused", 5, 600);
+        verify(outboxRepository, never()).acknowledge(anyList());
+        // a failed batch stops this run instead of hammering the alert service
+        verify(outboxRepository, times(1)).claimBatch(anyInt(), anyInt());
+    }
+
+    @Test
+    @DisplayName("Should drop entries whose reading no longer exists")
+    void testRelayDropsOrphanedEntries() {
+        when(outboxRepository.claimBatch(2, 60)).thenReturn(Flux.just(new OutboxEntry(1L, "ob-gone", 1)));
+        when(vitalRepository.findAllById(anyIterable())).thenReturn(Flux.empty());
+        when(outboxRepository.delete(anyList())).thenReturn(Mono.just(1L));
+
+        StepVerifier.create(outboxRelay.relay())
+            .expectNext(1)
+            .verifyComplete();
+
+        verify(vitalService, never()).evaluateStoredReadings(anyList());
+        verify(outboxRepository).delete(List.of(1L));
+    }
+}
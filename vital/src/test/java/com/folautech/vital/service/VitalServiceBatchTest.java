@@ -0,0 +1,341 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.*;
+import com.folautech.vital.repository.OutboxRepository;
+import com.folautech.vital.repository.VitalBatchRepository;
+import com.folautech.vital.repository.VitalRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class VitalServiceBatchTest {
+
+    @Mock
+    private VitalRepository vitalRepository;
+
+    @Mock
+    private VitalBatchRepository vitalBatchRepository;
+
+    @Mock
+    private WriteBehindBuffer writeBehindBuffer;
+
+    @Mock
+    private AlertForwardCoalescer alertForwardCoalescer;
+
+    @Mock
+    private BatchTracker batchTracker;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
+    @Mock
+    private WebClient.Builder webClientBuilder;
+
+    @Mock
+    private WebClient webClient;
+
+    @Mock
+    private WebClient.RequestBodyUriSpec requestBodyUriSpec;
+
+    @Mock
+    private WebClient.RequestBodySpec requestBodySpec;
+
+    @Mock
+    private WebClient.RequestHeadersSpec requestHeadersSpec;
+
+    @Mock
+    private WebClient.ResponseSpec responseSpec;
+
+    private VitalService vitalService;
+
+    @BeforeEach
+    void setUp() {
+        when(webClientBuilder.build()).thenReturn(webClient);
+        vitalService = new VitalService(vitalRepository, vitalBatchRepository, writeBehindBuffer, alertForwardCoalescer,
+            batchTracker, outboxRepository, webClientBuilder);
+        lenient().when(outboxRepository.acknowledge(anyList())).thenReturn(Mono.just(0L));
+        ReflectionTestUtils.setField(vitalService, "alertServiceUrl", "http://localhost:8082");
+        ReflectionTestUtils.setField(vitalService, "alertServiceTimeoutSeconds", 5);
+        ReflectionTestUtils.setField(vitalService, "insertChunkSize", 2);
+
+        when(webClient.post()).thenReturn(requestBodyUriSpec);
+        when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
+        when(requestBodySpec.accept(any(MediaType[].class))).thenReturn(requestBodySpec);
+        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.empty());
+    }
+
+    private List<VitalReading> readings() {
+        return List.of(
+            new BPReading("batch-1", "p-001", "2025-08-01T12:00:00Z", 120, 80),
+            new HRReading("batch-2", "p-001", "2025-08-01T12:05:00Z", 75),
+            new SPO2Reading("batch-3", "p-001", "2025-08-01T12:10:00Z", 98)
+        );
+    }
+
+    private void insertAllAsNew() {
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VitalReadingEntity>>getArgument(0))
+                .map(VitalReadingEntity::getReadingId));
+    }
+
+    @Test
+    @DisplayName("Should persist a batch with one multi-row insert per chunk")
+    void testBatchInsertIsChunked() {
+        insertAllAsNew();
+
+        StepVerifier.create(vitalService.processReadings(readings()))
+            .expectNextMatches(List::isEmpty)
+            .verifyComplete();
+
+        // 3 readings with a chunk size of 2 -> 2 statements, no per-row saves or existence checks
+        verify(vitalBatchRepository, times(2)).insertIgnoringDuplicates(anyList());
+        verify(vitalRepository, never()).save(any(VitalReadingEntity.class));
+        verify(vitalRepository, never()).existsByReadingId(anyString());
+        verify(requestBodySpec).bodyValue(argThat(body -> ((List<?>) body).size() == 3));
+    }
+
+    @Test
+    @DisplayName("Should fall back to per-row inserts and drop only the failing reading")
+    void testBatchInsertFallbackReportsFailedRow() {
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> {
+                List<VitalReadingEntity> entities = invocation.getArgument(0);
+                boolean poisoned = entities.stream().anyMatch(e -> e.getReadingId().equals("batch-2"));
+                return poisoned
+                    ? Flux.error(new RuntimeException("constraint violation"))
+                    : Flux.fromIterable(entities).map(VitalReadingEntity::getReadingId);
+            });
+
+        StepVerifier.create(vitalService.ingestReadings(readings()))
+            .expectNextMatches(result -> result.getAccepted() == 2
+                && result.getRejected() == 1
+                && result.getDuplicates() == 0)
+            .verifyComplete();
+
+        // chunk [1,2] fails and is retried as [1] and [2]; chunk [3] succeeds first time
+        verify(vitalBatchRepository, times(4)).insertIgnoringDuplicates(anyList());
+        verify(requestBodySpec).bodyValue(argThat(body -> ((List<?>) body).stream()
+            .map(reading -> ((VitalReading) reading).getReadingId())
+            .toList()
+            .equals(List.of("batch-1", "batch-3"))));
+    }
+
+    @Test
+    @DisplayName("Should parse capturedAt for the batch entities")
+    void testBatchInsertEntities() {
+        insertAllAsNew();
+
+        StepVerifier.create(vitalService.processReadings(readings()))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        verify(vitalBatchRepository).insertIgnoringDuplicates(argThat(entities -> entities.size() == 2
+            && entities.get(0).getCapturedAt().equals(LocalDateTime.parse("2025-08-01T12:00:00"))
+            && entities.get(1).getHr() == 75));
+    }
+
+    @Test
+    @DisplayName("Should count stored and repeated readingIds as duplicates and forward only new readings")
+    void testDuplicatesAreCountedNotThrown() {
+        List<VitalReading> batch = List.of(
+            new BPReading("batch-1", "p-001", "2025-08-01T12:00:00Z", 120, 80),
+            new HRReading("batch-2", "p-001", "2025-08-01T12:05:00Z", 75),
+            new HRReading("batch-2", "p-001", "2025-08-01T12:05:00Z", 75),
+            new SPO2Reading("batch-3", "p-001", "2025-08-01T12:10:00Z", 98)
+        );
+        // batch-1 is already stored, so the insert does not return it
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VitalReadingEntity>>getArgument(0))
+                .map(VitalReadingEntity::getReadingId)
+                .filter(id -> !id.equals("batch-1")));
+
+        StepVerifier.create(vitalService.ingestReadings(batch))
+            .expectNextMatches(result -> result.getAccepted() == 2
+                && result.getDuplicates() == 2
+                && result.getRejected() == 0)
+            .verifyComplete();
+
+        verify(vitalRepository, never()).existsByReadingId(anyString());
+        verify(requestBodySpec).bodyValue(argThat(body -> ((List<?>) body).stream()
+            .map(reading -> ((VitalReading) reading).getReadingId())
+            .toList()
+            .equals(List.of("batch-2", "batch-3"))));
+    }
+
+    @Test
+    @DisplayName("Should skip already stored readings in transactional mode instead of failing the batch")
+    void testTransactionalDuplicatesAreCounted() {
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VitalReadingEntity>>getArgument(0))
+                .map(VitalReadingEntity::getReadingId)
+                .filter(id -> !id.equals("batch-3")));
+
+        StepVerifier.create(vitalService.ingestReadingsTransactional(readings()))
+            .expectNextMatches(result -> result.getAccepted() == 2 && result.getDuplicates() == 1)
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should bulk load through COPY and forward the new readings in chunks")
+    void testBulkIngestForwardsInChunks() {
+        ReflectionTestUtils.setField(vitalService, "bulkForwardChunkSize", 2);
+        List<VitalReading> batch = List.of(
+            new BPReading("bulk-1", "p-001", "2025-08-01T12:00:00Z", 120, 80),
+            new HRReading("bulk-2", "p-001", "2025-08-01T12:05:00Z", 75),
+            new HRReading("bulk-3", "p-001", "2025-08-01T12:10:00Z", 400),
+            new SPO2Reading("bulk-4", "p-001", "2025-08-01T12:15:00Z", 98),
+            new SPO2Reading("bulk-5", "p-001", "2025-08-01T12:20:00Z", 97)
+        );
+        // bulk-5 already exists, bulk-3 fails validation
+        when(vitalBatchRepository.copyIgnoringDuplicates(any()))
+            .thenAnswer(invocation -> invocation.<Flux<VitalReadingEntity>>getArgument(0)
+                .map(VitalReadingEntity::getReadingId)
+                .filter(id -> !id.equals("bulk-5")));
+
+        StepVerifier.create(vitalService.bulkIngestReadings(batch))
+            .expectNextMatches(result -> result.getAccepted() == 3
+                && result.getDuplicates() == 1
+                && result.getRejected() == 1)
+            .verifyComplete();
+
+        verify(vitalBatchRepository, never()).insertIgnoringDuplicates(anyList());
+        verify(requestBodySpec, times(2)).bodyValue(any());
+    }
+
+    @Test
+    @DisplayName("Should process a streamed upload in windows and emit one result per reading")
+    void testStreamedReadingsAreProcessedInWindows() {
+        ReflectionTestUtils.setField(vitalService, "streamWindowSize", 3);
+        ReflectionTestUtils.setField(vitalService, "streamWindowTimeoutMs", 1000L);
+        Alert alert = new Alert();
+        alert.setReadingId("stream-1");
+        alert.setAlertType("HIGH");
+        when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.just(alert));
+        // stream-4 already exists
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VitalReadingEntity>>getArgument(0))
+                .map(VitalReadingEntity::getReadingId)
+                .filter(id -> !id.equals("stream-4")));
+
+        Flux<VitalReading> upload = Flux.just(
+            new HRReading("stream-1", "p-001", "2025-08-01T12:00:00Z", 120),
+            new HRReading("stream-2", "p-001", "2025-08-01T12:05:00Z", 400),
+            new HRReading("stream-1", "p-001", "2025-08-01T12:00:00Z", 120),
+            new SPO2Reading("stream-4", "p-001", "2025-08-01T12:10:00Z", 98),
+            new SPO2Reading("stream-5", "p-001", "2025-08-01T12:15:00Z", 97)
+        );
+
+        StepVerifier.create(vitalService.processReadingStream(upload))
+            .expectNextMatches(result -> result.getReadingId().equals("stream-1")
+                && result.getStatus() == ReadingStatus.ACCEPTED
+                && result.getAlerts().size() == 1)
+            .expectNextMatches(result -> result.getStatus() == ReadingStatus.REJECTED
+                && result.getMessage().equals("hr must be between 0 and 300"))
+            .expectNextMatches(result -> result.getStatus() == ReadingStatus.DUPLICATE)
+            .expectNextMatches(result -> result.getReadingId().equals("stream-4")
+                && result.getStatus() == ReadingStatus.DUPLICATE)
+            .expectNextMatches(result -> result.getReadingId().equals("stream-5")
+                && result.getStatus() == ReadingStatus.ACCEPTED)
+            .verifyComplete();
+
+        // 2 windows -> 2 inserts and 2 forwards
+        verify(vitalBatchRepository, times(2)).insertIgnoringDuplicates(anyList());
+        verify(requestBodySpec, times(2)).bodyValue(any());
+    }
+
+    @Test
+    @DisplayName("Should hand readings to the write-behind buffer when it is enabled")
+    void testWriteBehindBufferIsUsedWhenEnabled() {
+        when(writeBehindBuffer.isEnabled()).thenReturn(true);
+        // batch-2 is already stored
+        when(writeBehindBuffer.write(any(VitalReadingEntity.class)))
+            .thenAnswer(invocation -> Mono.just(!invocation.<VitalReadingEntity>getArgument(0).getReadingId().equals("batch-2")));
+
+        StepVerifier.create(vitalService.ingestReadings(readings()))
+            .expectNextMatches(result -> result.getAccepted() == 2 && result.getDuplicates() == 1)
+            .verifyComplete();
+
+        verify(writeBehindBuffer, times(3)).write(any(VitalReadingEntity.class));
+        verify(vitalBatchRepository, never()).insertIgnoringDuplicates(anyList());
+        verify(requestBodySpec).bodyValue(argThat(body -> ((List<?>) body).stream()
+            .map(reading -> ((VitalReading) reading).getReadingId())
+            .toList()
+            .equals(List.of("batch-1", "batch-3"))));
+    }
+
+    @Test
+    @DisplayName("Should register an async batch once readings are stored and complete it with the alerts")
+    void testAsyncIngestCompletesInBackground() {
+        insertAllAsNew();
+        BatchStatus registered = new BatchStatus("token-1", BatchState.EVALUATING, 3, 0, 0, null, LocalDateTime.now(), null);
+        when(batchTracker.register(any(IngestResult.class))).thenReturn(registered);
+
+        StepVerifier.create(vitalService.ingestReadingsAsync(readings()))
+            .expectNext(registered)
+            .verifyComplete();
+
+        verify(batchTracker).register(argThat(counts -> counts.getAccepted() == 3 && counts.getAlerts().isEmpty()));
+        verify(batchTracker).complete(eq("token-1"), argThat(List::isEmpty));
+        verify(requestBodySpec).bodyValue(argThat(body -> ((List<?>) body).size() == 3));
+    }
+
+    @Test
+    @DisplayName("Should mark an async batch as pending relay, not completed, when the alert service is down")
+    void testAsyncIngestLeftToRelayWhenAlertServiceFails() {
+        insertAllAsNew();
+        when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.error(new RuntimeException("Connection refused")));
+        BatchStatus registered = new BatchStatus("token-1", BatchState.EVALUATING, 3, 0, 0, null, LocalDateTime.now(), null);
+        when(batchTracker.register(any(IngestResult.class))).thenReturn(registered);
+
+        StepVerifier.create(vitalService.ingestReadingsAsync(readings()))
+            .expectNext(registered)
+            .verifyComplete();
+
+        verify(batchTracker).pendingRelay("token-1");
+        verify(batchTracker, never()).complete(anyString(), anyList());
+        verify(outboxRepository, never()).acknowledge(anyList());
+    }
+
+    @Test
+    @DisplayName("Should acknowledge outbox entries of readings evaluated inline")
+    void testInlineForwardAcknowledgesOutbox() {
+        insertAllAsNew();
+
+        StepVerifier.create(vitalService.ingestReadings(readings()))
+            .expectNextCount(1)
+            .verifyComplete();
+
+        verify(outboxRepository).acknowledge(List.of("batch-1", "batch-2", "batch-3"));
+    }
+
+    @Test
+    @DisplayName("Should leave outbox entries for the relay when the alert service fails")
+    void testFailedForwardLeavesOutboxEntries() {
+        insertAllAsNew();
+        when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.error(new RuntimeException("connection refused")));
+
+        StepVerifier.create(vitalService.ingestReadings(readings()))
+            .expectNextMatches(result -> result.getAccepted() == 3 && result.getAlerts().isEmpty())
+            .verifyComplete();
+
+        verify(outboxRepository, never()).acknowledge(anyList());
+    }
+}
@@ -1,6 +1,8 @@
 package com.folautech.vital.service;
 
 import com.folautech.vital.model.*;
+import com.folautech.vital.repository.OutboxRepository;
+import com.folautech.vital.repository.VitalBatchRepository;
 import com.folautech.vital.repository.VitalRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -11,11 +13,14 @@ import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.util.List;
 import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.*;
@@ -27,6 +32,21 @@ public class VitalServiceParameterizedTest {
     @Mock
     private VitalRepository vitalRepository;
 
+    @Mock
+    private VitalBatchRepository vitalBatchRepository;
+
+    @Mock
+    private WriteBehindBuffer writeBehindBuffer;
+
+    @Mock
+    private AlertForwardCoalescer alertForwardCoalescer;
+
+    @Mock
+    private BatchTracker batchTracker;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
     @Mock
     private WebClient.Builder webClientBuilder;
 
@@ -50,22 +70,24 @@ public class VitalServiceParameterizedTest {
     @BeforeEach
     void setUp() {
         when(webClientBuilder.build()).thenReturn(webClient);
-        vitalService = new VitalService(vitalRepository, webClientBuilder);
+        vitalService = new VitalService(vitalRepository, vitalBatchRepository, writeBehindBuffer, alertForwardCoalescer,
+            batchTracker, outboxRepository, webClientBuilder);
+        lenient().when(outboxRepository.acknowledge(anyList())).thenReturn(Mono.just(0L));
         ReflectionTestUtils.setField(vitalService, "alertServiceUrl", "http://localhost:8082");
+        ReflectionTestUtils.setField(vitalService, "alertServiceTimeoutSeconds", 5);
         
-        // Setup default mock behavior for WebClient chain
-        when(webClient.post()).thenReturn(requestBodyUriSpec);
-        when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
-        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toBodilessEntity()).thenReturn(Mono.just(org.springframework.http.ResponseEntity.accepted().build()));
+        // Setup default mock behavior for WebClient chain (lenient: invalid readings never reach the alert service)
+        lenient().when(webClient.post()).thenReturn(requestBodyUriSpec);
+        lenient().when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
+        lenient().when(requestBodySpec.accept(any(MediaType[].class))).thenReturn(requestBodySpec);
+        lenient().when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        lenient().when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        lenient().when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.empty());
         
-        // Setup lenient mock for repository save (in case it gets called)
-        lenient().when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(VitalReadingEntity.forBP(
-                "default", "default", 120, 80,
-                java.time.LocalDateTime.now()
-            )));
+        // Every reading is new unless a test says otherwise
+        lenient().when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VitalReadingEntity>>getArgument(0))
+                .map(VitalReadingEntity::getReadingId));
     }
 
     @ParameterizedTest
@@ -89,9 +111,6 @@ public class VitalServiceParameterizedTest {
             diastolic
         );
 
-        when(vitalRepository.existsByReadingId(anyString()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains(expectedError))
@@ -115,9 +134,6 @@ public class VitalServiceParameterizedTest {
             hr
         );
 
-        when(vitalRepository.existsByReadingId(anyString()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains(expectedError))
@@ -142,9 +158,6 @@ public class VitalServiceParameterizedTest {
             spo2
         );
 
-        when(vitalRepository.existsByReadingId(anyString()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains(expectedError))
@@ -171,9 +184,6 @@ public class VitalServiceParameterizedTest {
             80
         );
 
-        when(vitalRepository.existsByReadingId(any()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains(expectedError))
@@ -201,20 +211,13 @@ public class VitalServiceParameterizedTest {
             diastolic
         );
 
-        when(vitalRepository.existsByReadingId(readingId))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(VitalReadingEntity.forBP(
-                readingId, "p-001", systolic, diastolic,
-                java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-            )));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
 
-        verify(vitalRepository).existsByReadingId(readingId);
-        verify(vitalRepository).save(any(VitalReadingEntity.class));
+        verify(vitalBatchRepository).insertIgnoringDuplicates(anyList());
+        verify(vitalRepository, never()).save(any(VitalReadingEntity.class));
     }
 
     @ParameterizedTest
@@ -237,20 +240,13 @@ public class VitalServiceParameterizedTest {
             hr
         );
 
-        when(vitalRepository.existsByReadingId(readingId))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(VitalReadingEntity.forHR(
-                readingId, "p-001", hr,
-                java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-            )));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
 
-        verify(vitalRepository).existsByReadingId(readingId);
-        verify(vitalRepository).save(any(VitalReadingEntity.class));
+        verify(vitalBatchRepository).insertIgnoringDuplicates(anyList());
+        verify(vitalRepository, never()).save(any(VitalReadingEntity.class));
     }
 
     @ParameterizedTest
@@ -273,20 +269,13 @@ public class VitalServiceParameterizedTest {
             spo2
         );
 
-        when(vitalRepository.existsByReadingId(readingId))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(VitalReadingEntity.forSPO2(
-                readingId, "p-001", spo2,
-                java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-            )));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
 
-        verify(vitalRepository).existsByReadingId(readingId);
-        verify(vitalRepository).save(any(VitalReadingEntity.class));
+        verify(vitalBatchRepository).insertIgnoringDuplicates(anyList());
+        verify(vitalRepository, never()).save(any(VitalReadingEntity.class));
     }
 
     @ParameterizedTest
@@ -311,16 +300,9 @@ public class VitalServiceParameterizedTest {
             diastolic
         );
 
-        when(vitalRepository.existsByReadingId(readingId))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(VitalReadingEntity.forBP(
-                readingId, "p-001", systolic, diastolic,
-                java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-            )));
-
         // When & Then - Service should process all readings regardless of alert threshold
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
     }
 
@@ -344,16 +326,9 @@ public class VitalServiceParameterizedTest {
             hr
         );
 
-        when(vitalRepository.existsByReadingId(readingId))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(VitalReadingEntity.forHR(
-                readingId, "p-001", hr,
-                java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-            )));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
     }
 
@@ -376,16 +351,9 @@ public class VitalServiceParameterizedTest {
             spo2
         );
 
-        when(vitalRepository.existsByReadingId(readingId))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(VitalReadingEntity.forSPO2(
-                readingId, "p-001", spo2,
-                java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-            )));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
     }
 }
\ No newline at end of file
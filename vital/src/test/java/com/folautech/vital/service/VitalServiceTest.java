@@ -1,6 +1,8 @@
 package com.folautech.vital.service;
 
 import com.folautech.vital.model.*;
+import com.folautech.vital.repository.OutboxRepository;
+import com.folautech.vital.repository.VitalBatchRepository;
 import com.folautech.vital.repository.VitalRepository;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -9,12 +11,19 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.http.MediaType;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.test.StepVerifier;
 
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
@@ -24,6 +33,21 @@ public class VitalServiceTest {
     @Mock
     private VitalRepository vitalRepository;
 
+    @Mock
+    private VitalBatchRepository vitalBatchRepository;
+
+    @Mock
+    private WriteBehindBuffer writeBehindBuffer;
+
+    @Mock
+    private AlertForwardCoalescer alertForwardCoalescer;
+
+    @Mock
+    private BatchTracker batchTracker;
+
+    @Mock
+    private OutboxRepository outboxRepository;
+
     @Mock
     private WebClient.Builder webClientBuilder;
 
@@ -48,22 +72,24 @@ public class VitalServiceTest {
     @BeforeEach
     void setUp() {
         when(webClientBuilder.build()).thenReturn(webClient);
-        vitalService = new VitalService(vitalRepository, webClientBuilder);
+        vitalService = new VitalService(vitalRepository, vitalBatchRepository, writeBehindBuffer, alertForwardCoalescer,
+            batchTracker, outboxRepository, webClientBuilder);
+        lenient().when(outboxRepository.acknowledge(anyList())).thenReturn(Mono.just(0L));
         ReflectionTestUtils.setField(vitalService, "alertServiceUrl", "http://localhost:8082");
+        ReflectionTestUtils.setField(vitalService, "alertServiceTimeoutSeconds", 5);
         
-        // Setup default mock behavior for WebClient chain
-        when(webClient.post()).thenReturn(requestBodyUriSpec);
-        when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
-        when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
-        when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
-        when(responseSpec.toBodilessEntity()).thenReturn(Mono.just(org.springframework.http.ResponseEntity.accepted().build()));
+        // Setup default mock behavior for WebClient chain (lenient: invalid readings never reach the alert service)
+        lenient().when(webClient.post()).thenReturn(requestBodyUriSpec);
+        lenient().when(requestBodyUriSpec.uri(anyString())).thenReturn(requestBodySpec);
+        lenient().when(requestBodySpec.accept(any(MediaType[].class))).thenReturn(requestBodySpec);
+        lenient().when(requestBodySpec.bodyValue(any())).thenReturn(requestHeadersSpec);
+        lenient().when(requestHeadersSpec.retrieve()).thenReturn(responseSpec);
+        lenient().when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.empty());
         
-        // Setup lenient mock for repository save (in case it gets called)
-        lenient().when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(VitalReadingEntity.forBP(
-                "default", "default", 120, 80,
-                java.time.LocalDateTime.now()
-            )));
+        // Every reading is new unless a test says otherwise
+        lenient().when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VitalReadingEntity>>getArgument(0))
+                .map(VitalReadingEntity::getReadingId));
     }
 
     @Test
@@ -78,25 +104,13 @@ public class VitalServiceTest {
             80
         );
 
-        VitalReadingEntity entity = VitalReadingEntity.forBP(
-            "test-bp-1",
-            "p-001",
-            120,
-            80,
-            java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-        );
-
-        when(vitalRepository.existsByReadingId("test-bp-1"))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(entity));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
 
-        verify(vitalRepository).existsByReadingId("test-bp-1");
-        verify(vitalRepository).save(any(VitalReadingEntity.class));
+        verify(vitalBatchRepository).insertIgnoringDuplicates(anyList());
+        verify(vitalRepository, never()).save(any(VitalReadingEntity.class));
     }
 
     @Test
@@ -110,24 +124,13 @@ public class VitalServiceTest {
             75
         );
 
-        VitalReadingEntity entity = VitalReadingEntity.forHR(
-            "test-hr-1",
-            "p-001",
-            75,
-            java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-        );
-
-        when(vitalRepository.existsByReadingId("test-hr-1"))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(entity));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
 
-        verify(vitalRepository).existsByReadingId("test-hr-1");
-        verify(vitalRepository).save(any(VitalReadingEntity.class));
+        verify(vitalBatchRepository).insertIgnoringDuplicates(anyList());
+        verify(vitalRepository, never()).save(any(VitalReadingEntity.class));
     }
 
     @Test
@@ -141,24 +144,13 @@ public class VitalServiceTest {
             98
         );
 
-        VitalReadingEntity entity = VitalReadingEntity.forSPO2(
-            "test-spo2-1",
-            "p-001",
-            98,
-            java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-        );
-
-        when(vitalRepository.existsByReadingId("test-spo2-1"))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(entity));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
 
-        verify(vitalRepository).existsByReadingId("test-spo2-1");
-        verify(vitalRepository).save(any(VitalReadingEntity.class));
+        verify(vitalBatchRepository).insertIgnoringDuplicates(anyList());
+        verify(vitalRepository, never()).save(any(VitalReadingEntity.class));
     }
 
     @Test
@@ -173,16 +165,16 @@ public class VitalServiceTest {
             80
         );
 
-        when(vitalRepository.existsByReadingId("duplicate-1"))
-            .thenReturn(Mono.just(true));
+        // The insert skips readings that are already stored
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList())).thenReturn(Flux.empty());
 
-        // When & Then
+        // When & Then - reported as a duplicate, not as an error
         StepVerifier.create(vitalService.processReading(reading))
-            .expectError(RuntimeException.class)
-            .verify();
+            .expectNextMatches(result -> result.getAccepted() == 0 && result.getDuplicates() == 1)
+            .verifyComplete();
 
-        // Verify only the idempotency check was made
-        verify(vitalRepository).existsByReadingId("duplicate-1");
+        // Nothing new, so nothing is forwarded
+        verify(webClient, never()).post();
     }
 
     @Test
@@ -197,10 +189,6 @@ public class VitalServiceTest {
             80
         );
 
-        // Mock repository (even though validation should fail first)
-        when(vitalRepository.existsByReadingId(anyString()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains("systolic and diastolic are required for BP readings"))
@@ -219,10 +207,6 @@ public class VitalServiceTest {
             null
         );
 
-        // Mock repository
-        when(vitalRepository.existsByReadingId(anyString()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains("systolic and diastolic are required for BP readings"))
@@ -240,10 +224,6 @@ public class VitalServiceTest {
             null
         );
 
-        // Mock repository
-        when(vitalRepository.existsByReadingId(anyString()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains("hr is required for HR readings"))
@@ -261,10 +241,6 @@ public class VitalServiceTest {
             150
         );
 
-        // Mock repository
-        when(vitalRepository.existsByReadingId(anyString()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains("spo2 must be between 0 and 100"))
@@ -283,10 +259,6 @@ public class VitalServiceTest {
             80
         );
 
-        // Mock repository
-        when(vitalRepository.existsByReadingId(any()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains("readingId is required"))
@@ -305,10 +277,6 @@ public class VitalServiceTest {
             80
         );
 
-        // Mock repository
-        when(vitalRepository.existsByReadingId(anyString()))
-            .thenReturn(Mono.just(false));
-
         // When & Then
         StepVerifier.create(vitalService.processReading(reading))
             .expectErrorMatches(error -> error.getMessage().contains("patientId is required"))
@@ -327,27 +295,33 @@ public class VitalServiceTest {
             80
         );
 
-        VitalReadingEntity entity = VitalReadingEntity.forBP(
-            "test-bp-1",
-            "p-001",
-            120,
-            80,
-            java.time.LocalDateTime.parse("2025-08-01T12:00:00")
-        );
-
-        when(vitalRepository.existsByReadingId("test-bp-1"))
-            .thenReturn(Mono.just(false));
-        when(vitalRepository.save(any(VitalReadingEntity.class)))
-            .thenReturn(Mono.just(entity));
-        
         // Override the default WebClient mock to fail
-        when(responseSpec.toBodilessEntity()).thenReturn(Mono.error(new RuntimeException("Connection refused")));
+        when(responseSpec.bodyToFlux(Alert.class)).thenReturn(Flux.error(new RuntimeException("Connection refused")));
 
         // When & Then - Should complete successfully despite alert service failure
         StepVerifier.create(vitalService.processReading(reading))
+            .expectNextMatches(result -> result.getAccepted() == 1)
             .verifyComplete();
 
-        verify(vitalRepository).existsByReadingId("test-bp-1");
-        verify(vitalRepository).save(any(VitalReadingEntity.class));
+        verify(vitalBatchRepository).insertIgnoringDuplicates(anyList());
+        verify(vitalRepository, never()).save(any(VitalReadingEntity.class));
+    }
+
+    @Test
+    @DisplayName("Should return recent readings of a patient as API readings, oldest first")
+    void testGetRecentReadings() {
+        LocalDateTime before = LocalDateTime.parse("2025-08-01T12:10:00");
+        when(vitalRepository.findRecentPerTypeBefore("p-001", before, 16))
+            .thenReturn(Flux.just(
+                VitalReadingEntity.forHR("hr-1", "p-001", 80, LocalDateTime.parse("2025-08-01T12:00:00")),
+                VitalReadingEntity.forBP("bp-1", "p-001", 130, 85, LocalDateTime.parse("2025-08-01T12:05:00"))));
+
+        StepVerifier.create(vitalService.getRecentReadings("p-001", before, 16))
+            .assertNext(reading -> {
+                assertTrue(reading instanceof HRReading);
+                assertEquals("2025-08-01T12:00:00", reading.getCapturedAt());
+            })
+            .assertNext(reading -> assertEquals(130, ((BPReading) reading).getSystolic()))
+            .verifyComplete();
     }
-}
\ No newline at end of file
+}
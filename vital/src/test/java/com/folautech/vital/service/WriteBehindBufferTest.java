@@ -0,0 +1,139 @@
+package com.folautech.vital.service;
+
+import com.folautech.vital.model.VitalReadingEntity;
+import com.folautech.vital.repository.VitalBatchRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class WriteBehindBufferTest {
+
+    @Mock
+    private VitalBatchRepository vitalBatchRepository;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private WriteBehindBuffer buffer;
+
+    @AfterEach
+    void tearDown() {
+        if (buffer != null) {
+            buffer.stop();
+        }
+    }
+
+    private WriteBehindBuffer startBuffer(int maxBatchSize, long maxLatencyMs) {
+        buffer = new WriteBehindBuffer(vitalBatchRepository, meterRegistry, true, maxBatchSize, maxLatencyMs, 100);
+        buffer.start();
+        return buffer;
+    }
+
+    private VitalReadingEntity entity(String readingId) {
+        return VitalReadingEntity.builder()
+            .readingId(readingId)
+            .patientId("p-001")
+            .type("HR")
+            .hr(75)
+            .capturedAt(LocalDateTime.parse("2025-08-01T12:00:00"))
+            .build();
+    }
+
+    @Test
+    @DisplayName("Should coalesce writes from separate callers into one insert")
+    void testWritesAreCoalesced() {
+        // wb-2 is already stored
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VitalReadingEntity>>getArgument(0))
+                .map(VitalReadingEntity::getReadingId)
+                .filter(id -> !id.equals("wb-2")));
+        startBuffer(3, 1000);
+
+        StepVerifier.create(Mono.zip(buffer.write(entity("wb-1")), buffer.write(entity("wb-2")), buffer.write(entity("wb-3"))))
+            .expectNextMatches(results -> results.getT1() && !results.getT2() && results.getT3())
+            .verifyComplete();
+
+        verify(vitalBatchRepository, times(1)).insertIgnoringDuplicates(argThat(entities -> entities.size() == 3));
+        assertThat(meterRegistry.get("vital.write_behind.flush.size").summary().max()).isEqualTo(3.0);
+        assertThat(meterRegistry.get("vital.write_behind.queue.depth").gauge().value()).isZero();
+    }
+
+    @Test
+    @DisplayName("Should flush a partial batch once the latency budget expires")
+    void testPartialBatchFlushesOnTimeout() {
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VitalReadingEntity>>getArgument(0))
+                .map(VitalReadingEntity::getReadingId));
+        startBuffer(500, 20);
+
+        StepVerifier.create(buffer.write(entity("wb-1")))
+            .expectNext(true)
+            .verifyComplete();
+
+        assertThat(meterRegistry.get("vital.write_behind.flush.latency").timer().count()).isEqualTo(1);
+    }
+
+    @Test
+    @DisplayName("Should report only the first copy of a readingId as inserted")
+    void testRepeatedReadingIdInOneFlush() {
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.just("wb-1"));
+        startBuffer(2, 1000);
+
+        StepVerifier.create(Mono.zip(buffer.write(entity("wb-1")), buffer.write(entity("wb-1"))))
+            .expectNextMatches(results -> results.getT1() && !results.getT2())
+            .verifyComplete();
+    }
+
+    @Test
+    @DisplayName("Should retry a failed flush row by row and fail only the offending write")
+    void testFailedFlushFallsBackToRows() {
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> {
+                List<VitalReadingEntity> entities = invocation.getArgument(0);
+                boolean poisoned = entities.stream().anyMatch(e -> e.getReadingId().equals("wb-bad"));
+                return poisoned
+                    ? Flux.error(new RuntimeException("constraint violation"))
+                    : Flux.fromIterable(entities).map(VitalReadingEntity::getReadingId);
+            });
+        startBuffer(2, 1000);
+
+        StepVerifier.create(buffer.write(entity("wb-1")).zipWith(buffer.write(entity("wb-bad")).onErrorReturn(false)))
+            .expectNextMatches(results -> results.getT1() && !results.getT2())
+            .verifyComplete();
+
+        verify(vitalBatchRepository, times(3)).insertIgnoringDuplicates(anyList());
+    }
+
+    @Test
+    @DisplayName("Should finish flushing queued writes before stop returns")
+    void testStopWaitsForFlush() {
+        when(vitalBatchRepository.insertIgnoringDuplicates(anyList()))
+            .thenAnswer(invocation -> Flux.fromIterable(invocation.<List<VitalReadingEntity>>getArgument(0))
+                .map(VitalReadingEntity::getReadingId)
+                .delaySubscription(Duration.ofMillis(200)));
+        startBuffer(10, 60_000);
+        AtomicReference<Boolean> stored = new AtomicReference<>();
+        buffer.write(entity("wb-1")).subscribe(stored::set);
+
+        buffer.stop();
+
+        assertThat(stored.get()).isTrue();
+    }
+}